@@ -0,0 +1,154 @@
+package org.ga4gh.ctk.benchmarks;
+
+import org.ga4gh.ctk.testserver.store.SamRecords;
+import org.ga4gh.methods.SearchReadsResponse;
+import org.ga4gh.methods.SearchVariantsResponse;
+import org.ga4gh.models.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * <p>Builds realistic GA4GH response objects from the bundled <tt>test-data</tt> files,
+ * so the benchmarks serialize and parse the same shapes (and sizes) of data a server
+ * returns to the CTS.</p>
+ * <p>The <tt>test-data</tt> directory is found from the <tt>ctk.benchmarks.testdata</tt>
+ * system property, or else as <tt>test-data</tt> in the working directory or its parent.</p>
+ */
+final class Payloads {
+
+    /**
+     * The read group sets loaded for reads payloads; one per sample.
+     */
+    static final String[] SAM_FILES = {"brca1_HG00096.sam", "brca1_HG00099.sam", "brca1_HG00101.sam"};
+
+    static final String VCF_FILE = "brca1_1kgPhase3_variants.vcf";
+
+    static final String VARIANT_SET_ID = "brca1_1kgPhase3_variants";
+
+    /**
+     * You can't instantiate one of these.
+     */
+    private Payloads() {
+    }
+
+    /**
+     * Return the <tt>test-data</tt> directory.
+     *
+     * @return the directory
+     * @throws IllegalStateException if it can't be found
+     */
+    static File testDataDir() {
+        final String configured = System.getProperty("ctk.benchmarks.testdata");
+        final File[] candidates = configured != null
+                ? new File[]{new File(configured)}
+                : new File[]{new File("test-data"), new File("../test-data")};
+        for (File candidate : candidates) {
+            if (new File(candidate, VCF_FILE).isFile()) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("can't find test-data; set -Dctk.benchmarks.testdata=<dir>");
+    }
+
+    /**
+     * Build a page of reads, taken in file order from the SAM files.
+     *
+     * @param count how many alignments (at most the number in the files)
+     * @return a {@link SearchReadsResponse} holding them
+     */
+    static SearchReadsResponse reads(int count) {
+        final List<ReadAlignment> alignments = new ArrayList<>(count);
+        for (String sam : SAM_FILES) {
+            final String readGroupId = sam.substring("brca1_".length(), sam.length() - ".sam".length());
+            try (BufferedReader in = Files.newBufferedReader(new File(testDataDir(), sam).toPath(),
+                                                             StandardCharsets.US_ASCII)) {
+                String line;
+                while (alignments.size() < count && (line = in.readLine()) != null) {
+                    if (!line.startsWith("@")) {
+                        alignments.add(SamRecords.toReadAlignment(line.split("\t"), readGroupId));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return SearchReadsResponse.newBuilder()
+                                  .setAlignments(alignments)
+                                  .setNextPageToken(Integer.toString(alignments.size()))
+                                  .build();
+    }
+
+    /**
+     * Build a page of variants, with a call per sample, in file order from the VCF.
+     *
+     * @param count how many variants (at most the number in the file)
+     * @return a {@link SearchVariantsResponse} holding them
+     */
+    static SearchVariantsResponse variants(int count) {
+        final List<Variant> variants = new ArrayList<>(count);
+        try (BufferedReader in = Files.newBufferedReader(new File(testDataDir(), VCF_FILE).toPath(),
+                                                         StandardCharsets.US_ASCII)) {
+            String[] samples = new String[0];
+            String line;
+            while (variants.size() < count && (line = in.readLine()) != null) {
+                if (line.startsWith("#CHROM")) {
+                    final String[] header = line.split("\t");
+                    samples = Arrays.copyOfRange(header, 9, header.length);
+                } else if (!line.startsWith("#")) {
+                    variants.add(toVariant(line.split("\t"), samples));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return SearchVariantsResponse.newBuilder()
+                                     .setVariants(variants)
+                                     .setNextPageToken(Integer.toString(variants.size()))
+                                     .build();
+    }
+
+    /**
+     * Convert a VCF record to a {@link Variant}, the way a GA4GH server does.
+     */
+    private static Variant toVariant(String[] f, String[] samples) {
+        final long start = Long.parseLong(f[1]) - 1;
+        final Map<String, List<String>> info = new HashMap<>();
+        for (String entry : f[7].split(";")) {
+            final int eq = entry.indexOf('=');
+            info.put(eq < 0 ? entry : entry.substring(0, eq),
+                     eq < 0 ? Collections.emptyList() : Arrays.asList(entry.substring(eq + 1).split(",")));
+        }
+        final List<Call> calls = new ArrayList<>(samples.length);
+        for (int s = 0; s < samples.length && 9 + s < f.length; s++) {
+            final String gt = f[9 + s].split(":")[0];
+            final List<Integer> genotype = new ArrayList<>(2);
+            for (String allele : gt.split("[|/]")) {
+                genotype.add(allele.equals(".") ? -1 : Integer.parseInt(allele));
+            }
+            calls.add(Call.newBuilder()
+                          .setCallSetId(VARIANT_SET_ID + "." + samples[s])
+                          .setCallSetName(samples[s])
+                          .setGenotype(genotype)
+                          .setPhaseset(gt.indexOf('|') >= 0 ? "*" : null)
+                          .build());
+        }
+        return Variant.newBuilder()
+                      .setId(VARIANT_SET_ID + ":" + f[0] + ":" + f[1])
+                      .setVariantSetId(VARIANT_SET_ID)
+                      .setNames(f[2].equals(".") ? Collections.<String>emptyList() : Arrays.asList(f[2].split(";")))
+                      .setReferenceName(f[0])
+                      .setStart(start)
+                      .setEnd(start + f[3].length())
+                      .setReferenceBases(f[3])
+                      .setAlternateBases(Arrays.asList(f[4].split(",")))
+                      .setInfo(info)
+                      .setCalls(calls)
+                      .build();
+    }
+}
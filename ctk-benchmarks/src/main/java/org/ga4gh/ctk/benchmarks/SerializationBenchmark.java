@@ -0,0 +1,97 @@
+package org.ga4gh.ctk.benchmarks;
+
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.ga4gh.ctk.transport.RespCode;
+import org.ga4gh.ctk.transport.WireTracker;
+import org.ga4gh.ctk.transport.avrojson.AvroMaker;
+import org.ga4gh.ctk.transport.avrojson.JsonMaker;
+import org.ga4gh.methods.GAException;
+import org.ga4gh.methods.SearchReadsResponse;
+import org.ga4gh.methods.SearchVariantsResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Cost of the transport's serialization path on real payloads: a page of reads
+ * from the BRCA1 SAM files or of variants (with calls) from the 1000 Genomes VCF,
+ * turned into JSON by each of {@link JsonMaker}'s serializers and parsed back with
+ * {@link AvroMaker}; and {@link WireTracker#getGae()} parsing an error body.</p>
+ * <p>Run with <tt>java -jar ctk-benchmarks/target/benchmarks.jar SerializationBenchmark</tt>
+ * from the top of the source tree (or pass <tt>-Dctk.benchmarks.testdata=&lt;dir&gt;</tt>
+ * with <tt>-jvmArgsAppend</tt>).</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    /**
+     * Which response to serialize: <tt>reads</tt> or <tt>variants</tt>.
+     */
+    @Param({"reads", "variants"})
+    public String payload;
+
+    /**
+     * Records per response: a small page, the CTS's usual page size and a large one.
+     */
+    @Param({"10", "100", "1000"})
+    public int pageSize;
+
+    private SpecificRecordBase response;
+
+    private SpecificDatumWriter<SpecificRecordBase> writer;
+
+    private String json;
+
+    private AvroMaker<? extends SpecificRecordBase> maker;
+
+    private WireTracker errorTracker;
+
+    @Setup
+    public void setup() {
+        if (payload.equals("reads")) {
+            response = Payloads.reads(pageSize);
+            maker = new AvroMaker<>(new SearchReadsResponse());
+        } else {
+            response = Payloads.variants(pageSize);
+            maker = new AvroMaker<>(new SearchVariantsResponse());
+        }
+        writer = new SpecificDatumWriter<>(response.getSchema());
+        json = JsonMaker.GsonToJsonBytes(response);
+
+        errorTracker = new WireTracker();
+        errorTracker.setResponseStatus(RespCode.NOT_FOUND);
+        errorTracker.bodyReceived = "{\"message\":\"readGroupId not found\",\"errorCode\":404}";
+    }
+
+    @Benchmark
+    public String gsonToJson() {
+        return JsonMaker.GsonToJsonBytes(response);
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream avroToJson() {
+        return JsonMaker.avroToJsonBytes(writer, response.getSchema(), response);
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream jacksonToJson() {
+        return JsonMaker.JacksonToJsonBytes(response);
+    }
+
+    @Benchmark
+    public Object makeAvroFromJson() {
+        return maker.makeAvroFromJson(json, "benchmark");
+    }
+
+    @Benchmark
+    public GAException getGae() {
+        return errorTracker.getGae();
+    }
+}
@@ -0,0 +1,93 @@
+package org.ga4gh.ctk.benchmarks;
+
+import org.ga4gh.ctk.transport.FragmentEncoder;
+import org.ga4gh.ctk.transport.TransportUtils;
+import org.ga4gh.ctk.transport.URL;
+import org.ga4gh.ctk.transport.UrlTemplate;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.UnsupportedEncodingException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Throughput of building and taking apart the URLs the transport sends: parsing a
+ * server root with {@link URL}, encoding parameters and fragments, merging a root and
+ * endpoint path with {@link TransportUtils#makeUrl(String, String)}, and filling in an
+ * endpoint with {@link TransportUtils#expandUrl(String, String, Map)} and its precompiled
+ * equivalent, {@link UrlTemplate#expand(String, Map)}.</p>
+ * <p>Run with <tt>java -jar ctk-benchmarks/target/benchmarks.jar UrlBenchmark</tt>.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UrlBenchmark {
+
+    private static final String ROOT = "http://localhost:8000/v0.6.e6d6074";
+
+    private static final String ROOT_WITH_QUERY = "https://www.googleapis.com/genomics/v1beta2?key=AIzaSyD-0123456789";
+
+    private static final String ENDPOINT = "references/{id}/bases";
+
+    private static final String ID = "NC_000017.11 (GRCh38) chr17";
+
+    private static final String PAGE_TOKEN = "CJDmwQEQ1ai0vcSFtPgBGhY8ZXhvbj4gb2YgQlJDQTEvMjAxNQ==";
+
+    private static final String FRAGMENT = "/this/is/a/#/<long>/( fragment )/";
+
+    private final Map<String, Object> queryParams = new LinkedHashMap<>();
+
+    private UrlTemplate template;
+
+    @Setup
+    public void setup() {
+        queryParams.put("start", 41196311L);
+        queryParams.put("end", 41277499L);
+        queryParams.put("pageToken", PAGE_TOKEN);
+        template = UrlTemplate.of(ROOT, ENDPOINT);
+    }
+
+    @Benchmark
+    public URL parse() {
+        return new URL(ROOT_WITH_QUERY);
+    }
+
+    @Benchmark
+    public String parseAndFormat() {
+        return new URL(ROOT_WITH_QUERY).toString();
+    }
+
+    @Benchmark
+    public String encodeParameters() {
+        return new URL(ROOT).addParameter("pageToken", PAGE_TOKEN).addParameter("referenceName", ID).toString();
+    }
+
+    @Benchmark
+    public String encodeFragment() throws UnsupportedEncodingException {
+        return FragmentEncoder.encode(FRAGMENT, "UTF-8");
+    }
+
+    @Benchmark
+    public String decodeFragment() throws UnsupportedEncodingException {
+        return FragmentEncoder.decode(PAGE_TOKEN, "UTF-8");
+    }
+
+    @Benchmark
+    public String makeUrl() {
+        return TransportUtils.makeUrl(ROOT_WITH_QUERY, ENDPOINT);
+    }
+
+    @Benchmark
+    public String expandUrl() {
+        return TransportUtils.expandUrl(TransportUtils.makeUrl(ROOT, ENDPOINT), ID, queryParams);
+    }
+
+    @Benchmark
+    public String expandTemplate() {
+        return template.expand(ID, queryParams);
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.context.*;
 
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * <p>The Application - this is the main entry point for the CTK for running the entire CTK
@@ -25,6 +26,8 @@ import java.util.*;
  *     <li>trace: show test case start as well as complete (helpful if hang)</li>
  * </ul>
  * <p>Test Anything Protocol (TAP) files are output to target/ dir.</p>
+ * <p>While the tests run, how the run is going (see {@link RunStats}) is logged to TESTLOG
+ * every "ctk.progress.interval" seconds, if that's more than 0.</p>
  * @see <a href="http://docs.spring.io/spring-boot/docs/current/reference/html/using-boot-running-your-application.html">
  * SpringBoot: Running Your Application</a>
  * @see <a href="https://testanything.org">Test Anything Protocol</a>
@@ -67,6 +70,40 @@ public class Application implements CtkLogs,CommandLineRunner {
         log.debug("Application launched from " + location.getFile());
         log.debug("command line args: " + Arrays.toString(args));
 
-        testrunner.doTestRun(); // does a single run
+        final RunStats stats = new RunStats();
+        final ScheduledExecutorService ticker = startProgressLog(stats);
+        try {
+            RunStats.run(stats, () -> testrunner.doTestRun()); // does a single run
+        } finally {
+            if (ticker != null) {
+                ticker.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Start logging a run's statistics every "ctk.progress.interval" seconds.
+     *
+     * @param stats the run's statistics
+     * @return what's logging them, or null if the interval isn't more than 0
+     */
+    private ScheduledExecutorService startProgressLog(RunStats stats) {
+        long interval = 0;
+        try {
+            interval = props.ctk_progress_interval == null ? 0 : Long.parseLong(props.ctk_progress_interval.trim());
+        } catch (NumberFormatException e) {
+            log.warn("ctk.progress.interval isn't a number: " + props.ctk_progress_interval);
+        }
+        if (interval <= 0) {
+            return null;
+        }
+        final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "ctk-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> testlog.info("So far: " + stats.snapshot()), interval, interval,
+                                   TimeUnit.SECONDS);
+        return ticker;
     }
 }
\ No newline at end of file
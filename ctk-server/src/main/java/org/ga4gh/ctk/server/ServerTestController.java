@@ -1,23 +1,48 @@
 package org.ga4gh.ctk.server;
 
 import org.ga4gh.ctk.CtkLogs;
-import org.ga4gh.ctk.ResultsSupport;
-import org.ga4gh.ctk.TestRunner;
 import org.ga4gh.ctk.config.Props;
 import org.ga4gh.ctk.transport.URLMAPPING;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.springframework.web.servlet.view.RedirectView;
 
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
- * Test controller used when running as a server.
+ * <p>Test controller used when running as a server.</p>
+ * <p>Runs are queued (see {@link TestRunQueue}) and the request returns at once:</p>
+ * <ul>
+ *     <li><tt>GET /servertest?urlRoot=...&amp;matchstr=...</tt> queues a run and redirects to its status</li>
+ *     <li><tt>POST /servertest/runs</tt> (same parameters, and <tt>datasetId</tt>) queues a run and
+ *     returns its status, with a Location header</li>
+ *     <li><tt>GET /servertest/runs</tt> lists the runs</li>
+ *     <li><tt>GET /servertest/runs/{id}?from=N</tt> gives a run's status, and the outcomes of its
+ *     tests from the Nth on</li>
+ *     <li><tt>GET /servertest/runs/{id}/events</tt> streams the run's test outcomes as server-sent
+ *     events as they come in (resuming after the <tt>Last-Event-ID</tt> header, if given)</li>
+ * </ul>
+ * <p>A finished run's status links to its HTML report. An event stream is closed after
+ * "ctk.server.events.timeout" milliseconds (default 10 minutes), and the client can follow
+ * again from where it got to.</p>
  *
  * Created by Wayne Stidolph on 7/15/2015.
  */
@@ -26,43 +51,116 @@ import java.util.concurrent.Future;
 public class ServerTestController implements CtkLogs {
 
     @Autowired
-    private TestRunner testrunner;
+    private TestRunQueue runQueue;
 
-    public void setTestrunner(TestRunner testrunner) {
-        this.testrunner = testrunner;
+    public void setRunQueue(TestRunQueue runQueue) {
+        this.runQueue = runQueue;
     }
 
     @Autowired
     public Props props;
 
+    @Value("${ctk.server.events.timeout:600000}")
+    private long eventsTimeout;
+
+    /**
+     * Not found: there's no run with the requested id.
+     */
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    static class NoSuchRunException extends RuntimeException {
+        NoSuchRunException(String id) {
+            super("no test run " + id);
+        }
+    }
+
     @RequestMapping(method = RequestMethod.GET)
     public ModelAndView runTests(@RequestParam(value = "urlRoot", required = false) String urlRoot,
                                  @RequestParam(value = "matchstr", required = false) String mstr) {
+        final TestRun run = submit(urlRoot, null, mstr);
+        return new ModelAndView(new RedirectView("/servertest/runs/" + run.getId(),
+                true, // redirect is context-relative
+                false)); // don't bother staying http 1.0 compatible
+    }
+
+    @RequestMapping(value = "/runs", method = RequestMethod.POST)
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> submitRun(
+            @RequestParam(value = "urlRoot", required = false) String urlRoot,
+            @RequestParam(value = "datasetId", required = false) String datasetId,
+            @RequestParam(value = "matchstr", required = false) String mstr) {
+        final TestRun run = submit(urlRoot, datasetId, mstr);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                             .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}")
+                                                                  .buildAndExpand(run.getId()).toUri())
+                             .body(run.status(-1));
+    }
+
+    @RequestMapping(value = "/runs", method = RequestMethod.GET)
+    @ResponseBody
+    public List<Map<String, Object>> listRuns() {
+        final List<Map<String, Object>> runs = new ArrayList<>();
+        for (TestRun run : runQueue.getRuns()) {
+            runs.add(run.status(-1));
+        }
+        Collections.reverse(runs); // newest first
+        return runs;
+    }
+
+    @RequestMapping(value = "/runs/{id}", method = RequestMethod.GET)
+    @ResponseBody
+    public Map<String, Object> runStatus(@PathVariable("id") String id,
+                                         @RequestParam(value = "from", defaultValue = "0") int from) {
+        return getRun(id).status(Math.max(0, from));
+    }
+
+    @RequestMapping(value = "/runs/{id}/events", method = RequestMethod.GET)
+    public SseEmitter runEvents(@PathVariable("id") String id,
+                                @RequestParam(value = "from", defaultValue = "0") int from,
+                                @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        final TestRun run = getRun(id);
+        int first = from;
+        if (lastEventId != null) {
+            try {
+                first = Integer.parseInt(lastEventId.trim()) + 1;
+            } catch (NumberFormatException e) {
+                log.debug("ignoring Last-Event-ID " + lastEventId);
+            }
+        }
+        final SseEmitter emitter = new SseEmitter(eventsTimeout);
+        run.follow(emitter, first);
+        return emitter;
+    }
+
+    private TestRun submit(String urlRoot, String datasetId, String mstr) {
         if (urlRoot == null)
             urlRoot = URLMAPPING.getInstance().getUrlRoot();
+        if (datasetId == null)
+            datasetId = props.ctk_tgt_dataset_id;
         if (mstr == null)
             mstr = props.ctk_matchstr;
-        String resultsDir = ResultsSupport.getResultsDir(urlRoot);
-        if (!resultsDir.isEmpty()) {
-            // we have a place to put results
-            log.info("about to run tests " + urlRoot + " " + mstr + " " + props.ctk_testjar);
-            Future<String> futureTestResultIndexPage =
-                    testrunner.doTestRun(urlRoot, props.ctk_tgt_dataset_id,
-                                         mstr, props.ctk_testjar, resultsDir);
-            String testResultIndexPage = null;
-            try { // wait for results
-                testResultIndexPage = futureTestResultIndexPage.get();
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
-            }
-            log.info("test complete, results to " + testResultIndexPage);
+        log.info("about to queue tests " + urlRoot + " " + mstr + " " + props.ctk_testjar);
+        return runQueue.submit(urlRoot, datasetId, mstr);
+    }
 
-            // TODO check for empty testResultsIndexPage, if so return error (need error page)
-            // see http://docs.spring.io/spring/docs/current/javadoc-api/org/springframework/web/servlet/view/RedirectView.html
-            return new ModelAndView(new RedirectView(testResultIndexPage,
-                    true, // redirect is context-relative
-                    false)); // don't bother staying http 1.0 compatible
+    private TestRun getRun(String id) {
+        final TestRun run = runQueue.getRun(id);
+        if (run == null) {
+            throw new NoSuchRunException(id);
         }
-        return new ModelAndView("Couldn't build results dir for " + urlRoot);
+        return run;
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ResponseBody
+    public String queueFull() {
+        return "Too many test runs waiting; try again later";
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public String badRequest(IllegalArgumentException e) {
+        return e.getMessage();
     }
-}
\ No newline at end of file
+}
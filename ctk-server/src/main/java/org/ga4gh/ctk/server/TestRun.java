@@ -0,0 +1,388 @@
+package org.ga4gh.ctk.server;
+
+import org.ga4gh.ctk.CtkLogs;
+import org.ga4gh.ctk.RunStats;
+import org.ga4gh.ctk.TestProgress;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * <p>One test run submitted to the server: what it runs against, how far it's got, and
+ * the outcome of each test that's finished so far.</p>
+ * <p>The run's {@link RunStats} are bound to the threads running its tests, so its status
+ * shows live counts, times and the slowest tests so far, and its outcomes are the ones kept
+ * in those statistics.</p>
+ * <p>Clients following the run's events get each outcome as a server-sent "test" event,
+ * whose id is the outcome's index in the run, and a "state" event when the run starts
+ * and ends. The events are sent on the threads of an executor, never on the threads
+ * running the tests, so a slow client doesn't hold up the run or the other clients; a
+ * client that falls too far behind is dropped, and can follow again from the last event
+ * it got.</p>
+ */
+public class TestRun implements TestProgress.Listener, CtkLogs {
+
+    public enum State {
+        QUEUED, RUNNING, FINISHED, FAILED;
+
+        boolean isDone() {
+            return this == FINISHED || this == FAILED;
+        }
+    }
+
+    private final String id;
+
+    private final String urlRoot;
+
+    private final String datasetId;
+
+    private final String matchstr;
+
+    private final String resultsDir;
+
+    private final long submitted = System.currentTimeMillis();
+
+    private State state = State.QUEUED;
+
+    private long started;
+
+    private long finished;
+
+    private String report;
+
+    private String message;
+
+    private final RunStats stats = new RunStats();
+
+    /**
+     * How many of the slowest tests a run's status lists.
+     */
+    private static final int SLOWEST = 10;
+
+    /**
+     * How many outcomes a client following the run may be behind, once it has caught up,
+     * before it's dropped.
+     */
+    static final int MAX_BEHIND = 1000;
+
+    /**
+     * The clients following the run; they may drop out while being sent to.
+     */
+    private final List<Follower> followers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Where the events are sent from.
+     */
+    private final Executor events;
+
+    /**
+     * Describe a run.
+     *
+     * @param id         the run's id
+     * @param urlRoot    the server to test
+     * @param datasetId  the dataset to test against
+     * @param matchstr   the tests to run
+     * @param resultsDir where the JUnit results and report go
+     * @param events     where the events sent to clients following the run are sent from
+     */
+    public TestRun(String id, String urlRoot, String datasetId, String matchstr, String resultsDir,
+                   Executor events) {
+        this.id = id;
+        this.urlRoot = urlRoot;
+        this.datasetId = datasetId;
+        this.matchstr = matchstr;
+        this.resultsDir = resultsDir;
+        this.events = events;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUrlRoot() {
+        return urlRoot;
+    }
+
+    public String getDatasetId() {
+        return datasetId;
+    }
+
+    public String getMatchstr() {
+        return matchstr;
+    }
+
+    public String getResultsDir() {
+        return resultsDir;
+    }
+
+    /**
+     * Return the run's statistics, which its tests are counted into as they finish.
+     *
+     * @return the statistics
+     */
+    public RunStats getStats() {
+        return stats;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Return the context-relative URL of the run's HTML report.
+     *
+     * @return the URL, or null until the run has finished
+     */
+    public synchronized String getReport() {
+        return report;
+    }
+
+    void started() {
+        synchronized (this) {
+            state = State.RUNNING;
+            started = System.currentTimeMillis();
+        }
+        stateChanged();
+    }
+
+    void finished(String reportPage) {
+        synchronized (this) {
+            state = State.FINISHED;
+            finished = System.currentTimeMillis();
+            report = reportPage.startsWith("/") ? reportPage : "/" + reportPage;
+        }
+        stateChanged();
+    }
+
+    void failed(String why) {
+        synchronized (this) {
+            state = State.FAILED;
+            finished = System.currentTimeMillis();
+            message = why;
+        }
+        stateChanged();
+    }
+
+    /**
+     * The outcome is already in the run's statistics (the {@link org.ga4gh.ctk.TestExecListener}
+     * records it there first), so the followers are just told there's more to send.
+     */
+    @Override
+    public void testFinished(TestProgress.Outcome outcome) {
+        for (Follower follower : followers) {
+            follower.wake(false);
+        }
+    }
+
+    private void stateChanged() {
+        for (Follower follower : followers) {
+            follower.wake(true);
+        }
+    }
+
+    /**
+     * Follow the run: send the outcomes from some index on, then each outcome as it comes
+     * in, and complete the emitter when the run's done.
+     *
+     * @param emitter the client's event stream
+     * @param from    the index of the first outcome to send
+     */
+    public void follow(SseEmitter emitter, int from) {
+        final Follower follower = new Follower(emitter, Math.max(0, from));
+        emitter.onCompletion(follower::close);
+        emitter.onTimeout(follower::close);
+        followers.add(follower);
+        follower.wake(true);
+    }
+
+    /**
+     * Describe the run's progress, for JSON.
+     *
+     * @param from the index of the first outcome to include, or -1 to include none
+     * @return the description
+     */
+    public synchronized Map<String, Object> status(int from) {
+        final Map<String, Object> status = summary();
+        if (from >= 0) {
+            status.put("from", from);
+            status.put("outcomes", stats.getOutcomes(from));
+        }
+        return status;
+    }
+
+    private Map<String, Object> summary() {
+        final Map<String, Object> status = new LinkedHashMap<>();
+        status.put("id", id);
+        status.put("state", state);
+        status.put("urlRoot", urlRoot);
+        status.put("datasetId", datasetId);
+        status.put("matchstr", matchstr);
+        status.put("submitted", submitted);
+        status.put("started", started == 0 ? null : started);
+        status.put("finished", finished == 0 ? null : finished);
+        final RunStats.Snapshot snapshot = stats.snapshot();
+        status.put("tests", snapshot.getTests());
+        status.put("passed", snapshot.getPassed());
+        status.put("failures", snapshot.getFailures());
+        status.put("errors", snapshot.getErrors());
+        status.put("skipped", snapshot.getSkipped());
+        status.put("classes", snapshot.getSuites());
+        status.put("classMillis", snapshot.getSuiteMillis());
+        final long end = finished != 0 ? finished : System.currentTimeMillis();
+        status.put("elapsedMillis", started == 0 ? null : end - started);
+        status.put("slowest", stats.getSlowest(SLOWEST));
+        status.put("report", report);
+        status.put("message", message);
+        return status;
+    }
+
+    private static SseEmitter.SseEventBuilder testEvent(int index, TestProgress.Outcome outcome) {
+        return SseEmitter.event().id(Integer.toString(index)).name("test").data(outcome);
+    }
+
+    private synchronized SseEmitter.SseEventBuilder stateEvent() {
+        return SseEmitter.event().name("state").data(summary());
+    }
+
+    /**
+     * Send an event, dropping the client if it has gone.
+     *
+     * @return false if the client is gone
+     */
+    private boolean send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("dropping event stream of run " + id + ": " + e);
+            emitter.complete();
+            return false;
+        }
+    }
+
+    /**
+     * <p>A client following the run, and how far it's got.</p>
+     * <p>Each time there's something new, a task is put on the executor to send it all
+     * (unless one is already on its way); so there's at most one task sending to a client
+     * at a time, and the only thing queued per client is where it's got to in the run's
+     * outcomes.</p>
+     */
+    private final class Follower implements Runnable {
+
+        private final SseEmitter emitter;
+
+        /**
+         * The index of the next outcome to send; only touched by the sending task.
+         */
+        private int next;
+
+        /**
+         * Whether the client has been sent every outcome there was at some point; only
+         * touched by the sending task.
+         */
+        private boolean caughtUp;
+
+        // guarded by this
+
+        private boolean stateChanged;
+
+        private boolean sending;
+
+        private boolean closed;
+
+        Follower(SseEmitter emitter, int next) {
+            this.emitter = emitter;
+            this.next = next;
+        }
+
+        /**
+         * Get something new sent.
+         *
+         * @param state whether the run's state has changed
+         */
+        void wake(boolean state) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                stateChanged |= state;
+                if (sending) {
+                    return;
+                }
+                sending = true;
+            }
+            try {
+                events.execute(this);
+            } catch (RejectedExecutionException e) {
+                log.debug("can't send events of run " + id + ": " + e);
+                emitter.complete();
+                close();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                final boolean state;
+                synchronized (this) {
+                    state = stateChanged;
+                    stateChanged = false;
+                }
+                final boolean done = getState().isDone();
+                if (state && !send(emitter, stateEvent())) {
+                    close();
+                    return;
+                }
+                if (caughtUp && stats.getOutcomeCount() - next > MAX_BEHIND) {
+                    log.info("dropping event stream of run " + id + ": it's more than " + MAX_BEHIND
+                                     + " tests behind");
+                    emitter.complete();
+                    close();
+                    return;
+                }
+                for (TestProgress.Outcome outcome : stats.getOutcomes(next)) {
+                    if (!send(emitter, testEvent(next, outcome))) {
+                        close();
+                        return;
+                    }
+                    next++;
+                }
+                synchronized (this) {
+                    if (closed) {
+                        return;
+                    }
+                    if (stateChanged || next < stats.getOutcomeCount()) {
+                        continue;
+                    }
+                    caughtUp = true;
+                    if (!done) {
+                        sending = false;
+                        return;
+                    }
+                }
+                // everything's been sent, and there'll be no more
+                close();
+                emitter.complete();
+                return;
+            }
+        }
+
+        void close() {
+            synchronized (this) {
+                closed = true;
+            }
+            followers.remove(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TestRun " + id + " " + urlRoot + " " + matchstr;
+    }
+}
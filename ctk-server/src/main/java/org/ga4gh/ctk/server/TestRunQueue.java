@@ -0,0 +1,186 @@
+package org.ga4gh.ctk.server;
+
+import org.ga4gh.ctk.CtkLogs;
+import org.ga4gh.ctk.ResultsSupport;
+import org.ga4gh.ctk.RunStats;
+import org.ga4gh.ctk.TestProgress;
+import org.ga4gh.ctk.TestRunner;
+import org.ga4gh.ctk.config.Props;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>Runs submitted test runs in the background, so no request waits for a suite to finish.</p>
+ * <p>This class is affected by these properties:</p>
+ * <ul>
+ *     <li>ctk.server.workers: how many runs go on at once (default 1); with more than 1,
+ *     the runs' tests are run with JUnitCore whatever "ctk.launcher" says, since two of the
+ *     antfile's &lt;junit> tasks can't run in one JVM at once, and "ctk.antlog.clearstats"
+ *     is ignored, so one run doesn't clear the totals while others are counting</li>
+ *     <li>ctk.server.queue: how many more runs may wait for a worker; beyond that, submitting
+ *     a run is refused (default 10)</li>
+ *     <li>ctk.server.runs.kept: how many runs, finished or not, to remember; the oldest
+ *     finished ones are forgotten first (default 100)</li>
+ * </ul>
+ * <p>The runs' server-sent events are sent from a pool of threads of their own, apart from
+ * the workers, so a slow client never holds up a run.</p>
+ * <p>Each run gets a TestRunner, endpoints ({@link org.ga4gh.ctk.transport.URLMAPPING}) and
+ * {@link RunStats} of its own, and the runs' settings reach their tests through their own
+ * {@link org.ga4gh.ctk.transport.RunContext}, so runs against different servers can go on
+ * at once.</p>
+ */
+@Component
+public class TestRunQueue implements CtkLogs {
+
+    @Value("${ctk.server.workers:1}")
+    private int workers;
+
+    @Value("${ctk.server.queue:10}")
+    private int queueSize;
+
+    @Value("${ctk.server.runs.kept:100}")
+    private int runsKept;
+
+    @Autowired
+    private ObjectFactory<TestRunner> testRunners;
+
+    @Autowired
+    private Props props;
+
+    private final AtomicLong lastId = new AtomicLong();
+
+    /**
+     * The runs, oldest first; guarded by itself.
+     */
+    private final Map<String, TestRun> runs = new LinkedHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    private ExecutorService events;
+
+    @PostConstruct
+    public void start() {
+        final int threads = Math.max(1, workers);
+        final AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                          new ArrayBlockingQueue<>(Math.max(1, queueSize)), r -> {
+            final Thread thread = new Thread(r, "ctk-run-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final AtomicInteger eventThreads = new AtomicInteger();
+        events = Executors.newCachedThreadPool(r -> {
+            final Thread thread = new Thread(r, "ctk-run-events-" + eventThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("running tests on " + threads + " workers, with up to " + queueSize + " runs waiting");
+        if (threads > 1) {
+            log.info("runs may go on at once, so they're launched with JUnitCore and don't clear the totals");
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+        events.shutdownNow();
+    }
+
+    /**
+     * Queue a test run.
+     *
+     * @param urlRoot   the server to test
+     * @param datasetId the dataset to test against
+     * @param matchstr  the tests to run
+     * @return the run, which has yet to start
+     * @throws IllegalArgumentException   if there's nowhere to put the run's results
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public TestRun submit(String urlRoot, String datasetId, String matchstr) {
+        final String resultsDir = ResultsSupport.getResultsDir(urlRoot);
+        if (resultsDir.isEmpty()) {
+            throw new IllegalArgumentException("Couldn't build results dir for " + urlRoot);
+        }
+        final TestRun run = new TestRun(Long.toString(lastId.incrementAndGet()), urlRoot, datasetId,
+                                        matchstr, resultsDir, events);
+        synchronized (runs) {
+            executor.execute(() -> execute(run));
+            runs.put(run.getId(), run);
+            forgetOldRuns();
+        }
+        log.info("queued run " + run.getId() + " of " + matchstr + " against " + urlRoot);
+        return run;
+    }
+
+    private void execute(TestRun run) {
+        log.info("starting run " + run.getId() + " of " + run.getMatchstr() + " against " + run.getUrlRoot());
+        run.started();
+        try {
+            final AtomicReference<String> reportPage = new AtomicReference<>();
+            final TestRunner runner = testRunners.getObject();
+            runner.setConcurrent(executor.getMaximumPoolSize() > 1);
+            RunStats.run(run.getStats(), () -> TestProgress.run(run, () -> reportPage.set(
+                    runner.doTestRun(run.getUrlRoot(), run.getDatasetId(), run.getMatchstr(),
+                                     props.ctk_testjar, run.getResultsDir()).join())));
+            if (reportPage.get() == null || reportPage.get().isEmpty()) {
+                run.failed("the tests didn't launch; see the server log");
+            } else {
+                run.finished(reportPage.get());
+            }
+        } catch (RuntimeException e) {
+            log.warn("run " + run.getId() + " failed", e);
+            run.failed(e.toString());
+        }
+        log.info("run " + run.getId() + " " + run.getState() + ", results in " + run.getResultsDir());
+    }
+
+    private void forgetOldRuns() {
+        for (Iterator<TestRun> it = runs.values().iterator(); it.hasNext() && runs.size() > runsKept; ) {
+            if (it.next().getState().isDone()) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Return a run.
+     *
+     * @param id the run's id
+     * @return the run, or null if there's no such run (or it's been forgotten)
+     */
+    public TestRun getRun(String id) {
+        synchronized (runs) {
+            return runs.get(id);
+        }
+    }
+
+    /**
+     * Return the runs being remembered, oldest first.
+     *
+     * @return the runs
+     */
+    public List<TestRun> getRuns() {
+        synchronized (runs) {
+            return new ArrayList<>(runs.values());
+        }
+    }
+}
@@ -7,6 +7,7 @@ package org.ga4gh.ctk;
 
 import org.apache.tools.ant.*;
 import org.ga4gh.ctk.config.Props;
+import org.ga4gh.ctk.transport.RunContext;
 import org.ga4gh.ctk.transport.URLMAPPING;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,7 +15,7 @@ import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
-import java.util.Properties;
+import java.io.IOException;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -29,6 +30,7 @@ import static org.slf4j.LoggerFactory.getLogger;
  *     <li>ctk.reporttitle</li>
  *     <li>ctk.antlog.clearstats</li>
  *     <li>ctk.antlog.consolelogger</li>
+ *     <li>ctk.catalog.dir</li>
  * </ul>
  * <p>The ant file is set by the "ctk.antfile" property - normally it is the "lib/antRunTests.xml" file</p>
  * <p>The antfile is expected to do two main tasks:</p>
@@ -64,6 +66,20 @@ import static org.slf4j.LoggerFactory.getLogger;
  * to stdout and stderr for you to see or re-route. Whether to attach or not attache the
  * ConsoleLogger is controlled by the "ctk.antlog.consolelogger" property ("ON" means attach,
  * anything else means to not attach.)</p>
+ * <p>The antfile's &lt;junit> task runs the test classes one after another. A non-forked
+ * &lt;junit> swaps System.out and System.err while a class runs, so two can't run at once
+ * in one JVM; when the "ctk.threads" property is more than 1, the {@link TestRunner} runs
+ * the tests with the {@link JUnitExecutor} instead, which doesn't touch them.</p>
+ * <p>Each run's tests are counted in a {@link RunStats} of their own, bound to the threads
+ * running them (or in the one the caller bound, to watch the run as it goes), as well as in
+ * the totals over all runs that the "Overall" report gives.</p>
+ * <p>"ctk.matchstr" may also choose tests by category, package or method name (see
+ * {@link TestCatalog}); those are looked up in the test jar's catalog, and the antfile is
+ * given the chosen classes' names. It runs all of each class's methods; only the "junit"
+ * launcher ({@link JUnitExecutor}) runs just the chosen methods.</p>
+ * <p>The target server's URLs, the dataset id and the transport settings reach the tests
+ * through a {@link RunContext} bound to the threads running them, not through the system
+ * properties, so one JVM (e.g., ctk-server) can run tests against several servers at once.</p>
  * @author srccodes.com
  * @version 1.0
  */
@@ -73,6 +89,11 @@ public class AntExecutor {
 
     private static org.slf4j.Logger log = getLogger(AntExecutor.class);
 
+    /**
+     * The antfile target that makes the HTML report from the JUnit XML files.
+     */
+    static final String REPORT_TARGET = "report";
+
     @Value("${ctk.antfile}")
     private File antFile; // use direct injection; let Spring convert the String to a File
     public void setAntfile(File theFile){
@@ -90,9 +111,11 @@ public class AntExecutor {
      */
     public boolean executeAntTask() {
         // use the properties and defaults
+        final URLMAPPING urls = URLMAPPING.getInstance();
+        urls.setTransport(props.ctk_tgt_transport);
         return executeAntTask(props.ctk_testjar,
                               props.ctk_matchstr,
-                              URLMAPPING.getInstance(),
+                              urls,
                               props.ctk_tgt_dataset_id,
                               "testresults/target/",
                               null
@@ -107,6 +130,26 @@ public class AntExecutor {
     public boolean executeAntTask(String testjar, String matchstr, URLMAPPING urls,
                                   String datasetId,
                                   String toDir, BuildListener theBoss) {
+        if (TestCatalog.isSelector(matchstr)) {
+            // the antfile's <batchtest> only knows ant patterns, so name it the chosen classes
+            final TestCatalog.Selection selection;
+            try {
+                selection = selectTests(testjar, matchstr);
+            } catch (IOException | IllegalArgumentException e) {
+                CtkLogs.log.warn("can't choose the tests in " + testjar + ": " + e.getMessage());
+                return false;
+            }
+            if (selection.isEmpty()) {
+                CtkLogs.log.warn("no tests in " + testjar + " match " + matchstr);
+                return false;
+            }
+            if (selection.choosesMethods()) {
+                CtkLogs.log.warn("the antfile runs whole classes, so every method of the classes "
+                                         + matchstr + " chooses will run; use the junit launcher to run "
+                                         + "just the chosen methods");
+            }
+            matchstr = selection.toPatterns();
+        }
 
         log.trace("passed-in urls has " + urls.getEndpoints());
         log.info("passed-in urls.getUrlRoot " + urls.getUrlRoot());
@@ -119,15 +162,7 @@ public class AntExecutor {
         // Prepare Ant project
         Project project = new Project();
         try {
-            File buildFile = antFile;
-            project.setUserProperty("basedir", System.getProperty("user.dir"));
-            project.setUserProperty("ant.file", buildFile.getName());
-            project.setUserProperty("ctk.testjar", testjar);
-            project.setUserProperty("ctk.matchstr", matchstr);
-            project.setUserProperty("ctk.reporttitle", expandedReportTitle);
-            project.setUserProperty("ctk.testjar", testjar);
-            project.setUserProperty("ctk.tgt.dataset_id", datasetId);
-            project.setUserProperty("ctk.todir", toDir);
+            setUserProperties(project, testjar, matchstr, expandedReportTitle, datasetId, toDir);
             project.addBuildListener(antExecListener);
 
             // if there's an interested listener, hook them up
@@ -136,10 +171,7 @@ public class AntExecutor {
             }
 
             project.fireBuildStarted();
-            project.init();
-            ProjectHelper projectHelper = ProjectHelper.getProjectHelper();
-            project.addReference("ant.projectHelper", projectHelper);
-            projectHelper.parse(project, buildFile);
+            parse(project);
         } catch (Exception e) {
             CtkLogs.log.warn("Exception setting up ant project based on " + antFile, e.getCause());
             e.printStackTrace();
@@ -152,48 +184,138 @@ public class AntExecutor {
         }
         String targetToExecute = "";
 
+        // the tests pick up the URLs, dataset and transport settings through
+        // URLMAPPING.getInstance() and the like, from this run's context rather than
+        // the JVM-wide system properties, so other runs can go on at the same time;
+        // the run's message traffic is kept with it too, for theBoss to report on
+        final RunContext context = RunContext.of(urls, datasetId, props.transportProperties());
+        // this run's tests are counted by themselves, in the launcher's statistics if it bound some
+        final RunStats stats = RunStats.current() != null ? RunStats.current() : new RunStats();
+
         // Capture event for Ant script build start / stop / failure
         try {
             // If no target specified then default target will be executed.
             targetToExecute = project.getDefaultTarget();
 
-            // capture system properties so we can edit them to get props into ant build being launched
-            Properties copySysProp = new Properties(System.getProperties()); // this is the replacement
-
-            // we add the URLs to the system props, so when the tests use
-            // URLMAPPING.doInit() they pick these up as highest-priority
-            // and thereby use the passed-in values.
-            Properties sysprops = new Properties(System.getProperties()); // this one we'll alter
-            sysprops.putAll(urls.getEndpoints());
-            sysprops.put("ctk.tgt.dataset_id", datasetId);
-            System.setProperties(sysprops);
-
-            log.debug("About to run ant, sysprop ctk.tgt.urlRoot " + System.getProperty("ctk.tgt.urlRoot"));
-            log.debug("  ctk.tgt.dataset_id = " + System.getProperty("ctk.tgt.dataset_id"));
-            project.executeTarget(targetToExecute);
+            log.debug("About to run ant, ctk.tgt.urlRoot " + urls.getUrlRoot());
+            log.debug("  ctk.tgt.dataset_id = " + datasetId);
+            final String target = targetToExecute;
+            context.run(() -> RunStats.run(stats, () -> project.executeTarget(target)));
             success = true; // well, we got a good launch at least!
 
-            System.setProperties(copySysProp); // restore the system
-            log.debug("Done with ant, restored system props, ctk.tgt.urlRoot "
-                    + System.getProperty("ctk.tgt.urlRoot"));
-
-            project.fireBuildFinished(null);
+            context.run(() -> project.fireBuildFinished(null));
+            CtkLogs.testlog.info("Run: " + stats.snapshot());
             CtkLogs.testlog.info("Overall: " + TestExecListener.getTestReport());
         } catch (BuildException buildException) {
             // NOTE just because we get a BuildException doesn't mean the
             // build (the test run) halted, since we have haltonerror=false
             // in theantTestRun.xml file for the junit task
-            project.fireBuildFinished(buildException);
+            context.run(() -> project.fireBuildFinished(buildException));
             success = false;
             CtkLogs.log.warn("Got BuildException starting from ant task " + targetToExecute
                     + " from location " + buildException.getLocation() + " due to " + buildException.getMessage());
         }
-        if ("ON".equals(props.ctk_antlog_clearstats))
-            TestExecListener.resetStats(); // these are static fields which accumulate results
+        if ("ON".equals(props.ctk_antlog_clearstats)) {
+            TestExecListener.resetStats(); // these are the totals, which accumulate over runs
+        }
 
         return success;
     }
 
+    /**
+     * Run just the antfile's "report" target, to make the HTML report from the JUnit XML
+     * files already in a results directory (e.g., those written by {@link JUnitExecutor}).
+     *
+     * @param reportTitle the title on the report
+     * @param toDir       the results directory
+     * @param theBoss     if not null, told when the report starts and finishes
+     * @return true if the report was made
+     */
+    public boolean executeReport(String reportTitle, String toDir, BuildListener theBoss) {
+        Project project = new Project();
+        project.setUserProperty("basedir", System.getProperty("user.dir"));
+        project.setUserProperty("ant.file", antFile.getName());
+        project.setUserProperty("ctk.reporttitle", reportTitle);
+        project.setUserProperty("ctk.todir", toDir);
+        project.addBuildListener(new AntExecListener());
+        if (theBoss != null) {
+            project.addBuildListener(theBoss);
+        }
+        if ("ON".equals(props.ctk_antlog_consolelogger)) {
+            project.addBuildListener(getConsoleLogger());
+        }
+        project.fireBuildStarted();
+        try {
+            parse(project);
+            project.executeTarget(REPORT_TARGET);
+            project.fireBuildFinished(null);
+            return true;
+        } catch (BuildException e) {
+            project.fireBuildFinished(e);
+            CtkLogs.log.warn("Got BuildException making the report in " + toDir + " due to " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void setUserProperties(Project project, String testjar, String matchstr, String reportTitle,
+                                   String datasetId, String toDir) {
+        project.setUserProperty("basedir", System.getProperty("user.dir"));
+        project.setUserProperty("ant.file", antFile.getName());
+        project.setUserProperty("ctk.testjar", testjar);
+        project.setUserProperty("ctk.matchstr", matchstr);
+        project.setUserProperty("ctk.reporttitle", reportTitle);
+        project.setUserProperty("ctk.tgt.dataset_id", datasetId);
+        project.setUserProperty("ctk.todir", toDir);
+    }
+
+    private void parse(Project project) {
+        project.init();
+        ProjectHelper projectHelper = ProjectHelper.getProjectHelper();
+        project.addReference("ant.projectHelper", projectHelper);
+        projectHelper.parse(project, antFile);
+    }
+
+    /**
+     * Choose tests from the test jar's {@link TestCatalog}, which is kept in the
+     * "ctk.catalog.dir" directory.
+     *
+     * @param testjar  the test jar, in "lib/"
+     * @param matchstr ant patterns and other selection terms, as {@link TestCatalog#select} takes
+     * @return the chosen tests
+     * @throws IOException if the jar can't be read
+     */
+    /**
+     * Does a selector choose only some methods of a class? The antfile's &lt;batchtest>
+     * can only run whole classes, so such a run must be launched with JUnitCore.
+     *
+     * @param testjar  the jar of test classes, in "lib/"
+     * @param matchstr the selector
+     * @return true if it does; false if it doesn't, or it can't be worked out (which
+     * {@link #executeAntTask} then reports)
+     */
+    boolean choosesMethods(String testjar, String matchstr) {
+        if (!TestCatalog.isSelector(matchstr)) {
+            return false;
+        }
+        try {
+            return selectTests(testjar, matchstr).choosesMethods();
+        } catch (IOException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    TestCatalog.Selection selectTests(String testjar, String matchstr) throws IOException {
+        final File basedir = new File(System.getProperty("user.dir"));
+        File catalogDir = null;
+        if (props.ctk_catalog_dir != null && !props.ctk_catalog_dir.trim().isEmpty()) {
+            catalogDir = new File(props.ctk_catalog_dir.trim());
+            if (!catalogDir.isAbsolute()) {
+                catalogDir = new File(basedir, catalogDir.getPath());
+            }
+        }
+        return TestCatalog.forJar(new File(basedir, "lib/" + testjar), catalogDir).select(matchstr);
+    }
+
     /**
      * Logger to log output generated while executing ant script in console
      *
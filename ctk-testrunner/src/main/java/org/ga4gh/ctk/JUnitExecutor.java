@@ -0,0 +1,310 @@
+package org.ga4gh.ctk;
+
+import org.apache.tools.ant.BuildListener;
+import org.ga4gh.ctk.config.Props;
+import org.ga4gh.ctk.transport.RunContext;
+import org.ga4gh.ctk.transport.URLMAPPING;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runner.manipulation.Filter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * <p>Runs the tests directly with {@link JUnitCore}, instead of through the antfile's
+ * &lt;junit> task; selected by setting the "ctk.launcher" property to "junit", and always
+ * used when "ctk.threads" is more than 1.</p>
+ * <p>It runs the test classes in "ctk.testjar" (under "lib/") whose names match
+ * "ctk.matchstr", as the antfile's &lt;batchtest> does, but picks them from the jar's
+ * {@link TestCatalog} (which also lets it run just the chosen methods of a class), and
+ * doesn't build and parse an ant project for each run. Each class is run with a
+ * {@link TestExecListener} attached, and its results are written as the same
+ * <tt>TEST-classname.xml</tt> file; "ctk.threads" classes are run at once, which is safe
+ * since, unlike a non-forked &lt;junit>, nothing here swaps System.out. Then the
+ * antfile's "report" target makes the HTML report from those files, as it does for the
+ * ant path (see {@link AntExecutor#executeReport}).</p>
+ * <p>Each run's tests are counted in a {@link RunStats} of their own, bound to the threads
+ * running them, or in the one the caller bound.</p>
+ * <p>As with the antfile, the test classes are loaded afresh for each run, from the jars in
+ * "lib/" and from "target/test-classes", by a class loader that looks there first; the
+ * JUnit and CTK classes themselves are shared, so the tests see the run's
+ * {@link RunContext}.</p>
+ */
+@Component
+@Scope("prototype")
+public class JUnitExecutor {
+
+    private static org.slf4j.Logger log = getLogger(JUnitExecutor.class);
+
+    @Autowired
+    private Props props;
+    public void setProps(Props props){
+        this.props = props;
+    }
+
+    @Autowired
+    private AntExecutor antExecutor;
+    public void setAntExecutor(AntExecutor antExecutor) {
+        this.antExecutor = antExecutor;
+    }
+
+    /**
+     * If true, the totals over all runs aren't cleared after a run, whatever
+     * "ctk.antlog.clearstats" says; for when other runs are still counting into them.
+     */
+    private boolean keepTotals;
+    public void setKeepTotals(boolean keepTotals) {
+        this.keepTotals = keepTotals;
+    }
+
+    /**
+     * Run the tests, then make the report.
+     *
+     * @param testjar   the jar of test classes, in "lib/"
+     * @param matchstr  ant-style patterns choosing the test classes
+     * @param urls      the target server
+     * @param datasetId the dataset to test against
+     * @param toDir     where to put the results
+     * @param theBoss   if not null, told when the report starts and finishes
+     * @return true if every test class launched and the report was made
+     */
+    public boolean executeTests(String testjar, String matchstr, URLMAPPING urls, String datasetId,
+                                String toDir, BuildListener theBoss) {
+        final File basedir = new File(System.getProperty("user.dir"));
+        final String reportTitle = props.ctk_report_title + " " + urls.getUrlRoot();
+        new File(toDir).mkdirs();
+
+        // the report is made in the run's context too, so theBoss reports on this run's traffic
+        final RunContext context = RunContext.of(urls, datasetId, props.transportProperties());
+        boolean success;
+        try {
+            final TestCatalog.Selection selection = antExecutor.selectTests(testjar, matchstr);
+            final RunStats stats = RunStats.current() != null ? RunStats.current() : new RunStats();
+            log.info("running " + selection.getClasses().size() + " test classes against " + urls.getUrlRoot());
+            try (URLClassLoader loader = new TestClassLoader(classpath(basedir),
+                                                             JUnitExecutor.class.getClassLoader())) {
+                success = runAll(selection, loader, context, stats, toDir);
+            }
+            CtkLogs.testlog.info("Run: " + stats.snapshot());
+        } catch (IOException | IllegalArgumentException e) {
+            CtkLogs.log.warn("can't run the tests in " + testjar, e);
+            success = false;
+        }
+
+        final boolean[] reported = new boolean[1];
+        context.run(() -> reported[0] = antExecutor.executeReport(reportTitle, toDir, theBoss));
+        success &= reported[0];
+        CtkLogs.testlog.info("Overall: " + TestExecListener.getTestReport());
+        if ("ON".equals(props.ctk_antlog_clearstats) && !keepTotals) {
+            TestExecListener.resetStats();
+        }
+        return success;
+    }
+
+    private boolean runAll(TestCatalog.Selection selection, ClassLoader loader, RunContext context, RunStats stats,
+                           String toDir) {
+        final List<String> classes = selection.getClasses();
+        final TestProgress.Listener progress = TestProgress.current();
+        final int threads = Math.max(1, Math.min(props.threads(), classes.size()));
+        if (threads == 1) {
+            boolean success = true;
+            for (String testClass : classes) {
+                success &= runClass(testClass, selection.getMethods(testClass), loader, context, stats, progress,
+                                    toDir);
+            }
+            return success;
+        }
+
+        final AtomicInteger failedLaunches = new AtomicInteger();
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> runs = new ArrayList<>();
+            for (String testClass : classes) {
+                runs.add(pool.submit(() -> {
+                    if (!runClass(testClass, selection.getMethods(testClass), loader, context, stats, progress,
+                                  toDir)) {
+                        failedLaunches.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> run : runs) {
+                try {
+                    run.get();
+                } catch (ExecutionException e) {
+                    failedLaunches.incrementAndGet();
+                    CtkLogs.log.warn("test class run failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            pool.shutdownNow();
+        }
+        return failedLaunches.get() == 0;
+    }
+
+    /**
+     * Run one test class, or just some of its methods, and write its JUnit XML.
+     *
+     * @param methods the names of the methods to run, or null to run them all
+     * @return true if the class could be loaded and its results written
+     */
+    private boolean runClass(String testClass, Set<String> methods, ClassLoader loader, RunContext context,
+                             RunStats stats, TestProgress.Listener progress, String toDir) {
+        final XmlReportListener xml = new XmlReportListener(testClass);
+        final Result[] result = new Result[1];
+        final boolean[] loaded = {true};
+        final Thread thread = Thread.currentThread();
+        final ClassLoader previousLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        try {
+            context.run(() -> RunStats.run(stats, () -> TestProgress.run(progress, () -> {
+                final Class<?> type;
+                try {
+                    type = Class.forName(testClass, false, loader);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    CtkLogs.log.warn("can't load test class " + testClass, e);
+                    xml.classFailed(e);
+                    loaded[0] = false;
+                    return;
+                }
+                final JUnitCore core = new JUnitCore();
+                core.addListener(new TestExecListener());
+                core.addListener(xml);
+                CtkLogs.testlog.info("Suite start " + testClass);
+                final Request request = Request.aClass(type);
+                result[0] = core.run(methods == null ? request : request.filterWith(new MethodFilter(methods)));
+            })));
+        } finally {
+            thread.setContextClassLoader(previousLoader);
+        }
+        try {
+            xml.write(result[0], new File(toDir, "TEST-" + testClass + ".xml"));
+            return loaded[0];
+        } catch (Exception e) {
+            CtkLogs.log.warn("can't write the results of " + testClass + " to " + toDir, e);
+            return false;
+        }
+    }
+
+    /**
+     * The antfile's &lt;junit> classpath: the jars under "lib/", and "target/test-classes".
+     */
+    private static URL[] classpath(File basedir) throws MalformedURLException {
+        final List<URL> urls = new ArrayList<>();
+        addJars(new File(basedir, "lib"), urls);
+        urls.add(new File(basedir, "target/test-classes/").toURI().toURL());
+        return urls.toArray(new URL[urls.size()]);
+    }
+
+    private static void addJars(File dir, List<URL> urls) throws MalformedURLException {
+        final File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isDirectory()) {
+                addJars(file, urls);
+            } else if (file.getName().endsWith(".jar")) {
+                urls.add(file.toURI().toURL());
+            }
+        }
+    }
+
+    /**
+     * Runs only the chosen methods of a class (and, for parameterized tests, all of each
+     * one's runs, e.g. <tt>test[0]</tt>, <tt>test[1]</tt>).
+     */
+    static class MethodFilter extends Filter {
+
+        private final Set<String> methods;
+
+        MethodFilter(Set<String> methods) {
+            this.methods = methods;
+        }
+
+        @Override
+        public boolean shouldRun(Description description) {
+            if (description.isTest()) {
+                final String method = description.getMethodName();
+                return method != null && methods.contains(method.replaceFirst("\\[.*$", ""));
+            }
+            for (Description child : description.getChildren()) {
+                if (shouldRun(child)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String describe() {
+            return "methods " + methods;
+        }
+    }
+
+    /**
+     * Loads classes from its own classpath before its parent's, as ant's &lt;junit> does, so
+     * each run gets fresh test classes; except JUnit's and ant's, and the CTK's and its
+     * logging's, which must be shared so the tests see the launcher's {@link RunContext},
+     * statistics and loggers. The GA4GH schema classes, Avro and Gson are shared too: the
+     * CTK's transport hands the tests those objects, and they're costly to load again for
+     * every run.
+     */
+    static class TestClassLoader extends URLClassLoader {
+
+        private static final String[] SHARED = {"java.", "javax.", "junit.", "org.junit.", "org.hamcrest.",
+                                                "org.apache.tools.ant.", "org.ga4gh.ctk.", "org.slf4j.",
+                                                "org.ga4gh.methods.", "org.ga4gh.models.", "org.apache.avro.",
+                                                "com.google.gson."};
+
+        TestClassLoader(URL[] urls, ClassLoader parent) {
+            super(urls, parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            for (String prefix : SHARED) {
+                if (name.startsWith(prefix)) {
+                    return super.loadClass(name, resolve);
+                }
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> type = findLoadedClass(name);
+                if (type == null) {
+                    try {
+                        type = findClass(name);
+                    } catch (ClassNotFoundException e) {
+                        return super.loadClass(name, resolve);
+                    }
+                }
+                if (resolve) {
+                    resolveClass(type);
+                }
+                return type;
+            }
+        }
+    }
+}
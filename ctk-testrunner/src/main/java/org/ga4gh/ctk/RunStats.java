@@ -0,0 +1,340 @@
+package org.ga4gh.ctk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>The statistics of a test run: how many tests came out each way, how long the test
+ * classes took, and how long each test took.</p>
+ * <p>Like {@link TestProgress}, a run's statistics are bound to the threads running it (see
+ * {@link #run(RunStats, Runnable)}), and the {@link TestExecListener}s add each test's
+ * outcome to the statistics bound to the thread running the test; so runs going on at once
+ * each count only their own tests. Every outcome is also added to the {@link #totals()},
+ * which accumulate over all the runs in the JVM.</p>
+ * <p>The counters can be added to from many threads at once, and a {@link #snapshot()} can
+ * be taken at any time, e.g. to show how a run is going while it's still going. The
+ * outcomes are kept in the order they finished, and can be read from any index on, e.g. by
+ * a client that has already seen the earlier ones.</p>
+ */
+public final class RunStats {
+
+    private static final InheritableThreadLocal<RunStats> current = new InheritableThreadLocal<>();
+
+    private static final RunStats totals = new RunStats(false);
+
+    private final LongAdder passed = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder skipped = new LongAdder();
+
+    private final LongAdder suites = new LongAdder();
+
+    private final LongAdder suiteMillis = new LongAdder();
+
+    private volatile long started = System.currentTimeMillis();
+
+    /**
+     * Each test's outcome, with how long it took, guarded by itself; null if they're not kept.
+     */
+    private final List<TestProgress.Outcome> outcomes;
+
+    /**
+     * Start the statistics of a run.
+     */
+    public RunStats() {
+        this(true);
+    }
+
+    private RunStats(boolean keepOutcomes) {
+        outcomes = keepOutcomes ? new ArrayList<>() : null;
+    }
+
+    /**
+     * The totals over every run in the JVM, since they were last reset; they don't keep
+     * each test's outcome.
+     *
+     * @return the totals
+     */
+    public static RunStats totals() {
+        return totals;
+    }
+
+    /**
+     * Return the statistics bound to this thread.
+     *
+     * @return the statistics, or null if there are none
+     */
+    public static RunStats current() {
+        return current.get();
+    }
+
+    /**
+     * Do something with some statistics bound to the current thread, then put back whatever
+     * was bound before.
+     *
+     * @param stats the statistics; if null, the task is just run
+     * @param task  what to do
+     */
+    public static void run(RunStats stats, Runnable task) {
+        if (stats == null) {
+            task.run();
+            return;
+        }
+        final RunStats previous = current.get();
+        current.set(stats);
+        try {
+            task.run();
+        } finally {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Add a test's outcome to the statistics bound to this thread, if any, and to the totals.
+     *
+     * @param outcome the outcome
+     */
+    static void record(TestProgress.Outcome outcome) {
+        final RunStats stats = current.get();
+        if (stats != null) {
+            stats.testFinished(outcome);
+        }
+        totals.testFinished(outcome);
+    }
+
+    /**
+     * Add a finished test class's run time to the statistics bound to this thread, if any,
+     * and to the totals.
+     *
+     * @param millis how long the class took
+     */
+    static void recordSuite(long millis) {
+        final RunStats stats = current.get();
+        if (stats != null) {
+            stats.suiteFinished(millis);
+        }
+        totals.suiteFinished(millis);
+    }
+
+    /**
+     * Count a test's outcome.
+     *
+     * @param outcome the outcome
+     */
+    public void testFinished(TestProgress.Outcome outcome) {
+        switch (outcome.getStatus()) {
+            case PASSED:
+                passed.increment();
+                break;
+            case FAILED:
+                failures.increment();
+                break;
+            case ERROR:
+                errors.increment();
+                break;
+            default:
+                skipped.increment();
+        }
+        if (outcomes != null) {
+            synchronized (outcomes) {
+                outcomes.add(outcome);
+            }
+        }
+    }
+
+    /**
+     * Count a finished test class.
+     *
+     * @param millis how long it took
+     */
+    public void suiteFinished(long millis) {
+        suites.increment();
+        suiteMillis.add(millis);
+    }
+
+    /**
+     * Start again from nothing. Tests finishing meanwhile may or may not be counted.
+     */
+    public void reset() {
+        passed.reset();
+        failures.reset();
+        errors.reset();
+        skipped.reset();
+        suites.reset();
+        suiteMillis.reset();
+        if (outcomes != null) {
+            synchronized (outcomes) {
+                outcomes.clear();
+            }
+        }
+        started = System.currentTimeMillis();
+    }
+
+    /**
+     * Return the statistics so far.
+     *
+     * @return the statistics
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(passed.sum(), failures.sum(), errors.sum(), skipped.sum(), suites.sum(),
+                            suiteMillis.sum(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Return the outcome of each test so far, in the order they finished.
+     *
+     * @return the outcomes, each with how long its test took; empty for the totals
+     */
+    public List<TestProgress.Outcome> getOutcomes() {
+        return getOutcomes(0);
+    }
+
+    /**
+     * Return the outcome of each test so far, from some index on, in the order they finished.
+     *
+     * @param from the index of the first outcome to return
+     * @return the outcomes; empty for the totals, or if there are none from that index
+     */
+    public List<TestProgress.Outcome> getOutcomes(int from) {
+        if (outcomes == null) {
+            return Collections.emptyList();
+        }
+        synchronized (outcomes) {
+            return new ArrayList<>(outcomes.subList(Math.min(Math.max(0, from), outcomes.size()), outcomes.size()));
+        }
+    }
+
+    /**
+     * Return how many outcomes have been kept so far.
+     *
+     * @return the count; 0 for the totals
+     */
+    public int getOutcomeCount() {
+        if (outcomes == null) {
+            return 0;
+        }
+        synchronized (outcomes) {
+            return outcomes.size();
+        }
+    }
+
+    /**
+     * Return the tests that have taken longest so far.
+     *
+     * @param count how many to return, at most
+     * @return their outcomes, slowest first
+     */
+    public List<TestProgress.Outcome> getSlowest(int count) {
+        final List<TestProgress.Outcome> slowest = getOutcomes();
+        Collections.sort(slowest, Comparator.comparingLong(TestProgress.Outcome::getMillis).reversed());
+        return slowest.subList(0, Math.min(Math.max(0, count), slowest.size()));
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    /**
+     * The statistics of a run at one moment.
+     */
+    public static final class Snapshot {
+
+        private final long passed;
+
+        private final long failures;
+
+        private final long errors;
+
+        private final long skipped;
+
+        private final long suites;
+
+        private final long suiteMillis;
+
+        private final long elapsedMillis;
+
+        Snapshot(long passed, long failures, long errors, long skipped, long suites, long suiteMillis,
+                 long elapsedMillis) {
+            this.passed = passed;
+            this.failures = failures;
+            this.errors = errors;
+            this.skipped = skipped;
+            this.suites = suites;
+            this.suiteMillis = suiteMillis;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         * Return how many tests have finished, whichever way they came out.
+         *
+         * @return the count
+         */
+        public long getTests() {
+            return passed + failures + errors + skipped;
+        }
+
+        public long getPassed() {
+            return passed;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Return how many test classes have finished.
+         *
+         * @return the count
+         */
+        public long getSuites() {
+            return suites;
+        }
+
+        /**
+         * Return how long the finished test classes took, added together.
+         *
+         * @return the time, in milliseconds
+         */
+        public long getSuiteMillis() {
+            return suiteMillis;
+        }
+
+        /**
+         * Return how long it's been since the run (or the totals) started.
+         *
+         * @return the time, in milliseconds
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * <p>Tests run: %d, Failures: %d, Errors: %d, Skipped: %d, Time elapsed: %.3f sec</p>
+         * <p>(the time being the test classes' times added together)</p>
+         */
+        @Override
+        public String toString() {
+            return String.format("Tests run: %d, Failures: %d, Errors: %d, Skipped: %d, Time elapsed: %.3f sec",
+                                 getTests(), failures, errors, skipped, suiteMillis / 1000.0);
+        }
+    }
+}
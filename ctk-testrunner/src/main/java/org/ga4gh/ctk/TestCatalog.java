@@ -0,0 +1,535 @@
+package org.ga4gh.ctk;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.apache.tools.ant.types.selectors.SelectorUtils;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * <p>An index of the tests in a test jar: each concrete class with JUnit <tt>@Test</tt>
+ * methods (its own or inherited), its methods, and the <tt>@Category</tt> markers on the
+ * class and on each method.</p>
+ * <p>The index is made by reading the classes' bytecode, without loading them, once for
+ * each version of the jar (by its SHA-256), and is kept as JSON in the catalog directory
+ * (property "ctk.catalog.dir"), so later runs, and later JVMs, needn't scan the jar.</p>
+ * <p>Besides the ant-style patterns ctk.matchstr has always held, {@link #select} takes
+ * these terms, separated by commas or spaces:</p>
+ * <ul>
+ *     <li><tt>category:CoreTests</tt> - tests in a category, named simply or in full
+ *     (e.g. <tt>org.ga4gh.ctk.testcategories.CoreTests</tt>)</li>
+ *     <li><tt>package:org.ga4gh.cts.api.reads</tt> - tests in a package or its subpackages</li>
+ *     <li><tt>method:.*Paging.*</tt> - test methods whose name, or <tt>Class#method</tt>
+ *     (with the class's simple name), matches a regular expression</li>
+ *     <li><tt>-</tt> before any term, e.g. <tt>-category:WIP</tt>, leaves out the tests it
+ *     matches</li>
+ * </ul>
+ * <p>A test is chosen if any term without a <tt>-</tt> matches it (or there are no such terms)
+ * and no term with one does.</p>
+ */
+public final class TestCatalog {
+
+    private static org.slf4j.Logger log = getLogger(TestCatalog.class);
+
+    private static final String TEST = "org.junit.Test";
+
+    private static final String CATEGORY = "org.junit.experimental.categories.Category";
+
+    /**
+     * Bumped whenever the format of the cached index changes, so old ones are ignored.
+     */
+    private static final int VERSION = 1;
+
+    private static final String[] SELECTOR_KINDS = {"category:", "package:", "method:"};
+
+    /**
+     * Catalogs already made or read, by jar (path, size, last-modified time), so an unchanged
+     * jar isn't even hashed twice.
+     */
+    private static final Map<List<Object>, TestCatalog> catalogs = new ConcurrentHashMap<>();
+
+    private static final Gson gson = new Gson();
+
+    /**
+     * A test class, with its categories and test methods.
+     */
+    public static final class TestClass {
+        private final String name;
+        private final List<String> categories;
+        private final List<TestMethod> methods;
+
+        TestClass(String name, List<String> categories, List<TestMethod> methods) {
+            this.name = name;
+            this.categories = categories;
+            this.methods = methods;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Return the categories given on the class (or a superclass), as class names.
+         *
+         * @return the categories
+         */
+        public List<String> getCategories() {
+            return Collections.unmodifiableList(categories);
+        }
+
+        public List<TestMethod> getMethods() {
+            return Collections.unmodifiableList(methods);
+        }
+
+        /**
+         * Return the name of the class's file in the jar, as ant patterns see it.
+         *
+         * @return the entry name, e.g. <tt>org/ga4gh/cts/api/reads/ReadsSearchIT.class</tt>
+         */
+        public String getEntryName() {
+            return name.replace('.', '/') + ".class";
+        }
+
+        public String getSimpleName() {
+            return name.substring(Math.max(name.lastIndexOf('.'), name.lastIndexOf('$')) + 1);
+        }
+    }
+
+    /**
+     * A test method, with the categories given on it alone.
+     */
+    public static final class TestMethod {
+        private final String name;
+        private final List<String> categories;
+
+        TestMethod(String name, List<String> categories) {
+            this.name = name;
+            this.categories = categories;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<String> getCategories() {
+            return Collections.unmodifiableList(categories);
+        }
+    }
+
+    /**
+     * The tests chosen from a catalog: the classes, by name, each with the methods chosen,
+     * or null where all of them were.
+     */
+    public static final class Selection {
+        private final Map<String, Set<String>> methods;
+
+        Selection(Map<String, Set<String>> methods) {
+            this.methods = methods;
+        }
+
+        /**
+         * Return the names of the chosen classes, in order.
+         *
+         * @return the class names
+         */
+        public List<String> getClasses() {
+            return new ArrayList<>(methods.keySet());
+        }
+
+        /**
+         * Return which of a class's methods were chosen.
+         *
+         * @param testClass the class's name
+         * @return the method names, or null if all of them were (or the class wasn't)
+         */
+        public Set<String> getMethods(String testClass) {
+            final Set<String> chosen = methods.get(testClass);
+            return chosen == null ? null : Collections.unmodifiableSet(chosen);
+        }
+
+        /**
+         * Return whether only some of a chosen class's methods were chosen, e.g. by a
+         * <tt>method:</tt> term, or a category (or left-out category) on some methods.
+         *
+         * @return true if some class is to run only some of its methods
+         */
+        public boolean choosesMethods() {
+            for (Set<String> chosen : methods.values()) {
+                if (chosen != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Return the chosen classes as jar entry names, joined with commas: ant patterns that
+         * choose the same classes (but all their methods; see {@link #choosesMethods()}).
+         *
+         * @return the patterns, or an empty string if nothing was chosen
+         */
+        public String toPatterns() {
+            final StringBuilder patterns = new StringBuilder();
+            for (String testClass : methods.keySet()) {
+                if (patterns.length() > 0) {
+                    patterns.append(',');
+                }
+                patterns.append(testClass.replace('.', '/')).append(".class");
+            }
+            return patterns.toString();
+        }
+
+        public boolean isEmpty() {
+            return methods.isEmpty();
+        }
+    }
+
+    private final int version;
+
+    private final String jarHash;
+
+    private final List<TestClass> classes;
+
+    TestCatalog(String jarHash, List<TestClass> classes) {
+        this.version = VERSION;
+        this.jarHash = jarHash;
+        this.classes = classes;
+    }
+
+    public String getJarHash() {
+        return jarHash;
+    }
+
+    public List<TestClass> getClasses() {
+        return Collections.unmodifiableList(classes);
+    }
+
+    /**
+     * Return the catalog of a test jar: the one already in memory or on disk if the jar is
+     * the same, otherwise a new one (which is saved to disk).
+     *
+     * @param jar      the test jar
+     * @param cacheDir where catalogs are kept, or null to not keep them on disk
+     * @return the catalog
+     * @throws IOException if the jar can't be read
+     */
+    public static TestCatalog forJar(File jar, File cacheDir) throws IOException {
+        final List<Object> key = Arrays.asList(jar.getCanonicalPath(), jar.length(), jar.lastModified());
+        TestCatalog catalog = catalogs.get(key);
+        if (catalog != null) {
+            return catalog;
+        }
+        final String hash = sha256(jar);
+        final File cached = cacheDir == null ? null : new File(cacheDir, hash + ".json");
+        catalog = cached == null ? null : read(cached);
+        if (catalog == null || catalog.version != VERSION || !hash.equals(catalog.jarHash)) {
+            final long start = System.currentTimeMillis();
+            catalog = index(jar, hash);
+            log.info("indexed " + catalog.classes.size() + " test classes in " + jar.getName() + " in "
+                             + (System.currentTimeMillis() - start) + " ms");
+            if (cached != null) {
+                write(catalog, cached);
+            }
+        }
+        catalogs.put(key, catalog);
+        return catalog;
+    }
+
+    /**
+     * Say whether some ctk.matchstr uses any terms beyond ant patterns, and so has to be
+     * resolved through a catalog.
+     *
+     * @param matchstr the terms
+     * @return true if it has a category, package, method or leaving-out term
+     */
+    public static boolean isSelector(String matchstr) {
+        for (String term : terms(matchstr)) {
+            if (term.startsWith("-")) {
+                return true;
+            }
+            for (String kind : SELECTOR_KINDS) {
+                if (term.startsWith(kind)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Choose tests.
+     *
+     * @param matchstr the terms, as described for this class
+     * @return the chosen tests
+     * @throws IllegalArgumentException if a <tt>method:</tt> term isn't a regular expression
+     */
+    public Selection select(String matchstr) {
+        final List<Term> includes = new ArrayList<>();
+        final List<Term> excludes = new ArrayList<>();
+        for (String term : terms(matchstr)) {
+            if (term.startsWith("-")) {
+                excludes.add(new Term(term.substring(1)));
+            } else {
+                includes.add(new Term(term));
+            }
+        }
+        final Map<String, Set<String>> chosen = new TreeMap<>();
+        for (TestClass testClass : classes) {
+            final Set<String> methods = new LinkedHashSet<>();
+            for (TestMethod method : testClass.methods) {
+                if (matchesAny(includes, testClass, method, true) && !matchesAny(excludes, testClass, method, false)) {
+                    methods.add(method.name);
+                }
+            }
+            if (!methods.isEmpty()) {
+                chosen.put(testClass.name, methods.size() == testClass.methods.size() ? null : methods);
+            }
+        }
+        return new Selection(chosen);
+    }
+
+    private static boolean matchesAny(List<Term> terms, TestClass testClass, TestMethod method, boolean ifNone) {
+        if (terms.isEmpty()) {
+            return ifNone;
+        }
+        for (Term term : terms) {
+            if (term.matches(testClass, method)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> terms(String matchstr) {
+        final List<String> terms = new ArrayList<>();
+        if (matchstr != null) {
+            for (String term : matchstr.trim().split("[,\\s]+")) {
+                if (!term.isEmpty()) {
+                    terms.add(term);
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * One selection term.
+     */
+    private static final class Term {
+        private final String kind;
+        private final String value;
+        private final Pattern pattern;
+
+        Term(String term) {
+            final int colon = term.indexOf(':');
+            final String prefix = colon < 0 ? "" : term.substring(0, colon + 1);
+            if (Arrays.asList(SELECTOR_KINDS).contains(prefix)) {
+                kind = prefix;
+                value = term.substring(colon + 1);
+            } else {
+                kind = "";
+                value = term;
+            }
+            try {
+                pattern = "method:".equals(kind) ? Pattern.compile(value) : null;
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("bad method pattern in " + term + ": " + e.getDescription(), e);
+            }
+        }
+
+        boolean matches(TestClass testClass, TestMethod method) {
+            switch (kind) {
+                case "category:":
+                    return isCategory(testClass.categories) || isCategory(method.categories);
+                case "package:":
+                    return testClass.name.startsWith(value + ".");
+                case "method:":
+                    return pattern.matcher(method.name).matches()
+                            || pattern.matcher(testClass.getSimpleName() + "#" + method.name).matches();
+                default:
+                    return SelectorUtils.matchPath(value, testClass.getEntryName());
+            }
+        }
+
+        private boolean isCategory(List<String> categories) {
+            for (String category : categories) {
+                if (category.equals(value) || category.endsWith("." + value) || category.endsWith("$" + value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /* ****** INDEXING ****** */
+
+    /**
+     * What the bytecode of one class says, before superclasses are taken into account.
+     */
+    private static final class Scanned {
+        String superName;
+        boolean concrete;
+        List<String> categories;
+        List<TestMethod> methods = new ArrayList<>();
+    }
+
+    static TestCatalog index(File jar, String hash) throws IOException {
+        final MetadataReaderFactory readers = new SimpleMetadataReaderFactory();
+        final Map<String, Scanned> scanned = new HashMap<>();
+        try (ZipFile zip = new ZipFile(jar)) {
+            for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); ) {
+                final ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory() || !entry.getName().endsWith(".class")) {
+                    continue;
+                }
+                final byte[] bytes;
+                try (InputStream in = zip.getInputStream(entry)) {
+                    bytes = readAll(in);
+                }
+                final MetadataReader reader;
+                try {
+                    reader = readers.getMetadataReader(new ByteArrayResource(bytes, entry.getName()));
+                } catch (IOException | RuntimeException e) {
+                    log.debug("skipping unreadable class " + entry.getName() + ": " + e);
+                    continue;
+                }
+                final AnnotationMetadata metadata = reader.getAnnotationMetadata();
+                final Scanned one = new Scanned();
+                one.superName = metadata.getSuperClassName();
+                one.concrete = metadata.isConcrete();
+                one.categories = categories(metadata.getAnnotationAttributes(CATEGORY, true));
+                for (MethodMetadata method : metadata.getAnnotatedMethods(TEST)) {
+                    one.methods.add(new TestMethod(method.getMethodName(),
+                                                   categories(method.getAnnotationAttributes(CATEGORY, true))));
+                }
+                scanned.put(metadata.getClassName(), one);
+            }
+        }
+
+        final List<TestClass> classes = new ArrayList<>();
+        for (String name : new TreeSet<>(scanned.keySet())) {
+            final Scanned one = scanned.get(name);
+            if (!one.concrete) {
+                continue;
+            }
+            final Set<String> categories = new LinkedHashSet<>();
+            final Map<String, TestMethod> methods = new TreeMap<>();
+            // subclasses first, so an overriding method's categories are the ones kept
+            for (Scanned type = one; type != null; type = scanned.get(type.superName)) {
+                categories.addAll(type.categories);
+                for (TestMethod method : type.methods) {
+                    if (!methods.containsKey(method.name)) {
+                        methods.put(method.name, method);
+                    }
+                }
+            }
+            if (!methods.isEmpty()) {
+                classes.add(new TestClass(name, new ArrayList<>(categories), new ArrayList<>(methods.values())));
+            }
+        }
+        return new TestCatalog(hash, classes);
+    }
+
+    private static List<String> categories(Map<String, Object> category) {
+        final List<String> names = new ArrayList<>();
+        final Object value = category == null ? null : category.get("value");
+        if (value instanceof String[]) {
+            names.addAll(Arrays.asList((String[]) value));
+        } else if (value instanceof String) {
+            names.add((String) value);
+        }
+        return names;
+    }
+
+    /* ****** CACHING ****** */
+
+    private static TestCatalog read(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (Reader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return gson.fromJson(in, TestCatalog.class);
+        } catch (IOException | JsonParseException e) {
+            log.warn("ignoring unreadable test catalog " + file + ": " + e);
+            return null;
+        }
+    }
+
+    private static void write(TestCatalog catalog, File file) {
+        // write then rename, so a run reading the catalog never sees half of it
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            final File temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+            try (Writer out = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+                gson.toJson(catalog, out);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("can't save the test catalog to " + file + ": " + e);
+        }
+    }
+
+    private static String sha256(File jar) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("no SHA-256 in this JVM", e);
+        }
+        final byte[] buffer = new byte[65536];
+        try (InputStream in = new FileInputStream(jar)) {
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        final StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        for (int n; (n = in.read(buffer)) > 0; ) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
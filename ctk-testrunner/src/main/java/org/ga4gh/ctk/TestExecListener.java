@@ -15,41 +15,47 @@ import java.io.*;
  * <p>Route JUnit test events into the TESTLOG</p>
  * <p>Normal use is to be attached to a JunitCore as a listener, or to
  * be instantiated as a junit task "formatter" inside an ant buildfile.</p>
+ * <p>Either way, it adds each test's outcome to the run's {@link RunStats} (and the
+ * JVM-wide totals), and reports it to the run's {@link TestProgress} listener, if one
+ * is bound.</p>
  * <p>Created by Wayne Stidolph on 6/23/2015.</p>
  */
 @Component
 @Scope("prototype")
-public class TestExecListener extends RunListener implements JUnitResultFormatter  {
-
-    static long runCount = 0L; // these are the overall run totals
-    static long failureCount = 0L;
-    static long errorCount = 0L;
-    static long skipCount  = 0L;
-    static float ms = 0.0f;
+public class TestExecListener extends RunListener implements JUnitResultFormatter, IgnoredTestListener {
 
     private static org.slf4j.Logger testlog = LoggerFactory.getLogger("TESTLOG");
 
     /**
-     * <p>Gets test report summary string.</p>
+     * The test the ant junit task is running, which runs one test at a time, and how it's going.
+     */
+    private Test currentTest;
+    private long currentStart;
+    private TestProgress.Status currentStatus;
+    private String currentMessage;
+
+    /**
+     * The test JUnitCore is running, and how many of its tests have come out each way.
+     */
+    private Description currentDescription;
+    private final long[] outcomeCounts = new long[TestProgress.Status.values().length];
+
+    /**
+     * <p>Gets test report summary string, of the totals over all runs (see {@link RunStats#totals()}).</p>
      *
      * <p>Tests run: %d, Failures: %d, Errors: %d, Skipped: %d, Time elapsed: %.3f sec</p>
      *
      * @return the test report
      */
     public static String getTestReport() {
-        return String.format("Tests run: %d, Failures: %d, Errors: %d, Skipped: %d, Time elapsed: %.3f sec",
-                runCount, failureCount, errorCount, skipCount, ms);
+        return RunStats.totals().snapshot().toString();
     }
 
     /**
-     * <p>Reset stats</p>
+     * <p>Reset stats: the totals over all runs</p>
      */
     public static void resetStats() {
-        runCount = 0L; // these are the overall run totals
-        failureCount = 0L;
-        errorCount = 0L;
-        skipCount  = 0L;
-        ms = 0.0f;
+        RunStats.totals().reset();
     }
 
     /******** first methods are for when directly attached to the JUnitCore ***/
@@ -65,6 +71,13 @@ public class TestExecListener extends RunListener implements JUnitResultFormatte
      */
     public void testRunFinished(Result result) throws java.lang.Exception {
         testlog.info("Number of testcases executed : " + result.getRunCount());
+        final long failures = outcomeCounts[TestProgress.Status.FAILED.ordinal()];
+        final long errors = outcomeCounts[TestProgress.Status.ERROR.ordinal()];
+        final long skipped = outcomeCounts[TestProgress.Status.SKIPPED.ordinal()];
+        final long run = outcomeCounts[TestProgress.Status.PASSED.ordinal()] + failures + errors + skipped;
+        RunStats.recordSuite(result.getRunTime());
+        testlog.info(String.format("Tests run: %d, Failures: %d, Errors: %d, Skipped: %d, Time elapsed: %.3f sec",
+                run, failures, errors, skipped, result.getRunTime() / 1000.0f));
     }
 
     /**
@@ -72,6 +85,10 @@ public class TestExecListener extends RunListener implements JUnitResultFormatte
      */
     public void testStarted(Description description) throws java.lang.Exception {
         testlog.info("Starting test case : " + description.getMethodName());
+        currentDescription = description;
+        currentStart = System.currentTimeMillis();
+        currentStatus = TestProgress.Status.PASSED;
+        currentMessage = null;
     }
 
     /**
@@ -79,6 +96,10 @@ public class TestExecListener extends RunListener implements JUnitResultFormatte
      */
     public void testFinished(Description description) throws java.lang.Exception {
         testlog.debug("Finished test case : " + description.getMethodName());
+        if (description.equals(currentDescription)) {
+            record(description, currentStatus, currentMessage, System.currentTimeMillis() - currentStart);
+            currentDescription = null;
+        }
     }
 
     /**
@@ -86,6 +107,17 @@ public class TestExecListener extends RunListener implements JUnitResultFormatte
      */
     public void testFailure(Failure failure) throws java.lang.Exception {
         testlog.warn("FAILED test case : " + failure.getMessage());
+        setOutcome(failure, failure.getException() instanceof AssertionError
+                ? TestProgress.Status.FAILED : TestProgress.Status.ERROR);
+    }
+
+    /**
+     * Called when an atomic test's assumption fails, so it stops without passing or failing.
+     */
+    public void testAssumptionFailure(Failure failure) {
+        testlog.info("Skipping test case : " + failure.getDescription().getMethodName()
+                + " due to " + failure.getMessage());
+        setOutcome(failure, TestProgress.Status.SKIPPED);
     }
 
     /**
@@ -93,6 +125,24 @@ public class TestExecListener extends RunListener implements JUnitResultFormatte
      */
     public void testIgnored(Description description) throws java.lang.Exception {
         testlog.info("Ignoring test case : " + description.getMethodName());
+        record(description, TestProgress.Status.SKIPPED, null, 0L);
+    }
+
+    private void setOutcome(Failure failure, TestProgress.Status status) {
+        if (!failure.getDescription().equals(currentDescription)) {
+            // not between testStarted and testFinished, e.g. a failure in a @BeforeClass
+            record(failure.getDescription(), status, failure.getMessage(), 0L);
+        } else if (currentStatus == TestProgress.Status.PASSED) {
+            currentStatus = status;
+            currentMessage = failure.getMessage();
+        }
+    }
+
+    private void record(Description description, TestProgress.Status status, String message, long millis) {
+        outcomeCounts[status.ordinal()]++;
+        report(description.getClassName(),
+               description.getMethodName() != null ? description.getMethodName() : description.getDisplayName(),
+               status, message, millis);
     }
 
     /****** JUnitResultFormatter methods, for listening to ant <junit> run ***/
@@ -122,12 +172,8 @@ public class TestExecListener extends RunListener implements JUnitResultFormatte
         long suiteSkipCount  = suite.skipCount();
         float suiteMs = suite.getRunTime()/1000.0f;
 
-        // track overall
-        runCount     += suiteRunCount;
-        failureCount += suiteFailureCount;
-        errorCount   += suiteErrorCount;
-        skipCount    += suiteFailureCount;
-        ms           += suiteMs;
+        // the run's tests were counted one by one as they ended; add the suite's time
+        RunStats.recordSuite(suite.getRunTime());
 
         String suiteSummary= String.format("Tests run: %d, Failures: %d, Errors: %d, Skipped: %d, Time elapsed: %.3f sec",
                 suiteRunCount, suiteFailureCount,suiteErrorCount,suiteSkipCount, suiteMs);
@@ -175,6 +221,7 @@ public class TestExecListener extends RunListener implements JUnitResultFormatte
     @Override
     public void addError(Test test, Throwable e) {
         testlog.error("ERROR: " + test.toString() + " due to " + e.getMessage());
+        setOutcome(test, TestProgress.Status.ERROR, e);
     }
 
     /**
@@ -186,6 +233,7 @@ public class TestExecListener extends RunListener implements JUnitResultFormatte
     @Override
     public void addFailure(Test test, AssertionFailedError e) {
         testlog.warn("FAILED " + test.toString() + " due to " + e.getMessage());
+        setOutcome(test, TestProgress.Status.FAILED, e);
     }
 
     /**
@@ -196,6 +244,10 @@ public class TestExecListener extends RunListener implements JUnitResultFormatte
     @Override
     public void endTest(Test test) {
         testlog.debug("test: " + test.toString());
+        if (test == currentTest) {
+            report(test, currentStatus, currentMessage, System.currentTimeMillis() - currentStart);
+            currentTest = null;
+        }
     }
 
     /**
@@ -206,5 +258,54 @@ public class TestExecListener extends RunListener implements JUnitResultFormatte
     @Override
     public void startTest(Test test) {
         testlog.trace("start test: " + test.toString());
+        currentTest = test;
+        currentStart = System.currentTimeMillis();
+        currentStatus = TestProgress.Status.PASSED;
+        currentMessage = null;
+    }
+
+    /**
+     * A test was ignored, and never started.
+     *
+     * @param test
+     */
+    @Override
+    public void testIgnored(Test test) {
+        testlog.info("Ignoring test case : " + test.toString());
+        report(test, TestProgress.Status.SKIPPED, JUnitVersionHelper.getIgnoreMessage(test), 0L);
+    }
+
+    /**
+     * A test's assumption failed, so it stopped without passing or failing.
+     *
+     * @param test
+     * @param e
+     */
+    @Override
+    public void testAssumptionFailure(Test test, Throwable e) {
+        testlog.info("Skipping test case : " + test.toString() + " due to " + e.getMessage());
+        setOutcome(test, TestProgress.Status.SKIPPED, e);
+    }
+
+    private void setOutcome(Test test, TestProgress.Status status, Throwable e) {
+        if (test == currentTest && currentStatus == TestProgress.Status.PASSED) {
+            currentStatus = status;
+            currentMessage = e.getMessage();
+        } else if (test != currentTest) {
+            // not between startTest and endTest, e.g. a failure in a @BeforeClass
+            report(test, status, e.getMessage(), 0L);
+        }
+    }
+
+    private static void report(Test test, TestProgress.Status status, String message, long millis) {
+        report(JUnitVersionHelper.getTestCaseClassName(test), JUnitVersionHelper.getTestCaseName(test),
+               status, message, millis);
+    }
+
+    private static void report(String testClass, String testName, TestProgress.Status status, String message,
+                               long millis) {
+        final TestProgress.Outcome outcome = new TestProgress.Outcome(testClass, testName, status, message, millis);
+        RunStats.record(outcome);
+        TestProgress.report(outcome);
     }
 }
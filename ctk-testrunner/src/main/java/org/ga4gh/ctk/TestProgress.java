@@ -0,0 +1,145 @@
+package org.ga4gh.ctk;
+
+/**
+ * <p>Reports each test's outcome, as it finishes, to whoever launched the run.</p>
+ * <p>The antfile's junit task creates its own {@link TestExecListener}, so there's no handing
+ * that a listener. Instead the launcher binds a {@link Listener} to the thread the run happens
+ * on (and the threads it starts) with {@link #run(Listener, Runnable)}, and the
+ * TestExecListener passes each outcome to the listener bound to the thread running the
+ * test. Runs on different threads report to their own listeners.</p>
+ * <p>Created for the CTK server's run queue, which streams results as they come in.</p>
+ */
+public final class TestProgress {
+
+    /**
+     * How a test came out.
+     */
+    public enum Status {
+        PASSED, FAILED, ERROR, SKIPPED
+    }
+
+    /**
+     * One test's outcome.
+     */
+    public static final class Outcome {
+
+        private final String testClass;
+
+        private final String testName;
+
+        private final Status status;
+
+        private final String message;
+
+        private final long millis;
+
+        /**
+         * Create an outcome.
+         *
+         * @param testClass the test's class name
+         * @param testName  the test's (method) name
+         * @param status    how it came out
+         * @param message   why it failed or was skipped; may be null
+         * @param millis    how long it took
+         */
+        public Outcome(String testClass, String testName, Status status, String message, long millis) {
+            this.testClass = testClass;
+            this.testName = testName;
+            this.status = status;
+            this.message = message;
+            this.millis = millis;
+        }
+
+        public String getTestClass() {
+            return testClass;
+        }
+
+        public String getTestName() {
+            return testName;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        @Override
+        public String toString() {
+            return testClass + "." + testName + " " + status + (message != null ? " " + message : "")
+                    + " (" + millis + " ms)";
+        }
+    }
+
+    /**
+     * Receives the outcomes of a run's tests. It's called on the threads running the tests,
+     * possibly several at once, so it should be thread-safe and quick.
+     */
+    public interface Listener {
+        void testFinished(Outcome outcome);
+    }
+
+    private static final InheritableThreadLocal<Listener> current = new InheritableThreadLocal<>();
+
+    /**
+     * You can't instantiate one of these.
+     */
+    private TestProgress() {
+    }
+
+    /**
+     * Return the listener bound to this thread.
+     *
+     * @return the listener, or null if there's none
+     */
+    public static Listener current() {
+        return current.get();
+    }
+
+    /**
+     * Do something with a listener bound to the current thread, then put back whatever was
+     * bound before.
+     *
+     * @param listener the listener; if null, the task is just run
+     * @param task     what to do
+     */
+    public static void run(Listener listener, Runnable task) {
+        if (listener == null) {
+            task.run();
+            return;
+        }
+        final Listener previous = current.get();
+        current.set(listener);
+        try {
+            task.run();
+        } finally {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Report an outcome to the listener bound to this thread, if there is one.
+     *
+     * @param outcome the outcome
+     */
+    static void report(Outcome outcome) {
+        final Listener listener = current.get();
+        if (listener != null) {
+            try {
+                listener.testFinished(outcome);
+            } catch (RuntimeException e) {
+                CtkLogs.log.warn("test progress listener failed on " + outcome, e);
+            }
+        }
+    }
+}
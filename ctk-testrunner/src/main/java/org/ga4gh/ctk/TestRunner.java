@@ -1,17 +1,22 @@
 package org.ga4gh.ctk;
 
-import com.google.common.collect.Table;
 import org.apache.tools.ant.BuildEvent;
 import org.apache.tools.ant.BuildListener;
 import org.ga4gh.ctk.config.Props;
 import org.ga4gh.ctk.transport.URLMAPPING;
 import org.ga4gh.ctk.transport.avrojson.AvroJson;
+import org.ga4gh.ctk.transport.avrojson.MessageTraffic;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.concurrent.CompletableFuture;
 
 import static org.slf4j.LoggerFactory.getLogger;
@@ -44,6 +49,9 @@ public class TestRunner implements BuildListener {
     @Autowired
     private AntExecutor antExecutor;
 
+    @Autowired
+    private JUnitExecutor junitExecutor;
+
     @Value("${ctk.tgt.urlRoot}")
     String urlroot;
 
@@ -55,6 +63,29 @@ public class TestRunner implements BuildListener {
      */
     private String acceptedTargetDir = "";
 
+    /**
+     * The endpoints of the current run, for naming them in the latency report
+     */
+    private URLMAPPING urls;
+
+    /**
+     * Whether other runs may be going on in this JVM at the same time as this one's
+     */
+    private boolean concurrent;
+
+    /**
+     * <p>Say whether other runs may go on in this JVM at the same time as this one's. If
+     * so, the tests are run with JUnitCore whatever "ctk.launcher" says, since the antfile's
+     * &lt;junit> swaps System.out and System.err, and the totals over all runs aren't
+     * cleared at the end whatever "ctk.antlog.clearstats" says.</p>
+     *
+     * @param concurrent true if other runs may be going on at the same time
+     */
+    public void setConcurrent(boolean concurrent) {
+        this.concurrent = concurrent;
+        junitExecutor.setKeepTotals(concurrent);
+    }
+
     /**
      * Default invocation, does test run using properties
      * ctk.tgt.urlRoot, ctk_matchstr, ctk_testjar;
@@ -86,8 +117,10 @@ public class TestRunner implements BuildListener {
                                                String matchStr,
                                                String testJar,
                                                String toDir){
-        URLMAPPING urls = URLMAPPING.getInstance();
+        // this run's own endpoints; no other run sees them
+        urls = URLMAPPING.getInstance();
         urls.setUrlRoot(urlRoot);
+        urls.setTransport(props.ctk_tgt_transport);
 
         // is there a pattern we should enforce?
         acceptedTargetDir =
@@ -97,12 +130,31 @@ public class TestRunner implements BuildListener {
                     /* ****** MAIN RUN-THE-TESTS *********** */
 
         result = new CompletableFuture<>();
-        boolean goodLaunch =
-                antExecutor.executeAntTask(testJar, matchStr,
-                                           urls, datasetId,
-                                           acceptedTargetDir,
-                                           this); // "this" registers this for the BuildListener
-                                           // callbacks
+        // "this" registers this for the BuildListener callbacks; either way, the
+        // report is made by the antfile, which calls buildFinished().
+        // The antfile's <junit> can't run classes at once in one JVM (it swaps
+        // System.out and System.err), nor can two runs of it go on at once, so parallel
+        // and concurrent runs go through JUnitCore; and its <batchtest> runs whole
+        // classes, so runs of just some methods do too
+        final boolean parallel = props.threads() > 1;
+        boolean junit = "junit".equalsIgnoreCase(props.ctk_launcher);
+        if (!junit && (parallel || concurrent)) {
+            log.info((parallel ? "ctk.threads is " + props.threads() : "other runs may go on at once")
+                             + ", so running the tests with JUnitCore, not ant");
+            junit = true;
+        } else if (!junit && antExecutor.choosesMethods(testJar, matchStr)) {
+            log.info(matchStr + " chooses some methods of a class, so running the tests with JUnitCore, not ant");
+            junit = true;
+        }
+        boolean goodLaunch = junit
+                ? junitExecutor.executeTests(testJar, matchStr,
+                                             urls, datasetId,
+                                             acceptedTargetDir,
+                                             this)
+                : antExecutor.executeAntTask(testJar, matchStr,
+                                             urls, datasetId,
+                                             acceptedTargetDir,
+                                             this);
         if(!goodLaunch){
             log.warn("bad test run for " + acceptedTargetDir + " " + testJar + " " + matchStr + " urls: " + urls);
             result.complete("");
@@ -141,16 +193,57 @@ public class TestRunner implements BuildListener {
     public void buildFinished(BuildEvent event) {
        /* ******* post-Test reporting ********* */
         // ant file runs junitreporter, so those reports are done
-        // just log the traffic, until we write the coverage-tests
-        for (Table.Cell<String, String, Integer> cell : AvroJson.getMessages().cellSet()) {
-            trafficlog.info(cell.getRowKey() + " " + cell.getColumnKey() + " " + cell.getValue());
+        // just log the traffic summary, until we write the coverage-tests; the executors
+        // fire this in the run's context, so it's this run's traffic
+        for (MessageTraffic.Entry entry : AvroJson.getTraffic().getEntries()) {
+            trafficlog.info(entry.getMethod() + " " + entry.getEndpoint() + " " + entry.getResponseClass()
+                                    + " count " + entry.getCount() + " status " + entry.getStatusCounts());
+            for (String sample : entry.getSamples()) {
+                trafficlog.debug("  e.g. " + sample);
+            }
         }
         String todir = event.getProject().getUserProperty("ctk.todir");
         log.debug("buildFinished for " + todir);
+        writeLatencies(todir);
+        writeWireSizes(todir);
         // signal the listener to proceed
         result.complete(todir +"report/html/index.html");
     }
 
+    /**
+     * Write the run's per-endpoint request latencies next to the JUnit report, as
+     * <tt>report/latency.csv</tt> under the results directory.
+     *
+     * @param todir the results directory
+     */
+    private void writeLatencies(String todir) {
+        File report = new File(todir, "report/latency.csv");
+        report.getParentFile().mkdirs();
+        try (Writer out = Files.newBufferedWriter(report.toPath(), StandardCharsets.UTF_8)) {
+            AvroJson.getLatencies().writeCsv(out, urls != null ? urls.getEndpoints() : null);
+            log.info("wrote request latencies to " + report);
+        } catch (IOException e) {
+            log.warn("can't write request latencies to " + report, e);
+        }
+    }
+
+    /**
+     * Write the run's per-endpoint body sizes, sent and received, compressed and not, as
+     * <tt>report/wiresizes.csv</tt> under the results directory.
+     *
+     * @param todir the results directory
+     */
+    private void writeWireSizes(String todir) {
+        File report = new File(todir, "report/wiresizes.csv");
+        report.getParentFile().mkdirs();
+        try (Writer out = Files.newBufferedWriter(report.toPath(), StandardCharsets.UTF_8)) {
+            AvroJson.getWireSizes().writeCsv(out, urls != null ? urls.getEndpoints() : null);
+            log.info("wrote body sizes to " + report);
+        } catch (IOException e) {
+            log.warn("can't write body sizes to " + report, e);
+        }
+    }
+
     /**
      * Signals that a target is starting.
      *
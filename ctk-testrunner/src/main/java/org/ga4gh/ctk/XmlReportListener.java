@@ -0,0 +1,194 @@
+package org.ga4gh.ctk;
+
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Writes a test class's results as the JUnit XML that ant's &lt;junit> task writes
+ * (<tt>TEST-classname.xml</tt>), so the antfile's &lt;junitreport> can make the same HTML
+ * report from them.</p>
+ * <p>Unlike ant, it doesn't capture what the tests print; the &lt;system-out> and
+ * &lt;system-err> elements are empty.</p>
+ */
+class XmlReportListener extends RunListener {
+
+    private static final String ISO8601 = "yyyy-MM-dd'T'HH:mm:ss";
+
+    private final String suiteName;
+
+    private final long started = System.currentTimeMillis();
+
+    /**
+     * Each test, in the order they started, with its element and start time.
+     */
+    private final Map<Description, Element> testcases = new LinkedHashMap<>();
+    private final Map<Description, Long> starts = new LinkedHashMap<>();
+
+    private final Document doc;
+
+    private final Element root;
+
+    private int failures;
+
+    private int errors;
+
+    private int skipped;
+
+    /**
+     * Start recording a test class's results.
+     *
+     * @param suiteName the class name
+     */
+    XmlReportListener(String suiteName) {
+        this.suiteName = suiteName;
+        try {
+            doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("can't make a DOM", e);
+        }
+        root = doc.createElement("testsuite");
+        doc.appendChild(root);
+        root.appendChild(doc.createElement("properties"));
+    }
+
+    @Override
+    public void testStarted(Description description) {
+        testcase(description);
+        starts.put(description, System.currentTimeMillis());
+    }
+
+    @Override
+    public void testFinished(Description description) {
+        final Long start = starts.get(description);
+        if (start != null) {
+            testcase(description).setAttribute("time", seconds(System.currentTimeMillis() - start));
+        }
+    }
+
+    @Override
+    public void testFailure(Failure failure) {
+        final boolean isFailure = failure.getException() instanceof AssertionError;
+        if (isFailure) {
+            failures++;
+        } else {
+            errors++;
+        }
+        addProblem(failure, isFailure ? "failure" : "error");
+    }
+
+    @Override
+    public void testAssumptionFailure(Failure failure) {
+        skipped++;
+        final Element skip = doc.createElement("skipped");
+        if (failure.getMessage() != null) {
+            skip.setAttribute("message", failure.getMessage());
+        }
+        testcase(failure.getDescription()).appendChild(skip);
+    }
+
+    @Override
+    public void testIgnored(Description description) {
+        skipped++;
+        final Element testcase = testcase(description);
+        testcase.setAttribute("time", seconds(0));
+        testcase.appendChild(doc.createElement("skipped"));
+    }
+
+    /**
+     * Record an error that stopped the class from running at all, e.g. not being found.
+     *
+     * @param problem what went wrong
+     */
+    void classFailed(Throwable problem) {
+        testFailure(new Failure(Description.createSuiteDescription(suiteName), problem));
+    }
+
+    private void addProblem(Failure failure, String kind) {
+        final Element problem = doc.createElement(kind);
+        if (failure.getMessage() != null) {
+            problem.setAttribute("message", failure.getMessage());
+        }
+        problem.setAttribute("type", failure.getException().getClass().getName());
+        final StringWriter trace = new StringWriter();
+        failure.getException().printStackTrace(new PrintWriter(trace, true));
+        problem.appendChild(doc.createTextNode(trace.toString()));
+        testcase(failure.getDescription()).appendChild(problem);
+    }
+
+    private Element testcase(Description description) {
+        Element testcase = testcases.get(description);
+        if (testcase == null) {
+            testcase = doc.createElement("testcase");
+            testcase.setAttribute("classname",
+                                  description.getClassName() != null ? description.getClassName() : suiteName);
+            testcase.setAttribute("name", description.getMethodName() != null ? description.getMethodName()
+                    : description.getDisplayName());
+            testcase.setAttribute("time", seconds(0));
+            testcases.put(description, testcase);
+        }
+        return testcase;
+    }
+
+    private static String seconds(long millis) {
+        return String.format("%.3f", millis / 1000.0);
+    }
+
+    /**
+     * Write the results.
+     *
+     * @param result the result of the run, if it got that far; may be null
+     * @param file   where to write them
+     * @throws TransformerException if they can't be written
+     */
+    void write(Result result, File file) throws TransformerException {
+        root.setAttribute("name", suiteName);
+        root.setAttribute("tests", Integer.toString(testcases.size()));
+        root.setAttribute("failures", Integer.toString(failures));
+        root.setAttribute("errors", Integer.toString(errors));
+        root.setAttribute("skipped", Integer.toString(skipped));
+        root.setAttribute("time", seconds(result != null ? result.getRunTime()
+                : System.currentTimeMillis() - started));
+        root.setAttribute("timestamp", new SimpleDateFormat(ISO8601).format(new Date(started)));
+        root.setAttribute("hostname", hostname());
+        for (Element testcase : testcases.values()) {
+            root.appendChild(testcase);
+        }
+        root.appendChild(doc.createElement("system-out"));
+        root.appendChild(doc.createElement("system-err"));
+
+        final Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        transformer.transform(new DOMSource(doc), new StreamResult(file));
+    }
+
+    private static String hostname() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+}
@@ -8,6 +8,8 @@ import org.springframework.context.annotation.PropertySource;
 import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
 import org.springframework.stereotype.Component;
 
+import java.util.Properties;
+
 /**
  * <p>Access to runtime environment properties.</p>
  * <p>This class uses Spring @Value injection to get properties from the runtime
@@ -93,15 +95,50 @@ public class Props {
     @Value("${ctk.antlog.clearstats}")
     public String ctk_antlog_clearstats;
 
+    // how many test classes to run at once (1 runs them one after another, as the antfile does)
+    @Value("${ctk.threads:1}")
+    public String ctk_threads;
+
+    // how to run the tests: "ant" runs the antfile, "junit" runs them directly with JUnitCore
+    @Value("${ctk.launcher:ant}")
+    public String ctk_launcher;
+
+    // how often (seconds) the command line logs how a run is going; 0 doesn't
+    @Value("${ctk.progress.interval:0}")
+    public String ctk_progress_interval;
+
     @Value("${ctk.testjar}")
     public String ctk_testjar;
 
+    // where the index of each test jar's classes, categories and methods is kept
+    @Value("${ctk.catalog.dir:target/catalog}")
+    public String ctk_catalog_dir;
+
     @Value("${ctk.reporttitle}")
     public String ctk_report_title;
 
     @Value("${ctk.tgt.dataset_id}")
     public String ctk_tgt_dataset_id;
 
+    // the HTTP engine the tests use: unirest, urlconnection or httpasyncclient
+    @Value("${ctk.tgt.transport:unirest}")
+    public String ctk_tgt_transport;
+
+    // connection pool and timeouts (milliseconds) for the transport
+    @Value("${ctk.transport.pool.max:200}")
+    public String ctk_transport_pool_max;
+    @Value("${ctk.transport.pool.maxperroute:20}")
+    public String ctk_transport_pool_maxperroute;
+    @Value("${ctk.transport.pool.idletimeout:30000}")
+    public String ctk_transport_pool_idletimeout;
+    @Value("${ctk.transport.timeout.connect:10000}")
+    public String ctk_transport_timeout_connect;
+    @Value("${ctk.transport.timeout.read:60000}")
+    public String ctk_transport_timeout_read;
+    // per-endpoint read timeouts, e.g., getReferencesBases=300000,searchReads=120000
+    @Value("${ctk.transport.timeout.endpoints:}")
+    public String ctk_transport_timeout_endpoints;
+
     /* logging control (name of the test/traffic logs) not yet working */
     /*
     @Value("${ctk.logging.systest}")
@@ -110,6 +147,42 @@ public class Props {
     public String ctk_logging_systest_traffic;
     */
 
+    /**
+     * Return ctk.threads as a number.
+     *
+     * @return how many test classes to run at once, at least 1
+     */
+    public int threads() {
+        try {
+            return ctk_threads == null ? 1 : Math.max(1, Integer.parseInt(ctk_threads.trim()));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    /**
+     * Return the ctk.transport.* settings under their property names, for handing
+     * to the tests (which read them from the run's RunContext).
+     *
+     * @return the transport pool and timeout properties
+     */
+    public Properties transportProperties() {
+        Properties tp = new Properties();
+        putIfSet(tp, "ctk.transport.pool.max", ctk_transport_pool_max);
+        putIfSet(tp, "ctk.transport.pool.maxperroute", ctk_transport_pool_maxperroute);
+        putIfSet(tp, "ctk.transport.pool.idletimeout", ctk_transport_pool_idletimeout);
+        putIfSet(tp, "ctk.transport.timeout.connect", ctk_transport_timeout_connect);
+        putIfSet(tp, "ctk.transport.timeout.read", ctk_transport_timeout_read);
+        putIfSet(tp, "ctk.transport.timeout.endpoints", ctk_transport_timeout_endpoints);
+        return tp;
+    }
+
+    private static void putIfSet(Properties props, String key, String value) {
+        if (value != null) {
+            props.setProperty(key, value);
+        }
+    }
+
     @Bean
     public static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
         return new PropertySourcesPlaceholderConfigurer();
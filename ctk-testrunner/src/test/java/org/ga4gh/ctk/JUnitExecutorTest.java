@@ -0,0 +1,45 @@
+package org.ga4gh.ctk;
+
+import org.ga4gh.ctk.transport.RunContext;
+import org.ga4gh.cts.RunContextProbe;
+import org.ga4gh.methods.GAException;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * JUnitExecutor Tester.
+ */
+public class JUnitExecutorTest {
+
+    /**
+     * Class: TestClassLoader, which loads the test classes afresh but shares the CTK's
+     */
+    @Test
+    public void testsSeeTheLaunchersRunContext() throws Exception {
+        final URL testClasses = RunContextProbe.class.getProtectionDomain().getCodeSource().getLocation();
+        final URL schemas = GAException.class.getProtectionDomain().getCodeSource().getLocation();
+        final Properties properties = new Properties();
+        properties.setProperty(RunContext.DATASET_ID, "probe-dataset");
+        final RunContext context = new RunContext(properties);
+
+        try (URLClassLoader loader = new JUnitExecutor.TestClassLoader(new URL[]{testClasses, schemas},
+                                                                       getClass().getClassLoader())) {
+            final Class<?> probe = Class.forName(RunContextProbe.class.getName(), false, loader);
+            assertThat(probe).isNotSameAs(RunContextProbe.class);
+            assertThat(probe.getClassLoader()).isSameAs(loader);
+            assertThat(loader.loadClass(RunContext.class.getName())).isSameAs(RunContext.class);
+            assertThat(loader.loadClass(GAException.class.getName())).isSameAs(GAException.class);
+
+            final Result result = context.call(() -> new JUnitCore().run(probe));
+            assertThat(result.getRunCount()).isEqualTo(1);
+            assertThat(result.getFailures()).isEmpty();
+        }
+    }
+}
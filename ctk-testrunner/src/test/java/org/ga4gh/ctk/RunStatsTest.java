@@ -0,0 +1,130 @@
+package org.ga4gh.ctk;
+
+import junit.framework.AssertionFailedError;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * RunStats Tester.
+ */
+public class RunStatsTest {
+
+    private static TestCase testCase(String name) {
+        final TestCase test = new TestCase() {
+        };
+        test.setName(name);
+        return test;
+    }
+
+    private static TestProgress.Outcome outcome(String name, TestProgress.Status status, long millis) {
+        return new TestProgress.Outcome("Sample", name, status, null, millis);
+    }
+
+    /**
+     * Method: record(Outcome), as the junit task's TestExecListener calls it
+     */
+    @Test
+    public void outcomesAreCountedInTheBoundStats() throws Exception {
+        final RunStats stats = new RunStats();
+        final long totalSkipped = RunStats.totals().snapshot().getSkipped();
+        final TestExecListener listener = new TestExecListener();
+        final TestCase passes = testCase("passes");
+        final TestCase fails = testCase("fails");
+
+        RunStats.run(stats, () -> {
+            listener.startTest(passes);
+            listener.endTest(passes);
+            listener.startTest(fails);
+            listener.addFailure(fails, new AssertionFailedError("expected 1"));
+            listener.endTest(fails);
+            listener.testIgnored(testCase("ignored"));
+            RunStats.recordSuite(1500L);
+        });
+        // not this run's
+        listener.startTest(passes);
+        listener.endTest(passes);
+
+        final RunStats.Snapshot snapshot = stats.snapshot();
+        assertThat(snapshot.getTests()).isEqualTo(3);
+        assertThat(snapshot.getPassed()).isEqualTo(1);
+        assertThat(snapshot.getFailures()).isEqualTo(1);
+        assertThat(snapshot.getErrors()).isEqualTo(0);
+        assertThat(snapshot.getSkipped()).isEqualTo(1);
+        assertThat(snapshot.getSuites()).isEqualTo(1);
+        assertThat(snapshot.toString())
+                .isEqualTo("Tests run: 3, Failures: 1, Errors: 0, Skipped: 1, Time elapsed: 1.500 sec");
+        assertThat(stats.getOutcomes()).extracting("testName").containsExactly("passes", "fails", "ignored");
+        assertThat(RunStats.current()).isNull();
+        // a failure isn't counted as a skip in the totals either
+        assertThat(RunStats.totals().snapshot().getSkipped() - totalSkipped).isEqualTo(1);
+    }
+
+    /**
+     * Method: run(RunStats, Runnable), with runs going on at once on several threads
+     */
+    @Test
+    public void concurrentRunsCountOnlyTheirOwnTests() throws Exception {
+        final int runs = 4;
+        final int testsPerRun = 10000;
+        final List<RunStats> stats = new ArrayList<>();
+        final List<Thread> threads = new ArrayList<>();
+        final CountDownLatch go = new CountDownLatch(1);
+        for (int i = 0; i < runs; i++) {
+            final RunStats run = new RunStats();
+            final int failEvery = i + 1;
+            stats.add(run);
+            threads.add(new Thread(() -> RunStats.run(run, () -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int t = 0; t < testsPerRun; t++) {
+                    RunStats.record(outcome("test" + t, t % failEvery == 0 ? TestProgress.Status.FAILED
+                            : TestProgress.Status.PASSED, 1L));
+                }
+            })));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int i = 0; i < runs; i++) {
+            final RunStats.Snapshot snapshot = stats.get(i).snapshot();
+            assertThat(snapshot.getTests()).isEqualTo(testsPerRun);
+            assertThat(snapshot.getFailures()).isEqualTo((testsPerRun + i) / (i + 1));
+            assertThat(stats.get(i).getOutcomes()).hasSize(testsPerRun);
+        }
+    }
+
+    /**
+     * Method: getSlowest(int), getOutcomes(int) and reset()
+     */
+    @Test
+    public void keepsEachTestsDuration() throws Exception {
+        final RunStats stats = new RunStats();
+        stats.testFinished(outcome("quick", TestProgress.Status.PASSED, 5L));
+        stats.testFinished(outcome("slow", TestProgress.Status.PASSED, 500L));
+        stats.testFinished(outcome("middling", TestProgress.Status.ERROR, 50L));
+
+        assertThat(stats.getSlowest(2)).extracting("testName").containsExactly("slow", "middling");
+        assertThat(stats.getSlowest(10)).hasSize(3);
+        assertThat(stats.getOutcomeCount()).isEqualTo(3);
+        assertThat(stats.getOutcomes(1)).extracting("testName").containsExactly("slow", "middling");
+        assertThat(stats.getOutcomes(5)).isEmpty();
+
+        stats.reset();
+        assertThat(stats.snapshot().getTests()).isZero();
+        assertThat(stats.getOutcomes()).isEmpty();
+    }
+}
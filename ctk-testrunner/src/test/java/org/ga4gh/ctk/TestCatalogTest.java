@@ -0,0 +1,186 @@
+package org.ga4gh.ctk;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * TestCatalog Tester.
+ */
+public class TestCatalogTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /* the classes in the test jar; run by the tests below, not by the build */
+
+    public interface Fast {
+    }
+
+    public interface Slow {
+    }
+
+    public abstract static class Base {
+        @Test
+        public void inherited() {
+        }
+    }
+
+    @Category(Fast.class)
+    public static class ReadsSearchIT extends Base {
+        @Test
+        public void searchesReads() {
+        }
+
+        @Test
+        @Category(Slow.class)
+        public void pagesReads() {
+        }
+    }
+
+    public static class ITHelperTest {
+        @Test
+        public void helps() {
+        }
+    }
+
+    public static class Utils {
+        public void notATest() {
+        }
+    }
+
+    private static final String READS = ReadsSearchIT.class.getName();
+    private static final String HELPER = ITHelperTest.class.getName();
+
+    private File testJar(String name) throws Exception {
+        final File jar = tmp.newFile(name);
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry("org/ga4gh/ctk/"));
+            out.closeEntry();
+            for (Class<?> type : new Class<?>[]{Fast.class, Slow.class, Base.class, ReadsSearchIT.class,
+                                                ITHelperTest.class, Utils.class}) {
+                final String entry = type.getName().replace('.', '/') + ".class";
+                out.putNextEntry(new ZipEntry(entry));
+                try (InputStream in = getClass().getClassLoader().getResourceAsStream(entry)) {
+                    final byte[] buffer = new byte[8192];
+                    for (int n; (n = in.read(buffer)) > 0; ) {
+                        out.write(buffer, 0, n);
+                    }
+                }
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static List<String> names(List<?> things) {
+        final List<String> names = new ArrayList<>();
+        for (Object thing : things) {
+            names.add(thing instanceof TestCatalog.TestClass ? ((TestCatalog.TestClass) thing).getName()
+                              : ((TestCatalog.TestMethod) thing).getName());
+        }
+        return names;
+    }
+
+    /**
+     * Method: forJar(File, File), which indexes the concrete classes with test methods
+     */
+    @Test
+    public void indexesTestClassesCategoriesAndMethods() throws Exception {
+        final TestCatalog catalog = TestCatalog.forJar(testJar("tests.jar"), null);
+
+        assertThat(names(catalog.getClasses())).containsExactly(HELPER, READS);
+        final TestCatalog.TestClass reads = catalog.getClasses().get(1);
+        assertThat(reads.getCategories()).containsExactly(Fast.class.getName());
+        assertThat(names(reads.getMethods())).containsExactly("inherited", "pagesReads", "searchesReads");
+        assertThat(reads.getMethods().get(1).getCategories()).containsExactly(Slow.class.getName());
+        assertThat(reads.getEntryName()).isEqualTo(READS.replace('.', '/') + ".class");
+    }
+
+    /**
+     * Method: select(String), with ant patterns as ctk.matchstr has always held
+     */
+    @Test
+    public void selectsByAntPattern() throws Exception {
+        final TestCatalog catalog = TestCatalog.forJar(testJar("tests.jar"), null);
+
+        assertThat(TestCatalog.isSelector("**/*IT.class, **/IT*.class")).isFalse();
+        assertThat(catalog.select("**/*IT.class, **/IT*.class").getClasses()).containsExactly(HELPER, READS);
+        assertThat(catalog.select("**/*Utils*").isEmpty()).isTrue();
+        final TestCatalog.Selection reads = catalog.select("**/*IT.class");
+        assertThat(reads.getClasses()).containsExactly(READS);
+        assertThat(reads.getMethods(READS)).isNull();
+        assertThat(reads.toPatterns()).isEqualTo(READS.replace('.', '/') + ".class");
+        assertThat(reads.choosesMethods()).isFalse();
+    }
+
+    /**
+     * Method: select(String), with category, package, method and leaving-out terms
+     */
+    @Test
+    public void selectsByCategoryPackageAndMethod() throws Exception {
+        final TestCatalog catalog = TestCatalog.forJar(testJar("tests.jar"), null);
+
+        assertThat(TestCatalog.isSelector("category:Fast")).isTrue();
+        assertThat(TestCatalog.isSelector("**/*IT.class,-category:Slow")).isTrue();
+
+        assertThat(catalog.select("category:Fast").getClasses()).containsExactly(READS);
+        assertThat(catalog.select("category:" + Fast.class.getName()).getClasses()).containsExactly(READS);
+        assertThat(catalog.select("category:Slow").getMethods(READS)).containsExactly("pagesReads");
+        assertThat(catalog.select("package:org.ga4gh.ctk").getClasses()).containsExactly(HELPER, READS);
+        assertThat(catalog.select("package:org.ga4gh.cts").isEmpty()).isTrue();
+        assertThat(catalog.select("method:.*Reads").getMethods(READS)).containsExactly("pagesReads",
+                                                                                      "searchesReads");
+        assertThat(catalog.select("method:ITHelperTest#.*").getClasses()).containsExactly(HELPER);
+
+        final TestCatalog.Selection notSlow = catalog.select("-category:Slow");
+        assertThat(notSlow.getClasses()).containsExactly(HELPER, READS);
+        assertThat(notSlow.getMethods(HELPER)).isNull();
+        assertThat(notSlow.getMethods(READS)).containsExactly("inherited", "searchesReads");
+        assertThat(notSlow.choosesMethods()).isTrue();
+        assertThat(catalog.select("method:.*Reads").choosesMethods()).isTrue();
+        assertThat(catalog.select("category:Fast").choosesMethods()).isFalse();
+    }
+
+    /**
+     * Method: select(String), with a method term that isn't a regular expression
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsABadMethodPattern() throws Exception {
+        TestCatalog.forJar(testJar("tests.jar"), null).select("method:(");
+    }
+
+    /**
+     * Method: forJar(File, File), which keeps the index on disk by the jar's hash
+     */
+    @Test
+    public void keepsTheIndexOnDisk() throws Exception {
+        final File cacheDir = new File(tmp.getRoot(), "catalog");
+        final File jar = testJar("tests.jar");
+        final TestCatalog catalog = TestCatalog.forJar(jar, cacheDir);
+
+        final File cached = new File(cacheDir, catalog.getJarHash() + ".json");
+        assertThat(cached).isFile();
+
+        // the same bytes under another name are found on disk, not indexed again
+        final File copy = new File(tmp.getRoot(), "copy.jar");
+        Files.copy(jar.toPath(), copy.toPath());
+        final TestCatalog fromDisk = TestCatalog.forJar(copy, cacheDir);
+        assertThat(fromDisk).isNotSameAs(catalog);
+        assertThat(fromDisk.getJarHash()).isEqualTo(catalog.getJarHash());
+        assertThat(names(fromDisk.getClasses())).containsExactly(HELPER, READS);
+        assertThat(fromDisk.select("category:Slow").getMethods(READS)).containsExactly("pagesReads");
+    }
+}
@@ -0,0 +1,53 @@
+package org.ga4gh.ctk;
+
+import junit.framework.AssertionFailedError;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * TestProgress Tester.
+ */
+public class TestProgressTest {
+
+    private static TestCase testCase(String name) {
+        final TestCase test = new TestCase() {
+        };
+        test.setName(name);
+        return test;
+    }
+
+    /**
+     * Method: report(Outcome), as the junit task's TestExecListener calls it
+     */
+    @Test
+    public void outcomesGoToTheBoundListener() throws Exception {
+        final List<TestProgress.Outcome> outcomes = new ArrayList<>();
+        final TestExecListener listener = new TestExecListener();
+        final TestCase passes = testCase("passes");
+        final TestCase fails = testCase("fails");
+
+        TestProgress.run(outcomes::add, () -> {
+            listener.startTest(passes);
+            listener.endTest(passes);
+            listener.startTest(fails);
+            listener.addFailure(fails, new AssertionFailedError("expected 1"));
+            listener.endTest(fails);
+            listener.testIgnored(testCase("ignored"));
+        });
+        // nobody's listening now
+        listener.startTest(passes);
+        listener.endTest(passes);
+
+        assertThat(outcomes).extracting("testName").containsExactly("passes", "fails", "ignored");
+        assertThat(outcomes).extracting("status").containsExactly(TestProgress.Status.PASSED,
+                                                                  TestProgress.Status.FAILED,
+                                                                  TestProgress.Status.SKIPPED);
+        assertThat(outcomes.get(1).getMessage()).isEqualTo("expected 1");
+        assertThat(TestProgress.current()).isNull();
+    }
+}
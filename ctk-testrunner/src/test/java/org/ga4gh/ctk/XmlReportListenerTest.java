@@ -0,0 +1,112 @@
+package org.ga4gh.ctk;
+
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * XmlReportListener Tester.
+ */
+public class XmlReportListenerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Run by the tests below, not by the build.
+     */
+    public static class Sample {
+        @Test
+        public void passes() {
+        }
+
+        @Test
+        public void fails() {
+            assertThat(1).isEqualTo(2);
+        }
+
+        @Test
+        public void breaks() {
+            throw new IllegalStateException("broken");
+        }
+
+        @Ignore
+        @Test
+        public void ignored() {
+        }
+    }
+
+    private Element run(XmlReportListener xml, Class<?> type) throws Exception {
+        final JUnitCore core = new JUnitCore();
+        core.addListener(xml);
+        final Result result = type != null ? core.run(Request.aClass(type)) : null;
+        final File file = new File(folder.getRoot(), "TEST-sample.xml");
+        xml.write(result, file);
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file).getDocumentElement();
+    }
+
+    /**
+     * Method: write(Result, File), after a run, in the form ant's junit task writes
+     */
+    @Test
+    public void writesTheSuiteAndItsTests() throws Exception {
+        final Element suite = run(new XmlReportListener(Sample.class.getName()), Sample.class);
+
+        assertThat(suite.getTagName()).isEqualTo("testsuite");
+        assertThat(suite.getAttribute("name")).isEqualTo(Sample.class.getName());
+        assertThat(suite.getAttribute("tests")).isEqualTo("4");
+        assertThat(suite.getAttribute("failures")).isEqualTo("1");
+        assertThat(suite.getAttribute("errors")).isEqualTo("1");
+        assertThat(suite.getAttribute("skipped")).isEqualTo("1");
+
+        final NodeList testcases = suite.getElementsByTagName("testcase");
+        assertThat(testcases.getLength()).isEqualTo(4);
+        for (int i = 0; i < testcases.getLength(); i++) {
+            final Element testcase = (Element) testcases.item(i);
+            assertThat(testcase.getAttribute("classname")).isEqualTo(Sample.class.getName());
+            switch (testcase.getAttribute("name")) {
+                case "fails":
+                    assertThat(testcase.getElementsByTagName("failure").getLength()).isEqualTo(1);
+                    break;
+                case "breaks":
+                    final Element error = (Element) testcase.getElementsByTagName("error").item(0);
+                    assertThat(error.getAttribute("type")).isEqualTo(IllegalStateException.class.getName());
+                    assertThat(error.getAttribute("message")).isEqualTo("broken");
+                    break;
+                case "ignored":
+                    assertThat(testcase.getElementsByTagName("skipped").getLength()).isEqualTo(1);
+                    break;
+                default:
+                    assertThat(testcase.getAttribute("name")).isEqualTo("passes");
+                    assertThat(testcase.getChildNodes().getLength()).isZero();
+            }
+        }
+    }
+
+    /**
+     * Method: classFailed(Throwable), when the class can't even be loaded
+     */
+    @Test
+    public void recordsAClassThatDidNotRun() throws Exception {
+        final XmlReportListener xml = new XmlReportListener("org.example.Missing");
+        xml.classFailed(new ClassNotFoundException("org.example.Missing"));
+        final Element suite = run(xml, null);
+
+        assertThat(suite.getAttribute("tests")).isEqualTo("1");
+        assertThat(suite.getAttribute("errors")).isEqualTo("1");
+        final Element testcase = (Element) suite.getElementsByTagName("testcase").item(0);
+        assertThat(testcase.getAttribute("classname")).isEqualTo("org.example.Missing");
+        assertThat(testcase.getElementsByTagName("error").getLength()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,19 @@
+package org.ga4gh.cts;
+
+import org.ga4gh.ctk.transport.RunContext;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Loaded afresh by JUnitExecutorTest, as the CTS test classes are, and run by it; not by
+ * the build. It's outside org.ga4gh.ctk so the test class loader doesn't share it.
+ */
+public class RunContextProbe {
+
+    @Test
+    public void seesTheRunContext() {
+        assertThat(RunContext.current()).isNotNull();
+        assertThat(RunContext.current().getDatasetId()).isEqualTo("probe-dataset");
+    }
+}
@@ -0,0 +1,88 @@
+package org.ga4gh.ctk.testserver;
+
+import org.ga4gh.ctk.testserver.store.MappedFasta;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Prints the name, length and GA4GH MD5 checksum of each sequence in some FASTA files,
+ * and checks them against expected checksums (such as the CTS's
+ * <tt>REFERENCE_BRCA1_MD5_CHECKSUM</tt>).</p>
+ * <p>Run it with <tt>java -cp testserver.jar org.ga4gh.ctk.testserver.FastaVerifier
+ * [--write-index] [--md5=[NAME=]MD5]... FILE...</tt>. An <tt>--md5</tt> without a name
+ * applies to a file's first sequence. <tt>--write-index</tt> writes a <tt>.fai</tt> beside
+ * each FASTA file that lacks one. The exit status is 1 if any checksum doesn't match.</p>
+ */
+public class FastaVerifier {
+
+    /**
+     * You can't instantiate one of these.
+     */
+    private FastaVerifier() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean writeIndex = false;
+        final Map<String, String> expected = new LinkedHashMap<>();
+        String expectedFirst = null;
+        final List<File> files = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--write-index")) {
+                writeIndex = true;
+            } else if (arg.startsWith("--md5=")) {
+                final String value = arg.substring("--md5=".length());
+                final int eq = value.lastIndexOf('=');
+                if (eq < 0) {
+                    expectedFirst = value.toLowerCase();
+                } else {
+                    expected.put(value.substring(0, eq), value.substring(eq + 1).toLowerCase());
+                }
+            } else if (arg.startsWith("--")) {
+                usage();
+            } else {
+                files.add(new File(arg));
+            }
+        }
+        if (files.isEmpty()) {
+            usage();
+        }
+
+        boolean ok = true;
+        for (File file : files) {
+            final boolean hadIndex = new File(file.getPath() + ".fai").isFile();
+            try (MappedFasta fasta = MappedFasta.open(file)) {
+                boolean first = true;
+                for (MappedFasta.Entry entry : fasta.getEntries()) {
+                    final String md5 = fasta.md5(entry.getName());
+                    String want = expected.remove(entry.getName());
+                    if (want == null && first) {
+                        want = expectedFirst;
+                    }
+                    first = false;
+                    final boolean matches = want == null || want.equals(md5);
+                    ok &= matches;
+                    System.out.println(file + "\t" + entry.getName() + "\t" + entry.getLength() + "\t" + md5
+                                               + (want == null ? "" : matches ? "\tOK" : "\tMISMATCH (expected " + want + ")"));
+                }
+                if (writeIndex && !hadIndex) {
+                    fasta.writeIndex();
+                }
+            }
+        }
+        for (String name : expected.keySet()) {
+            System.out.println("no sequence " + name);
+            ok = false;
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static void usage() {
+        System.err.println("usage: FastaVerifier [--write-index] [--md5=[NAME=]MD5]... FILE...");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,105 @@
+package org.ga4gh.ctk.testserver;
+
+import org.ga4gh.methods.GAException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>Cuts one page out of a complete result list.</p>
+ * <p>A page token is the offset of the page's first result, so the same query always
+ * pages the same way. The last page has no next page token.</p>
+ * <p>A store that can resume a scan directly, such as
+ * {@link org.ga4gh.ctk.testserver.store.ReadStore#getReads}, instead takes the token as
+ * its own resume position ({@link #offset()}) and reports the next one with
+ * {@link #setNext(int)}.</p>
+ */
+final class Paging {
+
+    static final int DEFAULT_PAGE_SIZE = 100;
+
+    static final int MAX_PAGE_SIZE = 10000;
+
+    private final int offset;
+
+    private final int pageSize;
+
+    private String nextPageToken;
+
+    /**
+     * Check a request's paging fields.
+     *
+     * @param pageSize  the requested page size, or null for the default
+     * @param pageToken the page token from the previous page, or null for the first page
+     * @throws GAException (400) if either is malformed
+     */
+    Paging(Integer pageSize, String pageToken) throws GAException {
+        if (pageSize != null && pageSize <= 0) {
+            throw TestDataService.error(400, "pageSize must be positive, not " + pageSize);
+        }
+        this.pageSize = pageSize == null ? DEFAULT_PAGE_SIZE : Math.min(pageSize, MAX_PAGE_SIZE);
+        try {
+            this.offset = pageToken == null ? 0 : Integer.parseInt(pageToken);
+        } catch (NumberFormatException e) {
+            throw TestDataService.error(400, "malformed pageToken " + pageToken);
+        }
+        if (offset < 0) {
+            throw TestDataService.error(400, "malformed pageToken " + pageToken);
+        }
+    }
+
+    /**
+     * Return this page of the results, and set {@link #nextPageToken()}.
+     *
+     * @param results all the results
+     * @param <T>     the type of result
+     * @return the results on this page
+     */
+    <T> List<T> page(List<T> results) {
+        if (offset >= results.size()) {
+            nextPageToken = null;
+            return Collections.emptyList();
+        }
+        final int end = (int) Math.min((long) offset + pageSize, results.size());
+        nextPageToken = end < results.size() ? Integer.toString(end) : null;
+        return new ArrayList<>(results.subList(offset, end));
+    }
+
+    /**
+     * Return the offset (or resume position) the page token gave.
+     *
+     * @return the offset, 0 for the first page
+     */
+    int offset() {
+        return offset;
+    }
+
+    /**
+     * Return the page size to use.
+     *
+     * @return the page size
+     */
+    int pageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Set the next page token, for a store that paged the results itself.
+     *
+     * @param next where to resume for the next page, or -1 if this is the last page
+     */
+    void setNext(int next) {
+        nextPageToken = next < 0 ? null : Integer.toString(next);
+    }
+
+    /**
+     * Return the token for the page after the one {@link #page(List)} returned, or set by
+     * {@link #setNext(int)}.
+     *
+     * @return the token, or null if that was the last page
+     */
+    String nextPageToken() {
+        return nextPageToken;
+    }
+}
@@ -0,0 +1,237 @@
+package org.ga4gh.ctk.testserver;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.ga4gh.ctk.testserver.store.TestDataRepository;
+import org.ga4gh.ctk.transport.GAWrapperException;
+import org.ga4gh.ctk.transport.URLMAPPING;
+import org.ga4gh.ctk.transport.avrojson.GsonCodecs;
+import org.ga4gh.methods.GAException;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * <p>Serves a {@link TestDataService} over HTTP, as a local GA4GH server for the CTS to
+ * run against (set <tt>ctk.tgt.urlRoot</tt> to <tt>http://localhost:&lt;port&gt;/</tt>).</p>
+ * <p>Searches are POSTs of a JSON request, and everything else is a GET; responses are
+ * JSON, and errors are a JSON {@link GAException} with the matching HTTP status. A
+ * request is routed by the end of its path, so the server answers under any prefix.</p>
+ * <p>Run it with <tt>java -jar testserver.jar [--port=8000] [--data=DIR]</tt>. The reads and
+ * variants are held in heap, about as much as their SAM and VCF files take on disk, so give
+ * it the <tt>-Xmx</tt> for that; a dataset of more than a few GB won't fit.</p>
+ */
+public class TestDataServer {
+
+    private static final org.slf4j.Logger log = getLogger(TestDataServer.class);
+
+    public static final int DEFAULT_PORT = 8000;
+
+    private final TestDataService service;
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    /**
+     * Create a server; it doesn't listen until {@link #start()}.
+     *
+     * @param service the service to put behind HTTP
+     * @param port    the port to listen on, or 0 for any free port
+     * @throws IOException if the port can't be bound
+     */
+    public TestDataServer(TestDataService service, int port) throws IOException {
+        this.service = service;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+        log.info("serving on port " + getPort());
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    /**
+     * Return the port the server is bound to.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            final SpecificRecordBase response = route(exchange);
+            respond(exchange, 200, GsonCodecs.gson().toJson(response));
+        } catch (GAWrapperException e) {
+            respond(exchange, e.getHttpStatusCode(), errorJson(e.getHttpStatusCode(), e.getMessage()));
+        } catch (GAException e) {
+            respond(exchange, 400, errorJson(400, e.getMessage$()));
+        } catch (RuntimeException e) {
+            log.warn(exchange.getRequestMethod() + " " + exchange.getRequestURI() + " failed", e);
+            respond(exchange, 500, errorJson(500, e.toString()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private SpecificRecordBase route(HttpExchange exchange) throws IOException, GAException {
+        final String[] segments = split(exchange.getRequestURI().getRawPath());
+        final String method = exchange.getRequestMethod();
+
+        if (method.equals("POST")) {
+            final String path = match(segments, service.searchPaths(), null);
+            if (path == null) {
+                throw TestDataService.error(404, "no search endpoint at " + exchange.getRequestURI().getPath());
+            }
+            final String body = read(exchange.getRequestBody());
+            final SpecificRecordBase request;
+            try {
+                request = GsonCodecs.gson().fromJson(body, service.requestClass(path));
+            } catch (JsonParseException e) {
+                throw TestDataService.error(400, "malformed request: " + e.getMessage());
+            }
+            if (request == null) {
+                throw TestDataService.error(400, "empty request");
+            }
+            return service.post(path, request);
+        }
+        if (method.equals("GET")) {
+            final String[] id = new String[1];
+            final String path = match(segments, service.lookupPaths(), id);
+            if (path == null) {
+                throw TestDataService.error(404, "no endpoint at " + exchange.getRequestURI().getPath());
+            }
+            return service.get(path, id[0], queryParams(exchange.getRequestURI().getRawQuery()));
+        }
+        throw TestDataService.error(405, method + " is not supported");
+    }
+
+    /**
+     * Find the endpoint whose path matches the end of a request's path; the longest such
+     * path wins.
+     *
+     * @param segments the request path's segments, still URL-encoded
+     * @param paths    the endpoint paths
+     * @param id       receives the decoded <tt>{id}</tt> segment, if not null
+     * @return the matching path, or null if there's none
+     */
+    private static String match(String[] segments, Set<String> paths, String[] id) throws IOException {
+        String best = null;
+        int bestLength = 0;
+        for (String path : paths) {
+            final String[] template = split(path);
+            if (template.length <= bestLength || template.length > segments.length) {
+                continue;
+            }
+            final int offset = segments.length - template.length;
+            String matchedId = null;
+            boolean matches = true;
+            for (int i = 0; i < template.length && matches; i++) {
+                if (template[i].equals("{id}")) {
+                    matchedId = decode(segments[offset + i]);
+                } else {
+                    matches = template[i].equals(segments[offset + i]);
+                }
+            }
+            if (matches) {
+                best = path;
+                bestLength = template.length;
+                if (id != null) {
+                    id[0] = matchedId;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static String[] split(String path) {
+        return Arrays.stream(path.split("/")).filter(s -> !s.isEmpty()).toArray(String[]::new);
+    }
+
+    private static String decode(String s) throws UnsupportedEncodingException {
+        return URLDecoder.decode(s, "UTF-8");
+    }
+
+    private static Map<String, Object> queryParams(String rawQuery) throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                final int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    params.put(decode(pair.substring(0, eq)), decode(pair.substring(eq + 1)));
+                }
+            }
+        }
+        return params;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            body.write(buffer, 0, n);
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String errorJson(int status, String message) {
+        final JsonObject error = new JsonObject();
+        error.addProperty("message", message);
+        error.addProperty("errorCode", status);
+        return error.toString();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        final byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Load the test data and serve it until the process is killed.
+     *
+     * @param args <tt>--port=N</tt> (default 8000) and <tt>--data=DIR</tt> (default as
+     *             {@link TestDataRepository#defaultDirectory()})
+     * @throws IOException if the data can't be loaded or the port can't be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        File dir = null;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--data=")) {
+                dir = new File(arg.substring("--data=".length()));
+            } else {
+                System.err.println("usage: java -jar testserver.jar [--port=" + DEFAULT_PORT + "] [--data=DIR]");
+                System.exit(2);
+            }
+        }
+        final TestDataRepository data =
+                TestDataRepository.load(dir != null ? dir : TestDataRepository.defaultDirectory());
+        new TestDataServer(new TestDataService(data, URLMAPPING.getInstance()), port).start();
+    }
+}
@@ -0,0 +1,457 @@
+package org.ga4gh.ctk.testserver;
+
+import org.apache.avro.specific.SpecificRecordBase;
+import org.ga4gh.ctk.testserver.store.TestDataRepository;
+import org.ga4gh.ctk.transport.GAWrapperException;
+import org.ga4gh.ctk.transport.URLMAPPING;
+import org.ga4gh.ctk.transport.http.LoopbackHandler;
+import org.ga4gh.methods.*;
+import org.ga4gh.models.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Answers the GA4GH API from a {@link TestDataRepository}: every endpoint in
+ * {@link URLMAPPING}'s map, at the paths that map gives.</p>
+ * <p>This is a {@link LoopbackHandler}, so the CTS can run against it in-process with
+ * <tt>-Dctk.tgt.transport=loopback
+ * -Dctk.tgt.loopback.handler=org.ga4gh.ctk.testserver.TestDataService</tt>; the
+ * {@link TestDataServer} puts it behind HTTP.</p>
+ * <p>Errors are reported the way the GA4GH reference server reports them: 400 for a
+ * malformed request, 404 for an unknown id, 416 for a range of bases outside the
+ * reference, and 501 for a reads search over other than one read group. Search results
+ * are paged by {@link Paging}.</p>
+ */
+public class TestDataService implements LoopbackHandler {
+
+    /**
+     * The most bases returned in one page of <tt>references/{id}/bases</tt>.
+     */
+    static final int MAX_BASES_PER_PAGE = 1_000_000;
+
+    /**
+     * A search endpoint.
+     */
+    private interface Search<Q extends SpecificRecordBase> {
+        SpecificRecordBase search(Q request) throws GAException;
+    }
+
+    /**
+     * A GET endpoint.
+     */
+    private interface Lookup {
+        SpecificRecordBase get(String id, Map<String, Object> queryParams) throws GAException;
+    }
+
+    private final TestDataRepository data;
+
+    private final Map<String, Search<SpecificRecordBase>> searches = new LinkedHashMap<>();
+
+    private final Map<String, Class<? extends SpecificRecordBase>> requestClasses = new HashMap<>();
+
+    private final Map<String, Lookup> lookups = new LinkedHashMap<>();
+
+    /**
+     * Serve the data in {@link TestDataRepository#defaultDirectory()}, at the default
+     * endpoint paths. This is the constructor the {@link org.ga4gh.ctk.transport.http.LoopbackTransport}
+     * calls.
+     *
+     * @throws UncheckedIOException if the data can't be loaded
+     */
+    public TestDataService() {
+        this(loadDefault(), URLMAPPING.getInstance());
+    }
+
+    /**
+     * Serve some data.
+     *
+     * @param data the data
+     * @param urls the endpoint paths
+     */
+    public TestDataService(TestDataRepository data, URLMAPPING urls) {
+        this.data = data;
+
+        search(urls.getSearchDatasets(), SearchDatasetsRequest.class, this::searchDatasets);
+        search(urls.getSearchReferencesets(), SearchReferenceSetsRequest.class, this::searchReferenceSets);
+        search(urls.getSearchReferences(), SearchReferencesRequest.class, this::searchReferences);
+        search(urls.getSearchReadGroupSets(), SearchReadGroupSetsRequest.class, this::searchReadGroupSets);
+        search(urls.getSearchReads(), SearchReadsRequest.class, this::searchReads);
+        search(urls.getSearchVariantSets(), SearchVariantSetsRequest.class, this::searchVariantSets);
+        search(urls.getSearchVariants(), SearchVariantsRequest.class, this::searchVariants);
+        search(urls.getSearchCallsets(), SearchCallSetsRequest.class, this::searchCallSets);
+        search(urls.getSearchVariantAnnotationSets(), SearchVariantAnnotationSetsRequest.class,
+               this::searchVariantAnnotationSets);
+        search(urls.getSearchVariantAnnotations(), SearchVariantAnnotationsRequest.class,
+               this::searchVariantAnnotations);
+
+        lookup(urls.getGetDataset(), (id, params) -> found(
+                data.getDataset().getId().equals(id) ? data.getDataset() : null, "dataset", id));
+        lookup(urls.getReferenceSets(), (id, params) -> found(
+                data.getReferences().getReferenceSet(id), "reference set", id));
+        lookup(urls.getReference(), (id, params) -> found(
+                data.getReferences().getReference(id), "reference", id));
+        lookup(urls.getSearchReferenceBases(), this::getReferenceBases);
+        lookup(urls.getGetReadGroupSet(), (id, params) -> found(
+                data.getReads().getReadGroupSet(id), "read group set", id));
+        lookup(urls.getGetReadGroup(), (id, params) -> found(
+                data.getReads().getReadGroup(id), "read group", id));
+        lookup(urls.getGetVariantSet(), (id, params) -> found(
+                data.getVariants().getVariantSet(id), "variant set", id));
+        lookup(urls.getGetVariant(), (id, params) -> found(
+                data.getVariants().getVariant(id), "variant", id));
+        lookup(urls.getGetCallset(), (id, params) -> found(
+                data.getVariants().getCallSet(id), "call set", id));
+        lookup(urls.getGetVariantAnnotationSet(), (id, params) -> found(
+                data.getAnnotations().getVariantAnnotationSet(id), "variant annotation set", id));
+    }
+
+    private static TestDataRepository loadDefault() {
+        try {
+            return TestDataRepository.load(TestDataRepository.defaultDirectory());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <Q extends SpecificRecordBase> void search(String path, Class<Q> requestClass, Search<Q> search) {
+        if (path != null) {
+            searches.put(trimSlashes(path), (Search<SpecificRecordBase>) search);
+            requestClasses.put(trimSlashes(path), requestClass);
+        }
+    }
+
+    private void lookup(String path, Lookup lookup) {
+        if (path != null) {
+            lookups.put(trimSlashes(path), lookup);
+        }
+    }
+
+    private static String trimSlashes(String path) {
+        int from = 0;
+        int to = path.length();
+        while (from < to && path.charAt(from) == '/') {
+            from++;
+        }
+        while (to > from && path.charAt(to - 1) == '/') {
+            to--;
+        }
+        return path.substring(from, to);
+    }
+
+    /**
+     * Return the paths of the search (POST) endpoints.
+     */
+    Set<String> searchPaths() {
+        return Collections.unmodifiableSet(searches.keySet());
+    }
+
+    /**
+     * Return the paths of the GET endpoints, with <tt>{id}</tt> not filled in.
+     */
+    Set<String> lookupPaths() {
+        return Collections.unmodifiableSet(lookups.keySet());
+    }
+
+    /**
+     * Return the type of request a search endpoint takes.
+     *
+     * @param path the endpoint's path
+     * @return the request type, or null if there's no search at that path
+     */
+    Class<? extends SpecificRecordBase> requestClass(String path) {
+        return requestClasses.get(path);
+    }
+
+    @Override
+    public SpecificRecordBase post(String path, SpecificRecordBase request) throws GAException {
+        final Search<SpecificRecordBase> search = searches.get(path);
+        if (search == null) {
+            throw error(404, "no search endpoint " + path);
+        }
+        if (!requestClasses.get(path).isInstance(request)) {
+            throw error(400, path + " takes a " + requestClasses.get(path).getSimpleName());
+        }
+        return search.search(request);
+    }
+
+    @Override
+    public SpecificRecordBase get(String path, String id, Map<String, Object> queryParams) throws GAException {
+        final Lookup lookup = lookups.get(path);
+        if (lookup == null) {
+            throw error(404, "no GET endpoint " + path);
+        }
+        if (id == null || id.isEmpty()) {
+            throw error(400, path + " needs an id");
+        }
+        return lookup.get(id, queryParams == null ? Collections.<String, Object>emptyMap() : queryParams);
+    }
+
+    /**
+     * Build the exception for an error response.
+     *
+     * @param httpStatus the HTTP status
+     * @param message    the message
+     * @return the exception
+     */
+    static GAWrapperException error(int httpStatus, String message) {
+        final GAException gae = new GAException();
+        gae.setMessage$(message);
+        gae.setErrorCode(httpStatus);
+        return new GAWrapperException(gae, httpStatus);
+    }
+
+    private static <T> T found(T object, String what, String id) throws GAException {
+        if (object == null) {
+            throw error(404, "no " + what + " " + id);
+        }
+        return object;
+    }
+
+    private static <T> T required(T value, String name) throws GAException {
+        if (value == null) {
+            throw error(400, name + " is required");
+        }
+        return value;
+    }
+
+    /* ---- metadata ---- */
+
+    private SearchDatasetsResponse searchDatasets(SearchDatasetsRequest request) throws GAException {
+        final Paging paging = new Paging(request.getPageSize(), request.getPageToken());
+        final List<Dataset> page = paging.page(Collections.singletonList(data.getDataset()));
+        return SearchDatasetsResponse.newBuilder()
+                                     .setDatasets(page)
+                                     .setNextPageToken(paging.nextPageToken())
+                                     .build();
+    }
+
+    private void checkDataset(String datasetId) throws GAException {
+        found(data.getDataset().getId().equals(required(datasetId, "datasetId")) ? datasetId : null,
+              "dataset", datasetId);
+    }
+
+    /* ---- references ---- */
+
+    private SearchReferenceSetsResponse searchReferenceSets(SearchReferenceSetsRequest request)
+            throws GAException {
+        final Paging paging = new Paging(request.getPageSize(), request.getPageToken());
+        final List<ReferenceSet> matches =
+                data.getReferences().getReferenceSets().stream()
+                    .filter(rs -> request.getMd5checksum() == null
+                            || request.getMd5checksum().equalsIgnoreCase(rs.getMd5checksum()))
+                    .filter(rs -> request.getAccession() == null
+                            || rs.getSourceAccessions().contains(request.getAccession()))
+                    .filter(rs -> request.getAssemblyId() == null
+                            || request.getAssemblyId().equals(rs.getAssemblyId()))
+                    .collect(Collectors.toList());
+        return SearchReferenceSetsResponse.newBuilder()
+                                          .setReferenceSets(paging.page(matches))
+                                          .setNextPageToken(paging.nextPageToken())
+                                          .build();
+    }
+
+    private SearchReferencesResponse searchReferences(SearchReferencesRequest request) throws GAException {
+        final Paging paging = new Paging(request.getPageSize(), request.getPageToken());
+        final String referenceSetId = required(request.getReferenceSetId(), "referenceSetId");
+        final List<Reference> matches =
+                found(data.getReferences().getReferences(referenceSetId), "reference set", referenceSetId)
+                        .stream()
+                        .filter(r -> request.getMd5checksum() == null
+                                || request.getMd5checksum().equalsIgnoreCase(r.getMd5checksum()))
+                        .filter(r -> request.getAccession() == null
+                                || r.getSourceAccessions().contains(request.getAccession()))
+                        .collect(Collectors.toList());
+        return SearchReferencesResponse.newBuilder()
+                                       .setReferences(paging.page(matches))
+                                       .setNextPageToken(paging.nextPageToken())
+                                       .build();
+    }
+
+    private ListReferenceBasesResponse getReferenceBases(String id, Map<String, Object> params)
+            throws GAException {
+        final Reference reference = found(data.getReferences().getReference(id), "reference", id);
+        final Long tokenStart = longParam(params, "pageToken");
+        final Long startParam = longParam(params, "start");
+        final Long endParam = longParam(params, "end");
+        final long start = tokenStart != null ? tokenStart : startParam != null ? startParam : 0;
+        final long end = endParam != null ? endParam : reference.getLength();
+        if (start < 0 || end > reference.getLength() || start > end) {
+            throw error(416, "[" + start + ", " + end + ") is outside " + id + ", which has "
+                    + reference.getLength() + " bases");
+        }
+        final long pageEnd = Math.min(end, start + MAX_BASES_PER_PAGE);
+        return ListReferenceBasesResponse.newBuilder()
+                                         .setOffset(start)
+                                         .setSequence(data.getReferences().getBases(id, start, pageEnd))
+                                         .setNextPageToken(pageEnd < end ? Long.toString(pageEnd) : null)
+                                         .build();
+    }
+
+    /**
+     * Read a numeric query parameter, which is a {@link Number} from the loopback transport
+     * and a string over HTTP.
+     */
+    private static Long longParam(Map<String, Object> params, String name) throws GAException {
+        final Object value = params.get(name);
+        if (value == null || value instanceof Number) {
+            return value == null ? null : ((Number) value).longValue();
+        }
+        try {
+            return Long.valueOf(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw error(400, "malformed " + name + " " + value);
+        }
+    }
+
+    /* ---- reads ---- */
+
+    private SearchReadGroupSetsResponse searchReadGroupSets(SearchReadGroupSetsRequest request)
+            throws GAException {
+        final Paging paging = new Paging(request.getPageSize(), request.getPageToken());
+        checkDataset(request.getDatasetId());
+        final List<ReadGroupSet> matches =
+                data.getReads().getReadGroupSets().stream()
+                    .filter(rgs -> request.getName() == null || request.getName().equals(rgs.getName()))
+                    .collect(Collectors.toList());
+        return SearchReadGroupSetsResponse.newBuilder()
+                                          .setReadGroupSets(paging.page(matches))
+                                          .setNextPageToken(paging.nextPageToken())
+                                          .build();
+    }
+
+    private SearchReadsResponse searchReads(SearchReadsRequest request) throws GAException {
+        final Paging paging = new Paging(request.getPageSize(), request.getPageToken());
+        final List<String> readGroupIds = required(request.getReadGroupIds(), "readGroupIds");
+        if (readGroupIds.size() != 1) {
+            throw error(501, "searching other than exactly one read group is not implemented");
+        }
+        final String readGroupId = readGroupIds.get(0);
+        found(data.getReads().getReadGroup(readGroupId), "read group", readGroupId);
+
+        String referenceName = null;
+        if (request.getReferenceId() != null) {
+            referenceName = found(data.getReferences().getReference(request.getReferenceId()),
+                                  "reference", request.getReferenceId()).getName();
+        }
+        final List<ReadAlignment> page = new ArrayList<>();
+        paging.setNext(data.getReads().getReads(readGroupId, referenceName,
+                                                request.getStart() == null ? 0 : request.getStart(),
+                                                request.getEnd() == null ? Long.MAX_VALUE : request.getEnd(),
+                                                paging.offset(), paging.pageSize(), page));
+        return SearchReadsResponse.newBuilder()
+                                  .setAlignments(page)
+                                  .setNextPageToken(paging.nextPageToken())
+                                  .build();
+    }
+
+    /* ---- variants ---- */
+
+    private SearchVariantSetsResponse searchVariantSets(SearchVariantSetsRequest request) throws GAException {
+        final Paging paging = new Paging(request.getPageSize(), request.getPageToken());
+        checkDataset(request.getDatasetId());
+        final List<VariantSet> all = new ArrayList<>(data.getVariants().getVariantSets());
+        return SearchVariantSetsResponse.newBuilder()
+                                        .setVariantSets(paging.page(all))
+                                        .setNextPageToken(paging.nextPageToken())
+                                        .build();
+    }
+
+    private SearchVariantsResponse searchVariants(SearchVariantsRequest request) throws GAException {
+        final Paging paging = new Paging(request.getPageSize(), request.getPageToken());
+        final String variantSetId = required(request.getVariantSetId(), "variantSetId");
+        found(data.getVariants().getVariantSet(variantSetId), "variant set", variantSetId);
+        required(request.getReferenceName(), "referenceName");
+        required(request.getStart(), "start");
+        required(request.getEnd(), "end");
+
+        final Set<String> callSetIds = request.getCallSetIds() == null ? null : new HashSet<>(request.getCallSetIds());
+        if (callSetIds != null) {
+            for (String callSetId : callSetIds) {
+                final CallSet callSet = found(data.getVariants().getCallSet(callSetId), "call set", callSetId);
+                if (!callSet.getVariantSetIds().contains(variantSetId)) {
+                    throw error(404, "no call set " + callSetId + " in variant set " + variantSetId);
+                }
+            }
+        }
+        final List<Variant> page = new ArrayList<>();
+        paging.setNext(data.getVariants().getVariants(variantSetId, request.getReferenceName(),
+                                                      request.getStart(), request.getEnd(), callSetIds,
+                                                      paging.offset(), paging.pageSize(), page));
+        return SearchVariantsResponse.newBuilder()
+                                     .setVariants(page)
+                                     .setNextPageToken(paging.nextPageToken())
+                                     .build();
+    }
+
+    private SearchCallSetsResponse searchCallSets(SearchCallSetsRequest request) throws GAException {
+        final Paging paging = new Paging(request.getPageSize(), request.getPageToken());
+        final String variantSetId = required(request.getVariantSetId(), "variantSetId");
+        final List<CallSet> matches =
+                found(data.getVariants().getCallSets(variantSetId), "variant set", variantSetId)
+                        .stream()
+                        .filter(cs -> request.getName() == null || request.getName().equals(cs.getName()))
+                        .collect(Collectors.toList());
+        return SearchCallSetsResponse.newBuilder()
+                                     .setCallSets(paging.page(matches))
+                                     .setNextPageToken(paging.nextPageToken())
+                                     .build();
+    }
+
+    /* ---- variant annotations ---- */
+
+    private SearchVariantAnnotationSetsResponse searchVariantAnnotationSets(
+            SearchVariantAnnotationSetsRequest request) throws GAException {
+        final Paging paging = new Paging(request.getPageSize(), request.getPageToken());
+        final String variantSetId = required(request.getVariantSetId(), "variantSetId");
+        found(data.getVariants().getVariantSet(variantSetId), "variant set", variantSetId);
+        final List<VariantAnnotationSet> matches =
+                data.getAnnotations().getVariantAnnotationSets().stream()
+                    .filter(vas -> vas.getVariantSetId().equals(variantSetId))
+                    .collect(Collectors.toList());
+        return SearchVariantAnnotationSetsResponse.newBuilder()
+                                                  .setVariantAnnotationSets(paging.page(matches))
+                                                  .setNextPageToken(paging.nextPageToken())
+                                                  .build();
+    }
+
+    private SearchVariantAnnotationsResponse searchVariantAnnotations(SearchVariantAnnotationsRequest request)
+            throws GAException {
+        final Paging paging = new Paging(request.getPageSize(), request.getPageToken());
+        final String annotationSetId = required(request.getVariantAnnotationSetId(), "variantAnnotationSetId");
+        found(data.getAnnotations().getVariantAnnotationSet(annotationSetId),
+              "variant annotation set", annotationSetId);
+        required(request.getStart(), "start");
+        required(request.getEnd(), "end");
+        final String referenceName;
+        if (request.getReferenceName() != null) {
+            referenceName = request.getReferenceName();
+        } else if (request.getReferenceId() != null) {
+            referenceName = found(data.getReferences().getReference(request.getReferenceId()),
+                                  "reference", request.getReferenceId()).getName();
+        } else {
+            throw error(400, "referenceName or referenceId is required");
+        }
+
+        List<VariantAnnotation> matches =
+                data.getAnnotations().getAnnotations(annotationSetId, referenceName,
+                                                     request.getStart(), request.getEnd());
+        if (request.getEffects() != null && !request.getEffects().isEmpty()) {
+            final Set<String> effectIds = request.getEffects().stream()
+                                                 .map(OntologyTerm::getId)
+                                                 .collect(Collectors.toSet());
+            matches = matches.stream()
+                             .filter(va -> va.getTranscriptEffects().stream()
+                                             .flatMap(te -> te.getEffects().stream())
+                                             .anyMatch(term -> effectIds.contains(term.getId())))
+                             .collect(Collectors.toList());
+        }
+        return SearchVariantAnnotationsResponse.newBuilder()
+                                               .setVariantAnnotations(paging.page(matches))
+                                               .setNextPageToken(paging.nextPageToken())
+                                               .build();
+    }
+}
@@ -0,0 +1,408 @@
+package org.ga4gh.ctk.testserver.generate;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * <p>Writes a synthetic dataset laid out like the bundled test-data, but as big as asked
+ * for: a reference set (<tt>referenceset_&lt;assembly&gt;.json</tt>, and a
+ * <tt>ref_&lt;name&gt;N.fa</tt> and <tt>.json</tt> per reference), a VCF of phased SNP
+ * calls for every sample, and a coordinate-sorted SAM of paired-end reads per sample,
+ * drawn from the sample's haplotypes. The FASTA, VCF and SAM files are the same flavors
+ * the bundled ones are, so the same <tt>bgzip</tt>, <tt>samtools</tt> and <tt>tabix</tt>
+ * commands convert them; a <tt>convert_to_binary.sh</tt> naming the generated files is
+ * written with them.</p>
+ * <p>The scale is the number of megabases of reference, split into references of at most
+ * 50Mb. At the default 4x coverage and 3 samples, each megabase makes about 35MB of data,
+ * so a scale of 3000 (a human genome) makes about 100GB. Everything is streamed to disk
+ * from a {@link SyntheticGenome}, so memory use doesn't grow with the scale, and the same
+ * seed and options always produce the same files.</p>
+ * <p>Run it with <tt>java -cp testserver.jar
+ * org.ga4gh.ctk.testserver.generate.DatasetGenerator [--scale=1] [--seed=1] [--samples=3]
+ * [--coverage=4] [--name=synthetic] [--assembly=synthetic] DIR</tt>, and serve the result
+ * with <tt>java -jar testserver.jar --data=DIR</tt>. The server holds every read and
+ * variant record in heap, needing about as much as the SAM and VCF files take on disk, so
+ * it can only serve the smaller scales: up to about 100 (some 3.5GB) with <tt>-Xmx6g</tt>.
+ * The larger datasets are for servers that index the converted BAM and VCF files.</p>
+ */
+public class DatasetGenerator {
+
+    private static final org.slf4j.Logger log = getLogger(DatasetGenerator.class);
+
+    private static final long MAX_REFERENCE_LENGTH = 50_000_000;
+
+    private static final int LINE_LENGTH = 60;
+
+    private static final int READ_LENGTH = 100;
+
+    private static final int INSERT_SIZE = 300;
+
+    private static final int INSERT_SPREAD = 50;
+
+    private static final int SITE_SPACING = 100;
+
+    private static final int READ_GROUPS_PER_SAMPLE = 2;
+
+    private final File dir;
+
+    private final String name;
+
+    private final String assembly;
+
+    private final long seed;
+
+    private final double scale;
+
+    private final double coverage;
+
+    private final SyntheticGenome genome;
+
+    private final List<String> sampleNames = new ArrayList<>();
+
+    private final String[] md5s;
+
+    /**
+     * Describe a dataset.
+     *
+     * @param dir      the directory to write it to
+     * @param name     the prefix of the reference, VCF and SAM file names
+     * @param assembly the reference set's name
+     * @param scale    the megabases of reference
+     * @param seed     the seed everything is generated from
+     * @param samples  the number of samples
+     * @param coverage the read depth
+     */
+    public DatasetGenerator(File dir, String name, String assembly, double scale, long seed, int samples,
+                            double coverage) {
+        if (!(scale > 0) || samples < 1 || !(coverage > 0)) {
+            throw new IllegalArgumentException("the scale, samples and coverage must be positive");
+        }
+        this.dir = dir;
+        this.name = name;
+        this.assembly = assembly;
+        this.seed = seed;
+        this.scale = scale;
+        this.coverage = coverage;
+
+        final long total = Math.max(2 * INSERT_SIZE, Math.round(scale * 1_000_000));
+        final int count = (int) ((total + MAX_REFERENCE_LENGTH - 1) / MAX_REFERENCE_LENGTH);
+        final List<String> names = new ArrayList<>();
+        final long[] lengths = new long[count];
+        for (int i = 0; i < count; i++) {
+            names.add("ref_" + name + (i + 1));
+            lengths[i] = Math.min(MAX_REFERENCE_LENGTH, total - i * MAX_REFERENCE_LENGTH);
+        }
+        for (int s = 0; s < samples; s++) {
+            sampleNames.add(String.format("SYN%05d", s + 1));
+        }
+        genome = new SyntheticGenome(seed, names, lengths, samples, SITE_SPACING);
+        md5s = new String[count];
+    }
+
+    /**
+     * Write the dataset.
+     *
+     * @throws IOException if a file can't be written
+     */
+    public void generate() throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("can't create " + dir);
+        }
+        final JsonArray references = new JsonArray();
+        for (int r = 0; r < genome.references(); r++) {
+            writeFasta(r);
+            references.add(new JsonPrimitive(genome.name(r)));
+        }
+        final JsonObject referenceSet = new JsonObject();
+        referenceSet.addProperty("assemblyId", assembly);
+        referenceSet.addProperty("description", "A synthetic reference, generated at scale " + scale
+                + " from seed " + seed);
+        referenceSet.addProperty("isDerived", false);
+        referenceSet.add("sourceAccessions", new JsonArray());
+        referenceSet.add("references", references);
+        writeJson(new File(dir, "referenceset_" + assembly + ".json"), referenceSet);
+
+        writeVcf();
+        for (int s = 0; s < sampleNames.size(); s++) {
+            writeSam(s);
+        }
+        writeConvertScript();
+    }
+
+    private void writeFasta(int reference) throws IOException {
+        final String referenceName = genome.name(reference);
+        final File file = new File(dir, referenceName + ".fa");
+        final MessageDigest md5 = md5();
+        final byte[] line = new byte[LINE_LENGTH];
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+            out.write((">" + referenceName + " synthetic seed=" + seed + "\n").getBytes(StandardCharsets.US_ASCII));
+            final long length = genome.length(reference);
+            for (long position = 0; position < length; position += LINE_LENGTH) {
+                final int n = (int) Math.min(LINE_LENGTH, length - position);
+                final byte[] bases = n == LINE_LENGTH ? line : new byte[n];
+                genome.bases(reference, position, bases);
+                md5.update(bases);
+                out.write(bases);
+                out.write('\n');
+            }
+        }
+        md5s[reference] = hex(md5.digest());
+
+        final JsonObject json = new JsonObject();
+        json.addProperty("md5checksum", md5s[reference]);
+        json.addProperty("isDerived", false);
+        json.add("sourceAccessions", new JsonArray());
+        writeJson(new File(dir, referenceName + ".json"), json);
+        log.info("wrote " + file + " (" + genome.length(reference) + " bases)");
+    }
+
+    private void writeVcf() throws IOException {
+        final File file = new File(dir, name + "_seed" + seed + "_variants.vcf");
+        final int samples = sampleNames.size();
+        final long[] count = {0};
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.US_ASCII)) {
+            out.write("##fileformat=VCFv4.1\n");
+            out.write("##FILTER=<ID=PASS,Description=\"All filters passed\">\n");
+            out.write("##source=" + DatasetGenerator.class.getSimpleName() + " seed=" + seed + "\n");
+            for (int r = 0; r < genome.references(); r++) {
+                out.write("##contig=<ID=" + genome.name(r) + ",assembly=" + assembly + ",length=" + genome.length(r)
+                                  + ">\n");
+            }
+            out.write("##INFO=<ID=AC,Number=A,Type=Integer,Description=\"Total number of alternate alleles in called genotypes\">\n");
+            out.write("##INFO=<ID=AF,Number=A,Type=Float,Description=\"Estimated allele frequency in the range (0,1)\">\n");
+            out.write("##INFO=<ID=AN,Number=1,Type=Integer,Description=\"Total number of alleles in called genotypes\">\n");
+            out.write("##INFO=<ID=NS,Number=1,Type=Integer,Description=\"Number of samples with data\">\n");
+            out.write("##INFO=<ID=VT,Number=.,Type=String,Description=\"indicates what type of variant the line represents\">\n");
+            out.write("##FORMAT=<ID=GT,Number=1,Type=String,Description=\"Genotype\">\n");
+            out.write("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\t" + String.join("\t", sampleNames) + "\n");
+
+            final StringBuilder record = new StringBuilder();
+            for (int r = 0; r < genome.references(); r++) {
+                final String referenceName = genome.name(r);
+                genome.forEachSite(r, site -> {
+                    record.setLength(0);
+                    record.append(referenceName).append('\t').append(site.position + 1).append("\t.\t")
+                          .append((char) site.referenceBase).append('\t').append((char) site.alternateBase)
+                          .append("\t100\tPASS\tAC=").append(site.alternateCount())
+                          .append(";AF=").append(BigDecimal.valueOf(site.frequency, 4).stripTrailingZeros().toPlainString())
+                          .append(";AN=").append(2 * samples)
+                          .append(";NS=").append(samples)
+                          .append(";VT=SNP\tGT");
+                    for (int s = 0; s < samples; s++) {
+                        record.append('\t').append(site.alleles[2 * s]).append('|').append(site.alleles[2 * s + 1]);
+                    }
+                    out.append(record).append('\n');
+                    count[0]++;
+                });
+            }
+        }
+        log.info("wrote " + file + " (" + count[0] + " variants)");
+    }
+
+    /**
+     * A read waiting to be written until the reads before it have been.
+     */
+    private static final class PendingRead {
+
+        final long position;
+
+        final long order;
+
+        final String line;
+
+        PendingRead(long position, long order, String line) {
+            this.position = position;
+            this.order = order;
+            this.line = line;
+        }
+    }
+
+    private void writeSam(int sample) throws IOException {
+        final String sampleName = sampleNames.get(sample);
+        final File file = new File(dir, name + "_" + sampleName + ".sam");
+        final SplittableRandom random = genome.random(sample);
+        final String[] qualities = new String[16];
+        for (int q = 0; q < qualities.length; q++) {
+            final char[] quality = new char[READ_LENGTH];
+            for (int i = 0; i < quality.length; i++) {
+                quality[i] = "IIIIIIIIIFFFFBB7<0".charAt(random.nextInt(18));
+            }
+            qualities[q] = new String(quality);
+        }
+        final String[] readGroups = new String[READ_GROUPS_PER_SAMPLE];
+        for (int g = 0; g < readGroups.length; g++) {
+            readGroups[g] = sampleName + "." + (g + 1);
+        }
+        final double meanGap = 2.0 * READ_LENGTH / coverage;
+        final PriorityQueue<PendingRead> pending =
+                new PriorityQueue<>(Comparator.<PendingRead>comparingLong(p -> p.position).thenComparingLong(p -> p.order));
+        final byte[] sequence = new byte[READ_LENGTH];
+        long fragments = 0;
+
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.US_ASCII)) {
+            out.write("@HD\tVN:1.0\tSO:coordinate\n");
+            for (int r = 0; r < genome.references(); r++) {
+                out.write("@SQ\tSN:" + genome.name(r) + "\tLN:" + genome.length(r) + "\tAS:" + assembly
+                                  + "\tM5:" + md5s[r] + "\n");
+            }
+            for (String readGroup : readGroups) {
+                out.write("@RG\tID:" + readGroup + "\tPL:ILLUMINA\tLB:" + sampleName + "\tPI:" + INSERT_SIZE
+                                  + "\tSM:" + sampleName + "\n");
+            }
+            out.write("@PG\tID:" + DatasetGenerator.class.getSimpleName() + "\tPN:"
+                              + DatasetGenerator.class.getSimpleName() + "\tCL:--scale=" + scale + " --seed=" + seed
+                              + " --samples=" + sampleNames.size() + " --coverage=" + coverage + "\n");
+
+            for (int r = 0; r < genome.references(); r++) {
+                final String referenceName = genome.name(r);
+                final long length = genome.length(r);
+                for (long start = (long) (random.nextDouble() * 2 * meanGap);
+                     start + INSERT_SIZE + INSERT_SPREAD <= length;
+                     start += (long) (random.nextDouble() * 2 * meanGap)) {
+                    while (!pending.isEmpty() && pending.peek().position <= start) {
+                        out.write(pending.poll().line);
+                    }
+                    final int insert = INSERT_SIZE - INSERT_SPREAD + random.nextInt(2 * INSERT_SPREAD + 1);
+                    final long mateStart = start + insert - READ_LENGTH;
+                    final int haplotype = random.nextInt(2);
+                    final boolean leftIsFirst = random.nextBoolean();
+                    final String qname = sampleName + ":" + fragments++;
+                    final String readGroup = readGroups[random.nextInt(readGroups.length)];
+
+                    genome.haplotype(r, start, sample, haplotype, sequence);
+                    out.write(samLine(qname, leftIsFirst ? 99 : 163, referenceName, start, mateStart, insert,
+                                      sequence, qualities[random.nextInt(qualities.length)], readGroup));
+                    genome.haplotype(r, mateStart, sample, haplotype, sequence);
+                    pending.add(new PendingRead(mateStart, fragments,
+                                                samLine(qname, leftIsFirst ? 147 : 83, referenceName, mateStart,
+                                                        start, -insert, sequence,
+                                                        qualities[random.nextInt(qualities.length)], readGroup)));
+                }
+                while (!pending.isEmpty()) {
+                    out.write(pending.poll().line);
+                }
+            }
+        }
+        log.info("wrote " + file + " (" + 2 * fragments + " reads)");
+    }
+
+    private static String samLine(String qname, int flag, String referenceName, long start, long mateStart,
+                                  int templateLength, byte[] sequence, String quality, String readGroup) {
+        return qname + '\t' + flag + '\t' + referenceName + '\t' + (start + 1) + "\t60\t" + sequence.length + "M\t=\t"
+                + (mateStart + 1) + '\t' + templateLength + '\t' + new String(sequence, StandardCharsets.US_ASCII)
+                + '\t' + quality + "\tRG:Z:" + readGroup + '\n';
+    }
+
+    private void writeConvertScript() throws IOException {
+        final File file = new File(dir, "convert_to_binary.sh");
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.US_ASCII)) {
+            out.write("#!/bin/sh\n\n");
+            out.write("# Converts the generated files to their indexed binary equivalents, as the bundled\n");
+            out.write("# test-data's convert_to_binary.sh does.\n\n");
+            out.write("# exit on any error\nset -e\n\n");
+            for (int r = 0; r < genome.references(); r++) {
+                out.write("bgzip -c " + genome.name(r) + ".fa > " + genome.name(r) + ".fa.gz\n");
+                out.write("samtools faidx " + genome.name(r) + ".fa.gz\n");
+            }
+            final String vcf = name + "_seed" + seed + "_variants.vcf";
+            out.write("\nbgzip -c " + vcf + " > " + vcf + ".gz\n");
+            out.write("tabix -p vcf " + vcf + ".gz\n\n");
+            for (String sampleName : sampleNames) {
+                final String sam = name + "_" + sampleName;
+                out.write("samtools view -b -h -o " + sam + ".bam " + sam + ".sam\n");
+                out.write("samtools index " + sam + ".bam\n");
+            }
+            out.write("\necho Conversion complete.\n");
+        }
+        if (!file.setExecutable(true)) {
+            log.warn("can't make " + file + " executable");
+        }
+    }
+
+    private static void writeJson(File file, JsonObject json) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(json, out);
+            out.write("\n");
+        }
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        final StringBuilder s = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            s.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return s.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        double scale = 1;
+        long seed = 1;
+        int samples = 3;
+        double coverage = 4;
+        String name = "synthetic";
+        String assembly = "synthetic";
+        File dir = null;
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--scale=")) {
+                    scale = Double.parseDouble(arg.substring("--scale=".length()));
+                } else if (arg.startsWith("--seed=")) {
+                    seed = Long.parseLong(arg.substring("--seed=".length()));
+                } else if (arg.startsWith("--samples=")) {
+                    samples = Integer.parseInt(arg.substring("--samples=".length()));
+                } else if (arg.startsWith("--coverage=")) {
+                    coverage = Double.parseDouble(arg.substring("--coverage=".length()));
+                } else if (arg.startsWith("--name=")) {
+                    name = arg.substring("--name=".length());
+                } else if (arg.startsWith("--assembly=")) {
+                    assembly = arg.substring("--assembly=".length());
+                } else if (arg.startsWith("--") || dir != null) {
+                    usage();
+                } else {
+                    dir = new File(arg);
+                }
+            }
+        } catch (NumberFormatException e) {
+            usage();
+        }
+        if (dir == null) {
+            usage();
+        }
+        new DatasetGenerator(dir, name, assembly, scale, seed, samples, coverage).generate();
+    }
+
+    private static void usage() {
+        System.err.println("usage: DatasetGenerator [--scale=1] [--seed=1] [--samples=3] [--coverage=4]"
+                                   + " [--name=synthetic] [--assembly=synthetic] DIR");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,255 @@
+package org.ga4gh.ctk.testserver.generate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * <p>A random genome: reference sequences, and SNPs with phased genotypes for some samples.</p>
+ * <p>Nothing is held beyond a few blocks. Each reference is cut into 64kb blocks, and a
+ * block's bases and sites are drawn from a generator seeded by the genome's seed, the
+ * reference and the block, so any range can be regenerated on demand, in any order, and
+ * always comes out the same.</p>
+ */
+final class SyntheticGenome {
+
+    private static final int BLOCK_SHIFT = 16;
+
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+
+    private static final int CACHED_BLOCKS = 4;
+
+    /**
+     * A SNP, with the alleles each sample carries on each of its two haplotypes.
+     */
+    static final class Site {
+
+        final long position;
+
+        final byte referenceBase;
+
+        final byte alternateBase;
+
+        /**
+         * The population frequency of the alternate allele, in parts per 10,000.
+         */
+        final int frequency;
+
+        /**
+         * The allele (0 or 1) on haplotype <tt>h</tt> of sample <tt>s</tt> is at <tt>2s + h</tt>.
+         */
+        final byte[] alleles;
+
+        Site(long position, byte referenceBase, byte alternateBase, int frequency, byte[] alleles) {
+            this.position = position;
+            this.referenceBase = referenceBase;
+            this.alternateBase = alternateBase;
+            this.frequency = frequency;
+            this.alleles = alleles;
+        }
+
+        byte base(int sample, int haplotype) {
+            return alleles[2 * sample + haplotype] == 0 ? referenceBase : alternateBase;
+        }
+
+        int alternateCount() {
+            int count = 0;
+            for (byte allele : alleles) {
+                count += allele;
+            }
+            return count;
+        }
+    }
+
+    private static final class Block {
+
+        final byte[] bases;
+
+        final List<Site> sites;
+
+        Block(byte[] bases, List<Site> sites) {
+            this.bases = bases;
+            this.sites = sites;
+        }
+    }
+
+    private final long seed;
+
+    private final List<String> names;
+
+    private final long[] lengths;
+
+    private final int samples;
+
+    private final int siteSpacing;
+
+    private final Map<Long, Block> cache = new LinkedHashMap<Long, Block>(CACHED_BLOCKS * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Block> eldest) {
+            return size() > CACHED_BLOCKS;
+        }
+    };
+
+    /**
+     * Describe a genome.
+     *
+     * @param seed        the seed everything is generated from
+     * @param names       the names of the reference sequences
+     * @param lengths     their lengths
+     * @param samples     the number of samples
+     * @param siteSpacing the mean distance between SNPs
+     */
+    SyntheticGenome(long seed, List<String> names, long[] lengths, int samples, int siteSpacing) {
+        if (names.size() != lengths.length) {
+            throw new IllegalArgumentException(names.size() + " names for " + lengths.length + " references");
+        }
+        this.seed = seed;
+        this.names = Collections.unmodifiableList(new ArrayList<>(names));
+        this.lengths = lengths.clone();
+        this.samples = samples;
+        this.siteSpacing = siteSpacing;
+    }
+
+    int references() {
+        return lengths.length;
+    }
+
+    String name(int reference) {
+        return names.get(reference);
+    }
+
+    long length(int reference) {
+        return lengths[reference];
+    }
+
+    int samples() {
+        return samples;
+    }
+
+    /**
+     * Return a random source for something other than the genome itself (such as one
+     * sample's reads), which is also determined by the genome's seed.
+     *
+     * @param stream distinguishes the things
+     * @return the random source
+     */
+    SplittableRandom random(long stream) {
+        return new SplittableRandom((seed * 31 + stream) * 0xBF58476D1CE4E5B9L);
+    }
+
+    private Block block(int reference, long index) {
+        final long key = (long) reference << 40 | index;
+        Block block = cache.get(key);
+        if (block != null) {
+            return block;
+        }
+        final SplittableRandom random = new SplittableRandom(seed ^ key * 0x9E3779B97F4A7C15L);
+        final byte[] bases = new byte[(int) Math.min(BLOCK_SIZE, lengths[reference] - (index << BLOCK_SHIFT))];
+        for (int i = 0; i < bases.length; i++) {
+            bases[i] = BASES[random.nextInt(4)];
+        }
+        final List<Site> sites = new ArrayList<>();
+        for (int i = random.nextInt(2 * siteSpacing); i < bases.length; i += 1 + random.nextInt(2 * siteSpacing - 1)) {
+            final byte ref = bases[i];
+            byte alt = ref;
+            while (alt == ref) {
+                alt = BASES[random.nextInt(4)];
+            }
+            // Most SNPs are rare, as in real populations.
+            final double f = random.nextDouble();
+            final int frequency = Math.max(1, (int) (f * f * f * 10000));
+            final byte[] alleles = new byte[2 * samples];
+            for (int h = 0; h < alleles.length; h++) {
+                alleles[h] = (byte) (random.nextInt(10000) < frequency ? 1 : 0);
+            }
+            sites.add(new Site((index << BLOCK_SHIFT) + i, ref, alt, frequency, alleles));
+        }
+        block = new Block(bases, sites);
+        cache.put(key, block);
+        return block;
+    }
+
+    /**
+     * Copy reference bases.
+     *
+     * @param reference the reference
+     * @param start     the 0-based start of the range
+     * @param into      receives the bases; its length is the length of the range
+     */
+    void bases(int reference, long start, byte[] into) {
+        int done = 0;
+        while (done < into.length) {
+            final long position = start + done;
+            final Block block = block(reference, position >> BLOCK_SHIFT);
+            final int offset = (int) (position & (BLOCK_SIZE - 1));
+            final int n = Math.min(into.length - done, block.bases.length - offset);
+            System.arraycopy(block.bases, offset, into, done, n);
+            done += n;
+        }
+    }
+
+    /**
+     * Return the sites in a range, in order.
+     *
+     * @param reference the reference
+     * @param start     the 0-based start of the range
+     * @param end       the 0-based, exclusive end of the range
+     * @return the sites
+     */
+    List<Site> sites(int reference, long start, long end) {
+        final List<Site> sites = new ArrayList<>();
+        for (long index = start >> BLOCK_SHIFT; index << BLOCK_SHIFT < Math.min(end, lengths[reference]); index++) {
+            for (Site site : block(reference, index).sites) {
+                if (site.position >= start && site.position < end) {
+                    sites.add(site);
+                }
+            }
+        }
+        return sites;
+    }
+
+    /**
+     * Call back with every site on a reference, in order, a block at a time.
+     *
+     * @param reference the reference
+     * @param action    receives the sites
+     * @throws IOException if the action does
+     */
+    void forEachSite(int reference, SiteAction action) throws IOException {
+        for (long index = 0; index << BLOCK_SHIFT < lengths[reference]; index++) {
+            for (Site site : block(reference, index).sites) {
+                action.accept(site);
+            }
+        }
+    }
+
+    /**
+     * Something done with each site, which may write it out.
+     */
+    interface SiteAction {
+        void accept(Site site) throws IOException;
+    }
+
+    /**
+     * Copy the bases of one of a sample's haplotypes: the reference bases with the sample's
+     * alleles at each site.
+     *
+     * @param reference the reference
+     * @param start     the 0-based start of the range
+     * @param sample    the sample
+     * @param haplotype 0 or 1
+     * @param into      receives the bases; its length is the length of the range
+     */
+    void haplotype(int reference, long start, int sample, int haplotype, byte[] into) {
+        bases(reference, start, into);
+        for (Site site : sites(reference, start, start + into.length)) {
+            into[(int) (site.position - start)] = site.base(sample, haplotype);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package org.ga4gh.ctk.testserver.store;
+
+import org.ga4gh.models.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * <p>The variant annotation sets and variant annotations, held in memory.</p>
+ * <p>Each VCF file whose header declares an <tt>ANN</tt> INFO field (as SnpEff writes) is
+ * also a variant annotation set, over the variant set loaded from the same file. The set
+ * is named for the middle of the file name (<tt>brca1_OR4F_annotation.vcf</tt> is
+ * <tt>OR4F</tt>); its id is <tt>&lt;variant set id&gt;:annotations</tt>, and the annotation
+ * of a record has the id <tt>&lt;annotation set id&gt;:&lt;record number&gt;</tt>, the
+ * variant's being <tt>&lt;variant set id&gt;:&lt;record number&gt;</tt>.</p>
+ * <p>The analysis comes from the <tt>##name</tt>, <tt>##description</tt>,
+ * <tt>##created</tt> and <tt>##software</tt> header lines, and effect names are mapped to
+ * Sequence Ontology ids with <tt>sequence_ontology.txt</tt>.</p>
+ */
+public class AnnotationStore {
+
+    private static final org.slf4j.Logger log = getLogger(AnnotationStore.class);
+
+    /**
+     * The <tt>ANN</tt> sub-fields, in order.
+     */
+    private static final int ALLELE = 0, EFFECTS = 1, IMPACT = 2, FEATURE_ID = 6,
+            HGVS_C = 9, HGVS_P = 10, CDNA_POS = 11, CDS_POS = 12, AA_POS = 13;
+
+    /**
+     * The annotations in one annotation set.
+     */
+    private static final class Annotations {
+
+        final List<VariantAnnotation> all = new ArrayList<>();
+
+        final Map<String, PositionIndex> index = new HashMap<>();
+
+        final Map<String, List<VariantAnnotation>> byReference = new HashMap<>();
+    }
+
+    private final Map<String, VariantAnnotationSet> annotationSets = new LinkedHashMap<>();
+
+    private final Map<String, Annotations> annotations = new HashMap<>();
+
+    /**
+     * Load every annotated VCF file in a directory.
+     *
+     * @param dir       the directory
+     * @param datasetId the id of the dataset the variant sets belong to
+     * @throws IOException if a file can't be read
+     */
+    public AnnotationStore(File dir, String datasetId) throws IOException {
+        final File[] files = dir.listFiles((d, name) -> name.endsWith(".vcf"));
+        if (files == null) {
+            throw new IOException("can't list " + dir);
+        }
+        Arrays.sort(files);
+        final SequenceOntology ontology = new SequenceOntology(new File(dir, "sequence_ontology.txt"));
+        for (File file : files) {
+            try (VcfFile vcf = VcfFile.open(file)) {
+                if (vcf.meta.stream().anyMatch(line -> line.startsWith("INFO=<ID=ANN,"))) {
+                    load(file, vcf, VariantStore.variantSetId(datasetId, file), ontology);
+                }
+            }
+        }
+    }
+
+    private void load(File file, VcfFile vcf, String variantSetId, SequenceOntology ontology) throws IOException {
+        final String id = variantSetId + ":annotations";
+        final String[] nameParts = file.getName().substring(0, file.getName().length() - ".vcf".length()).split("_");
+        final String name = nameParts.length >= 3 ? nameParts[1] : String.join("_", nameParts);
+
+        final String created = vcf.metaValue("created");
+        final String createDateTime = created == null || created.contains("T") ? created : created + "T00:00:00Z";
+        final Map<String, List<String>> analysisInfo = new LinkedHashMap<>();
+        for (String line : vcf.meta) {
+            if (line.startsWith("SnpEff")) {
+                final int eq = line.indexOf('=');
+                analysisInfo.put(line.substring(0, eq), Collections.singletonList(unquote(line.substring(eq + 1))));
+            }
+        }
+        final String software = vcf.metaValue("software");
+        final Analysis analysis = Analysis.newBuilder()
+                                          .setId(id + ":analysis")
+                                          .setName(vcf.metaValue("name"))
+                                          .setDescription(vcf.metaValue("description"))
+                                          .setCreateDateTime(createDateTime)
+                                          .setUpdateDateTime(createDateTime == null ? "" : createDateTime)
+                                          .setSoftware(software == null
+                                                               ? Collections.<String>emptyList()
+                                                               : Collections.singletonList(software))
+                                          .setInfo(analysisInfo)
+                                          .build();
+        annotationSets.put(id, VariantAnnotationSet.newBuilder()
+                                                   .setId(id)
+                                                   .setVariantSetId(variantSetId)
+                                                   .setName(name)
+                                                   .setAnalysis(analysis)
+                                                   .build());
+
+        final Annotations set = new Annotations();
+        for (String[] record; (record = vcf.next()) != null; ) {
+            final int row = set.all.size();
+            final VariantAnnotation annotation =
+                    toAnnotation(record, id + ":" + row, variantSetId + ":" + row, id, analysis, ontology);
+            set.all.add(annotation);
+            final long start = Long.parseLong(record[VcfFile.POS]) - 1;
+            try {
+                set.index.computeIfAbsent(record[VcfFile.CHROM], ref -> new PositionIndex())
+                         .add(start, start + record[VcfFile.REF].length());
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file + ": " + e.getMessage(), e);
+            }
+            set.byReference.computeIfAbsent(record[VcfFile.CHROM], ref -> new ArrayList<>()).add(annotation);
+        }
+        annotations.put(id, set);
+        log.info("loaded variant annotation set " + name + " with " + set.all.size() + " annotations");
+    }
+
+    private static String unquote(String value) {
+        return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")
+                ? value.substring(1, value.length() - 1) : value;
+    }
+
+    /**
+     * Convert an annotated VCF record to a {@link VariantAnnotation}, with a transcript
+     * effect for each <tt>ANN</tt> entry.
+     */
+    private static VariantAnnotation toAnnotation(String[] record, String id, String variantId,
+                                                  String annotationSetId, Analysis analysis,
+                                                  SequenceOntology ontology) {
+        final Map<String, List<String>> info = VcfFile.info(record[VcfFile.INFO]);
+        final List<String> ann = info.remove("ANN");
+        final List<String> hgvsG = info.get("HGVS.g");
+        final String genomic = hgvsG == null || hgvsG.isEmpty() ? null : hgvsG.get(0);
+
+        final List<TranscriptEffect> effects = new ArrayList<>();
+        if (ann != null) {
+            for (String entry : ann) {
+                final String[] f = entry.split("\\|", -1);
+                if (f.length <= AA_POS) {
+                    continue;
+                }
+                final List<OntologyTerm> terms = new ArrayList<>();
+                for (String effect : f[EFFECTS].split("&")) {
+                    final String soId = ontology.idOf(effect);
+                    terms.add(OntologyTerm.newBuilder()
+                                          .setId(soId != null ? soId : effect)
+                                          .setTerm(effect)
+                                          .setSourceName(SequenceOntology.SOURCE_NAME)
+                                          .build());
+                }
+                effects.add(TranscriptEffect.newBuilder()
+                                            .setId(id + ":" + effects.size())
+                                            .setFeatureId(f[FEATURE_ID])
+                                            .setAlternateBases(emptyToNull(f[ALLELE]))
+                                            .setEffects(terms)
+                                            .setHgvsAnnotation(HGVSAnnotation.newBuilder()
+                                                                             .setGenomic(genomic)
+                                                                             .setTranscript(emptyToNull(f[HGVS_C]))
+                                                                             .setProtein(emptyToNull(f[HGVS_P]))
+                                                                             .build())
+                                            .setCDNALocation(location(f[CDNA_POS]))
+                                            .setCDSLocation(location(f[CDS_POS]))
+                                            .setProteinLocation(location(f[AA_POS]))
+                                            .setAnalysisResults(Collections.singletonList(
+                                                    AnalysisResult.newBuilder()
+                                                                  .setAnalysisId(analysis.getId())
+                                                                  .setResult(emptyToNull(f[IMPACT]))
+                                                                  .setScore(null)
+                                                                  .build()))
+                                            .build());
+            }
+        }
+        return VariantAnnotation.newBuilder()
+                                .setId(id)
+                                .setVariantId(variantId)
+                                .setVariantAnnotationSetId(annotationSetId)
+                                .setCreateDateTime(analysis.getCreateDateTime())
+                                .setTranscriptEffects(effects)
+                                .setInfo(info)
+                                .build();
+    }
+
+    private static String emptyToNull(String s) {
+        return s.isEmpty() ? null : s;
+    }
+
+    /**
+     * Convert a 1-based <tt>pos/length</tt> field to a 0-based {@link AlleleLocation}.
+     */
+    private static AlleleLocation location(String posAndLength) {
+        if (posAndLength.isEmpty()) {
+            return null;
+        }
+        final int slash = posAndLength.indexOf('/');
+        final String pos = slash < 0 ? posAndLength : posAndLength.substring(0, slash);
+        try {
+            return AlleleLocation.newBuilder().setStart(Integer.parseInt(pos) - 1).build();
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Return the variant annotation sets, in the order they were loaded.
+     *
+     * @return the variant annotation sets
+     */
+    public Collection<VariantAnnotationSet> getVariantAnnotationSets() {
+        return Collections.unmodifiableCollection(annotationSets.values());
+    }
+
+    /**
+     * Return a variant annotation set.
+     *
+     * @param id the variant annotation set's id
+     * @return the variant annotation set, or null if there's none with that id
+     */
+    public VariantAnnotationSet getVariantAnnotationSet(String id) {
+        return annotationSets.get(id);
+    }
+
+    /**
+     * Return the annotations in a set whose variants overlap a range of a reference, in
+     * order of position.
+     *
+     * @param annotationSetId the variant annotation set's id, which must exist
+     * @param referenceName   the name of the reference sequence
+     * @param start           the 0-based start of the range
+     * @param end             the 0-based, exclusive end of the range
+     * @return the annotations
+     */
+    public List<VariantAnnotation> getAnnotations(String annotationSetId, String referenceName,
+                                                  long start, long end) {
+        final Annotations set = annotations.get(annotationSetId);
+        final PositionIndex index = set.index.get(referenceName);
+        if (index == null) {
+            return Collections.emptyList();
+        }
+        final List<VariantAnnotation> onReference = set.byReference.get(referenceName);
+        final List<VariantAnnotation> result = new ArrayList<>();
+        index.forEachOverlap(start, end, i -> result.add(onReference.get(i)));
+        return result;
+    }
+}
@@ -0,0 +1,313 @@
+package org.ga4gh.ctk.testserver.store;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * <p>A FASTA file, memory-mapped, with a samtools-style <tt>.fai</tt> index of where each
+ * sequence's lines are.</p>
+ * <p>Because every line of a sequence but its last holds the same number of bases, the
+ * file offset of any base is arithmetic on the index, so a <tt>[start, end)</tt> range is
+ * read with one seek and a bulk copy per line, straight out of the mapping. Bases are
+ * returned upper-cased, as the GA4GH MD5 checksums are defined over.</p>
+ * <p>The index is read from <tt>&lt;file&gt;.fai</tt> if there is one, and otherwise built
+ * by scanning the file (and can then be written with {@link #writeIndex()}). A file is
+ * mapped whole, so it must be under 2GB.</p>
+ * <p>Instances are thread-safe.</p>
+ */
+public final class MappedFasta implements Closeable {
+
+    /**
+     * One <tt>.fai</tt> line: where a sequence's bases are, and how they're wrapped.
+     */
+    public static final class Entry {
+
+        private final String name;
+
+        private final long length;
+
+        private final long offset;
+
+        private final int lineBases;
+
+        private final int lineWidth;
+
+        Entry(String name, long length, long offset, int lineBases, int lineWidth) {
+            this.name = name;
+            this.length = length;
+            this.offset = offset;
+            this.lineBases = lineBases;
+            this.lineWidth = lineWidth;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * Return the file offset of a base.
+         *
+         * @param position the base's 0-based position in the sequence
+         * @return the offset of its byte in the file
+         */
+        long offsetOf(long position) {
+            return offset + (position / lineBases) * lineWidth + position % lineBases;
+        }
+
+        @Override
+        public String toString() {
+            return name + "\t" + length + "\t" + offset + "\t" + lineBases + "\t" + lineWidth;
+        }
+    }
+
+    private final File file;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer mapped;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    private MappedFasta(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        if (channel.size() > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException(file + " is too large to map (" + channel.size() + " bytes)");
+        }
+        this.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    /**
+     * Map a FASTA file, reading its <tt>.fai</tt> index or building one.
+     *
+     * @param file the FASTA file
+     * @return the mapped file
+     * @throws IOException if it can't be read, or its lines are unevenly wrapped
+     */
+    public static MappedFasta open(File file) throws IOException {
+        final MappedFasta fasta = new MappedFasta(file);
+        try {
+            final File fai = indexFile(file);
+            if (fai.isFile()) {
+                fasta.readIndex(fai);
+            } else {
+                fasta.buildIndex();
+            }
+        } catch (IOException | RuntimeException e) {
+            fasta.close();
+            throw e;
+        }
+        return fasta;
+    }
+
+    private static File indexFile(File fasta) {
+        return new File(fasta.getPath() + ".fai");
+    }
+
+    private void readIndex(File fai) throws IOException {
+        for (String line : Files.readAllLines(fai.toPath(), StandardCharsets.US_ASCII)) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            final String[] f = line.split("\t");
+            try {
+                add(new Entry(f[0], Long.parseLong(f[1]), Long.parseLong(f[2]),
+                              Integer.parseInt(f[3]), Integer.parseInt(f[4])));
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException(fai + ": malformed line " + line, e);
+            }
+        }
+    }
+
+    /**
+     * Scan the file for its sequences, checking that each is evenly wrapped.
+     */
+    private void buildIndex() throws IOException {
+        final int size = mapped.limit();
+        String name = null;
+        long length = 0;
+        long offset = 0;
+        int lineBases = 0;
+        int lineWidth = 0;
+        boolean sawShortLine = false;
+
+        int pos = 0;
+        while (pos < size) {
+            int eol = pos;
+            while (eol < size && mapped.get(eol) != '\n') {
+                eol++;
+            }
+            final int next = Math.min(eol + 1, size);
+            if (mapped.get(pos) == '>') {
+                if (name != null) {
+                    add(new Entry(name, length, offset, lineBases, lineWidth));
+                }
+                int end = pos + 1;
+                while (end < eol && !Character.isWhitespace(mapped.get(end))) {
+                    end++;
+                }
+                final byte[] header = new byte[end - pos - 1];
+                ((ByteBuffer) mapped.duplicate().position(pos + 1)).get(header);
+                name = new String(header, StandardCharsets.US_ASCII);
+                length = 0;
+                offset = next;
+                lineBases = 0;
+                lineWidth = 0;
+                sawShortLine = false;
+            } else if (name != null) {
+                final int bases = (eol > pos && mapped.get(eol - 1) == '\r' ? eol - 1 : eol) - pos;
+                if (bases > 0) {
+                    if (sawShortLine) {
+                        throw new IOException(file + ": sequence " + name + " has lines of uneven length"
+                                                      + " near byte " + pos);
+                    }
+                    if (lineBases == 0) {
+                        lineBases = bases;
+                        lineWidth = next - pos;
+                    } else if (bases > lineBases) {
+                        throw new IOException(file + ": sequence " + name + " has lines of uneven length"
+                                                      + " near byte " + pos);
+                    }
+                    sawShortLine = bases < lineBases;
+                    length += bases;
+                } else {
+                    // an empty line is a short one too: only the sequence's last lines may be empty
+                    sawShortLine = true;
+                }
+            }
+            pos = next;
+        }
+        if (name != null) {
+            add(new Entry(name, length, offset, lineBases, lineWidth));
+        }
+    }
+
+    private void add(Entry entry) throws IOException {
+        if (entries.put(entry.getName(), entry) != null) {
+            throw new IOException(file + ": sequence " + entry.getName() + " appears twice");
+        }
+    }
+
+    /**
+     * Write the index to <tt>&lt;file&gt;.fai</tt>, as samtools would.
+     *
+     * @throws IOException if it can't be written
+     */
+    public void writeIndex() throws IOException {
+        try (Writer out = Files.newBufferedWriter(indexFile(file).toPath(), StandardCharsets.US_ASCII)) {
+            for (Entry entry : entries.values()) {
+                out.write(entry + "\n");
+            }
+        }
+    }
+
+    /**
+     * Return the sequences, in file order.
+     *
+     * @return the index entries
+     */
+    public Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    /**
+     * Return a sequence's index entry.
+     *
+     * @param name the sequence's name
+     * @return the entry, or null if there's no such sequence
+     */
+    public Entry getEntry(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * Return some of a sequence's bases, upper-cased.
+     *
+     * @param name  the sequence's name
+     * @param start the 0-based start position, at least 0
+     * @param end   the 0-based, exclusive end position, at most the sequence's length
+     * @return the bases
+     * @throws IllegalArgumentException if there's no such sequence
+     * @throws IndexOutOfBoundsException if the range is outside the sequence
+     */
+    public String getBases(String name, long start, long end) {
+        final Entry entry = entries.get(name);
+        if (entry == null) {
+            throw new IllegalArgumentException("no sequence " + name + " in " + file);
+        }
+        if (start < 0 || end > entry.length || start > end) {
+            throw new IndexOutOfBoundsException("[" + start + ", " + end + ") is outside " + name);
+        }
+        final byte[] bases = new byte[(int) (end - start)];
+        copy(entry, start, bases, 0, bases.length);
+        return new String(bases, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Copy bases into an array, a line at a time, upper-casing them.
+     */
+    private void copy(Entry entry, long start, byte[] dst, int dstOffset, int count) {
+        final ByteBuffer source = mapped.duplicate();
+        long position = start;
+        int copied = 0;
+        while (copied < count) {
+            final int inLine = (int) Math.min(entry.lineBases - position % entry.lineBases, count - copied);
+            source.position((int) entry.offsetOf(position));
+            source.get(dst, dstOffset + copied, inLine);
+            copied += inLine;
+            position += inLine;
+        }
+        for (int i = dstOffset; i < dstOffset + count; i++) {
+            final byte b = dst[i];
+            if (b >= 'a' && b <= 'z') {
+                dst[i] = (byte) (b - ('a' - 'A'));
+            }
+        }
+    }
+
+    /**
+     * Return the MD5 checksum of a sequence, as the GA4GH defines it: over the upper-cased
+     * bases, without line breaks, as 32 lower-case hex digits.
+     *
+     * @param name the sequence's name
+     * @return the checksum
+     * @throws IllegalArgumentException if there's no such sequence
+     */
+    public String md5(String name) {
+        final Entry entry = entries.get(name);
+        if (entry == null) {
+            throw new IllegalArgumentException("no sequence " + name + " in " + file);
+        }
+        final MessageDigest md5;
+        try {
+            md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JRE has MD5
+        }
+        final byte[] chunk = new byte[Math.max(1, entry.lineBases) * 1024];
+        for (long position = 0; position < entry.length; position += chunk.length) {
+            final int count = (int) Math.min(chunk.length, entry.length - position);
+            copy(entry, position, chunk, 0, count);
+            md5.update(chunk, 0, count);
+        }
+        return ReferenceStore.hex(md5.digest());
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,105 @@
+package org.ga4gh.ctk.testserver.store;
+
+/**
+ * <p>A fixed-length column of unsigned values of a fixed number of bits, packed end to
+ * end in a <tt>long[]</tt>; a value may straddle two words.</p>
+ */
+final class PackedColumn {
+
+    private final int bits;
+
+    private final long mask;
+
+    private final int size;
+
+    private final long[] words;
+
+    /**
+     * Create a column of zeros.
+     *
+     * @param bits the width of each value, from 1 to 64
+     * @param size the number of values
+     */
+    PackedColumn(int bits, int size) {
+        if (bits < 1 || bits > 64) {
+            throw new IllegalArgumentException("can't pack " + bits + "-bit values");
+        }
+        this.bits = bits;
+        this.mask = bits == 64 ? -1L : (1L << bits) - 1;
+        this.size = size;
+        this.words = new long[(int) (((long) size * bits + 63) >>> 6)];
+    }
+
+    /**
+     * Return the number of bits needed to hold a value.
+     *
+     * @param max the largest value to be held
+     * @return the width, at least 1
+     */
+    static int bitsFor(long max) {
+        return Math.max(1, 64 - Long.numberOfLeadingZeros(max));
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Return a copy of the column with another length, padded with zeros or cut short.
+     *
+     * @param size the number of values
+     * @return the copy
+     */
+    PackedColumn resize(int size) {
+        final PackedColumn copy = new PackedColumn(bits, size);
+        System.arraycopy(words, 0, copy.words, 0, Math.min(words.length, copy.words.length));
+        final long tail = (long) size * bits & 63;
+        if (size < this.size && tail != 0) {
+            copy.words[copy.words.length - 1] &= (1L << tail) - 1;
+        }
+        return copy;
+    }
+
+    /**
+     * Set a value.
+     *
+     * @param index the value's index
+     * @param value the value, which must fit in the column's width
+     */
+    void set(int index, long value) {
+        if ((value & ~mask) != 0) {
+            throw new IllegalArgumentException(value + " doesn't fit in " + bits + " bits");
+        }
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index + " of " + size);
+        }
+        final long bit = (long) index * bits;
+        final int word = (int) (bit >>> 6);
+        final int shift = (int) (bit & 63);
+        words[word] = words[word] & ~(mask << shift) | value << shift;
+        if (shift + bits > 64) {
+            final int spill = 64 - shift;
+            words[word + 1] = words[word + 1] & ~(mask >>> spill) | value >>> spill;
+        }
+    }
+
+    /**
+     * Return a value.
+     *
+     * @param index the value's index
+     * @return the value
+     */
+    long get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index + " of " + size);
+        }
+        final long bit = (long) index * bits;
+        final int word = (int) (bit >>> 6);
+        final int shift = (int) (bit & 63);
+        long value = words[word] >>> shift;
+        if (shift + bits > 64) {
+            value |= words[word + 1] << (64 - shift);
+        }
+        return value & mask;
+    }
+}
@@ -0,0 +1,132 @@
+package org.ga4gh.ctk.testserver.store;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>Finds the features on one reference sequence that overlap a range.</p>
+ * <p>Features are added in order of start position (as they are in a sorted SAM or VCF
+ * file) and identified by the order they were added in; their starts and ends are held
+ * in parallel primitive arrays. Like a BAM index's linear index, the reference is cut
+ * into 16kb bins, each recording the first feature that overlaps it. A query starts
+ * scanning at its start's bin (or, if no feature reaches that bin, at the first feature
+ * starting after the query's start), so it costs O(log n + k) whatever the lengths of
+ * the features.</p>
+ */
+final class PositionIndex {
+
+    private static final int BIN_SHIFT = 14;
+
+    private long[] starts = new long[64];
+
+    private long[] ends = new long[64];
+
+    private int size;
+
+    /**
+     * For each bin, the index of the first feature overlapping it, or -1.
+     */
+    private int[] bins = new int[0];
+
+    /**
+     * Add a feature, which must not start before the last one added.
+     *
+     * @param start the 0-based start position
+     * @param end   the 0-based, exclusive end position
+     * @return the feature's index
+     * @throws IllegalArgumentException if the feature is out of order
+     */
+    int add(long start, long end) {
+        if (size > 0 && start < starts[size - 1]) {
+            throw new IllegalArgumentException("position " + start + " follows " + starts[size - 1]
+                                                       + "; the input must be sorted by position");
+        }
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+        }
+        starts[size] = start;
+        ends[size] = end;
+
+        final int lastBin = bin(Math.max(start, end - 1));
+        if (lastBin >= bins.length) {
+            final int oldLength = bins.length;
+            bins = Arrays.copyOf(bins, Math.max(lastBin + 1, oldLength * 2));
+            Arrays.fill(bins, oldLength, bins.length, -1);
+        }
+        for (int bin = bin(start); bin <= lastBin; bin++) {
+            if (bins[bin] < 0) {
+                bins[bin] = size;
+            }
+        }
+        return size++;
+    }
+
+    private static int bin(long position) {
+        return (int) (Math.max(position, 0) >> BIN_SHIFT);
+    }
+
+    /**
+     * Return the number of features.
+     *
+     * @return the number of features added
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Call back with the index of each feature overlapping <tt>[start, end)</tt>, in order.
+     *
+     * @param start the 0-based start of the range
+     * @param end   the 0-based, exclusive end of the range
+     * @param found receives the indexes
+     */
+    void forEachOverlap(long start, long end, IntConsumer found) {
+        forEachOverlap(start, end, 0, Integer.MAX_VALUE, found);
+    }
+
+    /**
+     * Call back with the index of each feature overlapping <tt>[start, end)</tt>, in order,
+     * beginning at a given index and stopping after a given number.
+     *
+     * @param start the 0-based start of the range
+     * @param end   the 0-based, exclusive end of the range
+     * @param from  the index to start from
+     * @param limit the most indexes to report
+     * @param found receives the indexes
+     * @return the index of the next overlapping feature, to resume from; or -1 if there are no more
+     */
+    int forEachOverlap(long start, long end, int from, int limit, IntConsumer found) {
+        int reported = 0;
+        for (int i = Math.max(from, firstCandidate(start)); i < size && starts[i] < end; i++) {
+            if (ends[i] > start) {
+                if (reported == limit) {
+                    return i;
+                }
+                found.accept(i);
+                reported++;
+            }
+        }
+        return -1;
+    }
+
+    private int firstCandidate(long start) {
+        final int bin = bin(start);
+        return bin < bins.length && bins[bin] >= 0 ? bins[bin] : lowerBound(start);
+    }
+
+    private int lowerBound(long position) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (starts[mid] < position) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,359 @@
+package org.ga4gh.ctk.testserver.store;
+
+import org.ga4gh.models.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * <p>The read group sets, read groups and read alignments, held in memory.</p>
+ * <p>Each <tt>*.sam</tt> file is one read group set, named for the sample (<tt>SM</tt>) of
+ * its read groups; each <tt>@RG</tt> line is a read group, named for its <tt>ID</tt>. A
+ * read group set's id is <tt>&lt;dataset id&gt;:&lt;sample&gt;</tt> and a read group's is
+ * <tt>&lt;read group set id&gt;:&lt;RG ID&gt;</tt>.</p>
+ * <p>The SAM files must be sorted by position. Each read group keeps its alignments in
+ * file order as columns: primitive arrays of position, flags and mapping quality, with
+ * the rest of each SAM record packed into a {@link TextHeap}. The mapped ones are also in
+ * a {@link PositionIndex} per reference sequence. A {@link ReadAlignment} is only built
+ * for an alignment on the page being returned, and a page ends with the index position
+ * to resume from, so paging through a large result costs no more than the page.</p>
+ */
+public class ReadStore {
+
+    private static final org.slf4j.Logger log = getLogger(ReadStore.class);
+
+    /**
+     * The alignments in one read group.
+     */
+    private static final class Columns {
+
+        int size;
+
+        /**
+         * The 0-based position of each read, or -1 if it's unmapped.
+         */
+        long[] positions = new long[64];
+
+        short[] flags = new short[64];
+
+        byte[] mappingQualities = new byte[64];
+
+        /**
+         * The address and length of each read's SAM record in {@link #records}.
+         */
+        long[] recordAddresses = new long[64];
+
+        int[] recordLengths = new int[64];
+
+        final TextHeap records = new TextHeap();
+
+        final Map<String, ReferenceIndex> byReference = new HashMap<>();
+
+        long aligned;
+
+        long unaligned;
+
+        long bases;
+
+        void add(String line, String[] f) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+                flags = Arrays.copyOf(flags, size * 2);
+                mappingQualities = Arrays.copyOf(mappingQualities, size * 2);
+                recordAddresses = Arrays.copyOf(recordAddresses, size * 2);
+                recordLengths = Arrays.copyOf(recordLengths, size * 2);
+            }
+            final int flag = Integer.parseInt(f[1]);
+            final boolean mapped = (flag & 0x4) == 0 && !f[2].equals("*");
+            positions[size] = mapped ? Long.parseLong(f[3]) - 1 : -1;
+            flags[size] = (short) flag;
+            mappingQualities[size] = (byte) Integer.parseInt(f[4]);
+            recordAddresses[size] = records.add(line);
+            recordLengths[size] = line.length();
+
+            bases += f[9].equals("*") ? 0 : f[9].length();
+            if (mapped) {
+                aligned++;
+                byReference.computeIfAbsent(f[2], name -> new ReferenceIndex())
+                           .add(positions[size], positions[size] + referenceLength(f[5]), size);
+            } else {
+                unaligned++;
+            }
+            size++;
+        }
+
+        String[] record(int read) {
+            return records.get(recordAddresses[read], recordLengths[read]).split("\t");
+        }
+
+        ReadStats stats() {
+            return ReadStats.newBuilder()
+                            .setAlignedReadCount(aligned)
+                            .setUnalignedReadCount(unaligned)
+                            .setBaseCount(bases)
+                            .build();
+        }
+    }
+
+    /**
+     * The mapped reads on one reference sequence, by their index in the {@link Columns}.
+     */
+    private static final class ReferenceIndex {
+
+        final PositionIndex index = new PositionIndex();
+
+        int[] reads = new int[64];
+
+        void add(long start, long end, int read) {
+            final int i = index.add(start, end);
+            if (i == reads.length) {
+                reads = Arrays.copyOf(reads, i * 2);
+            }
+            reads[i] = read;
+        }
+    }
+
+    private final Map<String, ReadGroupSet> readGroupSets = new LinkedHashMap<>();
+
+    private final Map<String, ReadGroup> readGroups = new HashMap<>();
+
+    private final Map<String, Columns> columns = new HashMap<>();
+
+    /**
+     * Load every SAM file in a directory.
+     *
+     * @param dir        the directory
+     * @param datasetId  the id of the dataset the read group sets belong to
+     * @param references the reference sets the reads are aligned to
+     * @throws IOException if a file can't be read
+     */
+    public ReadStore(File dir, String datasetId, ReferenceStore references) throws IOException {
+        final File[] files = dir.listFiles((d, name) -> name.endsWith(".sam"));
+        if (files == null) {
+            throw new IOException("can't list " + dir);
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            loadSam(file, datasetId, references);
+        }
+    }
+
+    private void loadSam(File file, String datasetId, ReferenceStore references) throws IOException {
+        final List<Map<String, String>> rgLines = new ArrayList<>();
+        final List<Program> programs = new ArrayList<>();
+        String assembly = null;
+        final Map<String, Columns> byRgId = new LinkedHashMap<>();
+
+        try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("@")) {
+                    final Map<String, String> tags = headerTags(line);
+                    if (line.startsWith("@RG\t")) {
+                        rgLines.add(tags);
+                        byRgId.put(tags.get("ID"), new Columns());
+                    } else if (line.startsWith("@PG\t")) {
+                        programs.add(Program.newBuilder()
+                                            .setId(tags.get("ID"))
+                                            .setName(tags.get("PN"))
+                                            .setVersion(tags.get("VN"))
+                                            .setCommandLine(tags.get("CL"))
+                                            .setPrevProgramId(tags.get("PP"))
+                                            .build());
+                    } else if (line.startsWith("@SQ\t") && assembly == null) {
+                        assembly = tags.get("AS");
+                    }
+                    continue;
+                }
+                if (rgLines.isEmpty()) {
+                    throw new IOException(file + " has no @RG lines");
+                }
+                final String[] f = line.split("\t");
+                String rgId = rgLines.get(0).get("ID");
+                for (int i = 11; i < f.length; i++) {
+                    if (f[i].startsWith("RG:Z:")) {
+                        rgId = f[i].substring(5);
+                    }
+                }
+                final Columns group = byRgId.get(rgId);
+                if (group == null) {
+                    throw new IOException(file + ": read " + f[0] + " is in read group " + rgId
+                                                  + ", which has no @RG line");
+                }
+                try {
+                    group.add(line, f);
+                } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                    throw new IOException(file + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        if (rgLines.isEmpty()) {
+            log.warn("skipping " + file.getName() + ", which has no read groups");
+            return;
+        }
+        final String sample = sample(rgLines.get(0), file);
+        final String readGroupSetId = datasetId + ":" + sample;
+        final String referenceSetId = assembly != null && references.getReferenceSet(assembly) != null
+                ? assembly : null;
+
+        final List<ReadGroup> groups = new ArrayList<>();
+        long aligned = 0, unaligned = 0, bases = 0;
+        for (Map<String, String> rg : rgLines) {
+            final String id = readGroupSetId + ":" + rg.get("ID");
+            final Columns group = byRgId.get(rg.get("ID"));
+            final Map<String, List<String>> info = new LinkedHashMap<>();
+            for (Map.Entry<String, String> tag : rg.entrySet()) {
+                info.put(tag.getKey(), Collections.singletonList(tag.getValue()));
+            }
+            final String insertSize = rg.get("PI");
+            final ReadGroup readGroup = ReadGroup.newBuilder()
+                                                 .setId(id)
+                                                 .setDatasetId(datasetId)
+                                                 .setName(rg.get("ID"))
+                                                 .setDescription(rg.get("DS"))
+                                                 .setSampleId(rg.get("SM"))
+                                                 .setExperiment(null)
+                                                 .setPredictedInsertSize(insertSize == null
+                                                                                 ? null : Integer.valueOf(insertSize))
+                                                 .setStats(group.stats())
+                                                 .setPrograms(programs)
+                                                 .setReferenceSetId(referenceSetId)
+                                                 .setInfo(info)
+                                                 .build();
+            groups.add(readGroup);
+            readGroups.put(id, readGroup);
+            columns.put(id, group);
+            aligned += group.aligned;
+            unaligned += group.unaligned;
+            bases += group.bases;
+        }
+        final ReadGroupSet readGroupSet =
+                ReadGroupSet.newBuilder()
+                            .setId(readGroupSetId)
+                            .setDatasetId(datasetId)
+                            .setName(sample)
+                            .setStats(ReadStats.newBuilder()
+                                               .setAlignedReadCount(aligned)
+                                               .setUnalignedReadCount(unaligned)
+                                               .setBaseCount(bases)
+                                               .build())
+                            .setReadGroups(groups)
+                            .build();
+        readGroupSets.put(readGroupSetId, readGroupSet);
+        log.info("loaded read group set " + sample + " with " + groups.size() + " read groups and "
+                         + (aligned + unaligned) + " reads");
+    }
+
+    private static String sample(Map<String, String> rg, File file) {
+        final String sample = rg.get("SM");
+        return sample != null ? sample : file.getName().substring(0, file.getName().length() - ".sam".length());
+    }
+
+    private static Map<String, String> headerTags(String line) {
+        final Map<String, String> tags = new LinkedHashMap<>();
+        final String[] fields = line.split("\t");
+        for (int i = 1; i < fields.length; i++) {
+            if (fields[i].length() > 3 && fields[i].charAt(2) == ':') {
+                tags.put(fields[i].substring(0, 2), fields[i].substring(3));
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * Build the {@link ReadAlignment} for a read, from its columns and SAM record.
+     */
+    private static ReadAlignment toReadAlignment(Columns group, int read, String readGroupId) {
+        return SamRecords.toReadAlignment(group.record(read), group.flags[read] & 0xffff, group.positions[read],
+                                          group.mappingQualities[read] & 0xff, readGroupId);
+    }
+
+    /**
+     * Return how many reference bases a CIGAR string covers: the total length of its
+     * <tt>M</tt>, <tt>D</tt>, <tt>N</tt>, <tt>=</tt> and <tt>X</tt> operations, and at least 1.
+     */
+    static long referenceLength(String cigar) {
+        long length = 0;
+        long count = 0;
+        for (int i = 0; i < cigar.length(); i++) {
+            final char c = cigar.charAt(i);
+            if (c >= '0' && c <= '9') {
+                count = count * 10 + (c - '0');
+                continue;
+            }
+            if (c == 'M' || c == 'D' || c == 'N' || c == '=' || c == 'X') {
+                length += count;
+            }
+            count = 0;
+        }
+        return Math.max(length, 1);
+    }
+
+    /**
+     * Return the read group sets, in the order they were loaded.
+     *
+     * @return the read group sets
+     */
+    public Collection<ReadGroupSet> getReadGroupSets() {
+        return Collections.unmodifiableCollection(readGroupSets.values());
+    }
+
+    /**
+     * Return a read group set.
+     *
+     * @param id the read group set's id
+     * @return the read group set, or null if there's none with that id
+     */
+    public ReadGroupSet getReadGroupSet(String id) {
+        return readGroupSets.get(id);
+    }
+
+    /**
+     * Return a read group.
+     *
+     * @param id the read group's id
+     * @return the read group, or null if there's none with that id
+     */
+    public ReadGroup getReadGroup(String id) {
+        return readGroups.get(id);
+    }
+
+    /**
+     * Return a page of the alignments in a read group that overlap a range of a reference,
+     * in order of position; or, if no reference is given, of all the read group's
+     * alignments (including unmapped reads) in file order.
+     *
+     * @param readGroupId   the read group's id, which must exist
+     * @param referenceName the name of the reference sequence, or null for all reads
+     * @param start         the 0-based start of the range
+     * @param end           the 0-based, exclusive end of the range
+     * @param from          where to resume: 0 for the first page, or what the call for the
+     *                      previous page returned
+     * @param limit         the most alignments to return
+     * @param page          receives the alignments
+     * @return where to resume for the next page, or -1 if this is the last page
+     */
+    public int getReads(String readGroupId, String referenceName, long start, long end,
+                        int from, int limit, List<ReadAlignment> page) {
+        final Columns group = columns.get(readGroupId);
+        if (referenceName == null) {
+            int read = from;
+            for (; read < group.size && page.size() < limit; read++) {
+                page.add(toReadAlignment(group, read, readGroupId));
+            }
+            return read < group.size ? read : -1;
+        }
+        final ReferenceIndex reference = group.byReference.get(referenceName);
+        if (reference == null) {
+            return -1;
+        }
+        return reference.index.forEachOverlap(start, end, from, limit,
+                                              i -> page.add(toReadAlignment(group, reference.reads[i], readGroupId)));
+    }
+}
@@ -0,0 +1,243 @@
+package org.ga4gh.ctk.testserver.store;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.ga4gh.models.Reference;
+import org.ga4gh.models.ReferenceSet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * <p>The reference sets and reference sequences, held in memory.</p>
+ * <p>Each <tt>referenceset_&lt;name&gt;.json</tt> describes a reference set and lists its
+ * references; each reference <tt>&lt;ref&gt;</tt> is the single sequence in
+ * <tt>&lt;ref&gt;.fa</tt>, described by <tt>&lt;ref&gt;.json</tt>. A reference set's id is its
+ * name, and a reference's id is <tt>&lt;reference set id&gt;:&lt;ref&gt;</tt>.</p>
+ * <p>The FASTA files are memory-mapped (see {@link MappedFasta}), and bases are read from
+ * the mapping on demand. The MD5 checksums are computed from the bases (the upper-cased
+ * sequence, without line breaks); a reference set's checksum is that of its references'
+ * checksums, sorted and concatenated.</p>
+ */
+public class ReferenceStore {
+
+    private static final org.slf4j.Logger log = getLogger(ReferenceStore.class);
+
+    private final Map<String, ReferenceSet> referenceSets = new LinkedHashMap<>();
+
+    private final Map<String, List<Reference>> referencesBySet = new HashMap<>();
+
+    private final Map<String, Reference> references = new HashMap<>();
+
+    /**
+     * The FASTA file holding each reference, by reference id, and the name of the
+     * reference's sequence in it.
+     */
+    private final Map<String, MappedFasta> fastas = new HashMap<>();
+
+    private final Map<String, String> sequenceNames = new HashMap<>();
+
+    /**
+     * Load every reference set in a directory.
+     *
+     * @param dir the directory
+     * @throws IOException if a file can't be read
+     */
+    public ReferenceStore(File dir) throws IOException {
+        final File[] files = dir.listFiles((d, name) -> name.startsWith("referenceset_") && name.endsWith(".json"));
+        if (files == null) {
+            throw new IOException("can't list " + dir);
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            loadReferenceSet(dir, file);
+        }
+    }
+
+    private void loadReferenceSet(File dir, File file) throws IOException {
+        final String name = file.getName().substring("referenceset_".length(), file.getName().length() - ".json".length());
+        final JsonObject json = readJson(file);
+
+        final List<Reference> refs = new ArrayList<>();
+        final List<String> md5s = new ArrayList<>();
+        for (JsonElement refName : json.getAsJsonArray("references")) {
+            final Reference ref = loadReference(dir, name, refName.getAsString());
+            refs.add(ref);
+            md5s.add(ref.getMd5checksum());
+        }
+        Collections.sort(md5s);
+
+        final ReferenceSet referenceSet =
+                ReferenceSet.newBuilder()
+                            .setId(name)
+                            .setName(name)
+                            .setMd5checksum(md5(String.join("", md5s).getBytes(StandardCharsets.US_ASCII)))
+                            .setNcbiTaxonId(intOrNull(json, "ncbiTaxonId"))
+                            .setDescription(stringOrNull(json, "description"))
+                            .setAssemblyId(stringOrNull(json, "assemblyId"))
+                            .setSourceURI(stringOrNull(json, "sourceUri"))
+                            .setSourceAccessions(strings(json, "sourceAccessions"))
+                            .setIsDerived(json.has("isDerived") && json.get("isDerived").getAsBoolean())
+                            .build();
+        referenceSets.put(referenceSet.getId(), referenceSet);
+        referencesBySet.put(referenceSet.getId(), Collections.unmodifiableList(refs));
+        log.info("loaded reference set " + name + " with " + refs.size() + " references");
+    }
+
+    private Reference loadReference(File dir, String referenceSetId, String name) throws IOException {
+        final File fastaFile = new File(dir, name + ".fa");
+        final MappedFasta fasta = MappedFasta.open(fastaFile);
+        if (fasta.getEntries().isEmpty()) {
+            fasta.close();
+            throw new IOException(fastaFile + " has no sequences");
+        }
+        final MappedFasta.Entry sequence = fasta.getEntries().iterator().next();
+        final File metadata = new File(dir, name + ".json");
+        final JsonObject json = metadata.isFile() ? readJson(metadata) : new JsonObject();
+
+        final String md5 = fasta.md5(sequence.getName());
+        final String declared = stringOrNull(json, "md5checksum");
+        if (declared != null && !declared.equalsIgnoreCase(md5)) {
+            log.warn(name + ".json gives MD5 " + declared + " but the bases' MD5 is " + md5);
+        }
+        final JsonElement divergence = json.get("sourceDivergence");
+        final Reference ref = Reference.newBuilder()
+                                       .setId(referenceSetId + ":" + name)
+                                       .setName(name)
+                                       .setLength(sequence.getLength())
+                                       .setMd5checksum(md5)
+                                       .setSourceURI(stringOrNull(json, "sourceUri"))
+                                       .setSourceAccessions(strings(json, "sourceAccessions"))
+                                       .setIsDerived(json.has("isDerived") && json.get("isDerived").getAsBoolean())
+                                       .setSourceDivergence(divergence == null || divergence.isJsonNull()
+                                                                    ? null : divergence.getAsFloat())
+                                       .setNcbiTaxonId(intOrNull(json, "ncbiTaxonId"))
+                                       .build();
+        references.put(ref.getId(), ref);
+        fastas.put(ref.getId(), fasta);
+        sequenceNames.put(ref.getId(), sequence.getName());
+        return ref;
+    }
+
+    /**
+     * Return the MD5 checksum of some bytes, as 32 lower-case hex digits.
+     *
+     * @param bytes the bytes
+     * @return the checksum
+     */
+    static String md5(byte[] bytes) {
+        try {
+            return hex(MessageDigest.getInstance("MD5").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JRE has MD5
+        }
+    }
+
+    /**
+     * Format a digest as lower-case hex digits.
+     *
+     * @param digest the digest
+     * @return the hex digits
+     */
+    static String hex(byte[] digest) {
+        final StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    static JsonObject readJson(File file) throws IOException {
+        try (Reader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return new JsonParser().parse(in).getAsJsonObject();
+        }
+    }
+
+    private static String stringOrNull(JsonObject json, String name) {
+        final JsonElement e = json.get(name);
+        return e == null || e.isJsonNull() ? null : e.getAsString();
+    }
+
+    private static Integer intOrNull(JsonObject json, String name) {
+        final JsonElement e = json.get(name);
+        return e == null || e.isJsonNull() ? null : e.getAsInt();
+    }
+
+    private static List<String> strings(JsonObject json, String name) {
+        final List<String> result = new ArrayList<>();
+        final JsonArray array = json.getAsJsonArray(name);
+        if (array != null) {
+            for (JsonElement e : array) {
+                result.add(e.getAsString());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return the reference sets, in the order they were loaded.
+     *
+     * @return the reference sets
+     */
+    public Collection<ReferenceSet> getReferenceSets() {
+        return Collections.unmodifiableCollection(referenceSets.values());
+    }
+
+    /**
+     * Return a reference set.
+     *
+     * @param id the reference set's id
+     * @return the reference set, or null if there's none with that id
+     */
+    public ReferenceSet getReferenceSet(String id) {
+        return referenceSets.get(id);
+    }
+
+    /**
+     * Return the references in a reference set.
+     *
+     * @param referenceSetId the reference set's id
+     * @return the references, or null if there's no such reference set
+     */
+    public List<Reference> getReferences(String referenceSetId) {
+        return referencesBySet.get(referenceSetId);
+    }
+
+    /**
+     * Return a reference.
+     *
+     * @param id the reference's id
+     * @return the reference, or null if there's none with that id
+     */
+    public Reference getReference(String id) {
+        return references.get(id);
+    }
+
+    /**
+     * Return some of a reference's bases.
+     *
+     * @param id    the reference's id
+     * @param start the 0-based start position, at least 0
+     * @param end   the 0-based, exclusive end position, at most the reference's length
+     * @return the bases
+     * @throws IllegalArgumentException if there's no such reference
+     * @throws IndexOutOfBoundsException if the range is outside the reference
+     */
+    public String getBases(String id, long start, long end) {
+        final MappedFasta fasta = fastas.get(id);
+        if (fasta == null) {
+            throw new IllegalArgumentException("no reference " + id);
+        }
+        return fasta.getBases(sequenceNames.get(id), start, end);
+    }
+}
@@ -0,0 +1,131 @@
+package org.ga4gh.ctk.testserver.store;
+
+import org.ga4gh.models.*;
+
+import java.util.*;
+
+/**
+ * <p>Converts SAM records to {@link ReadAlignment}s, the way a GA4GH server does.</p>
+ * <p>The {@link ReadStore} builds its pages of reads with this, and the benchmarks build
+ * their reads payloads with it, so both have the same shape.</p>
+ */
+public final class SamRecords {
+
+    /**
+     * You can't instantiate one of these.
+     */
+    private SamRecords() {
+    }
+
+    /**
+     * Convert a SAM record to a {@link ReadAlignment}.
+     *
+     * @param f           the record's tab-separated fields
+     * @param readGroupId the id of the read group the read is in
+     * @return the read alignment
+     * @throws NumberFormatException if a numeric field isn't a number
+     */
+    public static ReadAlignment toReadAlignment(String[] f, String readGroupId) {
+        final int flag = Integer.parseInt(f[1]);
+        final boolean mapped = (flag & 0x4) == 0 && !f[2].equals("*");
+        return toReadAlignment(f, flag, mapped ? Long.parseLong(f[3]) - 1 : -1, Integer.parseInt(f[4]),
+                               readGroupId);
+    }
+
+    /**
+     * Convert a SAM record to a {@link ReadAlignment}, with its flag, position and mapping
+     * quality already parsed.
+     *
+     * @param f              the record's tab-separated fields
+     * @param flag           the record's FLAG
+     * @param position       the 0-based position, or -1 if the read is unmapped
+     * @param mappingQuality the record's MAPQ
+     * @param readGroupId    the id of the read group the read is in
+     * @return the read alignment
+     */
+    static ReadAlignment toReadAlignment(String[] f, int flag, long position, int mappingQuality,
+                                         String readGroupId) {
+        final ReadAlignment.Builder alignment = ReadAlignment.newBuilder()
+                .setId(readGroupId + ":" + f[0] + ((flag & 0x80) != 0 ? "/2" : "/1"))
+                .setReadGroupId(readGroupId)
+                .setFragmentName(f[0])
+                .setImproperPlacement((flag & 0x2) == 0)
+                .setDuplicateFragment((flag & 0x400) != 0)
+                .setNumberReads((flag & 0x1) != 0 ? 2 : 1)
+                .setFragmentLength(Integer.parseInt(f[8]))
+                .setReadNumber((flag & 0x80) != 0 ? 1 : 0)
+                .setFailedVendorQualityChecks((flag & 0x200) != 0)
+                .setSecondaryAlignment((flag & 0x100) != 0)
+                .setSupplementaryAlignment((flag & 0x800) != 0)
+                .setAlignedSequence(f[9].equals("*") ? null : f[9])
+                .setAlignedQuality(qualities(f[10]));
+        if (position >= 0) {
+            alignment.setAlignment(LinearAlignment.newBuilder()
+                                             .setPosition(Position.newBuilder()
+                                                                  .setReferenceName(f[2])
+                                                                  .setPosition(position)
+                                                                  .setStrand((flag & 0x10) != 0
+                                                                                     ? Strand.NEG_STRAND
+                                                                                     : Strand.POS_STRAND)
+                                                                  .build())
+                                             .setMappingQuality(mappingQuality)
+                                             .setCigar(cigar(f[5]))
+                                             .build());
+        }
+        if (!f[6].equals("*")) {
+            alignment.setNextMatePosition(position(f[6].equals("=") ? f[2] : f[6], f[7], (flag & 0x20) != 0));
+        }
+        final Map<String, List<String>> info = new LinkedHashMap<>();
+        for (int i = 11; i < f.length; i++) {
+            info.put(f[i].substring(0, 2), Collections.singletonList(f[i].substring(5)));
+        }
+        return alignment.setInfo(info).build();
+    }
+
+    private static Position position(String referenceName, String oneBasedPos, boolean reverse) {
+        return Position.newBuilder()
+                       .setReferenceName(referenceName)
+                       .setPosition(Long.parseLong(oneBasedPos) - 1)
+                       .setStrand(reverse ? Strand.NEG_STRAND : Strand.POS_STRAND)
+                       .build();
+    }
+
+    private static List<Integer> qualities(String qual) {
+        if (qual.equals("*")) {
+            return Collections.emptyList();
+        }
+        final List<Integer> quality = new ArrayList<>(qual.length());
+        for (int i = 0; i < qual.length(); i++) {
+            quality.add(qual.charAt(i) - 33);
+        }
+        return quality;
+    }
+
+    private static List<CigarUnit> cigar(String cigar) {
+        final List<CigarUnit> units = new ArrayList<>();
+        long length = 0;
+        for (int i = 0; i < cigar.length(); i++) {
+            final char c = cigar.charAt(i);
+            if (c >= '0' && c <= '9') {
+                length = length * 10 + (c - '0');
+                continue;
+            }
+            final CigarOperation op;
+            switch (c) {
+                case 'M': op = CigarOperation.ALIGNMENT_MATCH; break;
+                case 'I': op = CigarOperation.INSERT; break;
+                case 'D': op = CigarOperation.DELETE; break;
+                case 'N': op = CigarOperation.SKIP; break;
+                case 'S': op = CigarOperation.CLIP_SOFT; break;
+                case 'H': op = CigarOperation.CLIP_HARD; break;
+                case 'P': op = CigarOperation.PAD; break;
+                case '=': op = CigarOperation.SEQUENCE_MATCH; break;
+                case 'X': op = CigarOperation.SEQUENCE_MISMATCH; break;
+                default: return units; // '*': no CIGAR
+            }
+            units.add(CigarUnit.newBuilder().setOperation(op).setOperationLength(length).build());
+            length = 0;
+        }
+        return units;
+    }
+}
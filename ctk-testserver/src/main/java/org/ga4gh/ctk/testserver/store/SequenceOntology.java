@@ -0,0 +1,51 @@
+package org.ga4gh.ctk.testserver.store;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Maps Sequence Ontology term names to their ids, from <tt>sequence_ontology.txt</tt>,
+ * which has a tab-separated <tt>SO:nnnnnnn name</tt> pair per line.</p>
+ */
+final class SequenceOntology {
+
+    static final String SOURCE_NAME = "sequence_ontology";
+
+    private final Map<String, String> idsByName = new HashMap<>();
+
+    /**
+     * Load the terms from a file; if it doesn't exist, there are none.
+     *
+     * @param file the file
+     * @throws IOException if it can't be read
+     */
+    SequenceOntology(File file) throws IOException {
+        if (!file.isFile()) {
+            return;
+        }
+        try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                final int tab = line.indexOf('\t');
+                if (tab > 0) {
+                    idsByName.putIfAbsent(line.substring(tab + 1).trim(), line.substring(0, tab));
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the id of a term.
+     *
+     * @param name the term's name, e.g. <tt>synonymous_variant</tt>
+     * @return its id, e.g. <tt>SO:0001819</tt>, or null if the term isn't known
+     */
+    String idOf(String name) {
+        return idsByName.get(name);
+    }
+}
@@ -0,0 +1,110 @@
+package org.ga4gh.ctk.testserver.store;
+
+import org.ga4gh.models.Dataset;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * <p>Everything loaded from a test-data directory: one {@link Dataset} holding the read
+ * group sets and variant sets, and the reference sets they're aligned to.</p>
+ * <p>The directory defaults to the <tt>ctk.testserver.data</tt> system property, or else
+ * <tt>test-data</tt> in the working directory or its parent. The dataset's id defaults to
+ * the <tt>ctk.testserver.dataset_id</tt> system property, or else
+ * <tt>compliance-dataset</tt>, which is the id the CTS expects.</p>
+ */
+public class TestDataRepository {
+
+    private static final org.slf4j.Logger log = getLogger(TestDataRepository.class);
+
+    public static final String DATA_PROPERTY = "ctk.testserver.data";
+
+    public static final String DATASET_ID_PROPERTY = "ctk.testserver.dataset_id";
+
+    public static final String DEFAULT_DATASET_ID = "compliance-dataset";
+
+    private final Dataset dataset;
+
+    private final ReferenceStore references;
+
+    private final ReadStore reads;
+
+    private final VariantStore variants;
+
+    private final AnnotationStore annotations;
+
+    private TestDataRepository(Dataset dataset, ReferenceStore references, ReadStore reads,
+                               VariantStore variants, AnnotationStore annotations) {
+        this.dataset = dataset;
+        this.references = references;
+        this.reads = reads;
+        this.variants = variants;
+        this.annotations = annotations;
+    }
+
+    /**
+     * Load a test-data directory.
+     *
+     * @param dir the directory
+     * @return the loaded data
+     * @throws IOException if a file can't be read or is malformed
+     */
+    public static TestDataRepository load(File dir) throws IOException {
+        final long startNanos = System.nanoTime();
+        final String datasetId = System.getProperty(DATASET_ID_PROPERTY, DEFAULT_DATASET_ID);
+        final Dataset dataset = Dataset.newBuilder()
+                                       .setId(datasetId)
+                                       .setName(datasetId)
+                                       .setDescription("loaded from " + dir.getAbsolutePath())
+                                       .build();
+        final ReferenceStore references = new ReferenceStore(dir);
+        final TestDataRepository repository =
+                new TestDataRepository(dataset, references,
+                                       new ReadStore(dir, datasetId, references),
+                                       new VariantStore(dir, datasetId, references),
+                                       new AnnotationStore(dir, datasetId));
+        log.info("loaded " + dir + " in " + (System.nanoTime() - startNanos) / 1_000_000 + " ms");
+        return repository;
+    }
+
+    /**
+     * Return the test-data directory to load when none is given.
+     *
+     * @return the directory
+     * @throws IllegalStateException if it can't be found
+     */
+    public static File defaultDirectory() {
+        final String configured = System.getProperty(DATA_PROPERTY);
+        final File[] candidates = configured != null
+                ? new File[]{new File(configured)}
+                : new File[]{new File("test-data"), new File("../test-data")};
+        for (File candidate : candidates) {
+            if (candidate.isDirectory()) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("can't find test-data; set -D" + DATA_PROPERTY + "=<dir>");
+    }
+
+    public Dataset getDataset() {
+        return dataset;
+    }
+
+    public ReferenceStore getReferences() {
+        return references;
+    }
+
+    public ReadStore getReads() {
+        return reads;
+    }
+
+    public VariantStore getVariants() {
+        return variants;
+    }
+
+    public AnnotationStore getAnnotations() {
+        return annotations;
+    }
+}
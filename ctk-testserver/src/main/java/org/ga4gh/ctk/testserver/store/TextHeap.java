@@ -0,0 +1,51 @@
+package org.ga4gh.ctk.testserver.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Append-only storage for many short ASCII strings, packed into 4MB byte arrays rather
+ * than held as a {@link String} object each.</p>
+ * <p>A string is found again by the address {@link #add(String)} returned and its length.</p>
+ */
+final class TextHeap {
+
+    private static final int CHUNK_SIZE = 1 << 22;
+
+    private final List<byte[]> chunks = new ArrayList<>();
+
+    private byte[] current;
+
+    private int used;
+
+    /**
+     * Store a string.
+     *
+     * @param s the string, in ASCII
+     * @return its address
+     */
+    long add(String s) {
+        final byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+        if (current == null || used + bytes.length > current.length) {
+            current = new byte[Math.max(CHUNK_SIZE, bytes.length)];
+            chunks.add(current);
+            used = 0;
+        }
+        System.arraycopy(bytes, 0, current, used, bytes.length);
+        final long address = ((long) (chunks.size() - 1) << 32) | used;
+        used += bytes.length;
+        return address;
+    }
+
+    /**
+     * Return a stored string.
+     *
+     * @param address the address {@link #add(String)} returned
+     * @param length  the string's length
+     * @return the string
+     */
+    String get(long address, int length) {
+        return new String(chunks.get((int) (address >>> 32)), (int) address, length, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,612 @@
+package org.ga4gh.ctk.testserver.store;
+
+import org.ga4gh.models.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * <p>The variant sets, call sets and variants, held in memory.</p>
+ * <p>Each <tt>*.vcf</tt> file is one variant set, named for the file; its id is
+ * <tt>&lt;dataset id&gt;:&lt;name&gt;</tt>. Each sample column is a call set with id
+ * <tt>&lt;variant set id&gt;:&lt;sample&gt;</tt>, and each record is a variant with id
+ * <tt>&lt;variant set id&gt;:&lt;record number&gt;</tt>, counting from 0.</p>
+ * <p>A variant's end is its start plus the length of its reference bases, whatever its
+ * <tt>END</tt> says. The VCF files must be sorted by position.</p>
+ * <p>Each variant set is held as columns: start positions in a <tt>long[]</tt>, alleles
+ * and reference names as codes into a dictionary, and for each call set its genotypes
+ * bit-packed in a {@link PackedColumn}. The ID and INFO columns, and the sample columns
+ * of any record with FORMAT fields other than <tt>GT</tt>, are kept as text in a
+ * {@link TextHeap}. A {@link Variant} is only built for a record on the page being
+ * returned, with calls for just the call sets asked for.</p>
+ */
+public class VariantStore {
+
+    private static final org.slf4j.Logger log = getLogger(VariantStore.class);
+
+    /**
+     * Strings numbered in the order they were first seen.
+     */
+    private static final class Dictionary {
+
+        final Map<String, Integer> codes = new HashMap<>();
+
+        final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            return codes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+
+        String decode(int code) {
+            return values.get(code);
+        }
+    }
+
+    /**
+     * The records on one reference sequence, which are consecutive rows.
+     */
+    private static final class ReferenceRows {
+
+        final int first;
+
+        final PositionIndex index = new PositionIndex();
+
+        ReferenceRows(int first) {
+            this.first = first;
+        }
+    }
+
+    /**
+     * <p>The variants in one variant set, a row per VCF record.</p>
+     * <p>Rows are {@link #add added} as the records are read, into arrays that grow as they
+     * fill, and the genotype columns are packed again at a greater width whenever a
+     * genotype doesn't fit; then {@link #finish()} trims the arrays to the rows there
+     * are.</p>
+     */
+    private static final class Columns {
+
+        final String id;
+
+        final List<CallSet> callSets = new ArrayList<>();
+
+        final Map<String, Integer> callSetColumns = new HashMap<>();
+
+        final Dictionary alleles = new Dictionary();
+
+        final Dictionary referenceNames = new Dictionary();
+
+        final Map<String, ReferenceRows> byReference = new HashMap<>();
+
+        int size;
+
+        long[] starts = new long[64];
+
+        int[] references = new int[64];
+
+        int[] referenceBases = new int[64];
+
+        /**
+         * The alternate bases of row <tt>r</tt> are <tt>alternateBases[alternates[r]]</tt> up
+         * to <tt>alternateBases[alternates[r + 1]]</tt>.
+         */
+        int[] alternates = new int[65];
+
+        int[] alternateBases = new int[64];
+
+        /**
+         * The address and length of each row's text: <tt>ID</tt> and <tt>INFO</tt>, and
+         * then <tt>FORMAT</tt> and the sample columns if there are FORMAT fields other
+         * than <tt>GT</tt>; tab-separated.
+         */
+        long[] textAddresses = new long[64];
+
+        int[] textLengths = new int[64];
+
+        final TextHeap text = new TextHeap();
+
+        /**
+         * A genotype is packed as a phased bit, then its ploidy (0 if there's no
+         * <tt>GT</tt>), then each allele plus one (0 if it's missing); the widths fit the
+         * greatest ploidy and allele seen so far.
+         */
+        int maxPloidy;
+
+        int maxAllele;
+
+        int ploidyBits = 1;
+
+        int alleleBits = 1;
+
+        /**
+         * Made when the first row is added, once the call sets are known.
+         */
+        PackedColumn[] genotypes;
+
+        Columns(String id) {
+            this.id = id;
+        }
+
+        /**
+         * Add a row for the next record.
+         */
+        void add(String[] f) {
+            final int row = size;
+            if (f.length <= VcfFile.INFO || (!callSets.isEmpty() && f.length < VcfFile.FORMAT + 1 + callSets.size())) {
+                throw new IllegalArgumentException("record " + row + " has " + f.length + " columns");
+            }
+            if (genotypes == null) {
+                startGenotypes();
+            }
+            if (row == starts.length) {
+                resize(row * 2);
+            }
+            final long start = Long.parseLong(f[VcfFile.POS]) - 1;
+            final String referenceName = f[VcfFile.CHROM];
+            ReferenceRows rows = byReference.get(referenceName);
+            if (rows == null) {
+                rows = new ReferenceRows(row);
+                byReference.put(referenceName, rows);
+            } else if (row > 0 && references[row - 1] != referenceNames.encode(referenceName)) {
+                throw new IllegalArgumentException("the records for " + referenceName
+                                                           + " aren't together; the input must be sorted");
+            }
+            rows.index.add(start, start + f[VcfFile.REF].length());
+
+            starts[row] = start;
+            references[row] = referenceNames.encode(referenceName);
+            referenceBases[row] = alleles.encode(f[VcfFile.REF]);
+            int next = alternates[row];
+            if (!f[VcfFile.ALT].equals(".")) {
+                for (String alt : f[VcfFile.ALT].split(",")) {
+                    if (next == alternateBases.length) {
+                        alternateBases = Arrays.copyOf(alternateBases, next * 2);
+                    }
+                    alternateBases[next++] = alleles.encode(alt);
+                }
+            }
+            alternates[row + 1] = next;
+
+            final boolean onlyGenotypes = f.length <= VcfFile.FORMAT || f[VcfFile.FORMAT].equals("GT");
+            final String line = f[VcfFile.ID] + "\t" + f[VcfFile.INFO]
+                    + (onlyGenotypes ? "" : "\t" + String.join("\t", Arrays.asList(f).subList(VcfFile.FORMAT, f.length)));
+            textAddresses[row] = text.add(line);
+            textLengths[row] = line.length();
+
+            // widen the genotype columns for this row's genotypes before packing any of them
+            final int gt = f.length > VcfFile.FORMAT ? Arrays.asList(f[VcfFile.FORMAT].split(":")).indexOf("GT") : -1;
+            final String[] gts = new String[genotypes.length];
+            for (int s = 0; gt >= 0 && s < gts.length; s++) {
+                final String[] values = f[VcfFile.FORMAT + 1 + s].split(":");
+                if (gt < values.length) {
+                    gts[s] = values[gt];
+                    fit(genotype(gts[s]));
+                }
+            }
+            for (int s = 0; s < gts.length; s++) {
+                genotypes[s].set(row, gts[s] == null ? 0 : pack(gts[s]));
+            }
+            size++;
+        }
+
+        /**
+         * Trim the columns to the rows added.
+         */
+        void finish() {
+            if (genotypes == null) {
+                startGenotypes();
+            }
+            resize(size);
+            alternateBases = Arrays.copyOf(alternateBases, alternates[size]);
+        }
+
+        private void startGenotypes() {
+            genotypes = new PackedColumn[callSets.size()];
+            for (int s = 0; s < genotypes.length; s++) {
+                genotypes[s] = new PackedColumn(width(ploidyBits, alleleBits, maxPloidy), starts.length);
+            }
+        }
+
+        private void resize(int capacity) {
+            starts = Arrays.copyOf(starts, capacity);
+            references = Arrays.copyOf(references, capacity);
+            referenceBases = Arrays.copyOf(referenceBases, capacity);
+            alternates = Arrays.copyOf(alternates, capacity + 1);
+            textAddresses = Arrays.copyOf(textAddresses, capacity);
+            textLengths = Arrays.copyOf(textLengths, capacity);
+            for (int s = 0; s < genotypes.length; s++) {
+                genotypes[s] = genotypes[s].resize(capacity);
+            }
+        }
+
+        /**
+         * Make the genotype columns wide enough for a genotype, packing the rows so far
+         * again if they have to get wider.
+         */
+        private void fit(int[] genotype) {
+            int ploidy = Math.max(maxPloidy, genotype.length);
+            int allele = maxAllele;
+            for (int a : genotype) {
+                allele = Math.max(allele, a);
+            }
+            if (ploidy == maxPloidy && allele == maxAllele) {
+                return;
+            }
+            final int newPloidyBits = PackedColumn.bitsFor(ploidy);
+            final int newAlleleBits = PackedColumn.bitsFor(allele + 1);
+            final int width = width(newPloidyBits, newAlleleBits, ploidy);
+            if (width > 64) {
+                throw new IllegalArgumentException("genotypes of ploidy " + ploidy + " with " + allele
+                                                           + " alternate alleles are too big to pack");
+            }
+            if (width != width(ploidyBits, alleleBits, maxPloidy) || newAlleleBits != alleleBits) {
+                for (int s = 0; s < genotypes.length; s++) {
+                    final PackedColumn wider = new PackedColumn(width, genotypes[s].size());
+                    for (int row = 0; row < size; row++) {
+                        final long packed = genotypes[s].get(row);
+                        final int[] called = alleles(packed, ploidyBits, alleleBits);
+                        if (called.length > 0) {
+                            wider.set(row, pack((packed & 1) != 0, called, newPloidyBits, newAlleleBits));
+                        }
+                    }
+                    genotypes[s] = wider;
+                }
+            }
+            maxPloidy = ploidy;
+            maxAllele = allele;
+            ploidyBits = newPloidyBits;
+            alleleBits = newAlleleBits;
+        }
+
+        private long pack(String gt) {
+            return pack(gt.indexOf('|') >= 0, genotype(gt), ploidyBits, alleleBits);
+        }
+
+        private static int width(int ploidyBits, int alleleBits, int maxPloidy) {
+            return 1 + ploidyBits + maxPloidy * alleleBits;
+        }
+
+        private static long pack(boolean phased, int[] genotype, int ploidyBits, int alleleBits) {
+            long packed = phased ? 1 : 0;
+            packed |= (long) genotype.length << 1;
+            for (int i = 0; i < genotype.length; i++) {
+                packed |= (long) (genotype[i] + 1) << (1 + ploidyBits + i * alleleBits);
+            }
+            return packed;
+        }
+
+        private static int[] alleles(long packed, int ploidyBits, int alleleBits) {
+            final int ploidy = (int) ((packed >>> 1) & ((1L << ploidyBits) - 1));
+            final int[] called = new int[ploidy];
+            for (int i = 0; i < ploidy; i++) {
+                called[i] = (int) ((packed >>> (1 + ploidyBits + i * alleleBits)) & ((1L << alleleBits) - 1)) - 1;
+            }
+            return called;
+        }
+
+        /**
+         * Set a call's genotype and phaseset from a genotype column, if it has a <tt>GT</tt>.
+         */
+        void unpack(int row, int column, Call.Builder call) {
+            final long packed = genotypes[column].get(row);
+            final int[] called = alleles(packed, ploidyBits, alleleBits);
+            if (called.length == 0) {
+                return;
+            }
+            final List<Integer> genotype = new ArrayList<>(called.length);
+            for (int allele : called) {
+                genotype.add(allele);
+            }
+            call.setGenotype(genotype)
+                .setPhaseset((packed & 1) != 0 ? "*" : null);
+        }
+
+        String[] text(int row) {
+            return text.get(textAddresses[row], textLengths[row]).split("\t");
+        }
+    }
+
+    /**
+     * Parse a <tt>GT</tt> value into allele indexes, -1 for a missing allele.
+     */
+    private static int[] genotype(String gt) {
+        final String[] alleles = gt.split("[|/]");
+        final int[] genotype = new int[alleles.length];
+        for (int i = 0; i < alleles.length; i++) {
+            genotype[i] = alleles[i].equals(".") ? -1 : Integer.parseInt(alleles[i]);
+        }
+        return genotype;
+    }
+
+    private final Map<String, VariantSet> variantSets = new LinkedHashMap<>();
+
+    private final Map<String, Columns> variants = new HashMap<>();
+
+    private final Map<String, CallSet> callSets = new HashMap<>();
+
+    /**
+     * Load every VCF file in a directory.
+     *
+     * @param dir        the directory
+     * @param datasetId  the id of the dataset the variant sets belong to
+     * @param references the reference sets the variants are called against
+     * @throws IOException if a file can't be read
+     */
+    public VariantStore(File dir, String datasetId, ReferenceStore references) throws IOException {
+        final File[] files = dir.listFiles((d, name) -> name.endsWith(".vcf"));
+        if (files == null) {
+            throw new IOException("can't list " + dir);
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            loadVcf(file, datasetId, references);
+        }
+    }
+
+    /**
+     * Return the id of the variant set loaded from a VCF file.
+     *
+     * @param datasetId the dataset's id
+     * @param vcf       the file
+     * @return the variant set's id
+     */
+    static String variantSetId(String datasetId, File vcf) {
+        return datasetId + ":" + vcf.getName().substring(0, vcf.getName().length() - ".vcf".length());
+    }
+
+    private void loadVcf(File file, String datasetId, ReferenceStore references) throws IOException {
+        try (VcfFile vcf = VcfFile.open(file)) {
+            loadVcf(file, vcf, datasetId, references);
+        }
+    }
+
+    private void loadVcf(File file, VcfFile vcf, String datasetId, ReferenceStore references) throws IOException {
+        final String id = variantSetId(datasetId, file);
+        final Columns set = new Columns(id);
+
+        String referenceSetId = null;
+        final List<VariantSetMetadata> metadata = new ArrayList<>();
+        for (String line : vcf.meta) {
+            final int eq = line.indexOf('=');
+            if (eq < 0) {
+                continue;
+            }
+            final String key = line.substring(0, eq);
+            final String value = line.substring(eq + 1);
+            if (value.startsWith("<")) {
+                final Map<String, String> fields = VcfFile.structured(value);
+                if (key.equals("contig") && referenceSetId == null && fields.containsKey("assembly")
+                        && references.getReferenceSet(fields.get("assembly")) != null) {
+                    referenceSetId = fields.get("assembly");
+                }
+                metadata.add(VariantSetMetadata.newBuilder()
+                                               .setKey(key + "." + fields.getOrDefault("ID", ""))
+                                               .setValue("")
+                                               .setId(fields.getOrDefault("ID", ""))
+                                               .setType(fields.getOrDefault("Type", ""))
+                                               .setNumber(fields.getOrDefault("Number", ""))
+                                               .setDescription(fields.getOrDefault("Description", ""))
+                                               .build());
+            } else {
+                metadata.add(VariantSetMetadata.newBuilder()
+                                               .setKey(key)
+                                               .setValue(value)
+                                               .setId("")
+                                               .setType("")
+                                               .setNumber("")
+                                               .setDescription("")
+                                               .build());
+            }
+        }
+        if (referenceSetId == null) {
+            final Iterator<ReferenceSet> sets = references.getReferenceSets().iterator();
+            referenceSetId = sets.hasNext() ? sets.next().getId() : "";
+        }
+
+        for (String sample : vcf.samples) {
+            final CallSet callSet = CallSet.newBuilder()
+                                           .setId(id + ":" + sample)
+                                           .setName(sample)
+                                           .setSampleId(sample)
+                                           .setVariantSetIds(Collections.singletonList(id))
+                                           .build();
+            set.callSetColumns.put(callSet.getId(), set.callSets.size());
+            set.callSets.add(callSet);
+            callSets.put(callSet.getId(), callSet);
+        }
+
+        try {
+            for (String[] record; (record = vcf.next()) != null; ) {
+                set.add(record);
+            }
+            set.finish();
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IOException(file + ": " + e.getMessage(), e);
+        }
+
+        variantSets.put(id, VariantSet.newBuilder()
+                                      .setId(id)
+                                      .setName(id.substring(datasetId.length() + 1))
+                                      .setDatasetId(datasetId)
+                                      .setReferenceSetId(referenceSetId)
+                                      .setMetadata(metadata)
+                                      .build());
+        variants.put(id, set);
+        log.info("loaded variant set " + file.getName() + " with " + set.callSets.size() + " call sets and "
+                         + set.size + " variants");
+    }
+
+    /**
+     * Build the {@link Variant} for a row, with calls for some of its call sets.
+     *
+     * @param columns the call sets' columns, in order
+     */
+    private static Variant toVariant(Columns set, int row, int[] columns) {
+        final String[] text = set.text(row);
+        final String[] format = text.length > 2 ? text[2].split(":") : null;
+        final List<Call> calls = new ArrayList<>(columns.length);
+        for (int column : columns) {
+            final CallSet callSet = set.callSets.get(column);
+            final Call.Builder call = Call.newBuilder()
+                                          .setCallSetId(callSet.getId())
+                                          .setCallSetName(callSet.getName());
+            set.unpack(row, column, call);
+            final Map<String, List<String>> info = format == null
+                    ? new LinkedHashMap<>() : callInfo(format, text[3 + column], call);
+            calls.add(call.setInfo(info).build());
+        }
+        final String referenceBases = set.alleles.decode(set.referenceBases[row]);
+        final List<String> alternateBases = new ArrayList<>(set.alternates[row + 1] - set.alternates[row]);
+        for (int i = set.alternates[row]; i < set.alternates[row + 1]; i++) {
+            alternateBases.add(set.alleles.decode(set.alternateBases[i]));
+        }
+        return Variant.newBuilder()
+                      .setId(set.id + ":" + row)
+                      .setVariantSetId(set.id)
+                      .setNames(text[0].equals(".")
+                                        ? Collections.<String>emptyList() : Arrays.asList(text[0].split(";")))
+                      .setReferenceName(set.referenceNames.decode(set.references[row]))
+                      .setStart(set.starts[row])
+                      .setEnd(set.starts[row] + referenceBases.length())
+                      .setReferenceBases(referenceBases)
+                      .setAlternateBases(alternateBases)
+                      .setInfo(VcfFile.info(text[1]))
+                      .setCalls(calls)
+                      .build();
+    }
+
+    /**
+     * Set a call's likelihoods from its <tt>GL</tt>, and return its other FORMAT fields
+     * (but <tt>GT</tt>, which is in the genotype column) as its info.
+     */
+    private static Map<String, List<String>> callInfo(String[] format, String sample, Call.Builder call) {
+        final String[] values = sample.split(":");
+        final Map<String, List<String>> info = new LinkedHashMap<>();
+        for (int i = 0; i < format.length && i < values.length; i++) {
+            switch (format[i]) {
+                case "GT":
+                    break;
+                case "GL":
+                    final List<Double> likelihoods = new ArrayList<>();
+                    for (String gl : values[i].split(",")) {
+                        if (!gl.equals(".")) {
+                            likelihoods.add(Double.parseDouble(gl));
+                        }
+                    }
+                    call.setGenotypeLikelihood(likelihoods);
+                    break;
+                default:
+                    info.put(format[i], Arrays.asList(values[i].split(",")));
+                    break;
+            }
+        }
+        return info;
+    }
+
+    /**
+     * Return the variant sets, in the order they were loaded.
+     *
+     * @return the variant sets
+     */
+    public Collection<VariantSet> getVariantSets() {
+        return Collections.unmodifiableCollection(variantSets.values());
+    }
+
+    /**
+     * Return a variant set.
+     *
+     * @param id the variant set's id
+     * @return the variant set, or null if there's none with that id
+     */
+    public VariantSet getVariantSet(String id) {
+        return variantSets.get(id);
+    }
+
+    /**
+     * Return the call sets in a variant set, in sample column order.
+     *
+     * @param variantSetId the variant set's id
+     * @return the call sets, or null if there's no such variant set
+     */
+    public List<CallSet> getCallSets(String variantSetId) {
+        final Columns set = variants.get(variantSetId);
+        return set == null ? null : Collections.unmodifiableList(set.callSets);
+    }
+
+    /**
+     * Return a call set.
+     *
+     * @param id the call set's id
+     * @return the call set, or null if there's none with that id
+     */
+    public CallSet getCallSet(String id) {
+        return callSets.get(id);
+    }
+
+    /**
+     * Return a variant.
+     *
+     * @param id the variant's id
+     * @return the variant, or null if there's none with that id
+     */
+    public Variant getVariant(String id) {
+        final int colon = id.lastIndexOf(':');
+        final Columns set = colon < 0 ? null : variants.get(id.substring(0, colon));
+        if (set == null) {
+            return null;
+        }
+        try {
+            final int row = Integer.parseInt(id.substring(colon + 1));
+            return row >= 0 && row < set.size ? toVariant(set, row, allColumns(set)) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int[] allColumns(Columns set) {
+        final int[] columns = new int[set.callSets.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = i;
+        }
+        return columns;
+    }
+
+    /**
+     * Return a page of the variants in a variant set that overlap a range of a reference,
+     * in order of position.
+     *
+     * @param variantSetId  the variant set's id, which must exist
+     * @param referenceName the name of the reference sequence
+     * @param start         the 0-based start of the range
+     * @param end           the 0-based, exclusive end of the range
+     * @param callSetIds    the call sets to include calls for, or null for all of them;
+     *                      ids not in the variant set are ignored
+     * @param from          where to resume: 0 for the first page, or what the call for the
+     *                      previous page returned
+     * @param limit         the most variants to return
+     * @param page          receives the variants
+     * @return where to resume for the next page, or -1 if this is the last page
+     */
+    public int getVariants(String variantSetId, String referenceName, long start, long end,
+                           Collection<String> callSetIds, int from, int limit, List<Variant> page) {
+        final Columns set = variants.get(variantSetId);
+        final ReferenceRows rows = set.byReference.get(referenceName);
+        if (rows == null) {
+            return -1;
+        }
+        int[] columns = allColumns(set);
+        if (callSetIds != null) {
+            columns = Arrays.stream(columns)
+                            .filter(c -> callSetIds.contains(set.callSets.get(c).getId()))
+                            .toArray();
+        }
+        final int[] projection = columns;
+        return rows.index.forEachOverlap(start, end, from, limit,
+                                         i -> page.add(toVariant(set, rows.first + i, projection)));
+    }
+}
@@ -0,0 +1,172 @@
+package org.ga4gh.ctk.testserver.store;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * <p>A VCF file, read a record at a time: its <tt>##</tt> header lines and its sample
+ * names are read when it's opened, then each {@link #next()} record is split into
+ * columns, so a store builds its own columns as it goes rather than holding every
+ * record's.</p>
+ * <p>This understands as much VCF as the stores need, and no more. Columns are
+ * <tt>CHROM POS ID REF ALT QUAL FILTER INFO [FORMAT sample...]</tt>.</p>
+ */
+final class VcfFile implements Closeable {
+
+    static final int CHROM = 0;
+    static final int POS = 1;
+    static final int ID = 2;
+    static final int REF = 3;
+    static final int ALT = 4;
+    static final int INFO = 7;
+    static final int FORMAT = 8;
+
+    /**
+     * The header lines, without the leading <tt>##</tt>.
+     */
+    final List<String> meta = new ArrayList<>();
+
+    final List<String> samples = new ArrayList<>();
+
+    private final BufferedReader in;
+
+    /**
+     * A record read while looking for the end of the header, if the header had no
+     * <tt>#CHROM</tt> line.
+     */
+    private String[] pending;
+
+    private VcfFile(BufferedReader in) {
+        this.in = in;
+    }
+
+    /**
+     * Open a VCF file and read its header.
+     *
+     * @param file the file
+     * @return the file, ready to read its records
+     * @throws IOException if it can't be read
+     */
+    static VcfFile open(File file) throws IOException {
+        final VcfFile vcf = new VcfFile(Files.newBufferedReader(file.toPath(), StandardCharsets.US_ASCII));
+        try {
+            String line;
+            while ((line = vcf.in.readLine()) != null) {
+                if (line.startsWith("##")) {
+                    vcf.meta.add(line.substring(2));
+                } else if (line.startsWith("#")) {
+                    final String[] header = line.split("\t");
+                    vcf.samples.addAll(Arrays.asList(header).subList(Math.min(FORMAT + 1, header.length),
+                                                                     header.length));
+                    break;
+                } else if (!line.isEmpty()) {
+                    vcf.pending = line.split("\t");
+                    break;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            vcf.close();
+            throw e;
+        }
+        return vcf;
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @return its columns, or null at the end of the file
+     * @throws IOException if it can't be read
+     */
+    String[] next() throws IOException {
+        if (pending != null) {
+            final String[] record = pending;
+            pending = null;
+            return record;
+        }
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (!line.isEmpty()) {
+                return line.split("\t");
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Return the value of a simple <tt>##key=value</tt> header line.
+     *
+     * @param key the key
+     * @return the first value given for it, or null if there's none
+     */
+    String metaValue(String key) {
+        for (String line : meta) {
+            if (line.startsWith(key + "=")) {
+                return line.substring(key.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Split the fields of a structured header value, <tt>&lt;ID=x,Number=1,...&gt;</tt>,
+     * respecting quoted strings.
+     *
+     * @param value the value, with its angle brackets
+     * @return the fields, in order, with quotes removed
+     */
+    static Map<String, String> structured(String value) {
+        final Map<String, String> fields = new LinkedHashMap<>();
+        final String body = value.substring(1, value.endsWith(">") ? value.length() - 1 : value.length());
+        final StringBuilder token = new StringBuilder();
+        String key = null;
+        boolean quoted = false;
+        for (int i = 0; i <= body.length(); i++) {
+            final char c = i < body.length() ? body.charAt(i) : ',';
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == '=' && !quoted && key == null) {
+                key = token.toString();
+                token.setLength(0);
+            } else if (c == ',' && !quoted) {
+                if (key != null) {
+                    fields.put(key, token.toString());
+                }
+                key = null;
+                token.setLength(0);
+            } else {
+                token.append(c);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Parse an INFO column into a map, the way GA4GH objects hold it: each value split on
+     * commas, and flags given an empty list.
+     *
+     * @param info the INFO column
+     * @return the map
+     */
+    static Map<String, List<String>> info(String info) {
+        final Map<String, List<String>> map = new LinkedHashMap<>();
+        if (info.equals(".")) {
+            return map;
+        }
+        for (String entry : info.split(";")) {
+            final int eq = entry.indexOf('=');
+            map.put(eq < 0 ? entry : entry.substring(0, eq),
+                    eq < 0 ? Collections.<String>emptyList() : Arrays.asList(entry.substring(eq + 1).split(",")));
+        }
+        return map;
+    }
+}
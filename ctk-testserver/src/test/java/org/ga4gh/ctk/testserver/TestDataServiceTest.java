@@ -0,0 +1,183 @@
+package org.ga4gh.ctk.testserver;
+
+import org.ga4gh.ctk.testserver.store.TestDataRepository;
+import org.ga4gh.ctk.transport.GAWrapperException;
+import org.ga4gh.ctk.transport.URLMAPPING;
+import org.ga4gh.methods.*;
+import org.ga4gh.models.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestDataService Tester, against the bundled test-data.
+ */
+public class TestDataServiceTest {
+
+    private static TestDataService service;
+
+    @BeforeClass
+    public static void load() throws Exception {
+        service = new TestDataService(TestDataRepository.load(TestDataRepository.defaultDirectory()),
+                                      URLMAPPING.getInstance());
+    }
+
+    private static int statusOf(GAException e) {
+        return ((GAWrapperException) e).getHttpStatusCode();
+    }
+
+    /**
+     * The reference set's checksum is computed from its references' bases.
+     */
+    @Test
+    public void testReferenceSet() throws Exception {
+        final SearchReferenceSetsResponse response = (SearchReferenceSetsResponse)
+                service.post("referencesets/search",
+                             SearchReferenceSetsRequest.newBuilder().setAssemblyId("hg37").build());
+
+        assertEquals(1, response.getReferenceSets().size());
+        assertEquals("12827085103f42e97428dc05a7f26fec", response.getReferenceSets().get(0).getMd5checksum());
+        assertNull(response.getNextPageToken());
+    }
+
+    /**
+     * Bases come back for a range inside the reference, and 416 for one outside it.
+     */
+    @Test
+    public void testBases() throws Exception {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("start", 0L);
+        params.put("end", 10L);
+        final ListReferenceBasesResponse bases = (ListReferenceBasesResponse)
+                service.get("references/{id}/bases", "hg37:ref_brca1", params);
+        assertEquals(10, bases.getSequence().length());
+
+        params.put("end", "81189"); // as it arrives over HTTP
+        try {
+            service.get("references/{id}/bases", "hg37:ref_brca1", params);
+            fail("expected a GAException");
+        } catch (GAException e) {
+            assertEquals(416, statusOf(e));
+        }
+    }
+
+    /**
+     * Reads are found by overlap, and paged by offset.
+     */
+    @Test
+    public void testReadsPaging() throws Exception {
+        final String readGroupId = "compliance-dataset:HG00096:SRR062641";
+        final SearchReadsRequest request = SearchReadsRequest.newBuilder()
+                                                             .setReadGroupIds(Collections.singletonList(readGroupId))
+                                                             .setReferenceId("hg37:ref_brca1")
+                                                             .setStart(0L)
+                                                             .setEnd(200L)
+                                                             .setPageSize(1)
+                                                             .build();
+        final SearchReadsResponse first = (SearchReadsResponse) service.post("reads/search", request);
+        assertEquals(1, first.getAlignments().size());
+        assertEquals(35L, (long) first.getAlignments().get(0).getAlignment().getPosition().getPosition());
+        assertEquals("1", first.getNextPageToken());
+    }
+
+    /**
+     * Searching over other than one read group isn't implemented; an unknown one isn't found.
+     */
+    @Test
+    public void testReadsErrors() throws Exception {
+        try {
+            service.post("reads/search", SearchReadsRequest.newBuilder()
+                                                           .setReadGroupIds(Collections.<String>emptyList())
+                                                           .build());
+            fail("expected a GAException");
+        } catch (GAException e) {
+            assertEquals(501, statusOf(e));
+        }
+        try {
+            service.post("reads/search", SearchReadsRequest.newBuilder()
+                                                           .setReadGroupIds(Collections.singletonList("nope"))
+                                                           .build());
+            fail("expected a GAException");
+        } catch (GAException e) {
+            assertEquals(404, statusOf(e));
+        }
+    }
+
+    /**
+     * Variants are found by overlap, and can be restricted to some call sets.
+     */
+    @Test
+    public void testVariants() throws Exception {
+        final String variantSetId = "compliance-dataset:brca1_1kgPhase3_variants";
+        final SearchVariantsResponse response = (SearchVariantsResponse)
+                service.post("variants/search",
+                             SearchVariantsRequest.newBuilder()
+                                                  .setVariantSetId(variantSetId)
+                                                  .setReferenceName("ref_brca1")
+                                                  .setStart(50L)
+                                                  .setEnd(100L)
+                                                  .setCallSetIds(Collections.singletonList(variantSetId + ":HG00099"))
+                                                  .build());
+
+        assertEquals(6, response.getVariants().size());
+        for (Variant variant : response.getVariants()) {
+            assertEquals(1, variant.getCalls().size());
+            assertEquals("HG00099", variant.getCalls().get(0).getCallSetName());
+            assertEquals(variant.getId(), ((Variant) service.get("variants/{id}", variant.getId(), null)).getId());
+        }
+    }
+
+    /**
+     * A page token resumes the variant search, and genotypes come back as loaded.
+     */
+    @Test
+    public void testVariantsPaging() throws Exception {
+        final SearchVariantsRequest request =
+                SearchVariantsRequest.newBuilder()
+                                     .setVariantSetId("compliance-dataset:brca1_1kgPhase3_variants")
+                                     .setReferenceName("ref_brca1")
+                                     .setStart(50L)
+                                     .setEnd(100L)
+                                     .setPageSize(4)
+                                     .build();
+        final SearchVariantsResponse first = (SearchVariantsResponse) service.post("variants/search", request);
+        assertEquals(4, first.getVariants().size());
+        assertEquals(Arrays.asList(0, 1), first.getVariants().get(3).getCalls().get(0).getGenotype());
+        assertNotNull(first.getNextPageToken());
+
+        request.setPageToken(first.getNextPageToken());
+        final SearchVariantsResponse second = (SearchVariantsResponse) service.post("variants/search", request);
+        assertEquals(2, second.getVariants().size());
+        assertEquals(98L, (long) second.getVariants().get(1).getStart());
+        assertNull(second.getNextPageToken());
+    }
+
+    /**
+     * Annotations carry their SnpEff transcript effects, with Sequence Ontology ids.
+     */
+    @Test
+    public void testAnnotations() throws Exception {
+        final SearchVariantAnnotationsResponse response = (SearchVariantAnnotationsResponse)
+                service.post("variantannotations/search",
+                             SearchVariantAnnotationsRequest.newBuilder()
+                                                            .setVariantAnnotationSetId(
+                                                                    "compliance-dataset:brca1_OR4F_annotation:annotations")
+                                                            .setReferenceName("1")
+                                                            .setStart(69540L)
+                                                            .setEnd(69541L)
+                                                            .build());
+
+        assertEquals(1, response.getVariantAnnotations().size());
+        final TranscriptEffect effect = response.getVariantAnnotations().get(0).getTranscriptEffects().get(0);
+        assertEquals("NM_001005484.1", effect.getFeatureId());
+        assertEquals("SO:0001583", effect.getEffects().get(0).getId());
+        assertEquals("1:g.69541A>G", effect.getHgvsAnnotation().getGenomic());
+        assertEquals(150, (int) effect.getProteinLocation().getStart());
+    }
+}
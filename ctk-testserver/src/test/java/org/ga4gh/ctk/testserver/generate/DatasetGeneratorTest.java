@@ -0,0 +1,94 @@
+package org.ga4gh.ctk.testserver.generate;
+
+import org.ga4gh.ctk.testserver.store.TestDataRepository;
+import org.ga4gh.models.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * DatasetGenerator Tester.
+ */
+public class DatasetGeneratorTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /**
+     * The generated files load, and every read differs from the reference only where its
+     * sample has an alternate allele.
+     */
+    @Test
+    public void testConsistent() throws Exception {
+        final File dir = tmp.newFolder();
+        new DatasetGenerator(dir, "syn", "syn1", 0.1, 3, 2, 4).generate();
+        final TestDataRepository data = TestDataRepository.load(dir);
+
+        final Reference reference = data.getReferences().getReference("syn1:ref_syn1");
+        assertEquals(100000L, (long) reference.getLength());
+        final String bases = data.getReferences().getBases(reference.getId(), 0, reference.getLength());
+
+        final String variantSetId = data.getDataset().getId() + ":syn_seed3_variants";
+        final List<Variant> variants = new ArrayList<>();
+        assertEquals(-1, data.getVariants().getVariants(variantSetId, "ref_syn1", 0, reference.getLength(), null,
+                                                        0, Integer.MAX_VALUE, variants));
+        assertFalse(variants.isEmpty());
+        final Map<Long, Variant> byPosition = new HashMap<>();
+        for (Variant variant : variants) {
+            assertEquals(bases.substring(variant.getStart().intValue(), variant.getEnd().intValue()),
+                         variant.getReferenceBases());
+            byPosition.put(variant.getStart(), variant);
+        }
+
+        assertEquals(2, data.getReads().getReadGroupSets().size());
+        for (ReadGroupSet readGroupSet : data.getReads().getReadGroupSets()) {
+            for (ReadGroup readGroup : readGroupSet.getReadGroups()) {
+                final List<ReadAlignment> reads = new ArrayList<>();
+                data.getReads().getReads(readGroup.getId(), "ref_syn1", 0, reference.getLength(),
+                                         0, Integer.MAX_VALUE, reads);
+                assertFalse(reads.isEmpty());
+                for (ReadAlignment read : reads) {
+                    final int start = read.getAlignment().getPosition().getPosition().intValue();
+                    final String sequence = read.getAlignedSequence();
+                    for (int i = 0; i < sequence.length(); i++) {
+                        if (sequence.charAt(i) != bases.charAt(start + i)) {
+                            final Variant variant = byPosition.get((long) start + i);
+                            assertNotNull(read.getId() + " differs at " + (start + i), variant);
+                            assertEquals(variant.getAlternateBases().get(0), sequence.substring(i, i + 1));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The same seed makes the same files.
+     */
+    @Test
+    public void testRepeatable() throws Exception {
+        final File first = tmp.newFolder();
+        final File second = tmp.newFolder();
+        new DatasetGenerator(first, "syn", "syn1", 0.01, 5, 1, 2).generate();
+        new DatasetGenerator(second, "syn", "syn1", 0.01, 5, 1, 2).generate();
+        final String[] names = sortedNames(first);
+        assertArrayEquals(names, sortedNames(second));
+        for (String name : names) {
+            assertArrayEquals(name, Files.readAllBytes(new File(first, name).toPath()),
+                              Files.readAllBytes(new File(second, name).toPath()));
+        }
+    }
+
+    private static String[] sortedNames(File dir) {
+        final String[] names = dir.list();
+        assertNotNull(names);
+        Arrays.sort(names);
+        return names;
+    }
+}
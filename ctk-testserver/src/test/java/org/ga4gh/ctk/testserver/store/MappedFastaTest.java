@@ -0,0 +1,89 @@
+package org.ga4gh.ctk.testserver.store;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * MappedFasta Tester.
+ */
+public class MappedFastaTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File write(String name, String contents) throws IOException {
+        final File file = tmp.newFile(name);
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+
+    /**
+     * Ranges across line breaks (including CRLFs) come back joined and upper-cased, from
+     * a built index and from the written one alike.
+     */
+    @Test
+    public void testBasesAcrossLines() throws Exception {
+        final File file = write("two.fa", ">one first\r\nACGTa\r\ncgtAC\r\nGT\r\n>two\nTTTT\nGG\n");
+        try (MappedFasta fasta = MappedFasta.open(file)) {
+            assertEquals(12, fasta.getEntry("one").getLength());
+            assertEquals(6, fasta.getEntry("two").getLength());
+            assertEquals("GTACGTACG", fasta.getBases("one", 2, 11));
+            assertEquals("TTGG", fasta.getBases("two", 2, 6));
+            assertEquals("", fasta.getBases("one", 12, 12));
+            fasta.writeIndex();
+        }
+        try (MappedFasta fasta = MappedFasta.open(file)) {
+            assertEquals("ACGTACGTACGT", fasta.getBases("one", 0, 12));
+        }
+    }
+
+    /**
+     * The checksum is over the upper-cased bases, without line breaks.
+     */
+    @Test
+    public void testMd5() throws Exception {
+        try (MappedFasta fasta = MappedFasta.open(write("one.fa", ">s\nacgtacgt\nacg\n"))) {
+            assertEquals(ReferenceStore.md5("ACGTACGTACG".getBytes(StandardCharsets.US_ASCII)), fasta.md5("s"));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testRangeOutside() throws Exception {
+        try (MappedFasta fasta = MappedFasta.open(write("one.fa", ">s\nACGT\n"))) {
+            fasta.getBases("s", 0, 5);
+        }
+    }
+
+    /**
+     * A short line before the last can't be indexed.
+     */
+    @Test(expected = IOException.class)
+    public void testUnevenLines() throws Exception {
+        MappedFasta.open(write("uneven.fa", ">s\nACGT\nAC\nACGT\n")).close();
+    }
+
+    /**
+     * Nor can an empty line before the last, as samtools faidx would say; but trailing ones are fine.
+     */
+    @Test
+    public void testEmptyLines() throws Exception {
+        try {
+            MappedFasta.open(write("gap.fa", ">s\nACGT\n\nACGT\n")).close();
+            fail("an empty line inside a sequence was indexed");
+        } catch (IOException expected) {
+            // the next line can't be found from the line length
+        }
+        try (MappedFasta fasta = MappedFasta.open(write("trailing.fa", ">s\nACGT\nAC\n\n>t\nGG\n\n"))) {
+            assertEquals("ACGTAC", fasta.getBases("s", 0, 6));
+            assertEquals("GG", fasta.getBases("t", 0, 2));
+        }
+    }
+}
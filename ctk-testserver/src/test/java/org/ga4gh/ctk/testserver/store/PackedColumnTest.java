@@ -0,0 +1,70 @@
+package org.ga4gh.ctk.testserver.store;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * PackedColumn Tester.
+ */
+public class PackedColumnTest {
+
+    /**
+     * Values of every width survive being packed, including those straddling two words.
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        final Random random = new Random(42);
+        for (int bits = 1; bits <= 64; bits++) {
+            final long mask = bits == 64 ? -1L : (1L << bits) - 1;
+            final PackedColumn column = new PackedColumn(bits, 100);
+            final long[] expected = new long[100];
+            for (int i = 0; i < 400; i++) {
+                final int index = random.nextInt(100);
+                expected[index] = random.nextLong() & mask;
+                column.set(index, expected[index]);
+            }
+            for (int i = 0; i < 100; i++) {
+                assertEquals("width " + bits + ", value " + i, expected[i], column.get(i));
+            }
+        }
+    }
+
+    /**
+     * A resized column keeps the values that still fit, and is zero past the old end.
+     */
+    @Test
+    public void testResize() throws Exception {
+        final PackedColumn column = new PackedColumn(7, 10);
+        for (int i = 0; i < 10; i++) {
+            column.set(i, i + 100);
+        }
+        final PackedColumn longer = column.resize(100);
+        assertEquals(100, longer.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i + 100, longer.get(i));
+        }
+        assertEquals(0, longer.get(10));
+        assertEquals(0, longer.get(99));
+
+        final PackedColumn shorter = longer.resize(3);
+        assertEquals(3, shorter.size());
+        assertEquals(102, shorter.get(2));
+        assertEquals(0, shorter.resize(10).get(3));
+    }
+
+    @Test
+    public void testBitsFor() throws Exception {
+        assertEquals(1, PackedColumn.bitsFor(0));
+        assertEquals(1, PackedColumn.bitsFor(1));
+        assertEquals(2, PackedColumn.bitsFor(3));
+        assertEquals(3, PackedColumn.bitsFor(4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooWide() throws Exception {
+        new PackedColumn(3, 10).set(0, 8);
+    }
+}
@@ -0,0 +1,61 @@
+package org.ga4gh.ctk.testserver.store;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * PositionIndex Tester.
+ */
+public class PositionIndexTest {
+
+    private static List<Integer> overlaps(PositionIndex index, long start, long end) {
+        final List<Integer> found = new ArrayList<>();
+        index.forEachOverlap(start, end, found::add);
+        return found;
+    }
+
+    /**
+     * A long feature is found by queries well past the bin it starts in.
+     */
+    @Test
+    public void testLongFeature() throws Exception {
+        final PositionIndex index = new PositionIndex();
+        index.add(10, 100000);
+        index.add(20, 30);
+        index.add(70000, 70010);
+        assertEquals(Arrays.asList(0, 2), overlaps(index, 70005, 70006));
+        assertEquals(Arrays.asList(0, 1), overlaps(index, 25, 26));
+        assertEquals(Arrays.asList(0), overlaps(index, 99999, 200000));
+        assertEquals(Arrays.asList(), overlaps(index, 100000, 200000));
+    }
+
+    /**
+     * Resuming from the returned index picks up exactly where the last page stopped.
+     */
+    @Test
+    public void testResume() throws Exception {
+        final PositionIndex index = new PositionIndex();
+        for (int i = 0; i < 10; i++) {
+            index.add(i * 10, i * 10 + 5);
+        }
+        final List<Integer> page = new ArrayList<>();
+        final int next = index.forEachOverlap(22, 80, 0, 3, page::add);
+        assertEquals(Arrays.asList(3, 4, 5), page);
+        assertEquals(6, next);
+        page.clear();
+        assertEquals(-1, index.forEachOverlap(22, 80, next, 3, page::add));
+        assertEquals(Arrays.asList(6, 7), page);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsorted() throws Exception {
+        final PositionIndex index = new PositionIndex();
+        index.add(10, 20);
+        index.add(5, 20);
+    }
+}
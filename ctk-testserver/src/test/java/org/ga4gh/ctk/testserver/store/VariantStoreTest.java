@@ -0,0 +1,66 @@
+package org.ga4gh.ctk.testserver.store;
+
+import org.ga4gh.models.Variant;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * VariantStore Tester.
+ */
+public class VariantStoreTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private VariantStore load(String... records) throws Exception {
+        final List<String> lines = new ArrayList<>(Arrays.asList(
+                "##fileformat=VCFv4.1",
+                "##FORMAT=<ID=GT,Number=1,Type=String,Description=\"Genotype\">",
+                "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tA\tB"));
+        lines.addAll(Arrays.asList(records));
+        Files.write(new File(tmp.getRoot(), "sample.vcf").toPath(), lines, StandardCharsets.US_ASCII);
+        return new VariantStore(tmp.getRoot(), "ds", new ReferenceStore(tmp.getRoot()));
+    }
+
+    private static String record(int pos, String alt, String a, String b) {
+        return "1\t" + pos + "\t.\tA\t" + alt + "\t.\tPASS\t.\tGT\t" + a + "\t" + b;
+    }
+
+    /**
+     * Genotypes packed before a wider one turns up still read back as loaded.
+     */
+    @Test
+    public void testGenotypesWiden() throws Exception {
+        final List<String> records = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            records.add(record(i + 1, "C", "0|1", "./."));
+        }
+        records.add(record(101, "C,G,T,AC,AG,AT,CA", "7/7/0", "1|."));
+        records.add(record(102, ".", "0", "1/0"));
+        final VariantStore store = load(records.toArray(new String[records.size()]));
+
+        final Variant first = store.getVariant("ds:sample:0");
+        assertEquals(Arrays.asList(0, 1), first.getCalls().get(0).getGenotype());
+        assertEquals("*", first.getCalls().get(0).getPhaseset());
+        assertEquals(Arrays.asList(-1, -1), first.getCalls().get(1).getGenotype());
+        assertNull(first.getCalls().get(1).getPhaseset());
+        assertEquals(Arrays.asList(0, 1), store.getVariant("ds:sample:99").getCalls().get(0).getGenotype());
+
+        final Variant wide = store.getVariant("ds:sample:100");
+        assertEquals(7, wide.getAlternateBases().size());
+        assertEquals(Arrays.asList(7, 7, 0), wide.getCalls().get(0).getGenotype());
+        assertEquals(Arrays.asList(1, -1), wide.getCalls().get(1).getGenotype());
+        assertEquals(Arrays.asList(0), store.getVariant("ds:sample:101").getCalls().get(0).getGenotype());
+        assertNull(store.getVariant("ds:sample:102"));
+    }
+}
@@ -1,21 +1,28 @@
 package org.ga4gh.ctk.transport;
 
 import java.io.UnsupportedEncodingException;
-import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
 import java.nio.charset.UnsupportedCharsetException;
 
 /**
  * This class is used to encode a string using the format required by <a
  * href="http://tools.ietf.org/html/rfc3986">RFC 3986</a>.
+ * <p>
+ * Both directions are a single pass over the string, using the character
+ * tables in {@link UrlCodec}; a string with nothing to encode or decode is
+ * returned as is.
  *
  * @author <a href="https://github.com/juliuss">julius schorzman</a>
  */
 public class FragmentEncoder {
 
-  static final String digits = "0123456789ABCDEF";
+  /**
+   * The characters left as they are: letters, digits and
+   * <tt>.-*_!$&'()+,;=~:@/?</tt>.
+   */
+  private static final int SAFE = UrlCodec.ALNUM | UrlCodec.FRAGMENT;
 
   /**
    * Prevents this class from being instantiated.
@@ -46,45 +53,52 @@ public class FragmentEncoder {
     if (s == null || enc == null) {
       throw new NullPointerException();
     }
-    // check for UnsupportedEncodingException
-    "".getBytes(enc);
+    final Charset charset = charsetFor(enc);
+    if (charset == StandardCharsets.UTF_8) {
+      return UrlCodec.encode(s, SAFE, true);
+    }
 
     // Guess a bit bigger for encoded form
     StringBuilder buf = new StringBuilder(s.length() + 16);
     int start = -1;
     for (int i = 0; i < s.length(); i++) {
       char ch = s.charAt(i);
-      if ((ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9') || " .-*_!$&'()+,;=~:@/?".indexOf(ch) > -1) {
+      if (ch == ' ' || UrlCodec.is(ch, SAFE)) {
         if (start >= 0) {
-          convert(s.substring(start, i), buf, enc);
+          convert(s.substring(start, i), buf, charset);
           start = -1;
         }
-        if (ch != ' ') {
-          buf.append(ch);
-        } else {
-          buf.append('+');
-        }
-      } else {
-        if (start < 0) {
-          start = i;
-        }
+        buf.append(ch == ' ' ? '+' : ch);
+      } else if (start < 0) {
+        start = i;
       }
     }
     if (start >= 0) {
-      convert(s.substring(start, s.length()), buf, enc);
+      convert(s.substring(start), buf, charset);
     }
     return buf.toString();
   }
 
-  private static void convert(String s, StringBuilder buf, String enc) throws UnsupportedEncodingException {
-    byte[] bytes = s.getBytes(enc);
-    for (int j = 0; j < bytes.length; j++) {
-      buf.append('%');
-      buf.append(digits.charAt((bytes[j] & 0xf0) >> 4));
-      buf.append(digits.charAt(bytes[j] & 0xf));
+  private static void convert(String s, StringBuilder buf, Charset charset) {
+    for (byte b : s.getBytes(charset)) {
+      UrlCodec.appendEscaped(b, buf);
+    }
+  }
+
+  private static Charset charsetFor(String encoding) throws UnsupportedEncodingException {
+    if (encoding.isEmpty()) {
+      throw new UnsupportedEncodingException(encoding);
+    }
+    if ("UTF-8".equalsIgnoreCase(encoding)) {
+      return StandardCharsets.UTF_8;
+    }
+    try {
+      return Charset.forName(encoding);
+    } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+      throw (UnsupportedEncodingException) (new UnsupportedEncodingException(encoding).initCause(e));
     }
   }
-  
+
   /**
    * Decodes the argument which is assumed to be encoded in the {@code
    * x-www-form-urlencoded} MIME content type using the specified encoding
@@ -108,76 +122,6 @@ public class FragmentEncoder {
       if (encoding == null) {
           throw new NullPointerException();
       }
-      if (encoding.isEmpty()) {
-          throw new UnsupportedEncodingException(encoding);
-      }
-
-      if (s.indexOf('%') == -1) {
-          if (s.indexOf('+') == -1)
-              return s;
-          char[] str = s.toCharArray();
-          for (int i = 0; i < str.length; i++) {
-              if (str[i] == '+')
-                  str[i] = ' ';
-          }
-          return new String(str);
-      }
-
-      Charset charset = null;
-      try {
-          charset = Charset.forName(encoding);
-      } catch (IllegalCharsetNameException e) {
-          throw (UnsupportedEncodingException) (new UnsupportedEncodingException(
-                  encoding).initCause(e));
-      } catch (UnsupportedCharsetException e) {
-          throw (UnsupportedEncodingException) (new UnsupportedEncodingException(
-                  encoding).initCause(e));
-      }
-
-      return decode(s, charset);
-  }
-
-  private static String decode(String s, Charset charset) {
-
-      char[] str_buf = new char[s.length()];
-      byte[] buf = new byte[s.length() / 3];
-      int buf_len = 0;
-
-      for (int i = 0; i < s.length();) {
-          char c = s.charAt(i);
-          if (c == '+') {
-              str_buf[buf_len] = ' ';
-          } else if (c == '%') {
-
-              int len = 0;
-              do {
-                  if (i + 2 >= s.length()) {
-                      throw new IllegalArgumentException(
-                              "Incomplete % sequence at: " + i);
-                  }
-                  int d1 = Character.digit(s.charAt(i + 1), 16);
-                  int d2 = Character.digit(s.charAt(i + 2), 16);
-                  if (d1 == -1 || d2 == -1) {
-                      throw new IllegalArgumentException(
-                              "Invalid % sequence "
-                                      + s.substring(i, i + 3)
-                                      + " at " + i);
-                  }
-                  buf[len++] = (byte) ((d1 << 4) + d2);
-                  i += 3;
-              } while (i < s.length() && s.charAt(i) == '%');
-
-              CharBuffer cb = charset.decode(ByteBuffer.wrap(buf, 0, len));
-              len = cb.length();
-              System.arraycopy(cb.array(), 0, str_buf, buf_len, len);
-              buf_len += len;
-              continue;
-          } else {
-              str_buf[buf_len] = c;
-          }
-          i++;
-          buf_len++;
-      }
-      return new String(str_buf, 0, buf_len);
+      return UrlCodec.decode(s, 0, s.length(), true, charsetFor(encoding));
   }
-}
\ No newline at end of file
+}
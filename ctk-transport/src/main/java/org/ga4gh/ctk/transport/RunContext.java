@@ -0,0 +1,262 @@
+package org.ga4gh.ctk.transport;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Supplier;
+
+/**
+ * <p>The settings of one test run: the target server's endpoints (<tt>ctk.tgt.*</tt>), the
+ * dataset to test against (<tt>ctk.tgt.dataset_id</tt>) and the transport's pool and
+ * timeouts (<tt>ctk.transport.*</tt>).</p>
+ * <p>A run binds its context to the thread it runs on (and to threads that thread starts)
+ * with {@link #call(Callable)} or {@link #run(Runnable)}. Anything that would otherwise read
+ * a Java system property - {@link URLMAPPING#getInstance()},
+ * {@link org.ga4gh.ctk.transport.http.HttpTransports}, the tests' dataset id - reads it
+ * through {@link #property(String)} instead, so several runs against different servers can
+ * share a JVM. With no context bound, or for a key the context doesn't set, the system
+ * properties are used as before.</p>
+ * <p>Threads that live longer than a run must not keep its context: the transports create
+ * their I/O, timer and worker threads with no context bound (see {@link #unbound(Supplier)}),
+ * and a {@link ForkJoinWorkerThread} (e.g. of the common pool) never sees a context it
+ * merely inherited, only one bound on it with {@link #run(Runnable)} or {@link #call(Callable)}.</p>
+ * <p>Things worked out from a context's settings, such as the transport configuration, can
+ * be kept with it (see {@link #computeIfAbsent(Class, Supplier)}) rather than worked out
+ * again on every request.</p>
+ */
+public final class RunContext {
+
+    /**
+     * The property naming the dataset under test.
+     */
+    public static final String DATASET_ID = "ctk.tgt.dataset_id";
+
+    private static final InheritableThreadLocal<Binding> current = new InheritableThreadLocal<Binding>() {
+        @Override
+        protected Binding childValue(Binding parent) {
+            return parent.inherited ? parent : new Binding(parent.context, true);
+        }
+    };
+
+    private final Properties properties;
+
+    /**
+     * What's been worked out from this context's settings, by type.
+     */
+    private final ConcurrentMap<Class<?>, Object> derived = new ConcurrentHashMap<>();
+
+    /**
+     * Create a context.
+     *
+     * @param properties the run's settings; copied
+     */
+    public RunContext(Properties properties) {
+        this.properties = new Properties();
+        for (String key : properties.stringPropertyNames()) {
+            this.properties.setProperty(key, properties.getProperty(key));
+        }
+    }
+
+    /**
+     * Create a context for a run against a server.
+     *
+     * @param urls      the server's endpoints, and the transport to reach it with
+     * @param datasetId the dataset to test against; may be null
+     * @param transport <tt>ctk.transport.*</tt> settings; may be null
+     * @return the context
+     */
+    public static RunContext of(URLMAPPING urls, String datasetId, Properties transport) {
+        final Properties props = new Properties();
+        for (Map.Entry<String, String> endpoint : urls.getEndpoints().entrySet()) {
+            if (endpoint.getKey() != null && endpoint.getValue() != null) {
+                props.setProperty(endpoint.getKey(), endpoint.getValue());
+            }
+        }
+        if (transport != null) {
+            for (String key : transport.stringPropertyNames()) {
+                props.setProperty(key, transport.getProperty(key));
+            }
+        }
+        if (datasetId != null) {
+            props.setProperty(DATASET_ID, datasetId);
+        }
+        return new RunContext(props);
+    }
+
+    /**
+     * Return the context bound to this thread.
+     *
+     * @return the context, or null if there's none
+     */
+    public static RunContext current() {
+        final Binding binding = current.get();
+        if (binding == null || binding.inherited && Thread.currentThread() instanceof ForkJoinWorkerThread) {
+            return null;
+        }
+        return binding.context;
+    }
+
+    /**
+     * Do something with no context bound to the current thread, e.g. start a thread that
+     * will outlive the run, then put back whatever was bound before.
+     *
+     * @param task what to do
+     * @param <T>  the type of its result
+     * @return its result
+     */
+    public static <T> T unbound(Supplier<T> task) {
+        final Binding previous = current.get();
+        current.remove();
+        try {
+            return task.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Return something worked out from this context's settings, working it out the first
+     * time it's asked for.
+     *
+     * @param type   what it is; there's one of each type per context
+     * @param create works it out
+     * @param <T>    its type
+     * @return the one kept with this context
+     */
+    public <T> T computeIfAbsent(Class<T> type, Supplier<? extends T> create) {
+        return type.cast(derived.computeIfAbsent(type, k -> create.get()));
+    }
+
+    /**
+     * Look up a setting in the current context, falling back to the system properties.
+     *
+     * @param key the property name
+     * @return its value, or null if it has none
+     */
+    public static String property(String key) {
+        final RunContext context = current();
+        if (context != null && context.properties.containsKey(key)) {
+            return context.properties.getProperty(key);
+        }
+        return System.getProperty(key);
+    }
+
+    /**
+     * Return the system properties, overridden by the current context's settings.
+     *
+     * @return a new Properties object
+     */
+    public static Properties properties() {
+        final Properties props = new Properties();
+        final Properties system = System.getProperties();
+        for (String key : system.stringPropertyNames()) {
+            props.setProperty(key, system.getProperty(key));
+        }
+        final RunContext context = current();
+        if (context != null) {
+            props.putAll(context.properties);
+        }
+        return props;
+    }
+
+    /**
+     * Return this context's settings whose names start with a prefix.
+     *
+     * @param prefix the prefix, e.g. <tt>ctk.tgt.</tt>
+     * @return a new Properties object
+     */
+    public Properties getProperties(String prefix) {
+        final Properties props = new Properties();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(prefix)) {
+                props.setProperty(key, properties.getProperty(key));
+            }
+        }
+        return props;
+    }
+
+    /**
+     * Return one of this context's settings.
+     *
+     * @param key the property name
+     * @return its value, or null if this context doesn't set it
+     */
+    public String getProperty(String key) {
+        return properties.getProperty(key);
+    }
+
+    /**
+     * Return the dataset this context's run tests against.
+     *
+     * @return the dataset id, or null if it isn't set
+     */
+    public String getDatasetId() {
+        return properties.getProperty(DATASET_ID);
+    }
+
+    /**
+     * Do something with this context bound to the current thread, then put back
+     * whatever was bound before.
+     *
+     * @param task what to do
+     * @param <T>  the type of its result
+     * @return its result
+     * @throws Exception if the task does
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        final Binding previous = current.get();
+        current.set(new Binding(this, false));
+        try {
+            return task.call();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Do something with this context bound to the current thread, then put back
+     * whatever was bound before.
+     *
+     * @param task what to do
+     */
+    public void run(Runnable task) {
+        final Binding previous = current.get();
+        current.set(new Binding(this, false));
+        try {
+            task.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    private static void restore(Binding previous) {
+        if (previous == null) {
+            current.remove();
+        } else {
+            current.set(previous);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RunContext" + properties;
+    }
+
+    /**
+     * A context bound to a thread, and whether the thread got it from the thread that started it.
+     */
+    private static final class Binding {
+
+        final RunContext context;
+
+        final boolean inherited;
+
+        Binding(RunContext context, boolean inherited) {
+            this.context = context;
+            this.inherited = inherited;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.ga4gh.ctk.transport;
 
+import java.util.Map;
+
 /**
  * Transport-related utilities.
  *
@@ -7,6 +9,11 @@ package org.ga4gh.ctk.transport;
  */
 public class TransportUtils {
 
+    /**
+     * The characters {@link java.net.URLEncoder} leaves alone.
+     */
+    private static final int FORM_SAFE = UrlCodec.ALNUM | UrlCodec.FORM;
+
     /**
      * You can't instantiate one of these.
      */
@@ -26,16 +33,41 @@ public class TransportUtils {
      * in baseUrl
      */
     public static String makeUrl(String baseUrl, String path) {
-        final URL baseAsUrl = new URL(baseUrl);
-        String baseUrlPathPortion = baseAsUrl.getPath();
-
-        if (!baseUrlPathPortion.endsWith("/")) {
-            baseUrlPathPortion += "/";
-        }
+        final URL constructed = new URL(baseUrl);
+        final String baseUrlPathPortion = constructed.getPath();
 
-        final URL constructed = new URL(baseAsUrl.toJavaURL());
-        constructed.setPath(baseUrlPathPortion+path);
+        constructed.setPath(baseUrlPathPortion.endsWith("/") ? baseUrlPathPortion + path
+                                    : baseUrlPathPortion + "/" + path);
         return constructed.toString();
     }
 
+    /**
+     * Fill in a URL's <tt>{id}</tt> route parameter and append query parameters to it.
+     * <p>For instance, if we have <tt>url</tt> = <tt>http://localhost:8000/references/{id}/bases</tt>,
+     * <tt>id</tt> = "a b" and <tt>queryParams</tt> = {start=5}, the result is
+     * <tt>http://localhost:8000/references/a%20b/bases?start=5</tt>.</p>
+     * @param url a URL, possibly containing <tt>{id}</tt> and possibly with a query string already
+     * @param id the value for <tt>{id}</tt>, may be null if there's no route parameter
+     * @param queryParams query parameters to add, may be null; null values are skipped
+     * @return the URL, with the route parameter encoded into its path and the query parameters added
+     */
+    public static String expandUrl(String url, String id, Map<String, Object> queryParams) {
+        final StringBuilder expanded =
+                new StringBuilder(id == null ? url : url.replace("{id}", UrlCodec.encode(id, FORM_SAFE, false)));
+        if (queryParams != null) {
+            char separator = expanded.indexOf("?") < 0 ? '?' : '&';
+            for (Map.Entry<String, Object> param : queryParams.entrySet()) {
+                if (param.getValue() == null) {
+                    continue;
+                }
+                expanded.append(separator)
+                        .append(UrlCodec.encode(param.getKey(), FORM_SAFE, true))
+                        .append('=')
+                        .append(UrlCodec.encode(param.getValue().toString(), FORM_SAFE, true));
+                separator = '&';
+            }
+        }
+        return expanded.toString();
+    }
+
 }
@@ -2,16 +2,24 @@ package org.ga4gh.ctk.transport;
 
 import java.io.UnsupportedEncodingException;
 import java.net.*;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * This class represents a URL for an internet resource. It is not to be
  * confused with a URI. I wrote this class to make a URL class for Java that is
  * more OO than the traditional java.net.URL. It is most useful for modifying
  * URLs for a web application.
+ * <p>
+ * A URL string is parsed and validated (to the rules {@link java.net.URI}
+ * applies) in a single pass, and the parameters are kept, still encoded, as
+ * name/value pairs in one array, so parsing a URL and asking for its parts or
+ * its external form allocates little beyond the result strings.
  * 
  * @author <a href="https://github.com/juliuss">julius schorzman</a>
  */
@@ -178,7 +186,9 @@ public class URL implements Iterable<URL.Parameter> {
   protected String host = "";
   protected int port = protocol.defaultPort;
   protected String path = "/";
-  protected List<URL.Parameter> parameters = new ArrayList<Parameter>();
+  /** Encoded parameter names and values: name i is at 2i, its value at 2i+1. */
+  protected String[] parameters = new String[8];
+  protected int parameterCount = 0;
   protected String fragment = "";
 
   /**
@@ -241,60 +251,233 @@ public class URL implements Iterable<URL.Parameter> {
     if (url.isEmpty())
       throw new IllegalArgumentException("URL cannot be empty");
 
+    final int n = url.length();
+    int a; // start of the authority
+
     // if the url does not contain a scheme/protocol, default to http
     // this allows a constructor to be called such as "www.example.com"
     if (!url.contains("://")) {
-      url = URL.Protocol.http + "://" + url;
-    }
-
-    java.net.URI u;
-    try {
-      u = new java.net.URI(url);
-      if (u.getHost() == null) {
+      protocol = Protocol.http;
+      a = 0;
+    } else {
+      int colon = 0;
+      while (colon < n && "/?#:".indexOf(url.charAt(colon)) < 0) {
+        colon++;
+      }
+      if (colon == n || url.charAt(colon) != ':' || !url.startsWith("//", colon + 1)) {
         throw new IllegalArgumentException("The class can only represent URLs.");
       }
-    } catch (URISyntaxException e) {
-      throw new IllegalArgumentException(e);
+      protocol = protocolOf(url, colon);
+      a = colon + 3;
     }
-
-    protocol = Protocol.valueOf(u.getScheme());
     username = "";
     password = "";
 
-    host = u.getHost();
-    if (host == null) {
-      host = "";
+    // authority: [userinfo@]host[:port]
+    int authEnd = a;
+    while (authEnd < n && "/?#".indexOf(url.charAt(authEnd)) < 0) {
+      authEnd++;
     }
+    if (authEnd == a) {
+      throw new IllegalArgumentException("The class can only represent URLs.");
+    }
+    int h = url.indexOf('@', a);
+    if (h >= 0 && h < authEnd) {
+      checkChars(url, a, h, UrlCodec.UNRESERVED | UrlCodec.USERINFO, "user info");
+      parseUserInfo(UrlCodec.decode(url, a, h, false, StandardCharsets.UTF_8));
+      h++;
+    } else {
+      h = a;
+    }
+    final int hostEnd = scanHost(url, h, authEnd);
+    host = url.substring(h, hostEnd);
 
-    port = u.getPort();
+    port = -1;
+    if (hostEnd < authEnd) {
+      port = parsePort(url, hostEnd + 1, authEnd);
+    }
     if (port < 1) {
       port = protocol.defaultPort;
     }
 
-    path = u.getRawPath();
-    if (path == null || path.isEmpty()) {
-      path = "/";
+    // path, query, fragment
+    int p = authEnd;
+    while (p < n && url.charAt(p) != '?' && url.charAt(p) != '#') {
+      p++;
     }
-
-    fragment = u.getRawFragment();
-    if (fragment == null) {
-      fragment = "";
+    checkChars(url, authEnd, p, UrlCodec.UNRESERVED | UrlCodec.PATH, "path");
+    path = p == authEnd ? "/" : url.substring(authEnd, p);
+
+    fragment = "";
+    final int uric = UrlCodec.UNRESERVED | UrlCodec.PATH | UrlCodec.URIC;
+    if (p < n && url.charAt(p) == '?') {
+      final int q = p + 1;
+      p = url.indexOf('#', q);
+      if (p < 0) {
+        p = n;
+      }
+      checkChars(url, q, p, uric, "query");
+    }
+    if (p < n) {
+      checkChars(url, p + 1, n, uric, "fragment");
+      fragment = url.substring(p + 1);
     }
 
     // query string
     parseQueryString(url);
+  }
+
+  /**
+   * Returns the protocol named by url[0, end), or throws an
+   * IllegalArgumentException if it isn't supported.
+   */
+  private static Protocol protocolOf(String url, int end) {
+    for (Protocol candidate : Protocol.values()) {
+      final String name = candidate.name();
+      if (name.length() == end && url.startsWith(name)) {
+        return candidate;
+      }
+    }
+    throw new IllegalArgumentException("Unsupported protocol: " + url.substring(0, end));
+  }
+
+  /**
+   * Throws an IllegalArgumentException if url[start, end) has a character
+   * outside the classes (see {@link UrlCodec#firstIllegal}).
+   */
+  private static void checkChars(String url, int start, int end, int classes, String what) {
+    final int bad = UrlCodec.firstIllegal(url, start, end, classes);
+    if (bad >= 0) {
+      throw new IllegalArgumentException("Illegal character in " + what + " at index " + bad + ": " + url);
+    }
+  }
+
+  /**
+   * Splits decoded user info into the username and password.
+   */
+  private void parseUserInfo(String info) {
+    int pos = info.indexOf(':');
+    if ((pos >= 0) && (pos + 1 < info.length())) {
+      username = info.substring(0, pos);
+      password = info.substring(pos + 1);
+    } else {
+      username = info;
+    }
+  }
 
-    // parse user info
-    String info = u.getUserInfo();
-    if (info != null) {
-      int pos = info.indexOf(':');
-      if ((pos >= 0) && (pos + 1 < info.length())) {
-        username = info.substring(0, pos);
-        password = info.substring(pos + 1);
+  /**
+   * Scans the host at url[start, end), which is followed by nothing or a port.
+   * Accepts a bracketed IPv6 reference, an IPv4 address or a host name whose
+   * labels are letters, digits and inner dashes, with the last label starting
+   * with a letter.
+   * 
+   * @return the index just past the host
+   * @throws IllegalArgumentException
+   *           if there's no valid host there
+   */
+  private static int scanHost(String url, int start, int end) {
+    int hostEnd;
+    boolean valid;
+    if (start < end && url.charAt(start) == '[') {
+      hostEnd = url.indexOf(']', start);
+      valid = hostEnd > start + 1 && hostEnd < end && isIPv6(url, start + 1, hostEnd);
+      hostEnd++;
+    } else {
+      hostEnd = start;
+      while (hostEnd < end && url.charAt(hostEnd) != ':') {
+        hostEnd++;
+      }
+      valid = isIPv4(url, start, hostEnd) || isHostname(url, start, hostEnd);
+    }
+    if (!valid || (hostEnd < end && url.charAt(hostEnd) != ':')) {
+      throw new IllegalArgumentException("The class can only represent URLs.");
+    }
+    return hostEnd;
+  }
+
+  private static boolean isHostname(String s, int start, int end) {
+    int p = start;
+    int last = -1;
+    while (p < end && UrlCodec.is(s.charAt(p), UrlCodec.ALNUM)) {
+      last = p;
+      int q = p + 1;
+      while (q < end && (UrlCodec.is(s.charAt(q), UrlCodec.ALNUM) || s.charAt(q) == '-')) {
+        q++;
+      }
+      if (s.charAt(q - 1) == '-') {
+        return false;
+      }
+      p = q;
+      if (p < end && s.charAt(p) == '.') {
+        p++;
       } else {
-        username = info;
+        break;
+      }
+    }
+    return p == end && last >= 0 && (last == start || UrlCodec.is(s.charAt(last), UrlCodec.ALPHA));
+  }
+
+  private static boolean isIPv4(String s, int start, int end) {
+    int p = start;
+    for (int part = 0; part < 4; part++) {
+      if (part > 0) {
+        if (p >= end || s.charAt(p) != '.') {
+          return false;
+        }
+        p++;
+      }
+      int value = 0;
+      final int digits = p;
+      while (p < end && UrlCodec.is(s.charAt(p), UrlCodec.DIGIT)) {
+        value = Math.min(value * 10 + (s.charAt(p) - '0'), 256);
+        p++;
+      }
+      if (p == digits || value > 255) {
+        return false;
+      }
+    }
+    return p == end;
+  }
+
+  /**
+   * Loosely checks an IPv6 address (the part between the brackets): hex digits,
+   * colons and dots, optionally followed by a '%' and a scope.
+   */
+  private static boolean isIPv6(String s, int start, int end) {
+    boolean colon = false;
+    for (int i = start; i < end; i++) {
+      final char c = s.charAt(i);
+      if (c == '%') {
+        return colon && i + 1 < end && UrlCodec.firstIllegal(s, i + 1, end, UrlCodec.ALNUM) < 0;
+      }
+      if (c == ':') {
+        colon = true;
+      } else if (c != '.' && !UrlCodec.isHex(c)) {
+        return false;
       }
     }
+    return colon;
+  }
+
+  /**
+   * Parses the port at url[start, end).
+   * 
+   * @return the port, or -1 if there are no digits
+   * @throws IllegalArgumentException
+   *           if there's something other than digits, or too many of them
+   */
+  private static int parsePort(String url, int start, int end) {
+    if (start == end) {
+      return -1;
+    }
+    long port = 0;
+    for (int i = start; i < end; i++) {
+      final char c = url.charAt(i);
+      if (!UrlCodec.is(c, UrlCodec.DIGIT) || (port = port * 10 + (c - '0')) > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Malformed port number at index " + start + ": " + url);
+      }
+    }
+    return (int) port;
   }
 
   /**
@@ -344,8 +527,7 @@ public class URL implements Iterable<URL.Parameter> {
       return this;
     }
     Parameter p = new Parameter(name, (value == null) ? "" : value);
-    parameters.add(p);
-    return this;
+    return append(p.name, p.value);
   }
 
   /**
@@ -356,11 +538,46 @@ public class URL implements Iterable<URL.Parameter> {
     if (name == null || name.isEmpty()) {
       return this;
     }
-    Parameter p = new Parameter(name, (value == null) ? "" : value, false);
-    parameters.add(p);
+    return append(name, (value == null) ? "" : value);
+  }
+
+  /**
+   * Appends an already-encoded name and value to the parameter array.
+   */
+  private URL append(String encodedName, String encodedValue) {
+    if (parameterCount * 2 == parameters.length) {
+      parameters = Arrays.copyOf(parameters, parameters.length * 2);
+    }
+    parameters[parameterCount * 2] = encodedName;
+    parameters[parameterCount * 2 + 1] = encodedValue;
+    parameterCount++;
     return this;
   }
 
+  /**
+   * Returns the decoded name of parameter i.
+   */
+  private String nameAt(int i) {
+    return urlDecode(parameters[i * 2]);
+  }
+
+  /**
+   * Returns the decoded value of parameter i.
+   */
+  private String valueAt(int i) {
+    return urlDecode(parameters[i * 2 + 1]);
+  }
+
+  /**
+   * Removes parameter i, keeping the rest in order.
+   */
+  private void removeAt(int i) {
+    System.arraycopy(parameters, i * 2 + 2, parameters, i * 2, (parameterCount - i - 1) * 2);
+    parameterCount--;
+    parameters[parameterCount * 2] = null;
+    parameters[parameterCount * 2 + 1] = null;
+  }
+
   /**
    * Decrements by 1 the integer value of the parameter in the URL that matches
    * the provided name. If the URL contains multiple parameters, the first
@@ -376,10 +593,10 @@ public class URL implements Iterable<URL.Parameter> {
     if (name == null || name.isEmpty()) {
       return this;
     }
-    for (URL.Parameter p : parameters) {
-      if (p.getName().equals(name)) {
+    for (int j = 0; j < parameterCount; j++) {
+      if (nameAt(j).equals(name)) {
         try {
-          int i = Integer.parseInt(p.getValue());
+          int i = Integer.parseInt(valueAt(j));
           i--;
           if (i == 1) {
             removeParameter(name);
@@ -477,10 +694,10 @@ public class URL implements Iterable<URL.Parameter> {
    * @return The value of the parameter, of defaul if none present.
    */
   public int getParameter(String name, int defaul) {
-    for (URL.Parameter p : parameters) {
-      if (p.getName().equals(name)) {
+    for (int i = 0; i < parameterCount; i++) {
+      if (nameAt(i).equals(name)) {
         try {
-          return Integer.parseInt(p.getValue());
+          return Integer.parseInt(valueAt(i));
         } catch (NumberFormatException e) {
           // ignored, keep trying or return default
         }
@@ -506,9 +723,9 @@ public class URL implements Iterable<URL.Parameter> {
    * @return The value of the parameter, of defaul if none present.
    */
   public String getParameter(String name, String defaul) {
-    for (URL.Parameter p : parameters) {
-      if (p.getName().equals(name)) {
-        return p.getValue();
+    for (int i = 0; i < parameterCount; i++) {
+      if (nameAt(i).equals(name)) {
+        return valueAt(i);
       }
     }
     return defaul;
@@ -527,9 +744,9 @@ public class URL implements Iterable<URL.Parameter> {
   public String[] getParameters(String name) {
     name = urlEncode(name);
     List<String> array = new ArrayList<String>();
-    for (URL.Parameter p : parameters) {
-      if (p.getName().equals(name)) {
-        array.add(p.getValue());
+    for (int i = 0; i < parameterCount; i++) {
+      if (nameAt(i).equals(name)) {
+        array.add(valueAt(i));
       }
     }
     return array.toArray(new String[0]);
@@ -713,10 +930,10 @@ public class URL implements Iterable<URL.Parameter> {
    * @return This object for chaining.
    */
   public URL incrementParameter(String name) {
-    for (URL.Parameter p : parameters) {
-      if (p.getName().equals(name)) {
+    for (int j = 0; j < parameterCount; j++) {
+      if (nameAt(j).equals(name)) {
         try {
-          int i = Integer.parseInt(p.getValue());
+          int i = Integer.parseInt(valueAt(j));
           setParameter(name, ++i);
           return this;
         } catch (NumberFormatException e) {
@@ -736,7 +953,39 @@ public class URL implements Iterable<URL.Parameter> {
    * @return An Iterator of this URLs Parameters. Never null.
    */
   public Iterator<Parameter> iterator() {
-    return parameters.iterator();
+    return new Iterator<Parameter>() {
+      private int next = 0;
+      private int last = -1;
+      private int expected = parameterCount;
+
+      @Override
+      public boolean hasNext() {
+        return next < parameterCount;
+      }
+
+      @Override
+      public Parameter next() {
+        if (expected != parameterCount) {
+          throw new ConcurrentModificationException();
+        }
+        if (next >= parameterCount) {
+          throw new NoSuchElementException();
+        }
+        last = next++;
+        return new Parameter(parameters[last * 2], parameters[last * 2 + 1], false);
+      }
+
+      @Override
+      public void remove() {
+        if (last < 0) {
+          throw new IllegalStateException();
+        }
+        removeAt(last);
+        next = last;
+        last = -1;
+        expected = parameterCount;
+      }
+    };
   }
 
   /**
@@ -766,11 +1015,9 @@ public class URL implements Iterable<URL.Parameter> {
       if (n == null || n.isEmpty()) {
         return this;
       }
-      Iterator<URL.Parameter> it = parameters.iterator();
-      while (it.hasNext()) {
-        Parameter p = it.next();
-        if (p.getName().equals(n)) {
-          it.remove();
+      for (int i = parameterCount - 1; i >= 0; i--) {
+        if (nameAt(i).equals(n)) {
+          removeAt(i);
         }
       }
     }
@@ -912,11 +1159,14 @@ public class URL implements Iterable<URL.Parameter> {
    * Returns the full external form of the url.
    */
   public String toString() {
+    final StringBuilder u = new StringBuilder(64 + path.length() + parameterCount * 16);
     // authority
-    String u = getAuthority();
+    appendAuthority(u);
     // path
-    u += toStringFull();
-    return u;
+    u.append(path);
+    appendQueryString(u);
+    appendFragmentString(u);
+    return u.toString();
   }
 
   /**
@@ -925,7 +1175,11 @@ public class URL implements Iterable<URL.Parameter> {
    * /search?q=1
    */
   public String toStringFull() {
-    return path + getQueryString() + getFragmentString();
+    final StringBuilder u = new StringBuilder(path.length() + parameterCount * 16);
+    u.append(path);
+    appendQueryString(u);
+    appendFragmentString(u);
+    return u.toString();
   }
 
   /**
@@ -933,24 +1187,35 @@ public class URL implements Iterable<URL.Parameter> {
    * leading "?". If there are no query parameters, an empty string is returned.
    */
   public String getQueryString() {
-    String u = "";
-    if (parameters.size() > 0) {
+    if (parameterCount == 0) {
+      return "";
+    }
+    final StringBuilder u = new StringBuilder(parameterCount * 16);
+    appendQueryString(u);
+    return u.toString();
+  }
+
+  private void appendQueryString(StringBuilder u) {
+    if (parameterCount > 0) {
       boolean first = true;
-      u += "?";
-      for (Parameter param : this) {
-        if (param.toString().isEmpty()) {
+      u.append('?');
+      for (int i = 0; i < parameterCount; i++) {
+        final String name = parameters[i * 2];
+        final String value = parameters[i * 2 + 1];
+        if (name.isEmpty()) {
           // skip empty parameters
           continue;
         }
-        if (first) {
-          u += param;
-          first = false;
-        } else {
-          u += "&" + param;
+        if (!first) {
+          u.append('&');
+        }
+        first = false;
+        u.append(name);
+        if (!value.isEmpty()) {
+          u.append('=').append(value);
         }
       }
     }
-    return u;
   }
 
   /**
@@ -958,11 +1223,13 @@ public class URL implements Iterable<URL.Parameter> {
    * a leading "#". If there is no fragment, an empty string is returned.
    */
   public String getFragmentString() {
-    String u = "";
+    return fragment.isEmpty() ? "" : "#" + fragment;
+  }
+
+  private void appendFragmentString(StringBuilder u) {
     if (!fragment.isEmpty()) {
-      u += "#" + fragment;
+      u.append('#').append(fragment);
     }
-    return u;
   }
 
   public String toStringRelative(URL relativeTo) {
@@ -1038,22 +1305,14 @@ public class URL implements Iterable<URL.Parameter> {
    * Helper method that URL decodes a value.
    */
   private String urlDecode(String value) {
-    try {
-      return URLDecoder.decode(value, URL.ENCODING);
-    } catch (UnsupportedEncodingException e) {
-      throw new IllegalArgumentException(URL.ENCODING + URL.ENCODING_ERROR, e);
-    }
+    return UrlCodec.decode(value, true);
   }
 
   /**
    * Helper method that URL encodes a value.
    */
   private String urlEncode(String value) {
-    try {
-      return URLEncoder.encode(value, URL.ENCODING);
-    } catch (UnsupportedEncodingException e) {
-      throw new IllegalArgumentException(URL.ENCODING + URL.ENCODING_ERROR, e);
-    }
+    return UrlCodec.encode(value, UrlCodec.ALNUM | UrlCodec.FORM, true);
   }
 
   /**
@@ -1069,19 +1328,25 @@ public class URL implements Iterable<URL.Parameter> {
     if (queryString == null || queryString.isEmpty()) {
       return this;
     }
+    // everything after the first '?' is taken as the query, fragment and all
     int pos = queryString.indexOf('?');
     if (pos > -1) {
-      String query = queryString.substring(pos + 1);
-      queryString = queryString.substring(0, pos);
-      for (String param : query.split("&")) {
-        pos = param.indexOf("=");
-        if (pos > -1) {
+      final int n = queryString.length();
+      int start = pos + 1;
+      while (start < n) {
+        int end = queryString.indexOf('&', start);
+        if (end < 0) {
+          end = n;
+        }
+        pos = queryString.indexOf('=', start);
+        if (pos > -1 && pos < end) {
           // regular parameter
-          addParameterNoEncode(param.substring(0, pos), param.substring(pos + 1));
+          addParameterNoEncode(queryString.substring(start, pos), queryString.substring(pos + 1, end));
         } else {
           // empty parameter
-          addParameterNoEncode(param, "");
+          addParameterNoEncode(queryString.substring(start, end), "");
         }
+        start = end + 1;
       }
     }
     return this;
@@ -1118,25 +1383,29 @@ public class URL implements Iterable<URL.Parameter> {
    * @return
    */
   public String getAuthority() {
+    final StringBuilder u = new StringBuilder(16 + host.length());
+    appendAuthority(u);
+    return u.toString();
+  }
+
+  private void appendAuthority(StringBuilder u) {
     // protocol
-    String u = protocol.name() + "://";
+    u.append(protocol.name()).append("://");
 
     // user info
     if (!username.isEmpty()) {
+      u.append(username);
       if (!password.isEmpty()) {
-        u += username + ":" + password + "@";
-      } else {
-        u += username + "@";
+        u.append(':').append(password);
       }
+      u.append('@');
     }
 
     // host, port
+    u.append(host);
     if (port != protocol.defaultPort) {
-      u += host + ":" + port;
-    } else {
-      u += host;
+      u.append(':').append(port);
     }
-    return u;
   }
 
   /**
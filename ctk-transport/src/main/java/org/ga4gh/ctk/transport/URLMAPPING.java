@@ -19,6 +19,19 @@ public interface URLMAPPING {
      */
     void setUrlRoot(String urlRoot);
 
+    /**
+     * <p>The name of the HTTP transport to reach the server with (<tt>ctk.tgt.transport</tt>),
+     * as understood by {@link org.ga4gh.ctk.transport.http.HttpTransports#forName(String)}.</p>
+     * @return the transport name, or null to use the default
+     */
+    String getTransport();
+
+    /**
+     * <p>Set the name of the HTTP transport to reach the server with.</p>
+     * @param transport the transport name, e.g. <tt>urlconnection</tt>
+     */
+    void setTransport(String transport);
+
     String getGetReadGroupSet();
 
     void setGetReadGroupSet(String getReadGroupSet);
@@ -118,6 +131,7 @@ public interface URLMAPPING {
      * <li>a properties file of that name from the file system</li>
      * <li>the operating system environment variables ("ctk.tgt.*)</li>
      * <li>the java system properties (e.g., command line -D...) of "ctk.tgt.*"</li>
+     * <li>the "ctk.tgt.*" settings of the {@link RunContext} bound to this thread, if any</li>
      * </ul>
      * If the resName is blank then the file/resource sought is "defaulttransport.properties"
      * If the resName is given then the defaultproperties file is not loaded at all.
@@ -128,7 +142,9 @@ public interface URLMAPPING {
 
     /**
      * Gets a instance of URLMAPPING filled in with the defaults
-     * and with property overrides.
+     * and with property overrides, including those of the current {@link RunContext}.
+     * Each call makes a new instance with its own endpoints, so a run can set its own
+     * urlRoot and transport without changing any other run's.
      * @return an URLMAPPINGImpl
      */
     static URLMAPPING getInstance(){
@@ -2,6 +2,7 @@ package org.ga4gh.ctk.transport;
 
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
@@ -79,6 +80,8 @@ public class URLMAPPINGImpl implements URLMAPPING {
         dumpToStdOut = Boolean.getBoolean("ctk.tgt.urlmapper.dump"); // so, -Dctk.tgt.urlmapper.dump=true
 
         log.info("set default URLMAPPING urlRoot to " + defaultEndpoints.get("ctk.tgt.urlRoot"));
+        // every instance copies these; none may change them
+        defaultEndpoints = Collections.unmodifiableMap(defaultEndpoints);
     }
 
     /**
@@ -96,6 +99,7 @@ public class URLMAPPINGImpl implements URLMAPPING {
      * <li>a properties file of that name from the file system</li>
      * <li>the operating system environment variables ("ctk.tgt.*)</li>
      * <li>the Java system properties (e.g., command line -D...) of "ctk.tgt.*"</li>
+     * <li>the "ctk.tgt.*" settings of the {@link RunContext} bound to this thread, if any</li>
      * </ul>
      * If the resName is blank then the file/resource sought is "defaulttransport.properties"
      * If the resName is given then the default properties file is not loaded at all.
@@ -131,6 +135,13 @@ public class URLMAPPINGImpl implements URLMAPPING {
         if (!tempProps.isEmpty()) {
             mergePropertiesIntoMap(tempProps, endpoints);
         }
+        final RunContext context = RunContext.current();
+        if (context != null) {
+            if (dumpToStdOut) {
+                System.out.println("\nprocess run context");
+            }
+            mergePropertiesIntoMap(context.getProperties("ctk.tgt."), endpoints);
+        }
     }
 
     /**
@@ -246,6 +257,16 @@ public class URLMAPPINGImpl implements URLMAPPING {
         }
     }
 
+    @Override
+    public String getTransport() {
+        return endpoints.get("ctk.tgt.transport");
+    }
+
+    @Override
+    public void setTransport(String transport) {
+        endpoints.put("ctk.tgt.transport", transport);
+    }
+
     @Override
     public String getGetReadGroupSet() {
         return endpoints.get("ctk.tgt.getReadGroupSet");
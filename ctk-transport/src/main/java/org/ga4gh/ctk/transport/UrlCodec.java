@@ -0,0 +1,308 @@
+package org.ga4gh.ctk.transport;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>The character tables and single-pass UTF-8 percent-encoder and -decoder shared by
+ * {@link URL}, {@link FragmentEncoder} and {@link UrlTemplate}.</p>
+ * <p>Each ASCII character has a set of class bits; a scanner tests a character against a
+ * mask of the classes it accepts, so encoding, decoding and URL validation are each one
+ * pass over a {@link CharSequence} with no intermediate strings. Where nothing needs to
+ * change, the input string itself is returned.</p>
+ */
+final class UrlCodec {
+
+    /** Letters and digits. */
+    static final int ALNUM = 1;
+    /** The non-alphanumeric characters {@link java.net.URLEncoder} leaves alone: <tt>.-*_</tt>. */
+    static final int FORM = 1 << 1;
+    /** The extra characters {@link FragmentEncoder} leaves alone: <tt>!$&'()+,;=~:@/?</tt>. */
+    static final int FRAGMENT = 1 << 2;
+    /** RFC 2396 <tt>unreserved</tt> marks other than {@link #FORM}: <tt>!~'()</tt>. */
+    static final int MARK = 1 << 3;
+    /** Characters allowed in a path, besides unreserved and escapes: <tt>;/:@&=+$,</tt>. */
+    static final int PATH = 1 << 4;
+    /** Characters allowed in a query or fragment, besides those allowed in a path: <tt>?[]</tt>. */
+    static final int URIC = 1 << 5;
+    /** Characters allowed in user info, besides unreserved and escapes: <tt>;:&=+$,</tt>. */
+    static final int USERINFO = 1 << 6;
+    /** Letters. */
+    static final int ALPHA = 1 << 7;
+    /** Decimal digits. */
+    static final int DIGIT = 1 << 8;
+
+    /** RFC 2396 <tt>unreserved</tt>. */
+    static final int UNRESERVED = ALNUM | FORM | MARK;
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private static final short[] CLASSES = new short[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            mark(String.valueOf(c), ALNUM | ALPHA);
+            mark(String.valueOf(Character.toUpperCase(c)), ALNUM | ALPHA);
+        }
+        mark("0123456789", ALNUM | DIGIT);
+        mark(".-*_", FORM | FRAGMENT);
+        mark("!$&'()+,;=~:@/?", FRAGMENT);
+        mark("!~'()", MARK);
+        mark(";/:@&=+$,", PATH);
+        mark("?[]", URIC);
+        mark(";:&=+$,", USERINFO);
+    }
+
+    private static void mark(String chars, int bits) {
+        for (int i = 0; i < chars.length(); i++) {
+            CLASSES[chars.charAt(i)] |= bits;
+        }
+    }
+
+    /**
+     * You can't instantiate one of these.
+     */
+    private UrlCodec() {
+    }
+
+    /**
+     * Is the character in any of the classes?
+     *
+     * @param c    the character
+     * @param mask the classes, OR'd together
+     * @return true if <tt>c</tt> is ASCII and in at least one of the classes
+     */
+    static boolean is(char c, int mask) {
+        return c < 128 && (CLASSES[c] & mask) != 0;
+    }
+
+    /**
+     * Is the character a hex digit?
+     *
+     * @param c the character
+     * @return true if <tt>c</tt> is 0-9, a-f or A-F
+     */
+    static boolean isHex(char c) {
+        return hexValue(c) >= 0;
+    }
+
+    /**
+     * Return the value of a hex digit.
+     *
+     * @param c the character
+     * @return its value, or -1 if it's not a hex digit
+     */
+    static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * Find the first character in a range that isn't in the classes, a well-formed escape
+     * (<tt>%</tt> and two hex digits) or a non-ASCII character that's neither a space nor a
+     * control. This is the test {@link java.net.URI} applies to each component.
+     *
+     * @param s     the string
+     * @param start the first index to check
+     * @param end   one past the last index to check
+     * @param mask  the classes allowed, OR'd together
+     * @return the index of the first bad character, or -1 if there is none
+     */
+    static int firstIllegal(CharSequence s, int start, int end, int mask) {
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if (c < 128) {
+                if ((CLASSES[c] & mask) != 0) {
+                    continue;
+                }
+                if (c == '%' && i + 2 < end && isHex(s.charAt(i + 1)) && isHex(s.charAt(i + 2))) {
+                    i += 2;
+                    continue;
+                }
+                return i;
+            }
+            if (c == 128 || Character.isSpaceChar(c) || Character.isISOControl(c)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Percent-encode a string in UTF-8, leaving the characters in <tt>safe</tt> as they are.
+     *
+     * @param s           the string to encode
+     * @param safe        the classes of characters that aren't encoded, OR'd together
+     * @param spaceAsPlus true to encode space as '+' (form style), false for <tt>%20</tt>
+     * @return the encoded string; <tt>s</tt> itself if nothing needed encoding
+     */
+    static String encode(String s, int safe, boolean spaceAsPlus) {
+        final int n = s.length();
+        int i = 0;
+        while (i < n && is(s.charAt(i), safe)) {
+            i++;
+        }
+        if (i == n) {
+            return s;
+        }
+        final StringBuilder sb = new StringBuilder(n + 16);
+        sb.append(s, 0, i);
+        encode(s, i, n, safe, spaceAsPlus, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Percent-encode part of a string in UTF-8 into a buffer, leaving the characters in
+     * <tt>safe</tt> as they are. An unpaired surrogate is encoded as '?', as
+     * {@link java.net.URLEncoder} does.
+     *
+     * @param s           the string to encode
+     * @param start       the first index to encode
+     * @param end         one past the last index to encode
+     * @param safe        the classes of characters that aren't encoded, OR'd together
+     * @param spaceAsPlus true to encode space as '+' (form style), false for <tt>%20</tt>
+     * @param sb          where to append the encoded string
+     */
+    static void encode(CharSequence s, int start, int end, int safe, boolean spaceAsPlus, StringBuilder sb) {
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if (c < 128 && (CLASSES[c] & safe) != 0) {
+                sb.append(c);
+            } else if (c == ' ' && spaceAsPlus) {
+                sb.append('+');
+            } else if (c < 0x80) {
+                appendEscaped(c, sb);
+            } else if (c < 0x800) {
+                appendEscaped(0xc0 | (c >> 6), sb);
+                appendEscaped(0x80 | (c & 0x3f), sb);
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, s.charAt(++i));
+                appendEscaped(0xf0 | (cp >> 18), sb);
+                appendEscaped(0x80 | ((cp >> 12) & 0x3f), sb);
+                appendEscaped(0x80 | ((cp >> 6) & 0x3f), sb);
+                appendEscaped(0x80 | (cp & 0x3f), sb);
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate: the UTF-8 encoder writes its replacement, '?'
+                appendEscaped('?', sb);
+            } else {
+                appendEscaped(0xe0 | (c >> 12), sb);
+                appendEscaped(0x80 | ((c >> 6) & 0x3f), sb);
+                appendEscaped(0x80 | (c & 0x3f), sb);
+            }
+        }
+    }
+
+    /**
+     * Append <tt>%</tt> and two hex digits for a byte.
+     *
+     * @param b  the byte (only the low 8 bits are used)
+     * @param sb where to append it
+     */
+    static void appendEscaped(int b, StringBuilder sb) {
+        sb.append('%').append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+    }
+
+    /**
+     * Decode a percent-encoded string in UTF-8, as {@link java.net.URLDecoder} does.
+     *
+     * @param s           the encoded string
+     * @param plusAsSpace true to decode '+' as space (form style)
+     * @return the decoded string; <tt>s</tt> itself if there was nothing to decode
+     * @throws IllegalArgumentException if a '%' isn't followed by two hex digits
+     */
+    static String decode(String s, boolean plusAsSpace) {
+        return decode(s, 0, s.length(), plusAsSpace, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decode part of a percent-encoded string. Runs of escapes are decoded together, so
+     * multi-byte characters come out whole; malformed byte sequences decode to the
+     * charset's replacement character.
+     *
+     * @param s           the encoded string
+     * @param start       the first index to decode
+     * @param end         one past the last index to decode
+     * @param plusAsSpace true to decode '+' as space (form style)
+     * @param charset     the charset of the escaped bytes
+     * @return the decoded string; if <tt>s</tt> is a {@link String} spanning the whole range
+     * and there was nothing to decode, <tt>s</tt> itself
+     * @throws IllegalArgumentException if a '%' isn't followed by two hex digits
+     */
+    static String decode(CharSequence s, int start, int end, boolean plusAsSpace, Charset charset) {
+        int i = start;
+        while (i < end) {
+            final char c = s.charAt(i);
+            if (c == '%' || (c == '+' && plusAsSpace)) {
+                break;
+            }
+            i++;
+        }
+        if (i == end) {
+            return s.subSequence(start, end).toString();
+        }
+        final StringBuilder sb = new StringBuilder(end - start);
+        sb.append(s, start, i);
+        byte[] bytes = null;
+        while (i < end) {
+            final char c = s.charAt(i);
+            if (c == '+' && plusAsSpace) {
+                sb.append(' ');
+                i++;
+            } else if (c == '%') {
+                if (bytes == null) {
+                    bytes = new byte[(end - i) / 3];
+                }
+                int len = 0;
+                do {
+                    if (i + 2 >= end) {
+                        throw new IllegalArgumentException("Incomplete % sequence at: " + i);
+                    }
+                    // like URLDecoder, accept any Unicode digit here
+                    final int d1 = Character.digit(s.charAt(i + 1), 16);
+                    final int d2 = Character.digit(s.charAt(i + 2), 16);
+                    if (d1 < 0 || d2 < 0) {
+                        throw new IllegalArgumentException("Invalid % sequence "
+                                                                   + s.subSequence(i, i + 3) + " at " + i);
+                    }
+                    bytes[len++] = (byte) ((d1 << 4) + d2);
+                    i += 3;
+                } while (i < end && s.charAt(i) == '%');
+                appendDecoded(bytes, len, charset, sb);
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Append decoded bytes, taking the ASCII shortcut when there are no multi-byte sequences.
+     */
+    private static void appendDecoded(byte[] bytes, int len, Charset charset, StringBuilder sb) {
+        if (charset == StandardCharsets.UTF_8) {
+            boolean ascii = true;
+            for (int j = 0; j < len && ascii; j++) {
+                ascii = bytes[j] >= 0;
+            }
+            if (ascii) {
+                for (int j = 0; j < len; j++) {
+                    sb.append((char) bytes[j]);
+                }
+                return;
+            }
+        }
+        final CharBuffer cb = charset.decode(ByteBuffer.wrap(bytes, 0, len));
+        sb.append(cb);
+    }
+}
@@ -0,0 +1,179 @@
+package org.ga4gh.ctk.transport;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>An endpoint URL, resolved once from a server root and an endpoint path, ready to
+ * have its <tt>{id}</tt> route parameter and query parameters filled in.</p>
+ * <p>Merging the root and path ({@link TransportUtils#makeUrl(String, String)}) parses
+ * and rebuilds the root each time; a template does that once, and keeps the result as
+ * character arrays split around each <tt>{id}</tt>. {@link #expand(String, Map)} then just
+ * copies those arrays, and the percent-encoded parameters, into one presized buffer.</p>
+ * <p>Templates are immutable and shared: {@link #of(String, String)} returns the same
+ * template for the same root and path, so each is compiled only once, the first time a
+ * request (e.g., an AvroJson) is made for it. At most {@link #MAX_TEMPLATES} are kept;
+ * beyond that, the one used longest ago is dropped (and compiled again if it's asked for
+ * again), so a long-lived server that tests many roots doesn't keep them all.</p>
+ */
+public final class UrlTemplate {
+
+    private static final String ID = "{id}";
+
+    /**
+     * How many compiled templates are kept at once.
+     */
+    public static final int MAX_TEMPLATES = 256;
+
+    /**
+     * Compiled templates by server root and endpoint path, least recently used first;
+     * guarded by itself.
+     */
+    private static final Map<List<String>, UrlTemplate> compiled =
+            new LinkedHashMap<List<String>, UrlTemplate>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<String>, UrlTemplate> eldest) {
+                    return size() > MAX_TEMPLATES;
+                }
+            };
+
+    private final String root;
+
+    private final String path;
+
+    /**
+     * The merged URL, with any <tt>{id}</tt> left in.
+     */
+    private final String url;
+
+    /**
+     * The URL up to the query string, split around each <tt>{id}</tt>.
+     */
+    private final char[][] pieces;
+
+    /**
+     * The query string from the root (including the '?'), or an empty array.
+     */
+    private final char[] query;
+
+    private final int literalLength;
+
+    private UrlTemplate(String root, String path) {
+        this.root = root;
+        this.path = path;
+        final String cleanPath = path.trim().replaceAll("^/+|/+$", "");
+        this.url = TransportUtils.makeUrl(root.trim(), cleanPath);
+        final int q = url.indexOf('?');
+        final String beforeQuery = q < 0 ? url : url.substring(0, q);
+        this.query = q < 0 ? new char[0] : url.substring(q).toCharArray();
+        final String[] split = beforeQuery.split("\\{id\\}", -1);
+        this.pieces = new char[split.length][];
+        int length = query.length;
+        for (int i = 0; i < split.length; i++) {
+            pieces[i] = split[i].toCharArray();
+            length += pieces[i].length;
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Return the template for an endpoint, compiling it if this is the first request for it.
+     *
+     * @param root the server root URL (e.g., <tt>http://localhost:8000/v0.6</tt>)
+     * @param path the endpoint path (e.g., <tt>references/{id}/bases</tt>)
+     * @return the (shared) template
+     */
+    public static UrlTemplate of(String root, String path) {
+        final List<String> key = Arrays.asList(root, path);
+        synchronized (compiled) {
+            return compiled.computeIfAbsent(key, k -> new UrlTemplate(root, path));
+        }
+    }
+
+    public String getRoot() {
+        return root;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Return the URL, with no parameters filled in.
+     *
+     * @return the merged root and path (any <tt>{id}</tt> is left as is)
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Does this template have a <tt>{id}</tt> route parameter?
+     *
+     * @return true if the path contains <tt>{id}</tt>
+     */
+    public boolean hasRouteParam() {
+        return pieces.length > 1;
+    }
+
+    /**
+     * Fill in the route parameter and append query parameters.
+     * <p>Produces the same URL as
+     * {@link TransportUtils#expandUrl(String, String, Map)} applied to {@link #getUrl()}.</p>
+     *
+     * @param id          the value for <tt>{id}</tt>, percent-encoded as a path segment;
+     *                    may be null if there's no route parameter
+     * @param queryParams query parameters to add, may be null; null values are skipped
+     * @return the complete URL
+     */
+    public String expand(String id, Map<String, Object> queryParams) {
+        if (id == null && (queryParams == null || queryParams.isEmpty())) {
+            return url;
+        }
+        final StringBuilder sb = new StringBuilder(literalLength + (id != null ? id.length() * 3 : 0) + 32);
+        for (int i = 0; i < pieces.length; i++) {
+            if (i > 0) {
+                if (id == null) {
+                    sb.append(ID);
+                } else {
+                    encode(id, false, sb);
+                }
+            }
+            sb.append(pieces[i]);
+        }
+        sb.append(query);
+        if (queryParams != null) {
+            char separator = query.length == 0 ? '?' : '&';
+            for (Map.Entry<String, Object> param : queryParams.entrySet()) {
+                if (param.getValue() == null) {
+                    continue;
+                }
+                sb.append(separator);
+                encode(param.getKey(), true, sb);
+                sb.append('=');
+                encode(param.getValue().toString(), true, sb);
+                separator = '&';
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Percent-encode a string into a buffer the way {@link java.net.URLEncoder} does in UTF-8,
+     * but without its intermediate strings.
+     *
+     * @param s          the string to encode
+     * @param spaceAsPlus true to encode space as '+' (form style, for queries), false for "%20"
+     * @param sb         where to append the encoded string
+     */
+    static void encode(String s, boolean spaceAsPlus, StringBuilder sb) {
+        UrlCodec.encode(s, 0, s.length(), UrlCodec.ALNUM | UrlCodec.FORM, spaceAsPlus, sb);
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+}
@@ -1,6 +1,6 @@
 package org.ga4gh.ctk.transport;
 
-import com.google.gson.Gson;
+import org.ga4gh.ctk.transport.avrojson.GsonCodecs;
 import org.ga4gh.methods.GAException;
 import org.slf4j.Logger;
 
@@ -30,6 +30,28 @@ public class WireTracker {
      */
     public String bodyReceived;
 
+    /**
+     * <p>Size in bytes of the request body as sent (after compression, if it was compressed).</p>
+     */
+    public int bytesSent;
+
+    /**
+     * <p>Size in bytes of the request body before compression.</p>
+     */
+    public int bytesSentUncompressed;
+
+    /**
+     * <p>Size in bytes of the response body as received (before decompression);
+     * -1 if the transport couldn't tell.</p>
+     */
+    public int bytesReceived;
+
+    /**
+     * <p>Size in bytes of the response body after decompression; -1 if it couldn't
+     * be decompressed.</p>
+     */
+    public int bytesReceivedUncompressed;
+
     private GAException gae;
 
     private String gaeMessage; // convenience and in case non-parseable
@@ -65,9 +87,8 @@ public class WireTracker {
     public GAException getGae() {
         if (responseStatus != RespCode.OK) {
             // parse the received body
-            Gson gson = new Gson();
             try {
-                gae = gson.fromJson(bodyReceived, GAException.class);
+                gae = GsonCodecs.gson().fromJson(bodyReceived, GAException.class);
                 gaeMessage = gae.getMessage();
                 gaeErrorCode = gae.getErrorCode();
             } catch (Exception e) {
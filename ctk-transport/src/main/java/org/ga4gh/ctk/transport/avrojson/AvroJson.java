@@ -1,28 +1,43 @@
 package org.ga4gh.ctk.transport.avrojson;
 
 import com.google.common.base.CharMatcher;
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonSyntaxException;
-import com.mashape.unirest.http.HttpResponse;
 import com.mashape.unirest.http.JsonNode;
-import com.mashape.unirest.http.Unirest;
-import com.mashape.unirest.http.exceptions.UnirestException;
 import org.apache.avro.Schema;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecord;
 import org.apache.avro.specific.SpecificRecordBase;
 import org.apache.http.HttpStatus;
 import org.ga4gh.ctk.transport.GAWrapperException;
+import org.ga4gh.ctk.transport.RunContext;
+import org.ga4gh.ctk.transport.UrlTemplate;
 import org.ga4gh.ctk.transport.WireTracker;
+import org.ga4gh.ctk.transport.http.HttpResult;
+import org.ga4gh.ctk.transport.http.HttpTransport;
+import org.ga4gh.ctk.transport.http.HttpTransports;
+import org.ga4gh.ctk.transport.http.LoopbackTransport;
 import org.ga4gh.methods.GAException;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
 
 import static org.ga4gh.ctk.transport.RespCode.fromInt;
-import static org.ga4gh.ctk.transport.TransportUtils.makeUrl;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
@@ -32,9 +47,9 @@ import static org.slf4j.LoggerFactory.getLogger;
  * Each instance handles one interaction, issuing a request and returning the response.</p>
  * <p>This class:<ul>
  *     <li>invokes the serializer/deserializer,</li>
- *     <li>invokes the HTTP interaction,</li>
+ *     <li>invokes the HTTP interaction (through an {@link HttpTransport}),</li>
  *     <li>tracks the data sent/received (via a WireTracker), and</li>
- *     <li>captures the traffic summary in a static table named 'messages'</li>
+ *     <li>captures the traffic summary in the run's {@link MessageTraffic} (see {@link #getTraffic()})</li>
  * </ul>
  * <p>The class accepts the request and response objects, the URL root and path strings, and
  * an (optional) WireTracker (which will collect the JSON as sent/received on the wire).</p>
@@ -48,24 +63,118 @@ import static org.slf4j.LoggerFactory.getLogger;
  *  response = (GASearchReadsResponse) aj.doPostResp();
  * }
  * </pre>
+ * <p>Each interaction can also be issued without blocking the calling thread, using
+ * {@link #doPostRespAsync()} or {@link #doGetRespAsync(String, Map)}; the returned
+ * {@link CompletableFuture} completes on the transport's thread once the response
+ * has been deserialized.</p>
+ * <p>Response bodies are normally decoded in one pass, straight from the body the
+ * transport has buffered (decompressing as they go) into the Avro object; see
+ * {@link #setLegacyDecode(boolean)} for the older path. No transport streams the body in as
+ * it arrives, so a response must fit in memory; see each {@link HttpTransport}.</p>
+ * <p>{@link #doPostResp()} and {@link #doGetResp(String, Map)} can also use the Avro binary
+ * encoding instead of JSON, for servers that support it; see {@link #setAvroBinary(boolean)}.</p>
+ * <p>Every request accepts gzip- or deflate-compressed responses, which are decompressed
+ * as they are decoded; request bodies can be compressed too, see
+ * {@link #setCompressRequests(boolean)}. A WireTracker records the body sizes both ways, and
+ * they're added up per endpoint for the run (see {@link #getWireSizes()}).</p>
+ * <p>Through a transport that {@link HttpTransport#exchangesObjects()}, such as the
+ * {@link LoopbackTransport}, the request object is handed to a server in the same JVM and
+ * its response object taken back, with nothing serialized on the way; asynchronous
+ * requests then complete on the calling thread.</p>
  * <p>Created by Wayne Stidolph on 5/22/2015.</p>
  */
 public class AvroJson<Q extends SpecificRecordBase, P extends SpecificRecordBase> {
     private static org.slf4j.Logger log;
 
     /**
-     * <p>Holds the message traffic sent/received by AvroJson during the entire test run.
+     * <p>Summarizes the message traffic sent/received by AvroJson outside any {@link RunContext};
+     * each run's traffic is kept with its context.
      * Intended to support test quality/coverage reporting.</p>
      */
-    private static Table<String, String, Integer> messages;
+    private static final MessageTraffic defaultTraffic = new MessageTraffic();
+
+    /**
+     * Times every interaction outside any {@link RunContext}, per endpoint; each run's
+     * latencies are kept with its context.
+     */
+    private static final EndpointLatencies defaultLatencies = new EndpointLatencies();
+
+    /**
+     * Adds up the body sizes of every interaction outside any {@link RunContext}, per endpoint;
+     * each run's are kept with its context.
+     */
+    private static final EndpointWireSizes defaultWireSizes = new EndpointWireSizes();
+
+    /**
+     * <p>When true, responses are decoded the original way: the body is built into a
+     * {@link JsonNode} tree, which we serialize back to a String for Gson to parse again.
+     * Otherwise the body is read once, by Gson's pull parser, directly into the response object.</p>
+     */
+    private static volatile boolean legacyDecode;
+
+    /**
+     * When true, blocking requests offer the server Avro binary (<tt>application/avro</tt>)
+     * bodies, and ask for the same in return.
+     */
+    private static volatile boolean avroBinary;
+
+    /**
+     * URL roots of servers that refused an Avro binary request; we only speak JSON to them.
+     */
+    private static final Set<String> jsonOnlyServers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * When true, POST bodies are sent gzip-compressed.
+     */
+    private static volatile boolean compressRequests;
+
+    /**
+     * URL roots of servers that refused a compressed request body; we don't compress for them.
+     */
+    private static final Set<String> uncompressedOnlyServers = ConcurrentHashMap.newKeySet();
+
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private static final Map<String, String> JSON_POST_HEADERS =
+            ImmutableMap.of("Content-Type", "application/json", "accept", "application/json",
+                            "Accept-Encoding", ACCEPT_ENCODING);
+
+    private static final Map<String, String> JSON_GET_HEADERS =
+            ImmutableMap.of("accept", "application/json", "Accept-Encoding", ACCEPT_ENCODING);
+
+    private static final Map<String, String> AVRO_POST_HEADERS =
+            ImmutableMap.of("Content-Type", AvroBinary.MIME_TYPE,
+                            "accept", AvroBinary.MIME_TYPE + ", application/json;q=0.5",
+                            "Accept-Encoding", ACCEPT_ENCODING);
+
+    private static final Map<String, String> AVRO_GET_HEADERS =
+            ImmutableMap.of("accept", AvroBinary.MIME_TYPE + ", application/json;q=0.5",
+                            "Accept-Encoding", ACCEPT_ENCODING);
 
     static {
         log = getLogger(AvroJson.class);
-        messages = HashBasedTable.create();
+        legacyDecode = Boolean.getBoolean("ctk.tgt.legacydecode"); // so, -Dctk.tgt.legacydecode=true
+        avroBinary = Boolean.getBoolean("ctk.tgt.avrobinary"); // so, -Dctk.tgt.avrobinary=true
+        compressRequests = Boolean.getBoolean("ctk.tgt.compressrequests"); // so, -Dctk.tgt.compressrequests=true
     }
 
     private final DatumWriter<Q> dw;
 
+    /**
+     * The traffic summary of the run this interaction is part of.
+     */
+    private final MessageTraffic traffic;
+
+    /**
+     * The request latencies of the run this interaction is part of.
+     */
+    private final EndpointLatencies latencies;
+
+    /**
+     * The body sizes of the run this interaction is part of.
+     */
+    private final EndpointWireSizes wireSizes;
+
     private final Q theAvroReq;
 
     /**
@@ -75,18 +184,51 @@ public class AvroJson<Q extends SpecificRecordBase, P extends SpecificRecordBase
 
     private String path;
 
+    /**
+     * urlRoot and path, merged once
+     */
+    private UrlTemplate urlTemplate;
+
     private Schema reqSchema;
 
     private Schema respSchema;
 
     private String jsonStr;
 
-    private HttpResponse<JsonNode> httpResp;
+    /**
+     * The route param and query params of a GET, for traffic sampling.
+     */
+    private String getTarget;
+
+    private HttpResult httpResp;
 
     private P theResp;
 
     private WireTracker wireTracker;
 
+    private HttpTransport transport;
+
+    /**
+     * Size of the request body as sent, and before compression.
+     */
+    private int bytesSent;
+
+    private int bytesSentUncompressed;
+
+    /**
+     * Phase times for this interaction; -1 for a phase that didn't happen.
+     */
+    private long serializeNanos = -1;
+
+    private long networkNanos;
+
+    private long deserializeNanos = -1;
+
+    /**
+     * When an asynchronous request was handed to the transport.
+     */
+    private long sentAt;
+
     /**
      * <p>Construct an AvroJson for a particular request/response interaction.</p>
      * <p>The req and resp types parameterize this generic interaction object.</p>
@@ -97,12 +239,7 @@ public class AvroJson<Q extends SpecificRecordBase, P extends SpecificRecordBase
      * @param path    the request target path
      */
     public AvroJson(Q req, P resp, String urlRoot, String path) {
-        this.theAvroReq = req;
-        this.theResp = resp;
-        this.dw = new SpecificDatumWriter<>();
-        this.wireTracker = null;
-
-        setCleanRootUrl(urlRoot, path);
+        this(req, resp, urlRoot, path, null);
     }
 
     /**
@@ -112,14 +249,7 @@ public class AvroJson<Q extends SpecificRecordBase, P extends SpecificRecordBase
      * @param path    the request target path
      */
     public AvroJson(P resp, String urlRoot, String path) {
-        this.theAvroReq = null;
-        this.theResp = resp;
-        this.dw = new SpecificDatumWriter<>();
-        this.wireTracker = null;
-
-        // neither urlRoot nor path should have spaces,
-        // the urlRoot should end with exactly one slash
-        setCleanRootUrl(urlRoot, path);
+        this(resp, urlRoot, path, null);
     }
 
     /**
@@ -130,8 +260,7 @@ public class AvroJson<Q extends SpecificRecordBase, P extends SpecificRecordBase
      * @param wt If supplied, captures the data going across the wire
      */
     public AvroJson(P resp, String urlRoot, String path, WireTracker wt) {
-        this(resp, urlRoot, path);
-        this.wireTracker = wt;
+        this(resp, urlRoot, path, wt, HttpTransports.getDefault());
     }
 
     /**
@@ -145,8 +274,50 @@ public class AvroJson<Q extends SpecificRecordBase, P extends SpecificRecordBase
      * @param wireTracker If supplied, captures the data going across the wire
      */
     public AvroJson(Q req, P resp, String urlRoot, String path, WireTracker wireTracker) {
-        this(req, resp, urlRoot, path);
+        this(req, resp, urlRoot, path, wireTracker, HttpTransports.getDefault());
+    }
+
+    /**
+     * <p>Construct an AvroJson for an interaction which requires no request object,
+     * sent through a particular transport.</p>
+     * @param resp      an instance of the avro *Response method object
+     * @param urlRoot   String the server base (often includes a version number)
+     * @param path      String the request target path as identified in the schemas
+     * @param wt        If supplied, captures the data going across the wire
+     * @param transport the HTTP transport to use
+     */
+    public AvroJson(P resp, String urlRoot, String path, WireTracker wt, HttpTransport transport) {
+        this(null, resp, urlRoot, path, wt, transport);
+    }
+
+    /**
+     * Construct an AvroJson for a particular request/response interaction,
+     * sent through a particular transport. The other constructors come here, with the
+     * transport named for the current run if they don't give one.
+     *
+     * @param req         an instance of the avro *Request method object, or null if
+     *                    the interaction has none
+     * @param resp        an instance of the avro *Response method object
+     * @param urlRoot     String the server base (often includes a version number)
+     * @param path        String the request target path as identified in the schemas
+     * @param wireTracker If supplied, captures the data going across the wire
+     * @param transport   the HTTP transport to use
+     */
+    public AvroJson(Q req, P resp, String urlRoot, String path, WireTracker wireTracker,
+                    HttpTransport transport) {
+        this.theAvroReq = req;
+        this.theResp = resp;
+        this.dw = new SpecificDatumWriter<>();
         this.wireTracker = wireTracker;
+        this.transport = transport;
+        // responses to asynchronous requests are recorded on threads outside the run
+        this.traffic = getTraffic();
+        this.latencies = getLatencies();
+        this.wireSizes = getWireSizes();
+
+        // neither urlRoot nor path should have spaces,
+        // the urlRoot should end with exactly one slash
+        setCleanRootUrl(urlRoot, path);
     }
 
     /**
@@ -163,18 +334,122 @@ public class AvroJson<Q extends SpecificRecordBase, P extends SpecificRecordBase
         String tsPath = path.trim();
         this.path = CharMatcher.is('/').trimFrom(tsPath);
 
-        log.debug("set urlRoot = " + this.urlRoot + " path = " + this.path + " merged = " +
-                          makeUrl(this.urlRoot, this.path));
+        this.urlTemplate = UrlTemplate.of(this.urlRoot, this.path);
+        if (log.isDebugEnabled()) {
+            log.debug("set urlRoot = " + this.urlRoot + " path = " + this.path + " merged = " + urlTemplate);
+        }
+    }
+
+    /**
+     * <p>Access the message-traffic summary of the current run.</p>
+     * <p>Traffic is counted per endpoint path, HTTP method and response class (msg type),
+     * with a histogram of HTTP status codes and a few sample request bodies/ids.
+     * Each {@link RunContext} has a summary of its own, so runs going on at once don't
+     * mix their traffic; interactions outside any run share one.</p>
+     *
+     * @return the traffic summary for the {@link RunContext} bound to this thread
+     */
+    public static MessageTraffic getTraffic() {
+        final RunContext context = RunContext.current();
+        return context == null ? defaultTraffic : context.computeIfAbsent(MessageTraffic.class, MessageTraffic::new);
+    }
+
+    /**
+     * <p>Access the request latencies of the current run.</p>
+     * <p>Every interaction is timed, per endpoint path, in three phases: serializing the
+     * request, waiting for the transport (network and server time), and deserializing the response.
+     * As with {@link #getTraffic()}, each {@link RunContext} has latencies of its own.</p>
+     *
+     * @return the latency histograms for the {@link RunContext} bound to this thread
+     */
+    public static EndpointLatencies getLatencies() {
+        final RunContext context = RunContext.current();
+        return context == null ? defaultLatencies
+                : context.computeIfAbsent(EndpointLatencies.class, EndpointLatencies::new);
+    }
+
+    /**
+     * <p>Access the body sizes of the current run.</p>
+     * <p>Every interaction's request and response bodies are added up, per endpoint path, as
+     * they went over the wire and uncompressed. As with {@link #getTraffic()}, each
+     * {@link RunContext} has totals of its own.</p>
+     *
+     * @return the body size totals for the {@link RunContext} bound to this thread
+     */
+    public static EndpointWireSizes getWireSizes() {
+        final RunContext context = RunContext.current();
+        return context == null ? defaultWireSizes
+                : context.computeIfAbsent(EndpointWireSizes.class, EndpointWireSizes::new);
+    }
+
+    /**
+     * Is the legacy (JsonNode, then String, then Gson) response decoding in use?
+     *
+     * @return true if responses are decoded the legacy way
+     */
+    public static boolean isLegacyDecode() {
+        return legacyDecode;
+    }
+
+    /**
+     * <p>Choose how response bodies are decoded, e.g. to compare the results of the two.</p>
+     * <p>The streaming decoder (the default) reads the body once into the response object;
+     * the legacy decoder goes through a {@link JsonNode} tree and a String first.
+     * The initial setting comes from the <tt>ctk.tgt.legacydecode</tt> system property.</p>
+     *
+     * @param legacy true to use the legacy decoder, false for streaming
+     */
+    public static void setLegacyDecode(boolean legacy) {
+        legacyDecode = legacy;
+    }
+
+    /**
+     * Is the Avro binary wire mode enabled?
+     *
+     * @return true if blocking requests try the Avro binary encoding first
+     */
+    public static boolean isAvroBinary() {
+        return avroBinary;
+    }
+
+    /**
+     * <p>Enable or disable the Avro binary wire mode.</p>
+     * <p>When enabled, {@link #doPostResp()} sends the request Avro binary-encoded, and both it
+     * and {@link #doGetResp(String, Map)} ask for an Avro binary response.  A server that
+     * answers with HTTP 406 or 415 is retried in JSON, and from then on only gets JSON.
+     * A server that replies in JSON anyway is understood as usual (but an error reply to a
+     * binary body is retried in JSON), and from then on only gets JSON too. A request that
+     * fails in the transport, e.g. by timing out, is not retried.
+     * The initial setting comes from the <tt>ctk.tgt.avrobinary</tt> system property.</p>
+     *
+     * @param binary true to try Avro binary first, false for JSON only
+     */
+    public static void setAvroBinary(boolean binary) {
+        avroBinary = binary;
+        jsonOnlyServers.clear();
+    }
+
+    /**
+     * Are POST bodies being compressed?
+     *
+     * @return true if request bodies are sent gzip-compressed
+     */
+    public static boolean isCompressRequests() {
+        return compressRequests;
     }
 
     /**
-     * <p>Access the message-traffic recording Table.</p>
-     * <p>Each target endpoint/parameter string becomes a key to a row in the table,
-     * and the row cells are:</p>
-     * <p>| request (class, post/get, body/id) | response class (msg type) | HTTP status code |</p>
+     * <p>Enable or disable gzip compression of POST bodies.</p>
+     * <p>Compressed bodies are sent with <tt>Content-Encoding: gzip</tt>. A server that
+     * answers with HTTP 415 is retried uncompressed, and from then on only gets
+     * uncompressed bodies. (Compressed responses are always accepted, whatever this setting.)
+     * The initial setting comes from the <tt>ctk.tgt.compressrequests</tt> system property.</p>
+     *
+     * @param compress true to gzip request bodies
      */
-    public static Table<String, String, Integer> getMessages() {
-        return messages;
+    public static void setCompressRequests(boolean compress) {
+        compressRequests = compress;
+        uncompressedOnlyServers.clear();
     }
 
     /**
@@ -195,22 +470,36 @@ public class AvroJson<Q extends SpecificRecordBase, P extends SpecificRecordBase
         this.wireTracker = wireTracker;
     }
 
+    /**
+     * Getter for the HTTP transport this interaction goes through.
+     *
+     * @return the {@code HttpTransport}
+     */
+    public HttpTransport getTransport() {
+        return transport;
+    }
+
     /**
      * Perform POST (according the data stored in this object at construction).
      * <p>
      * If this object has a WireTracker then the return JSON (if any) is copied into that.
-     * This method also tracks all message types sent and received, in the 'messages' Table.
+     * This method also tracks all message types sent and received, in the traffic summary.
      *
      * @return an instance of the response type (as set during object construction), can be null.
      */
     public P doPostResp() throws GAException {
+        if (transport.exchangesObjects()) {
+            return loopback("POST", null, null);
+        }
         reqSchema = theAvroReq.getSchema();
 
         //jsonBytes = JsonMaker.avroToJsonBytes(dw, reqSchema, theAvroReq);
         //jsonBytes = JsonMaker.JacksonToJsonBytes(theAvroReq);
+        final long start = System.nanoTime();
         jsonStr = JsonMaker.GsonToJsonBytes(theAvroReq);
+        serializeNanos = System.nanoTime() - start;
 
-        httpResp = jsonPost(makeUrl(urlRoot, path));
+        httpResp = useAvroBinary() ? avroPost(urlTemplate.getUrl()) : jsonPost(urlTemplate.getUrl());
 
         updateTheRespAndLogMessages("POST");
 
@@ -218,61 +507,149 @@ public class AvroJson<Q extends SpecificRecordBase, P extends SpecificRecordBase
     }
 
     /**
-     * Create and return a custom {@link Gson} object that knows how to deal with the innards of
-     * {@link GAException}, which has a field with a weird generated name (<tt>"message$"</tt>).
+     * Perform POST without blocking the calling thread.
+     * <p>The request is serialized on the calling thread and handed to the transport;
+     * the response is deserialized on the transport's thread when it arrives. WireTracker and traffic tracking are the same as for {@link #doPostResp()}.</p>
+     * <p>The future completes with the response object (null if the server could not be
+     * reached, just as {@link #doPostResp()} returns null), or completes exceptionally with
+     * a {@link GAWrapperException} if the server returned a {@link GAException}.</p>
      *
-     * @return a custom {@link Gson} object for dealing with {@link GAException}
+     * @return a future for the response type (as set during object construction)
      */
-    private Gson makeGson() {
-        final GsonBuilder builder = new GsonBuilder();
-        builder.setFieldNamingStrategy(field -> {
-            final String originalName = field.getName();
-            if (originalName.equals("message$")) {
-                return "message";
-            }
-            return originalName;
-        });
-        return builder.create();
+    public CompletableFuture<P> doPostRespAsync() {
+        if (transport.exchangesObjects()) {
+            return loopbackAsync("POST", null, null);
+        }
+        reqSchema = theAvroReq.getSchema();
+        final long start = System.nanoTime();
+        jsonStr = JsonMaker.GsonToJsonBytes(theAvroReq);
+        serializeNanos = System.nanoTime() - start;
+
+        final String theURL = urlTemplate.getUrl();
+        if (log.isDebugEnabled()) {
+            log.debug("begin async jsonPost to " + theURL + " of " + jsonStr);
+        }
+        return whenResponds(postAsync(theURL, JSON_POST_HEADERS, jsonStr.getBytes(StandardCharsets.UTF_8)),
+                            "POST", theURL, jsonStr);
     }
 
     private void updateTheRespAndLogMessages(String postOrGet) throws GAException {
+        final long start = System.nanoTime();
+        try {
+            decodeTheResp();
+        } finally {
+            // httpResp can be null (e.g., a timeout), and then there's nothing to decode
+            deserializeNanos = httpResp != null ? System.nanoTime() - start : -1;
+            latencies.record(path, serializeNanos, networkNanos, deserializeNanos);
+            trackSizes();
+        }
+        logMessage(postOrGet);
+    }
+
+    /**
+     * Decode the response object (or the {@link GAException}) from the HTTP response.
+     *
+     * @throws GAException if the server returned one
+     */
+    private void decodeTheResp() throws GAException {
         // httpResp can be null (e.g., a timeout)
         if (httpResp != null) {
             final int httpStatus = httpResp.getStatus();
             if (httpStatus != HttpStatus.SC_OK) {
-                final String json = httpResp.getBody().toString();
-                final Gson gson = makeGson();
-                try {
-                    final GAException cause = gson.fromJson(json, GAException.class);
-                    log.info("Throwing GAException for " + json + ", status " + httpStatus);
-                    throw new GAWrapperException(cause, httpStatus);
-                } catch (JsonSyntaxException e) {
-                    log.warn("Parse failure on GAException: BODY < " + json + " > " + e.toString());
+                if (isAvroBinary(httpResp)) {
+                    final GAException cause = decodeAvroBinary(new GAException());
+                    if (cause != null) {
+                        log.info("Throwing GAException " + cause + ", status " + httpStatus);
+                        throw new GAWrapperException(cause, httpStatus);
+                    }
+                } else {
+                    final String json = bodyText(httpResp);
+                    final Gson gson = GsonCodecs.gson();
+                    try {
+                        final GAException cause = gson.fromJson(json, GAException.class);
+                        log.info("Throwing GAException for " + json + ", status " + httpStatus);
+                        throw new GAWrapperException(cause, httpStatus);
+                    } catch (JsonSyntaxException e) {
+                        log.warn("Parse failure on GAException: BODY < " + json + " > " + e.toString());
+                    }
                 }
+            } else if (isAvroBinary(httpResp)) {
+                theResp = decodeAvroBinary(theResp);
+            } else if (legacyDecode) {
+                final String json = new JsonNode(httpResp.getBodyText()).toString();
+                theResp = new AvroMaker<>(theResp).makeAvroFromJson(json, urlTemplate.getUrl());
             } else {
-                final String json = httpResp.getBody().toString();
-                theResp = new AvroMaker<>(theResp).makeAvroFromJson(json, makeUrl(urlRoot, path));
+                try (InputStream body = httpResp.getBodyStream()) {
+                    theResp = new AvroMaker<>(theResp).makeAvroFromJson(
+                            new InputStreamReader(body, StandardCharsets.UTF_8), urlTemplate.getUrl());
+                    // read to the end, so the body's uncompressed size is counted
+                    ByteStreams.exhaust(body);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
             }
         } else {
             theResp = null;
         }
-        // track all message types sent/received for simple "test coverage" indication
+    }
+
+    /**
+     * Track all message types sent/received for simple "test coverage" indication.
+     *
+     * @param postOrGet the HTTP method used for this interaction
+     */
+    private void logMessage(String postOrGet) {
         String respName = theResp != null ? theResp.getClass().getSimpleName()  : "null";
-        if (theAvroReq == null) {
-            // it's a GET request, so no request object
-            messages.put(postOrGet + " <" + jsonStr + ">", respName,
-                         httpResp != null ? httpResp.getStatus() : 0);
-        } else {
-            messages.put(theAvroReq.getClass()
-                                   .getSimpleName() + postOrGet + " <" + jsonStr + ">", respName,
-                         httpResp != null ? httpResp.getStatus() : 0);
-        }
+        // for a GET request there's no request object, so sample the id instead
+        traffic.record(path, postOrGet, respName, httpResp != null ? httpResp.getStatus() : 0,
+                       theAvroReq != null ? jsonStr : getTarget);
+    }
+
+    /**
+     * <p>Receive the outcome of an asynchronous request from the transport and
+     * complete a future for the response object.</p>
+     * <p>Runs on the transport's thread, so it does the same deserialization
+     * and tracking as the synchronous path, then hands the result to the future.</p>
+     *
+     * @param request   the transport's future for the HTTP response
+     * @param postOrGet the HTTP method, for tracking
+     * @param theUrl    the URL (for display) the request went to
+     * @param bodySent  the body we sent
+     * @return the future response object
+     */
+    private CompletableFuture<P> whenResponds(CompletableFuture<HttpResult> request,
+                                              String postOrGet, String theUrl, String bodySent) {
+        final CompletableFuture<P> future = new CompletableFuture<>();
+        request.whenComplete((response, error) -> {
+            networkNanos = System.nanoTime() - sentAt;
+            final Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause instanceof CancellationException) {
+                log.debug("async " + postOrGet + " to " + theUrl + " was cancelled");
+                future.cancel(false);
+                return;
+            }
+            if (cause != null) {
+                log.warn("problem communicating with " + theUrl, cause);
+            } else if (log.isDebugEnabled()) {
+                log.debug("exit async " + postOrGet + " to " + theUrl + " with status "
+                                  + response.getStatus());
+            }
+            trackWire(theUrl, bodySent, response);
+            httpResp = response;
+            try {
+                updateTheRespAndLogMessages(postOrGet);
+                future.complete(theResp);
+            } catch (GAException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
     }
 
     /**
      * Perform GET (according the data stored in this object at construction).
      * <p>If this object has a WireTracker then the return JSON (if any) is copied into that.
-     * This method also tracks all message types sent and received, in the 'messages' Table.</p>
+     * This method also tracks all message types sent and received, in the traffic summary.</p>
      *
      * @param id string to be used as route param to the URL
      *
@@ -287,7 +664,7 @@ public class AvroJson<Q extends SpecificRecordBase, P extends SpecificRecordBase
     /**
      * Perform GET (according the data stored in this object at construction).
      * <p>If this object has a WireTracker then the return JSON (if any) is copied into that.
-     * This method also tracks all message types sent and received, in the 'messages' Table.</p>
+     * This method also tracks all message types sent and received, in the traffic summary.</p>
      *
      * @param id string to be used as route param to the URL
      * @param queryParams optional query parameters to add to the GET request.  May be null.
@@ -297,81 +674,530 @@ public class AvroJson<Q extends SpecificRecordBase, P extends SpecificRecordBase
      * @throws GAException if the server throws one in response to this request
      */
     public P doGetResp(String id, Map<String, Object> queryParams) throws GAException {
+        getTarget = describeGetTarget(id, queryParams);
+        if (transport.exchangesObjects()) {
+            return loopback("GET", id, queryParams);
+        }
 
         // no request object to build, just GET from the endpoint with route param
-        httpResp = jsonGet(makeUrl(urlRoot, path), id, queryParams);
+        httpResp = useAvroBinary() ? avroGet(urlTemplate.getUrl(), id, queryParams)
+                : jsonGet(urlTemplate.getUrl(), id, queryParams);
 
         updateTheRespAndLogMessages("GET");
 
         return theResp;
     }
 
+    /**
+     * Perform GET without blocking the calling thread.
+     * <p>Tracking and completion are as described for {@link #doPostRespAsync()}.</p>
+     *
+     * @param id string to be used as route param to the URL
+     * @param queryParams optional query parameters to add to the GET request.  May be null.
+     *
+     * @return a future for the response type (as set during object construction)
+     */
+    public CompletableFuture<P> doGetRespAsync(String id, Map<String, Object> queryParams) {
+        getTarget = describeGetTarget(id, queryParams);
+        if (transport.exchangesObjects()) {
+            return loopbackAsync("GET", id, queryParams);
+        }
+        final String theUrl = urlTemplate.getUrl();
+        if (log.isDebugEnabled()) {
+            log.debug("begin async jsonGet to " + theUrl + " id = " + id);
+        }
+        sentAt = System.nanoTime();
+        return whenResponds(transport.getAsync(urlTemplate.expand(id, queryParams), JSON_GET_HEADERS,
+                                                readTimeout()),
+                            "GET", theUrl + " / " + id, "");
+    }
+
+    /**
+     * <p>Hand the request object (or the GET's parameters) to the in-JVM server behind a
+     * transport that {@link HttpTransport#exchangesObjects()}, and take its response object
+     * back.</p>
+     * <p>Only the exchange's time is recorded, as network time. Afterwards, and untimed, the
+     * sizes are counted for the run's wire sizes. Only with a WireTracker attached are the
+     * request and response (or the {@link GAException}) rendered as the JSON that would have
+     * crossed the wire, and counted as that, so they read the same as over HTTP; otherwise
+     * their Avro binary encodings are counted, and the request is rendered for the traffic
+     * samples only while they're still being collected.</p>
+     *
+     * @param postOrGet   the HTTP method the request stands for
+     * @param id          the GET's route parameter
+     * @param queryParams the GET's query parameters, may be null
+     * @return the response object
+     * @throws GAException (a {@link GAWrapperException}) if the server throws one
+     */
+    private P loopback(String postOrGet, String id, Map<String, Object> queryParams) throws GAException {
+        final String theUrl = theAvroReq != null ? urlTemplate.getUrl() : urlTemplate.getUrl() + " / " + id;
+        serializeNanos = -1;
+        deserializeNanos = -1;
+        GAWrapperException failure = null;
+        SpecificRecordBase result = null;
+        final long start = System.nanoTime();
+        try {
+            result = transport.exchange(path, theAvroReq, id, queryParams);
+        } catch (GAWrapperException e) {
+            failure = e;
+        } catch (GAException e) {
+            failure = new GAWrapperException(e, HttpStatus.SC_BAD_REQUEST);
+        } finally {
+            networkNanos = System.nanoTime() - start;
+            latencies.record(path, serializeNanos, networkNanos, deserializeNanos);
+        }
+
+        final int status = failure != null ? failure.getHttpStatusCode() : HttpStatus.SC_OK;
+        if (failure == null && !theResp.getClass().isInstance(result)) {
+            throw new IllegalStateException("loopback " + postOrGet + " " + path + " returned "
+                                                    + result + ", not a " + theResp.getClass().getSimpleName());
+        }
+        if (wireTracker == null) {
+            final int sent = binarySize(theAvroReq);
+            final int received = failure != null
+                    ? gaExceptionJson(failure).getBytes(StandardCharsets.UTF_8).length : binarySize(result);
+            wireSizes.record(path, sent, sent, received, received);
+            traffic.record(path, postOrGet, theResp.getClass().getSimpleName(), status,
+                           () -> theAvroReq != null ? JsonMaker.GsonToJsonBytes(theAvroReq) : getTarget);
+        } else {
+            jsonStr = theAvroReq != null ? JsonMaker.GsonToJsonBytes(theAvroReq) : null;
+            final String bodyReceived = failure != null ? gaExceptionJson(failure) : JsonMaker.GsonToJsonBytes(result);
+            final int sent = jsonStr != null ? jsonStr.getBytes(StandardCharsets.UTF_8).length : 0;
+            final int received = bodyReceived.getBytes(StandardCharsets.UTF_8).length;
+            wireSizes.record(path, sent, sent, received, received);
+            wireTracker.theUrl = theUrl;
+            wireTracker.bodySent = jsonStr;
+            wireTracker.bytesSent = sent;
+            wireTracker.bytesSentUncompressed = sent;
+            wireTracker.bodyReceived = bodyReceived;
+            wireTracker.bytesReceived = received;
+            wireTracker.bytesReceivedUncompressed = received;
+            wireTracker.setResponseStatus(fromInt(status));
+            traffic.record(path, postOrGet, theResp.getClass().getSimpleName(), status,
+                           theAvroReq != null ? jsonStr : getTarget);
+        }
+        if (failure != null) {
+            log.info("Throwing GAException " + failure.getMessage() + ", status " + status);
+            throw failure;
+        }
+        theResp = cast(result);
+        return theResp;
+    }
+
+    /**
+     * Count the bytes of an object's Avro binary encoding, or of its JSON if it can't be
+     * encoded (e.g., a required field is null).
+     *
+     * @param record the object, may be null
+     * @return the size, 0 for null
+     */
+    private static int binarySize(SpecificRecordBase record) {
+        if (record == null) {
+            return 0;
+        }
+        try {
+            return AvroBinary.toBytes(record).length;
+        } catch (IOException | RuntimeException e) {
+            return JsonMaker.GsonToJsonBytes(record).getBytes(StandardCharsets.UTF_8).length;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private P cast(SpecificRecordBase result) {
+        return (P) result;
+    }
+
+    /**
+     * {@link #loopback(String, String, Map)}, with the outcome in an already-completed future.
+     */
+    private CompletableFuture<P> loopbackAsync(String postOrGet, String id, Map<String, Object> queryParams) {
+        final CompletableFuture<P> future = new CompletableFuture<>();
+        try {
+            future.complete(loopback(postOrGet, id, queryParams));
+        } catch (GAException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Render a {@link GAException} as the JSON body a server would send with it.
+     */
+    private static String gaExceptionJson(GAWrapperException e) {
+        final JsonObject json = new JsonObject();
+        json.addProperty("message", e.getMessage());
+        json.addProperty("errorCode", e.getErrorCode());
+        return json.toString();
+    }
+
+    private static String describeGetTarget(String id, Map<String, Object> queryParams) {
+        return queryParams == null || queryParams.isEmpty() ? id : id + " " + queryParams;
+    }
+
     /**
      * Do actual post with logging/tracking
      *
      * @param theURL the the uRL
-     * @return the HTTP response (can be null, if Unirest throws exception)
+     * @return the HTTP response (can be null, if the transport throws exception)
      */
-    HttpResponse<JsonNode> jsonPost(String theURL) {
+    HttpResult jsonPost(String theURL) {
         if (log.isDebugEnabled()) {
             log.debug("begin jsonPost to " + theURL + " of " + jsonStr);
         }
-        HttpResponse<JsonNode> jsonResponse = null;
+        HttpResult jsonResponse = null;
         try {
-            jsonResponse = Unirest.post(theURL)
-                    .header("Content-Type", "application/json")
-                    .header("accept", "application/json")
-                    .body(jsonStr)
-                    .asJson();
-        } catch (UnirestException e) {
+            jsonResponse = post(theURL, JSON_POST_HEADERS, jsonStr.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
             log.warn("problem communicating with " + theURL, e.getMessage());
             log.debug(e.toString());
         }
         if (log.isDebugEnabled()) {
             log.debug("exit jsonPost to " + theURL + " with status "
-                    + jsonResponse != null ? jsonResponse.getStatusText() : "FAILED");
-        }
-        if (wireTracker != null) {
-            wireTracker.theUrl = theURL;
-            wireTracker.bodySent = jsonStr;
-            wireTracker.bodyReceived = (jsonResponse != null? jsonResponse.getBody().toString(): null);
-            wireTracker.setResponseStatus(fromInt(jsonResponse != null ? jsonResponse.getStatus() : 0));
+                    + (jsonResponse != null ? jsonResponse.getStatusText() : "FAILED"));
         }
+        trackWire(theURL, jsonStr, jsonResponse);
         return jsonResponse;
     }
 
-    HttpResponse<JsonNode> jsonGet(String theUrl, String id, Map<String, Object> queryParams) {
+    HttpResult jsonGet(String theUrl, String id, Map<String, Object> queryParams) {
         if (log.isDebugEnabled()) {
             log.debug("begin jsonGet to " + theUrl + " id = " + id);
         }
-        HttpResponse<JsonNode> jsonResponse = null;
+        HttpResult jsonResponse = null;
 
         try {
-            jsonResponse = Unirest.get(theUrl)
-                    .header("accept", "application/json")
-                    .routeParam("id", id)
-                    .queryString(queryParams)
-                    .asJson();
-        } catch (UnirestException e) {
+            jsonResponse = timedGet(urlTemplate.expand(id, queryParams), JSON_GET_HEADERS);
+        } catch (IOException e) {
             log.warn("problem communicating with " + theUrl + " id: " + id, e);
         }
         if (log.isDebugEnabled()) {
             log.debug("exit jsonGet to " + theUrl + " id = " + id + " with status "
-                    + jsonResponse != null ? jsonResponse.getStatusText() : "FAILED");
+                    + (jsonResponse != null ? jsonResponse.getStatusText() : "FAILED"));
+        }
+        // value below is for tracing/display only; it's not meant to be a valid URL
+        trackWire(theUrl + " / " + id, "", jsonResponse);
+        return jsonResponse;
+    }
+
+    /**
+     * POST a body, compressed if that's enabled and the server hasn't refused it.
+     *
+     * @param theURL  the URL
+     * @param headers the request headers
+     * @param body    the uncompressed body
+     * @return the HTTP response
+     * @throws IOException if there's a communication problem
+     */
+    private HttpResult post(String theURL, Map<String, String> headers, byte[] body) throws IOException {
+        bytesSentUncompressed = body.length;
+        if (useCompression()) {
+            final long start = System.nanoTime();
+            final byte[] gz = gzip(body);
+            serializeNanos += System.nanoTime() - start;
+            bytesSent = gz.length;
+            final HttpResult response = timedPost(theURL, withGzipBody(headers), gz);
+            if (!refusedCompression(response)) {
+                return response;
+            }
+        }
+        bytesSent = body.length;
+        return timedPost(theURL, headers, body);
+    }
+
+    /**
+     * POST through the transport, adding the time taken to this interaction's network time.
+     */
+    private HttpResult timedPost(String theURL, Map<String, String> headers, byte[] body) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            return transport.post(theURL, headers, body, readTimeout());
+        } finally {
+            networkNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * GET through the transport, adding the time taken to this interaction's network time.
+     */
+    private HttpResult timedGet(String theURL, Map<String, String> headers) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            return transport.get(theURL, headers, readTimeout());
+        } finally {
+            networkNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * POST a body without blocking, compressed if that's enabled and the server hasn't refused it.
+     *
+     * @param theURL  the URL
+     * @param headers the request headers
+     * @param body    the uncompressed body
+     * @return the transport's future for the HTTP response
+     */
+    private CompletableFuture<HttpResult> postAsync(String theURL, Map<String, String> headers, byte[] body) {
+        bytesSentUncompressed = body.length;
+        if (useCompression()) {
+            final byte[] gz;
+            final long start = System.nanoTime();
+            try {
+                gz = gzip(body);
+                serializeNanos += System.nanoTime() - start;
+            } catch (IOException e) {
+                final CompletableFuture<HttpResult> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+            bytesSent = gz.length;
+            sentAt = System.nanoTime();
+            return transport.postAsync(theURL, withGzipBody(headers), gz, readTimeout())
+                            .thenCompose(response -> {
+                                if (!refusedCompression(response)) {
+                                    return CompletableFuture.completedFuture(response);
+                                }
+                                bytesSent = body.length;
+                                return transport.postAsync(theURL, headers, body, readTimeout());
+                            });
+        }
+        bytesSent = body.length;
+        sentAt = System.nanoTime();
+        return transport.postAsync(theURL, headers, body, readTimeout());
+    }
+
+    private boolean useCompression() {
+        return compressRequests && !uncompressedOnlyServers.contains(urlRoot);
+    }
+
+    /**
+     * Did the server refuse a compressed body?  If so, remember that for next time.
+     *
+     * @param response the response to a compressed request
+     * @return true if the server answered 415 (Unsupported Media Type)
+     */
+    private boolean refusedCompression(HttpResult response) {
+        if (response.getStatus() == HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE) {
+            log.info(urlRoot + " refused a gzip request body, sending uncompressed from now on");
+            uncompressedOnlyServers.add(urlRoot);
+            return true;
+        }
+        return false;
+    }
+
+    private static Map<String, String> withGzipBody(Map<String, String> headers) {
+        return ImmutableMap.<String, String>builder().putAll(headers).put("Content-Encoding", "gzip").build();
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(body);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Return the read timeout for this endpoint, which may be longer or shorter than
+     * the transport's default (see {@link org.ga4gh.ctk.transport.http.TransportConfig}).
+     *
+     * @return the read timeout in milliseconds
+     */
+    private int readTimeout() {
+        return transport.getConfig().getReadTimeout(path);
+    }
+
+    /**
+     * Should this interaction try the Avro binary encoding?
+     *
+     * @return true if binary mode is on and this server hasn't refused it
+     */
+    private boolean useAvroBinary() {
+        return avroBinary && !jsonOnlyServers.contains(urlRoot);
+    }
+
+    /**
+     * POST the request Avro binary-encoded, asking for an Avro binary response; if the
+     * request can't be encoded, or the server refuses binary, POST it as JSON instead.
+     * A request that fails in the transport (e.g., a timeout) isn't sent again.
+     *
+     * @param theURL the URL
+     * @return the HTTP response (can be null, if the transport throws exception)
+     */
+    HttpResult avroPost(String theURL) {
+        final byte[] body;
+        final long start = System.nanoTime();
+        try {
+            body = AvroBinary.toBytes(theAvroReq);
+            serializeNanos += System.nanoTime() - start;
+        } catch (IOException | RuntimeException e) {
+            log.warn("can't binary-encode " + theAvroReq.getClass().getSimpleName()
+                             + ", sending JSON", e);
+            return jsonPost(theURL);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("begin avroPost to " + theURL + " of " + body.length + " bytes");
+        }
+        HttpResult avroResponse = null;
+        try {
+            avroResponse = post(theURL, AVRO_POST_HEADERS, body);
+        } catch (IOException e) {
+            log.warn("problem communicating with " + theURL, e);
+        }
+        if (refusedAvroBinary(avroResponse, true)) {
+            return jsonPost(theURL);
+        }
+        trackWire(theURL, jsonStr, avroResponse);
+        return avroResponse;
+    }
+
+    /**
+     * GET, asking for an Avro binary response; if the server refuses binary, GET again
+     * asking for JSON. A request that fails in the transport isn't sent again.
+     *
+     * @param theUrl      the URL, for logging (the request URL comes from the endpoint's template)
+     * @param id          the route param
+     * @param queryParams query parameters for the request, may be null
+     * @return the HTTP response (can be null, if the transport throws exception)
+     */
+    HttpResult avroGet(String theUrl, String id, Map<String, Object> queryParams) {
+        if (log.isDebugEnabled()) {
+            log.debug("begin avroGet to " + theUrl + " id = " + id);
+        }
+        HttpResult avroResponse = null;
+        try {
+            avroResponse = timedGet(urlTemplate.expand(id, queryParams), AVRO_GET_HEADERS);
+        } catch (IOException e) {
+            log.warn("problem communicating with " + theUrl + " id: " + id, e);
         }
+        if (refusedAvroBinary(avroResponse, false)) {
+            return jsonGet(theUrl, id, queryParams);
+        }
+        trackWire(theUrl + " / " + id, "", avroResponse);
+        return avroResponse;
+    }
+
+    /**
+     * Did the server refuse to speak Avro binary?  If so, remember that for next time.
+     * <p>A server refuses by answering 406 (Not Acceptable) or 415 (Unsupported Media
+     * Type), or by answering in something other than Avro binary. An answer in JSON is
+     * used as it is, unless it's an error to a binary request body, which the server
+     * may not have been able to read.</p>
+     *
+     * @param response the response to an Avro binary request, can be null
+     * @param sentBody whether the request had an Avro binary body
+     * @return true if the request should be sent again as JSON; false if there's no
+     * response (the transport failed) or it can be used as it is
+     */
+    private boolean refusedAvroBinary(HttpResult response, boolean sentBody) {
+        if (response == null) {
+            return false;
+        }
+        final int status = response.getStatus();
+        if (status == HttpStatus.SC_NOT_ACCEPTABLE || status == HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE) {
+            log.info(urlRoot + " refused " + AvroBinary.MIME_TYPE + " (status " + status
+                             + "), using JSON from now on");
+            jsonOnlyServers.add(urlRoot);
+            return true;
+        }
+        if (!isAvroBinary(response)) {
+            log.info(urlRoot + " answered an " + AvroBinary.MIME_TYPE + " request with "
+                             + response.getHeader("Content-Type") + " (status " + status
+                             + "), using JSON from now on");
+            jsonOnlyServers.add(urlRoot);
+            return sentBody && status != HttpStatus.SC_OK;
+        }
+        return false;
+    }
+
+    /**
+     * Is the body of this response Avro binary-encoded?
+     *
+     * @param response the response
+     * @return true if its <tt>Content-Type</tt> is <tt>application/avro</tt>
+     */
+    private static boolean isAvroBinary(HttpResult response) {
+        final String contentType = response.getHeader("Content-Type");
+        return contentType != null && contentType.trim().toLowerCase().startsWith(AvroBinary.MIME_TYPE);
+    }
+
+    /**
+     * Decode the Avro binary body of the current response.
+     *
+     * @param exemplar an instance of the type to decode
+     * @param <T>      the Avro-generated type
+     * @return the decoded object, or null if the body can't be decoded
+     */
+    private <T extends SpecificRecord> T decodeAvroBinary(T exemplar) {
+        try (InputStream body = httpResp.getBodyStream()) {
+            final T decoded = AvroBinary.fromBytes(body, exemplar);
+            ByteStreams.exhaust(body);
+            return decoded;
+        } catch (IOException | RuntimeException e) {
+            log.warn("can't decode " + AvroBinary.MIME_TYPE + " " + exemplar.getClass().getSimpleName()
+                             + " from " + urlTemplate.getUrl(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Copy the details of this interaction into the WireTracker, if we have one. The response's
+     * uncompressed size is filled in once it's been decoded (see {@link #trackSizes()}).
+     *
+     * @param theUrl the URL (for display) the request went to
+     * @param bodySent the body we sent
+     * @param jsonResponse the response we got, can be null
+     */
+    private void trackWire(String theUrl, String bodySent, HttpResult jsonResponse) {
         if (wireTracker != null) {
-            // value below is for tracing/display only; it's not meant to be a valid URL
-            wireTracker.theUrl = theUrl + " / " + id;
-            wireTracker.bodySent = "";
-            wireTracker.bodyReceived = (jsonResponse != null? jsonResponse.getBody().toString(): null);
+            wireTracker.theUrl = theUrl;
+            wireTracker.bodySent = bodySent;
+            wireTracker.bytesSent = bytesSent;
+            wireTracker.bytesSentUncompressed = bytesSentUncompressed;
+            wireTracker.bodyReceived = null;
+            wireTracker.bytesReceived = 0;
+            wireTracker.bytesReceivedUncompressed = 0;
+            if (jsonResponse != null) {
+                wireTracker.bytesReceived = jsonResponse.getWireLength();
+                try {
+                    wireTracker.bodyReceived = bodyText(jsonResponse);
+                } catch (UncheckedIOException e) {
+                    log.warn("can't decompress response body from " + theUrl, e);
+                    wireTracker.bodyReceived = "<" + jsonResponse.getContentEncoding() + " body, not decodable>";
+                }
+            }
             wireTracker.setResponseStatus(fromInt(jsonResponse != null ? jsonResponse.getStatus() : 0));
         }
-        return jsonResponse;
+    }
+
+    /**
+     * Add this interaction's body sizes to the run's totals, and give the WireTracker the
+     * response's uncompressed size, as counted while it was decoded.
+     */
+    private void trackSizes() {
+        final int received = httpResp != null ? httpResp.getWireLength() : 0;
+        final int receivedUncompressed = httpResp != null ? httpResp.getDecodedLength() : 0;
+        wireSizes.record(path, bytesSent, bytesSentUncompressed, received, receivedUncompressed);
+        if (wireTracker != null) {
+            wireTracker.bytesReceivedUncompressed = receivedUncompressed;
+        }
+    }
+
+    /**
+     * Return the body of a response as text, for tracking and logging.
+     *
+     * @param response the response
+     * @return the body text (a placeholder, for an Avro binary body)
+     */
+    private static String bodyText(HttpResult response) {
+        if (isAvroBinary(response)) {
+            return "<" + AvroBinary.MIME_TYPE + " body>";
+        }
+        return response.getBodyText();
     }
 
     public String toString(){
         String reqName = theAvroReq == null ? "null" : theAvroReq.getClass().getSimpleName();
         String respName = theResp == null? "null" : theResp.getClass().getSimpleName();
-        return makeUrl(urlRoot, path) + " " + reqName + " " + respName;
+        return urlTemplate.getUrl() + " " + reqName + " " + respName;
     }
 }
@@ -4,6 +4,8 @@ import com.google.gson.*;
 import org.apache.avro.*;
 import org.apache.avro.specific.*;
 
+import java.io.Reader;
+
 import static org.slf4j.LoggerFactory.*;
 
 /**
@@ -43,9 +45,37 @@ public class AvroMaker<T extends SpecificRecordBase> {
     }
 
 
+    /**
+     * Make avro from json read off a stream, without first materializing the json as a String.
+     * <p>The reader is consumed (but not closed) by a single pass of Gson's pull parser, which
+     * builds the Avro object directly; use this for large search responses.</p>
+     *
+     * @param json         the json source, positioned at the start of the document
+     * @param sourceForLog the source of the json, for log message
+     * @return the generic container
+     */
+    public T makeAvroFromJson(Reader json, String sourceForLog) {
+
+        T response = gsonToObjectRelaxed(json);
+
+        if (response == null) {
+            log.info("makeAvroFromResponse returns null instead of requested " + avroClass.getName()
+                            + " from " + sourceForLog
+            );
+        }
+        return response;
+    }
+
+    private T gsonToObjectRelaxed(Reader theJson){
+        T tgt = (T) GsonCodecs.gson().fromJson(theJson, avroClass);
+        if (log.isDebugEnabled()) {
+            log.debug("streaming a " + avroClass.getName() + " yields " + tgt);
+        }
+        return tgt;
+    }
+
     private T gsonToObjectRelaxed(String theJson){
-        Gson gson = new Gson();
-        T tgt = (T) gson.fromJson(theJson, avroClass);
+        T tgt = (T) GsonCodecs.gson().fromJson(theJson, avroClass);
         log.debug("generating a "+ avroClass.getName() + " from <" + theJson + "> yields " + tgt.toString());
         return tgt;
     }
@@ -0,0 +1,150 @@
+package org.ga4gh.ctk.transport.avrojson;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Request latencies, per endpoint, as measured by AvroJson.</p>
+ * <p>Each request's time is split into the phases of {@link Phase}, each with its own
+ * {@link LatencyHistogram}, so a slow run can be blamed on the server (network time,
+ * which includes the server's processing) or on the kit (serialize and deserialize time).</p>
+ */
+public class EndpointLatencies {
+
+    /**
+     * The parts of a request that are timed.
+     */
+    public enum Phase {
+        /**
+         * Building the request body (POST only).
+         */
+        SERIALIZE,
+        /**
+         * From handing the request to the transport until the whole response has arrived.
+         */
+        NETWORK,
+        /**
+         * Decoding the response body into the response object.
+         */
+        DESERIALIZE,
+        /**
+         * All of the above.
+         */
+        TOTAL
+    }
+
+    /**
+     * The percentiles reported by {@link #writeCsv(Writer, Map)}.
+     */
+    public static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final ConcurrentMap<String, Map<Phase, LatencyHistogram>> byEndpoint = new ConcurrentHashMap<>();
+
+    /**
+     * Record the phase times of one request.
+     *
+     * @param endpoint         the endpoint path (e.g., <tt>reads/search</tt>)
+     * @param serializeNanos   time to build the request body, or negative if there wasn't one
+     * @param networkNanos     time waiting for the transport
+     * @param deserializeNanos time to decode the response, or negative if there wasn't one
+     */
+    public void record(String endpoint, long serializeNanos, long networkNanos, long deserializeNanos) {
+        final Map<Phase, LatencyHistogram> phases = byEndpoint.computeIfAbsent(endpoint, e -> newPhases());
+        long total = networkNanos;
+        phases.get(Phase.NETWORK).record(networkNanos);
+        if (serializeNanos >= 0) {
+            phases.get(Phase.SERIALIZE).record(serializeNanos);
+            total += serializeNanos;
+        }
+        if (deserializeNanos >= 0) {
+            phases.get(Phase.DESERIALIZE).record(deserializeNanos);
+            total += deserializeNanos;
+        }
+        phases.get(Phase.TOTAL).record(total);
+    }
+
+    /**
+     * Return the histogram for one endpoint and phase.
+     *
+     * @param endpoint the endpoint path
+     * @param phase    the phase
+     * @return the histogram, or null if no request to that endpoint has been recorded
+     */
+    public LatencyHistogram get(String endpoint, Phase phase) {
+        final Map<Phase, LatencyHistogram> phases = byEndpoint.get(endpoint);
+        return phases == null ? null : phases.get(phase);
+    }
+
+    /**
+     * Forget all recorded latencies.
+     */
+    public void clear() {
+        byEndpoint.clear();
+    }
+
+    /**
+     * <p>Write the latencies as CSV, one row per endpoint and phase, sorted by endpoint.
+     * Columns are the endpoint name and path, phase, count, the {@link #PERCENTILES} and
+     * max; times are in milliseconds.</p>
+     *
+     * @param out       where to write
+     * @param endpoints URLMAPPING endpoint names to paths (e.g., from
+     *                  {@link org.ga4gh.ctk.transport.URLMAPPING#getEndpoints()}),
+     *                  used to name the endpoints; may be null
+     * @throws IOException if the writer fails
+     */
+    public void writeCsv(Writer out, Map<String, String> endpoints) throws IOException {
+        final Map<String, String> names = new HashMap<>();
+        if (endpoints != null) {
+            endpoints.forEach((name, path) -> names.put(trimSlashes(path), name.replaceFirst("^ctk\\.tgt\\.", "")));
+        }
+        out.write("endpoint,path,phase,count");
+        for (double p : PERCENTILES) {
+            out.write(",p" + formatPercentile(p));
+        }
+        out.write(",max\n");
+        for (Map.Entry<String, Map<Phase, LatencyHistogram>> entry : new TreeMap<>(byEndpoint).entrySet()) {
+            final String path = entry.getKey();
+            for (Phase phase : Phase.values()) {
+                final LatencyHistogram histogram = entry.getValue().get(phase);
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                out.write(names.getOrDefault(trimSlashes(path), "") + "," + path + "," + phase
+                                  + "," + histogram.getCount());
+                for (double p : PERCENTILES) {
+                    out.write("," + millis(histogram.getPercentile(p)));
+                }
+                out.write("," + millis(histogram.getMax()) + "\n");
+            }
+        }
+        out.flush();
+    }
+
+    private static Map<Phase, LatencyHistogram> newPhases() {
+        final Map<Phase, LatencyHistogram> phases = new EnumMap<>(Phase.class);
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new LatencyHistogram());
+        }
+        return phases;
+    }
+
+    private static String trimSlashes(String path) {
+        return path.replaceAll("^/+|/+$", "");
+    }
+
+    private static String formatPercentile(double p) {
+        return p == Math.rint(p) ? Long.toString((long)p) : Double.toString(p);
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,141 @@
+package org.ga4gh.ctk.transport.avrojson;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Request and response body sizes, per endpoint, as seen by AvroJson; kept alongside the
+ * {@link EndpointLatencies}.</p>
+ * <p>Each endpoint's {@link Totals} add up the bodies both ways, as they went over the wire
+ * and uncompressed, so a run shows what compression saves on each endpoint.</p>
+ */
+public class EndpointWireSizes {
+
+    private final ConcurrentMap<String, Totals> byEndpoint = new ConcurrentHashMap<>();
+
+    /**
+     * Record the body sizes of one request.
+     *
+     * @param endpoint               the endpoint path (e.g., <tt>reads/search</tt>)
+     * @param sent                   request body bytes as sent
+     * @param sentUncompressed       request body bytes before compression
+     * @param received               response body bytes as received, or negative if not known
+     * @param receivedUncompressed   response body bytes after decompression, or negative if not known
+     */
+    public void record(String endpoint, long sent, long sentUncompressed, long received, long receivedUncompressed) {
+        byEndpoint.computeIfAbsent(endpoint, e -> new Totals())
+                  .record(sent, sentUncompressed, received, receivedUncompressed);
+    }
+
+    /**
+     * Return the totals for one endpoint.
+     *
+     * @param endpoint the endpoint path
+     * @return the totals, or null if no request to that endpoint has been recorded
+     */
+    public Totals get(String endpoint) {
+        return byEndpoint.get(endpoint);
+    }
+
+    /**
+     * Forget all recorded sizes.
+     */
+    public void clear() {
+        byEndpoint.clear();
+    }
+
+    /**
+     * <p>Write the totals as CSV, one row per endpoint, sorted by endpoint. Columns are the
+     * endpoint name and path, the number of requests, and the bytes sent and received, each
+     * as on the wire and uncompressed.</p>
+     *
+     * @param out       where to write
+     * @param endpoints URLMAPPING endpoint names to paths, used to name the endpoints; may be null
+     * @throws IOException if the writer fails
+     */
+    public void writeCsv(Writer out, Map<String, String> endpoints) throws IOException {
+        final Map<String, String> names = new HashMap<>();
+        if (endpoints != null) {
+            endpoints.forEach((name, path) -> names.put(trimSlashes(path), name.replaceFirst("^ctk\\.tgt\\.", "")));
+        }
+        out.write("endpoint,path,count,sent,sentUncompressed,received,receivedUncompressed\n");
+        for (Map.Entry<String, Totals> entry : new TreeMap<>(byEndpoint).entrySet()) {
+            final String path = entry.getKey();
+            final Totals totals = entry.getValue();
+            out.write(names.getOrDefault(trimSlashes(path), "") + "," + path + "," + totals.getCount()
+                              + "," + totals.getBytesSent() + "," + totals.getBytesSentUncompressed()
+                              + "," + totals.getBytesReceived() + "," + totals.getBytesReceivedUncompressed() + "\n");
+        }
+        out.flush();
+    }
+
+    private static String trimSlashes(String path) {
+        return path == null ? "" : path.replaceAll("^/+|/+$", "");
+    }
+
+    /**
+     * The body sizes of every request to one endpoint, added up.
+     */
+    public static class Totals {
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder bytesSent = new LongAdder();
+
+        private final LongAdder bytesSentUncompressed = new LongAdder();
+
+        private final LongAdder bytesReceived = new LongAdder();
+
+        private final LongAdder bytesReceivedUncompressed = new LongAdder();
+
+        void record(long sent, long sentUncompressed, long received, long receivedUncompressed) {
+            count.increment();
+            bytesSent.add(sent);
+            bytesSentUncompressed.add(sentUncompressed);
+            // a size we couldn't learn counts as nothing
+            bytesReceived.add(Math.max(0, received));
+            bytesReceivedUncompressed.add(Math.max(0, receivedUncompressed));
+        }
+
+        /**
+         * @return the number of requests
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return request body bytes as sent
+         */
+        public long getBytesSent() {
+            return bytesSent.sum();
+        }
+
+        /**
+         * @return request body bytes before compression
+         */
+        public long getBytesSentUncompressed() {
+            return bytesSentUncompressed.sum();
+        }
+
+        /**
+         * @return response body bytes as received
+         */
+        public long getBytesReceived() {
+            return bytesReceived.sum();
+        }
+
+        /**
+         * @return response body bytes after decompression
+         */
+        public long getBytesReceivedUncompressed() {
+            return bytesReceivedUncompressed.sum();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.ga4gh.ctk.transport.avrojson;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.apache.avro.Protocol;
+import org.apache.avro.Schema;
+import org.apache.avro.specific.SpecificData;
+import org.ga4gh.methods.*;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * <p>The shared JSON codec for all GA4GH (ctk-schemas) records, used for both serializing
+ * requests and deserializing responses.</p>
+ * <p>A {@link Gson} is thread-safe and caches the type adapter it reflects for each class,
+ * so one instance is built when this class is loaded and reused for every interaction.
+ * At that time the adapters for every record and error type declared by the GA4GH
+ * method protocols are built, using the {@link Protocol} descriptions the Avro
+ * compiler generates from the <tt>.avdl</tt> files, so no request pays that cost.</p>
+ */
+public final class GsonCodecs {
+
+    private static final org.slf4j.Logger log = getLogger(GsonCodecs.class);
+
+    /**
+     * The method protocols whose types we pre-build adapters for; between them they
+     * import every model type.
+     */
+    private static final Protocol[] PROTOCOLS = {
+            MetadataMethods.PROTOCOL,
+            ReadMethods.PROTOCOL,
+            ReferenceMethods.PROTOCOL,
+            VariantMethods.PROTOCOL,
+            AlleleAnnotationMethods.PROTOCOL
+    };
+
+    private static final Gson GSON = prepare(create());
+
+    /**
+     * You can't instantiate one of these.
+     */
+    private GsonCodecs() {
+    }
+
+    /**
+     * Return the shared {@link Gson}.
+     *
+     * @return the shared, thread-safe {@link Gson}
+     */
+    public static Gson gson() {
+        return GSON;
+    }
+
+    /**
+     * Create a {@link Gson} that knows how to deal with the innards of
+     * {@link GAException}, which has a field with a weird generated name (<tt>"message$"</tt>).
+     *
+     * @return a new {@link Gson}
+     */
+    private static Gson create() {
+        final GsonBuilder builder = new GsonBuilder();
+        builder.setFieldNamingStrategy(field -> {
+            final String originalName = field.getName();
+            if (originalName.equals("message$")) {
+                return "message";
+            }
+            return originalName;
+        });
+        return builder.create();
+    }
+
+    /**
+     * Build (and so cache) the type adapter for each record and error type in {@link #PROTOCOLS}.
+     *
+     * @param gson the {@link Gson} to prepare
+     * @return the same {@link Gson}
+     */
+    private static Gson prepare(Gson gson) {
+        int count = 0;
+        for (Protocol protocol : PROTOCOLS) {
+            for (Schema schema : protocol.getTypes()) {
+                if (schema.getType() != Schema.Type.RECORD) {
+                    continue;
+                }
+                final Class<?> recordClass = SpecificData.get().getClass(schema);
+                if (recordClass == null || recordClass == Object.class) {
+                    log.debug("no generated class for " + schema.getFullName());
+                    continue;
+                }
+                try {
+                    gson.getAdapter(recordClass);
+                    count++;
+                } catch (RuntimeException e) {
+                    log.warn("can't build JSON adapter for " + recordClass.getName(), e);
+                }
+            }
+        }
+        log.debug("prepared JSON adapters for " + count + " GA4GH record types");
+        return gson;
+    }
+}
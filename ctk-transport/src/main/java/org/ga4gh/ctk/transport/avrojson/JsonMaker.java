@@ -1,7 +1,6 @@
 package org.ga4gh.ctk.transport.avrojson;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.gson.Gson;
 import org.apache.avro.Schema;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.EncoderFactory;
@@ -81,8 +80,6 @@ public class JsonMaker<T> {
     }
 
     public static String GsonToJsonBytes(Object src){
-        Gson gson = new Gson();
-        String theJson = gson.toJson(src);
-        return theJson;
+        return GsonCodecs.gson().toJson(src);
     }
 }
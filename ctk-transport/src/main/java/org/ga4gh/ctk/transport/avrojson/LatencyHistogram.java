@@ -0,0 +1,108 @@
+package org.ga4gh.ctk.transport.avrojson;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A fixed-size, thread-safe histogram of durations in nanoseconds.</p>
+ * <p>Buckets are log-linear: exact up to 64 ns, then each power of two is split into
+ * 32 equal buckets, so any recorded value is reported within about 3% of its true value.
+ * Recording is one array index calculation and two atomic increments, with no allocation,
+ * so it can be done on every request.</p>
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // 32
+
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS; // 64: below this, one bucket per ns
+
+    private static final int BUCKETS = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder total = new LongAdder();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record one duration.
+     *
+     * @param nanos the duration; negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        final long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        total.increment();
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Return the number of durations recorded.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return total.sum();
+    }
+
+    /**
+     * Return the longest duration recorded.
+     *
+     * @return the maximum, in nanoseconds (0 if nothing was recorded)
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Return a percentile of the recorded durations.
+     *
+     * @param percentile the percentile, from 0 to 100 (e.g., 99.9)
+     * @return the duration, in nanoseconds, that the given percentage of recorded
+     * durations are at or below (0 if nothing was recorded)
+     */
+    public long getPercentile(double percentile) {
+        final long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long)Math.ceil(count * Math.min(100.0, percentile) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueIn(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Return the bucket a value falls in.
+     */
+    static int bucketOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int)value;
+        }
+        final int msb = 63 - Long.numberOfLeadingZeros(value); // >= 6
+        final int shift = msb - SUB_BUCKET_BITS;
+        final int top = (int)(value >>> shift); // 32..63
+        return LINEAR_LIMIT + (msb - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + (top - SUB_BUCKETS);
+    }
+
+    /**
+     * Return the largest value that falls in a bucket.
+     */
+    static long highestValueIn(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        final int offset = bucket - LINEAR_LIMIT;
+        final int shift = offset / SUB_BUCKETS + 1;
+        final long top = offset % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,228 @@
+package org.ga4gh.ctk.transport.avrojson;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * <p>Summary of the message traffic sent/received by AvroJson during a test run, for
+ * test quality/coverage reporting.</p>
+ * <p>Traffic is aggregated by endpoint, HTTP method and response class: each
+ * {@link Entry} counts its interactions and their HTTP statuses, and keeps a few
+ * distinct (truncated) request bodies as samples. So the memory used depends on the
+ * number of endpoints exercised, not on the number of requests.</p>
+ * <p>All methods are thread-safe; responses to asynchronous requests are recorded
+ * on the transport's threads.</p>
+ */
+public class MessageTraffic {
+
+    /**
+     * Default number of distinct request samples kept per entry.
+     */
+    public static final int DEFAULT_MAX_SAMPLES = 5;
+
+    /**
+     * Default length past which request samples are truncated.
+     */
+    public static final int DEFAULT_MAX_SAMPLE_LENGTH = 500;
+
+    private final int maxSamples;
+
+    private final int maxSampleLength;
+
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Create an aggregator with the default sample limits.
+     */
+    public MessageTraffic() {
+        this(DEFAULT_MAX_SAMPLES, DEFAULT_MAX_SAMPLE_LENGTH);
+    }
+
+    /**
+     * Create an aggregator.
+     *
+     * @param maxSamples      most distinct request samples kept per entry
+     * @param maxSampleLength length past which request samples are truncated
+     */
+    public MessageTraffic(int maxSamples, int maxSampleLength) {
+        this.maxSamples = maxSamples;
+        this.maxSampleLength = maxSampleLength;
+    }
+
+    /**
+     * Record one interaction.
+     *
+     * @param endpoint      the endpoint path (e.g., <tt>reads/search</tt>)
+     * @param method        the HTTP method
+     * @param responseClass simple name of the response class, or "null" if there was no response object
+     * @param status        the HTTP status, 0 if there was no response
+     * @param request       the request body or GET target, for sampling; may be null
+     */
+    public void record(String endpoint, String method, String responseClass, int status, String request) {
+        record(endpoint, method, responseClass, status, () -> request);
+    }
+
+    /**
+     * Record one interaction whose request is costly to render, rendering it only while
+     * its entry still has room for samples.
+     *
+     * @param endpoint      the endpoint path (e.g., <tt>reads/search</tt>)
+     * @param method        the HTTP method
+     * @param responseClass simple name of the response class, or "null" if there was no response object
+     * @param status        the HTTP status, 0 if there was no response
+     * @param request       renders the request body or GET target, for sampling; may return null
+     */
+    public void record(String endpoint, String method, String responseClass, int status,
+                       Supplier<String> request) {
+        entries.computeIfAbsent(new Key(endpoint, method, responseClass), Entry::new)
+               .record(status, request);
+    }
+
+    /**
+     * Return the traffic recorded so far, sorted by endpoint, method and response class.
+     *
+     * @return a snapshot of the entries
+     */
+    public List<Entry> getEntries() {
+        final List<Entry> list = new ArrayList<>(entries.values());
+        list.sort(Comparator.comparing((Entry e) -> e.key.endpoint)
+                            .thenComparing(e -> e.key.method)
+                            .thenComparing(e -> e.key.responseClass));
+        return list;
+    }
+
+    /**
+     * Forget all recorded traffic.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    private static final class Key {
+        final String endpoint;
+        final String method;
+        final String responseClass;
+
+        Key(String endpoint, String method, String responseClass) {
+            this.endpoint = String.valueOf(endpoint);
+            this.method = String.valueOf(method);
+            this.responseClass = String.valueOf(responseClass);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key)o;
+            return endpoint.equals(key.endpoint) && method.equals(key.method)
+                    && responseClass.equals(key.responseClass);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(endpoint, method, responseClass);
+        }
+    }
+
+    /**
+     * The traffic to one endpoint, by one method, that produced one response class.
+     */
+    public final class Entry {
+
+        private final Key key;
+
+        private final LongAdder count = new LongAdder();
+
+        private final ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        private final Set<String> samples = new LinkedHashSet<>();
+
+        private Entry(Key key) {
+            this.key = key;
+        }
+
+        private void record(int status, Supplier<String> rendering) {
+            count.increment();
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+            synchronized (samples) {
+                if (samples.size() >= maxSamples) {
+                    return;
+                }
+            }
+            final String request = rendering.get();
+            if (request != null) {
+                final String sample = request.length() > maxSampleLength
+                        ? request.substring(0, maxSampleLength) + "..." : request;
+                synchronized (samples) {
+                    if (samples.size() < maxSamples) {
+                        samples.add(sample);
+                    }
+                }
+            }
+        }
+
+        public String getEndpoint() {
+            return key.endpoint;
+        }
+
+        public String getMethod() {
+            return key.method;
+        }
+
+        public String getResponseClass() {
+            return key.responseClass;
+        }
+
+        /**
+         * Return the number of interactions.
+         *
+         * @return how many interactions this entry covers
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Return how often each HTTP status was seen.
+         *
+         * @return HTTP status (0 for no response) to count, in status order
+         */
+        public Map<Integer, Long> getStatusCounts() {
+            final Map<Integer, Long> counts = new TreeMap<>();
+            statuses.forEach((status, n) -> counts.put(status, n.sum()));
+            return counts;
+        }
+
+        /**
+         * Return the sampled requests.
+         *
+         * @return up to the sample limit of distinct request bodies/targets, in arrival order
+         */
+        public List<String> getSamples() {
+            synchronized (samples) {
+                return Collections.unmodifiableList(new ArrayList<>(samples));
+            }
+        }
+
+        @Override
+        public String toString() {
+            return key.method + " " + key.endpoint + " -> " + key.responseClass + " x" + getCount()
+                    + " status " + getStatusCounts() + " e.g. " + getSamples();
+        }
+    }
+}
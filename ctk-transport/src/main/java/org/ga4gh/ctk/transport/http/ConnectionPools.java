@@ -0,0 +1,204 @@
+package org.ga4gh.ctk.transport.http;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.ga4gh.ctk.transport.RunContext;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the Apache HttpClient clients used by {@link UnirestTransport} and
+ * {@link HttpAsyncClientTransport} from a {@link TransportConfig}, and enforces
+ * read timeouts that the clients can't apply per request.
+ */
+final class ConnectionPools {
+
+    /**
+     * One daemon thread, shared by every transport, for idle-connection eviction and
+     * request deadlines; neither does more than flip a flag or close a socket. It belongs
+     * to no run, so it's started with no {@link RunContext}.
+     */
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            r -> RunContext.unbound(() -> {
+                final Thread t = new Thread(r, "ctk-transport-timer");
+                t.setDaemon(true);
+                return t;
+            }));
+
+    /**
+     * The idle-connection eviction of each non-blocking client, until it's closed.
+     */
+    private static final ConcurrentMap<CloseableHttpAsyncClient, ScheduledFuture<?>> evictions =
+            new ConcurrentHashMap<>();
+
+    /**
+     * You can't instantiate one of these.
+     */
+    private ConnectionPools() {
+    }
+
+    /**
+     * Return the request settings for the given read timeout.
+     *
+     * @param config      supplies the connect timeout
+     * @param readTimeout the read (socket) timeout
+     * @return the request settings
+     */
+    static RequestConfig requestConfig(TransportConfig config, int readTimeout) {
+        return RequestConfig.custom()
+                            .setConnectTimeout(config.getConnectTimeout())
+                            .setConnectionRequestTimeout(config.getConnectTimeout())
+                            .setSocketTimeout(readTimeout)
+                            .build();
+    }
+
+    /**
+     * Create a blocking client with a connection pool sized, and evicted, per the config.
+     *
+     * @param config      the pool and connect timeout settings
+     * @param readTimeout the read timeout for every request
+     * @return the client
+     */
+    static CloseableHttpClient blockingClient(TransportConfig config, int readTimeout) {
+        final PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager();
+        pool.setMaxTotal(config.getMaxConnections());
+        pool.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+        // leave compressed bodies for HttpResult to decode, so their wire size can be seen
+        final HttpClientBuilder builder = HttpClients.custom()
+                                                     .disableContentCompression()
+                                                     .setConnectionManager(pool)
+                                                     .setDefaultRequestConfig(requestConfig(config, readTimeout));
+        if (config.getIdleTimeout() > 0) {
+            builder.evictExpiredConnections()
+                   .evictIdleConnections((long)config.getIdleTimeout(), TimeUnit.MILLISECONDS);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Create a non-blocking client with a connection pool sized, and evicted, per the config.
+     * The client is not started; close it with {@link #close(CloseableHttpAsyncClient)}, which
+     * stops the eviction too.
+     *
+     * @param config      the pool and connect timeout settings
+     * @param readTimeout the read timeout for requests that don't set their own
+     * @return the client
+     */
+    static CloseableHttpAsyncClient asyncClient(TransportConfig config, int readTimeout) {
+        final PoolingNHttpClientConnectionManager pool;
+        try {
+            pool = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(
+                    IOReactorConfig.custom()
+                                   .setConnectTimeout(config.getConnectTimeout())
+                                   .setSoTimeout(readTimeout)
+                                   .build()));
+        } catch (IOReactorException e) {
+            throw new UncheckedIOException("can't start HTTP I/O reactor", e);
+        }
+        pool.setMaxTotal(config.getMaxConnections());
+        pool.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+        final CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                                                                .setConnectionManager(pool)
+                                                                .setDefaultRequestConfig(
+                                                                        requestConfig(config, readTimeout))
+                                                                .build();
+        if (config.getIdleTimeout() > 0) {
+            final long period = Math.max(1000, config.getIdleTimeout() / 2);
+            evictions.put(client, timer.scheduleWithFixedDelay(() -> {
+                pool.closeExpiredConnections();
+                pool.closeIdleConnections(config.getIdleTimeout(), TimeUnit.MILLISECONDS);
+            }, period, period, TimeUnit.MILLISECONDS));
+        }
+        return client;
+    }
+
+    /**
+     * Stop evicting a non-blocking client's idle connections, and close it.
+     *
+     * @param client a client from {@link #asyncClient(TransportConfig, int)}
+     * @throws IOException if the client can't be closed
+     */
+    static void close(CloseableHttpAsyncClient client) throws IOException {
+        final ScheduledFuture<?> eviction = evictions.remove(client);
+        if (eviction != null) {
+            eviction.cancel(false);
+        }
+        client.close();
+    }
+
+    /**
+     * Start a non-blocking client. Its I/O threads outlive any one run, so they're started
+     * with no {@link RunContext}.
+     *
+     * @param client the client
+     * @return the same client, started
+     */
+    static CloseableHttpAsyncClient start(CloseableHttpAsyncClient client) {
+        return RunContext.unbound(() -> {
+            client.start();
+            return client;
+        });
+    }
+
+    /**
+     * Fail a future with a {@link SocketTimeoutException} if it hasn't completed in time.
+     *
+     * @param future  the pending response
+     * @param timeout milliseconds to wait; 0 waits forever
+     * @param url     the request URL, for the exception message
+     * @param <T>     the result type
+     * @return the same future
+     */
+    static <T> CompletableFuture<T> within(CompletableFuture<T> future, int timeout, String url) {
+        if (timeout > 0 && !future.isDone()) {
+            final ScheduledFuture<?> deadline = timer.schedule(
+                    () -> future.completeExceptionally(
+                            new SocketTimeoutException("no response from " + url + " in " + timeout + " ms")),
+                    timeout, TimeUnit.MILLISECONDS);
+            future.whenComplete((result, e) -> deadline.cancel(false));
+        }
+        return future;
+    }
+
+    /**
+     * Wait for a response.
+     *
+     * @param future the pending response
+     * @return the response
+     * @throws IOException the exception the future failed with, or if the wait was interrupted
+     */
+    static HttpResult await(CompletableFuture<HttpResult> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for response");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
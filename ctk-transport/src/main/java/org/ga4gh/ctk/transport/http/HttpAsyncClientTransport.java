@@ -0,0 +1,169 @@
+package org.ga4gh.ctk.transport.http;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>{@link HttpTransport} using its own Apache HttpAsyncClient, rather than the one
+ * inside Unirest.  Selected by the name <tt>httpasyncclient</tt>.</p>
+ * <p>Every request, blocking or not, goes through the client's non-blocking I/O reactor;
+ * the blocking methods just wait for the result.  Connections are pooled by the client,
+ * as the {@link TransportConfig} says, and each request carries its own read timeout.</p>
+ * <p>The whole body, as it came over the wire (still compressed, if it was), is buffered
+ * by the client's response consumer, and copied from there into a byte array (of its
+ * <tt>Content-Length</tt>, if it has one) on the I/O reactor's thread before the future
+ * completes; AvroJson then decodes it from that array in one pass, with no further copy.
+ * Streaming it into the decoder instead would mean decoding on the reactor's thread, or
+ * handing the bytes to another thread as they arrive, so a response must fit in memory.</p>
+ */
+public class HttpAsyncClientTransport implements HttpTransport, HttpTransports.Pooled {
+
+    private final TransportConfig config;
+
+    private final CloseableHttpAsyncClient client;
+
+    /**
+     * Create and start a client configured for the current run (see {@link TransportConfig#current()}).
+     */
+    public HttpAsyncClientTransport() {
+        this(TransportConfig.current());
+    }
+
+    /**
+     * Create and start a client with the given pool and timeout settings.
+     *
+     * @param config the pool and timeout settings
+     */
+    public HttpAsyncClientTransport(TransportConfig config) {
+        this(config, ConnectionPools.asyncClient(config, config.getReadTimeout()));
+    }
+
+    /**
+     * Use (and start) the given client.
+     *
+     * @param config the timeout settings
+     * @param client the client to send requests with
+     */
+    public HttpAsyncClientTransport(TransportConfig config, CloseableHttpAsyncClient client) {
+        this.config = config;
+        this.client = ConnectionPools.start(client);
+    }
+
+    @Override
+    public String getName() {
+        return HttpTransports.HTTP_ASYNC_CLIENT;
+    }
+
+    @Override
+    public TransportConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public HttpResult post(String url, Map<String, String> headers, byte[] body, int readTimeout)
+            throws IOException {
+        return ConnectionPools.await(postAsync(url, headers, body, readTimeout));
+    }
+
+    @Override
+    public HttpResult get(String url, Map<String, String> headers, int readTimeout) throws IOException {
+        return ConnectionPools.await(getAsync(url, headers, readTimeout));
+    }
+
+    @Override
+    public CompletableFuture<HttpResult> postAsync(String url, Map<String, String> headers,
+                                                   byte[] body, int readTimeout) {
+        final HttpPost post = new HttpPost(url);
+        post.setEntity(new ByteArrayEntity(body));
+        return execute(post, headers, readTimeout);
+    }
+
+    @Override
+    public CompletableFuture<HttpResult> getAsync(String url, Map<String, String> headers,
+                                                  int readTimeout) {
+        return execute(new HttpGet(url), headers, readTimeout);
+    }
+
+    @Override
+    public void close() throws IOException {
+        ConnectionPools.close(client);
+    }
+
+    @Override
+    public Closeable pool() {
+        final CloseableHttpAsyncClient pool = client;
+        return () -> ConnectionPools.close(pool);
+    }
+
+    private CompletableFuture<HttpResult> execute(HttpRequestBase request, Map<String, String> headers,
+                                                  int readTimeout) {
+        if (headers != null) {
+            headers.forEach(request::setHeader);
+        }
+        request.setConfig(ConnectionPools.requestConfig(config, readTimeout));
+        final CompletableFuture<HttpResult> future = new CompletableFuture<>();
+        try {
+            execute(request, future);
+        } catch (RuntimeException e) {
+            // e.g. the client has been closed
+            future.completeExceptionally(new IOException(e.getMessage(), e));
+        }
+        return future;
+    }
+
+    private void execute(HttpRequestBase request, CompletableFuture<HttpResult> future) {
+        client.execute(request, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                try {
+                    future.complete(toResult(response));
+                } catch (IOException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                future.completeExceptionally(e instanceof IOException ? e
+                                                     : new IOException(e.getMessage(), e));
+            }
+
+            @Override
+            public void cancelled() {
+                future.cancel(false);
+            }
+        });
+    }
+
+    private static HttpResult toResult(HttpResponse response) throws IOException {
+        final Map<String, List<String>> headers = new HashMap<>();
+        for (Header header : response.getAllHeaders()) {
+            headers.computeIfAbsent(header.getName(), k -> new ArrayList<>()).add(header.getValue());
+        }
+        final HttpEntity entity = response.getEntity();
+        byte[] body = null;
+        if (entity != null) {
+            try (InputStream in = entity.getContent()) {
+                body = HttpResult.readBody(in, entity.getContentLength());
+            }
+        }
+        return new HttpResult(response.getStatusLine().getStatusCode(),
+                              response.getStatusLine().getReasonPhrase(), headers, body);
+    }
+}
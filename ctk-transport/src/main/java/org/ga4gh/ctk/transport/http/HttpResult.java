@@ -0,0 +1,318 @@
+package org.ga4gh.ctk.transport.http;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * <p>The response to one HTTP request, as delivered by an {@link HttpTransport}.</p>
+ * <p>The body is read completely before the result is created, so the connection
+ * can be reused (or closed) by the transport right away; no transport streams a body
+ * into the decoder as it arrives (each transport says how it buffers), so a response must
+ * fit in memory, once, as it came over the wire. When its length is known, a transport
+ * reads it straight into an array of that size. Decoding reads straight from that buffer,
+ * decompressing as it goes, without another copy.</p>
+ * <p>The body is kept as it came over the wire, which may be compressed (per its
+ * <tt>Content-Encoding</tt>); {@link #getBodyStream()} and {@link #getBodyText()}
+ * decompress it as they read. The decompressed size is counted as the body is read, and
+ * is known from {@link #getDecodedLength()} once it's been read to the end.</p>
+ */
+public class HttpResult {
+
+    private final int status;
+
+    private final String statusText;
+
+    private final Map<String, List<String>> headers;
+
+    private final byte[] body;
+
+    private final int wireLength;
+
+    /**
+     * The size of the decompressed body, once a stream over it has reached the end; -1 until then.
+     */
+    private volatile int decodedLength = -1;
+
+    /**
+     * Create a new result.
+     *
+     * @param status     the HTTP status code
+     * @param statusText the HTTP reason phrase, may be null
+     * @param headers    the response headers; names are matched without regard to case
+     * @param body       the response body as received, may be null if there wasn't one
+     */
+    public HttpResult(int status, String statusText, Map<String, List<String>> headers, byte[] body) {
+        this(status, statusText, headers, body, body != null ? body.length : 0);
+    }
+
+    /**
+     * Create a new result whose body was decompressed before we got it.
+     *
+     * @param status     the HTTP status code
+     * @param statusText the HTTP reason phrase, may be null
+     * @param headers    the response headers; names are matched without regard to case
+     * @param body       the response body, may be null if there wasn't one
+     * @param wireLength the size of the body as it was sent, -1 if not known
+     */
+    public HttpResult(int status, String statusText, Map<String, List<String>> headers, byte[] body,
+                      int wireLength) {
+        this.status = status;
+        this.statusText = statusText;
+        final Map<String, List<String>> h = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (headers != null) {
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                // HttpURLConnection reports the status line as a header with a null name
+                if (header.getKey() != null) {
+                    h.put(header.getKey(), header.getValue());
+                }
+            }
+        }
+        this.headers = Collections.unmodifiableMap(h);
+        this.body = body != null ? body : new byte[0];
+        this.wireLength = wireLength;
+    }
+
+    /**
+     * Return the HTTP status code.
+     * @return the HTTP status code
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Return the HTTP reason phrase.
+     * @return the HTTP reason phrase, can be null
+     */
+    public String getStatusText() {
+        return statusText;
+    }
+
+    /**
+     * Return all the response headers.
+     * @return an unmodifiable, case-insensitive map of header name to values
+     */
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Return the first value of a response header.
+     *
+     * @param name the header name, in any case
+     * @return the first value, or null if the header wasn't sent
+     */
+    public String getHeader(String name) {
+        return firstValue(headers, name);
+    }
+
+    /**
+     * Return the first value of a header.
+     *
+     * @param headers header name to values
+     * @param name    the header name
+     * @return the first value, or null if there isn't one
+     */
+    static String firstValue(Map<String, List<String>> headers, String name) {
+        final List<String> values = headers.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * Return the <tt>Content-Encoding</tt> of the body.
+     * @return the encoding (e.g., <tt>gzip</tt>) in lower case, or null if it's not encoded
+     */
+    public String getContentEncoding() {
+        final String encoding = getHeader("Content-Encoding");
+        if (encoding == null || encoding.trim().isEmpty()
+                || encoding.trim().equalsIgnoreCase("identity")) {
+            return null;
+        }
+        return encoding.trim().toLowerCase();
+    }
+
+    /**
+     * Return the response body as it was received.
+     * @return the body bytes, compressed if the server compressed them
+     * (empty, not null, if there was no body)
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Return the size of the body as sent by the server.
+     * @return the number of body bytes on the wire, or -1 if not known
+     */
+    public int getWireLength() {
+        return wireLength;
+    }
+
+    /**
+     * Return the size of the body after decompression, as counted by the last stream
+     * over it (see {@link #getBodyStream()}) to be read to the end.
+     * @return the number of decompressed body bytes, or -1 if the body is compressed and
+     * hasn't been read to the end yet
+     */
+    public int getDecodedLength() {
+        return getContentEncoding() == null || body.length == 0 ? body.length : decodedLength;
+    }
+
+    /**
+     * Return a new stream over the response body, decompressing it if need be.
+     * @return a stream positioned at the start of the (uncompressed) body
+     * @throws UncheckedIOException if the body isn't in its stated encoding
+     */
+    public InputStream getBodyStream() {
+        final InputStream raw = new ByteArrayInputStream(body);
+        final String encoding = getContentEncoding();
+        if (encoding == null || body.length == 0) {
+            return raw;
+        }
+        try {
+            switch (encoding) {
+                case "gzip":
+                case "x-gzip":
+                    return new DecodedCounter(new GZIPInputStream(raw));
+                case "deflate":
+                    return new DecodedCounter(new InflaterInputStream(raw, new Inflater(!isZlibWrapped(body))));
+                default:
+                    throw new IOException("unsupported Content-Encoding " + encoding);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Return the response body, decompressed.
+     * @return the uncompressed body bytes
+     * @throws UncheckedIOException if the body isn't in its stated encoding
+     */
+    public byte[] getDecodedBody() {
+        if (getContentEncoding() == null) {
+            return body;
+        }
+        try (InputStream in = getBodyStream()) {
+            return ByteStreams.toByteArray(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Return the response body as (UTF-8) text.
+     * @return the body text
+     * @throws UncheckedIOException if the body isn't in its stated encoding
+     */
+    public String getBodyText() {
+        return new String(getDecodedBody(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Counts the bytes read from a decompressing stream, and notes the total at the end.
+     */
+    private final class DecodedCounter extends FilterInputStream {
+
+        private int count;
+
+        DecodedCounter(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            counted(b < 0 ? -1 : 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int n = super.read(b, off, len);
+            // a zero-length read says nothing about the end
+            if (n != 0) {
+                counted(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final long skipped = super.skip(n);
+            count += (int)skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void counted(int n) {
+            if (n < 0) {
+                decodedLength = count;
+            } else {
+                count += n;
+            }
+        }
+    }
+
+    /**
+     * Read a response body to the end, for a transport. When its length is known the bytes go
+     * straight into an array of that size, rather than through growing buffers and a final copy.
+     *
+     * @param in     the body, as it comes over the wire
+     * @param length the body's length (e.g., from <tt>Content-Length</tt>), or -1 if not known
+     * @return the body bytes
+     * @throws IOException if the body can't be read
+     */
+    static byte[] readBody(InputStream in, long length) throws IOException {
+        if (length < 0 || length > Integer.MAX_VALUE - 8) {
+            return ByteStreams.toByteArray(in);
+        }
+        final byte[] body = new byte[(int) length];
+        final int read = ByteStreams.read(in, body, 0, body.length);
+        if (read < body.length) {
+            return Arrays.copyOf(body, read);
+        }
+        final int next = in.read();
+        if (next < 0) {
+            return body;
+        }
+        // longer than it said
+        final ByteArrayOutputStream rest = new ByteArrayOutputStream(body.length * 2);
+        rest.write(body);
+        rest.write(next);
+        ByteStreams.copy(in, rest);
+        return rest.toByteArray();
+    }
+
+    /**
+     * HTTP "deflate" is meant to be zlib-wrapped, but some servers send raw deflate;
+     * tell them apart by the zlib header.
+     */
+    private static boolean isZlibWrapped(byte[] data) {
+        if (data.length < 2) {
+            return false;
+        }
+        final int cmf = data[0] & 0xff;
+        final int flg = data[1] & 0xff;
+        return (cmf & 0x0f) == 8 && ((cmf << 8) | flg) % 31 == 0;
+    }
+}
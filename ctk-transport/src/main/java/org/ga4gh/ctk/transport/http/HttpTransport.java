@@ -0,0 +1,116 @@
+package org.ga4gh.ctk.transport.http;
+
+import org.apache.avro.specific.SpecificRecordBase;
+import org.ga4gh.methods.GAException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>The HTTP engine underneath {@link org.ga4gh.ctk.transport.avrojson.AvroJson}.</p>
+ * <p>An implementation only moves bytes: serializing requests, deserializing responses,
+ * and tracking are AvroJson's job. URLs arrive complete, with route and query
+ * parameters already filled in.</p>
+ * <p>Implementations must be thread-safe: one instance is shared by every
+ * {@link org.ga4gh.ctk.transport.protocols.Client} that names it, and their requests
+ * may be in flight at the same time. Get one from {@link HttpTransports#forName(String)}.</p>
+ * <p>Pool sizes and timeouts come from the transport's {@link TransportConfig}; each request
+ * also carries its own read timeout, so slow endpoints can be given longer (or shorter)
+ * than the rest.</p>
+ * <p>A transport to a server in the same JVM may exchange Avro objects instead of bytes
+ * (see {@link #exchangesObjects()}); AvroJson then skips serializing altogether.</p>
+ */
+public interface HttpTransport extends Closeable {
+
+    /**
+     * Return the name this transport is selected by (the <tt>ctk.tgt.transport</tt> value).
+     *
+     * @return the transport's name
+     */
+    String getName();
+
+    /**
+     * Return the pool and timeout settings this transport was created with.
+     *
+     * @return the configuration
+     */
+    TransportConfig getConfig();
+
+    /**
+     * POST a body and wait for the response.
+     *
+     * @param url     the complete URL
+     * @param headers the request headers (e.g., <tt>Content-Type</tt>)
+     * @param body    the request body
+     * @param readTimeout longest wait for the response, in milliseconds (0 waits forever)
+     * @return the response
+     * @throws IOException if there's a communication problem, including a timeout
+     */
+    HttpResult post(String url, Map<String, String> headers, byte[] body, int readTimeout)
+            throws IOException;
+
+    /**
+     * GET and wait for the response.
+     *
+     * @param url     the complete URL, including any query string
+     * @param headers the request headers (e.g., <tt>Accept</tt>)
+     * @param readTimeout longest wait for the response, in milliseconds (0 waits forever)
+     * @return the response
+     * @throws IOException if there's a communication problem, including a timeout
+     */
+    HttpResult get(String url, Map<String, String> headers, int readTimeout) throws IOException;
+
+    /**
+     * POST a body without waiting for the response.
+     *
+     * @param url     the complete URL
+     * @param headers the request headers
+     * @param body    the request body
+     * @param readTimeout longest wait for the response, in milliseconds (0 waits forever)
+     * @return a future that completes with the response, or exceptionally with an
+     * {@link IOException} if there's a communication problem, including a timeout
+     */
+    CompletableFuture<HttpResult> postAsync(String url, Map<String, String> headers, byte[] body,
+                                            int readTimeout);
+
+    /**
+     * GET without waiting for the response.
+     *
+     * @param url     the complete URL, including any query string
+     * @param headers the request headers
+     * @param readTimeout longest wait for the response, in milliseconds (0 waits forever)
+     * @return a future that completes with the response, or exceptionally with an
+     * {@link IOException} if there's a communication problem, including a timeout
+     */
+    CompletableFuture<HttpResult> getAsync(String url, Map<String, String> headers,
+                                           int readTimeout);
+
+    /**
+     * Return whether this transport hands Avro objects to a server in the same JVM, with
+     * {@link #exchange(String, SpecificRecordBase, String, Map)}, rather than moving bytes.
+     *
+     * @return false, unless the transport says otherwise
+     */
+    default boolean exchangesObjects() {
+        return false;
+    }
+
+    /**
+     * Hand a request object (or a GET's parameters) to the server and take its response
+     * object back, for a transport that {@link #exchangesObjects()}.
+     *
+     * @param path        the endpoint path, with <tt>{id}</tt> not filled in
+     * @param request     the POST's request object, or null for a GET
+     * @param id          the GET's route parameter, may be null
+     * @param queryParams the GET's query parameters, may be null
+     * @return the response object, which is the caller's to keep (and change)
+     * @throws GAException if the server reports an error
+     * @throws UnsupportedOperationException if this transport moves bytes
+     */
+    default SpecificRecordBase exchange(String path, SpecificRecordBase request, String id,
+                                        Map<String, Object> queryParams) throws GAException {
+        throw new UnsupportedOperationException("the " + getName() + " transport moves bytes, not objects");
+    }
+}
@@ -0,0 +1,237 @@
+package org.ga4gh.ctk.transport.http;
+
+import org.ga4gh.ctk.transport.RunContext;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * <p>Chooses the {@link HttpTransport} for a test run.</p>
+ * <p>The transport is named by the <tt>ctk.tgt.transport</tt> property, which (like the
+ * other <tt>ctk.tgt.*</tt> properties) reaches the tests through
+ * {@link org.ga4gh.ctk.transport.URLMAPPING#getTransport()}:</p>
+ * <ul>
+ * <li><tt>unirest</tt> (the default): {@link UnirestTransport}</li>
+ * <li><tt>urlconnection</tt>: {@link UrlConnectionTransport}</li>
+ * <li><tt>httpasyncclient</tt>: {@link HttpAsyncClientTransport}</li>
+ * <li><tt>loopback</tt>: {@link LoopbackTransport}, to a server in the same JVM</li>
+ * </ul>
+ * <p>Pools and timeouts come from the <tt>ctk.transport.*</tt> settings of the current
+ * {@link RunContext}, or the system properties (see {@link TransportConfig#current()}).
+ * There is one instance of each transport per JVM for each such configuration, created on
+ * first use, so its connection pool is shared by every client, in every run, that names it
+ * with those settings. At most {@link #MAX_TRANSPORTS} are kept; beyond that, the one used
+ * longest ago is dropped, so the next run that asks for it gets a new one. Clients (and
+ * their {@link org.ga4gh.ctk.transport.avrojson.AvroJson}s) may still hold a dropped
+ * transport, so it isn't closed then: its pool, and its idle-connection eviction, are
+ * closed once nothing refers to the transport any more.</p>
+ * <p>Unirest is a JVM-wide singleton, so it's configured once, by the first run to use it;
+ * a run that asks for it with other settings gets it as it is, with a warning (runs that
+ * need settings of their own should name another transport).</p>
+ */
+public class HttpTransports {
+
+    private static final org.slf4j.Logger log = getLogger(HttpTransports.class);
+
+    /**
+     * Name of the {@link UnirestTransport}.
+     */
+    public static final String UNIREST = "unirest";
+
+    /**
+     * Name of the {@link UrlConnectionTransport}.
+     */
+    public static final String URL_CONNECTION = "urlconnection";
+
+    /**
+     * Name of the {@link HttpAsyncClientTransport}.
+     */
+    public static final String HTTP_ASYNC_CLIENT = "httpasyncclient";
+
+    /**
+     * Name of the {@link LoopbackTransport}.
+     */
+    public static final String LOOPBACK = "loopback";
+
+    /**
+     * The transport used if none is named.
+     */
+    public static final String DEFAULT = UNIREST;
+
+    /**
+     * How many transports (besides Unirest) are kept at once.
+     */
+    public static final int MAX_TRANSPORTS = 8;
+
+    /**
+     * The transports, keyed by name and configuration, least recently used first; guarded by itself.
+     */
+    private static final Map<List<Object>, HttpTransport> transports = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The Unirest transport, once created; guarded by {@link #transports}.
+     */
+    private static HttpTransport unirest;
+
+    /**
+     * Dropped transports that have become unreachable, whose pools are to be closed.
+     */
+    private static final ReferenceQueue<HttpTransport> unreachable = new ReferenceQueue<>();
+
+    /**
+     * Dropped transports whose pools are still open, so their references are kept until they're enqueued.
+     */
+    private static final Set<Dropped> dropped = ConcurrentHashMap.newKeySet();
+
+    /**
+     * A transport with a pool of connections or threads that can be closed apart from it.
+     */
+    interface Pooled {
+
+        /**
+         * Return what closes the transport's pool; it mustn't refer to the transport.
+         *
+         * @return the pool's closer
+         */
+        Closeable pool();
+    }
+
+    /**
+     * Closes a dropped transport's pool once the transport is unreachable.
+     */
+    private static final class Dropped extends PhantomReference<HttpTransport> {
+
+        final String name;
+
+        final Closeable pool;
+
+        Dropped(HttpTransport transport, Closeable pool) {
+            super(transport, unreachable);
+            this.name = transport.getName() + " with " + transport.getConfig();
+            this.pool = pool;
+        }
+
+        void close() {
+            log.info("closing the pool of HTTP transport " + name + ", which is no longer used");
+            try {
+                pool.close();
+            } catch (IOException e) {
+                log.warn("can't close the pool of HTTP transport " + name, e);
+            }
+        }
+    }
+
+    /**
+     * You can't instantiate one of these.
+     */
+    private HttpTransports() {
+    }
+
+    /**
+     * Return the transport named by the <tt>ctk.tgt.transport</tt> property of the current
+     * {@link RunContext} (or the system properties).
+     *
+     * @return the transport to use when nothing more specific has been configured
+     */
+    public static HttpTransport getDefault() {
+        return forName(RunContext.property("ctk.tgt.transport"));
+    }
+
+    /**
+     * Return the (shared) transport with the given name, configured for the current run.
+     *
+     * @param name the transport name; if null or empty, the {@link #DEFAULT} transport
+     * @return the transport
+     * @throws IllegalArgumentException if there's no transport by that name
+     */
+    public static HttpTransport forName(String name) {
+        return forName(name, TransportConfig.current());
+    }
+
+    /**
+     * Return the (shared) transport with the given name and configuration.
+     *
+     * @param name   the transport name; if null or empty, the {@link #DEFAULT} transport
+     * @param config the pool and timeout settings
+     * @return the transport
+     * @throws IllegalArgumentException if there's no transport by that name
+     */
+    public static HttpTransport forName(String name, TransportConfig config) {
+        closeUnreachable();
+        final String key = name == null || name.trim().isEmpty() ? DEFAULT : name.trim().toLowerCase();
+        if (UNIREST.equals(key)) {
+            final HttpTransport transport;
+            synchronized (transports) {
+                if (unirest == null) {
+                    unirest = create(key, config);
+                }
+                transport = unirest;
+            }
+            if (!transport.getConfig().equals(config)) {
+                log.warn("Unirest is already configured with " + transport.getConfig() + ", so using that, not "
+                                 + config + "; name another transport for settings of this run's own");
+            }
+            return transport;
+        }
+
+        final List<Object> cacheKey = Arrays.asList(key, config);
+        synchronized (transports) {
+            HttpTransport existing = transports.get(cacheKey);
+            if (existing == null) {
+                existing = create(key, config);
+                transports.put(cacheKey, existing);
+                for (Iterator<HttpTransport> it = transports.values().iterator();
+                     transports.size() > MAX_TRANSPORTS && it.hasNext(); ) {
+                    final HttpTransport old = it.next();
+                    it.remove();
+                    log.info("dropping HTTP transport " + old.getName() + " with " + old.getConfig());
+                    if (old instanceof Pooled) {
+                        dropped.add(new Dropped(old, ((Pooled) old).pool()));
+                    }
+                }
+            }
+            return existing;
+        }
+    }
+
+    /**
+     * Close the pools of the dropped transports that nothing refers to any more.
+     */
+    private static void closeUnreachable() {
+        for (Reference<? extends HttpTransport> ref; (ref = unreachable.poll()) != null; ) {
+            final Dropped gone = (Dropped) ref;
+            dropped.remove(gone);
+            gone.close();
+        }
+    }
+
+    private static HttpTransport create(String name, TransportConfig config) {
+        log.info("creating HTTP transport " + name + " with " + config);
+        switch (name) {
+            case UNIREST:
+                return new UnirestTransport(config);
+            case URL_CONNECTION:
+                return new UrlConnectionTransport(config);
+            case HTTP_ASYNC_CLIENT:
+                return new HttpAsyncClientTransport(config);
+            case LOOPBACK:
+                return new LoopbackTransport();
+            default:
+                throw new IllegalArgumentException("unknown ctk.tgt.transport " + name + "; use "
+                                                           + UNIREST + ", " + URL_CONNECTION + ", "
+                                                           + HTTP_ASYNC_CLIENT + " or " + LOOPBACK);
+        }
+    }
+}
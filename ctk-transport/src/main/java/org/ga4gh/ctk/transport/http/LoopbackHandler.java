@@ -0,0 +1,40 @@
+package org.ga4gh.ctk.transport.http;
+
+import org.apache.avro.specific.SpecificRecordBase;
+import org.ga4gh.methods.GAException;
+
+import java.util.Map;
+
+/**
+ * <p>A GA4GH server hosted in the test JVM, reached through the {@link LoopbackTransport}.</p>
+ * <p>Requests arrive as the Avro objects the tests built, and responses are returned as
+ * Avro objects; nothing is serialized. Endpoints are identified by their
+ * {@link org.ga4gh.ctk.transport.URLMAPPING} paths (e.g., <tt>reads/search</tt> or
+ * <tt>references/{id}/bases</tt>), with route and query parameters passed separately.</p>
+ * <p>Implementations must be thread-safe. To report an error, throw a
+ * {@link org.ga4gh.ctk.transport.GAWrapperException} carrying the HTTP status a server
+ * would send; any other {@link GAException} is reported as 400 (Bad Request).</p>
+ */
+public interface LoopbackHandler {
+
+    /**
+     * Handle a POST (search) request.
+     *
+     * @param path    the endpoint path
+     * @param request the request object
+     * @return the response object, of the type the endpoint returns
+     * @throws GAException if the request fails
+     */
+    SpecificRecordBase post(String path, SpecificRecordBase request) throws GAException;
+
+    /**
+     * Handle a GET request.
+     *
+     * @param path        the endpoint path, with <tt>{id}</tt> not filled in
+     * @param id          the route parameter, may be null
+     * @param queryParams the query parameters, may be null; null values mean "not given"
+     * @return the response object, of the type the endpoint returns
+     * @throws GAException if the request fails
+     */
+    SpecificRecordBase get(String path, String id, Map<String, Object> queryParams) throws GAException;
+}
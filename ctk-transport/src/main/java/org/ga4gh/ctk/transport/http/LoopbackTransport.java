@@ -0,0 +1,187 @@
+package org.ga4gh.ctk.transport.http;
+
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.ga4gh.ctk.transport.RunContext;
+import org.ga4gh.methods.GAException;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * <p>A transport to a GA4GH server in the same JVM, selected by the name <tt>loopback</tt>.</p>
+ * <p>{@link org.ga4gh.ctk.transport.avrojson.AvroJson} hands its request object straight
+ * to the {@link LoopbackHandler} (see {@link #exchange}), taking the response object back,
+ * so there is no HTTP and no JSON in between. That isolates the kit's own CPU and
+ * allocation cost from the network and the serializers, e.g. when profiling the CTS or
+ * running it many times over.</p>
+ * <p>The response is a deep copy of the handler's, so a test that changes what it got
+ * back can't change the server's data.</p>
+ * <p>A transport created with a handler of its own always uses it. Every other one (such as
+ * the one {@link HttpTransports#forName(String)} shares) uses the handler set with
+ * {@link #setHandler(LoopbackHandler)}, if any, or else the one named by the current run's
+ * <tt>ctk.tgt.loopback.handler</tt> property (a class with a public no-argument
+ * constructor), of which there's one instance per class, created on first use.</p>
+ * <p>There are no bytes to move, so the byte-level {@link HttpTransport} methods fail with
+ * an {@link IOException}.</p>
+ */
+public class LoopbackTransport implements HttpTransport {
+
+    private static final org.slf4j.Logger log = getLogger(LoopbackTransport.class);
+
+    /**
+     * The property naming the {@link LoopbackHandler} class.
+     */
+    public static final String HANDLER_PROPERTY = "ctk.tgt.loopback.handler";
+
+    /**
+     * The handler set for every transport without one of its own; null if none has been.
+     */
+    private static volatile LoopbackHandler shared;
+
+    /**
+     * The handlers named by {@link #HANDLER_PROPERTY}, by class name.
+     */
+    private static final ConcurrentMap<String, LoopbackHandler> named = new ConcurrentHashMap<>();
+
+    private final TransportConfig config;
+
+    /**
+     * This transport's own handler, or null to use the shared one.
+     */
+    private final LoopbackHandler handler;
+
+    /**
+     * Create the transport, with the shared handler.
+     */
+    public LoopbackTransport() {
+        this(null);
+    }
+
+    /**
+     * Create the transport.
+     *
+     * @param handler the in-JVM server; may be null, to use the shared one
+     */
+    public LoopbackTransport(LoopbackHandler handler) {
+        this.config = TransportConfig.current();
+        this.handler = handler;
+    }
+
+    /**
+     * Set the in-JVM server requests go to, for every transport without a handler of its own.
+     *
+     * @param handler the handler; null to go back to the one named by <tt>ctk.tgt.loopback.handler</tt>
+     */
+    public static void setHandler(LoopbackHandler handler) {
+        log.info("loopback requests go to " + handler);
+        shared = handler;
+    }
+
+    /**
+     * Return the in-JVM server this transport's requests go to.
+     *
+     * @return the handler, or null if none has been set or named
+     * @throws IllegalArgumentException if the named handler class can't be instantiated
+     */
+    public LoopbackHandler getHandler() {
+        if (handler != null) {
+            return handler;
+        }
+        final LoopbackHandler h = shared;
+        if (h != null) {
+            return h;
+        }
+        final String className = RunContext.property(HANDLER_PROPERTY);
+        if (className == null || className.trim().isEmpty()) {
+            return null;
+        }
+        return named.computeIfAbsent(className.trim(), LoopbackTransport::instantiate);
+    }
+
+    private static LoopbackHandler instantiate(String className) {
+        try {
+            return (LoopbackHandler) Class.forName(className).newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("can't create " + HANDLER_PROPERTY + " " + className, e);
+        }
+    }
+
+    /**
+     * @return true
+     */
+    @Override
+    public boolean exchangesObjects() {
+        return true;
+    }
+
+    /**
+     * Hand a request to the handler, and return a copy of its response.
+     *
+     * @throws IllegalStateException if there's no handler
+     */
+    @Override
+    public SpecificRecordBase exchange(String path, SpecificRecordBase request, String id,
+                                       Map<String, Object> queryParams) throws GAException {
+        final LoopbackHandler h = getHandler();
+        if (h == null) {
+            throw new IllegalStateException("no loopback handler; set " + HANDLER_PROPERTY);
+        }
+        return copy(request != null ? h.post(path, request) : h.get(path, id, queryParams));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends SpecificRecordBase> T copy(T record) {
+        return record == null ? null : (T) SpecificData.get().deepCopy(record.getSchema(), record);
+    }
+
+    @Override
+    public String getName() {
+        return HttpTransports.LOOPBACK;
+    }
+
+    @Override
+    public TransportConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public HttpResult post(String url, Map<String, String> headers, byte[] body, int readTimeout)
+            throws IOException {
+        throw bytesNotSupported(url);
+    }
+
+    @Override
+    public HttpResult get(String url, Map<String, String> headers, int readTimeout) throws IOException {
+        throw bytesNotSupported(url);
+    }
+
+    @Override
+    public CompletableFuture<HttpResult> postAsync(String url, Map<String, String> headers, byte[] body,
+                                                   int readTimeout) {
+        final CompletableFuture<HttpResult> failed = new CompletableFuture<>();
+        failed.completeExceptionally(bytesNotSupported(url));
+        return failed;
+    }
+
+    @Override
+    public CompletableFuture<HttpResult> getAsync(String url, Map<String, String> headers, int readTimeout) {
+        final CompletableFuture<HttpResult> failed = new CompletableFuture<>();
+        failed.completeExceptionally(bytesNotSupported(url));
+        return failed;
+    }
+
+    private static IOException bytesNotSupported(String url) {
+        return new IOException("the loopback transport exchanges Avro objects, not bytes (" + url + ")");
+    }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+}
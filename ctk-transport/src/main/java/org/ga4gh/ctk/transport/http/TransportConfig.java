@@ -0,0 +1,250 @@
+package org.ga4gh.ctk.transport.http;
+
+import org.ga4gh.ctk.transport.RunContext;
+import org.ga4gh.ctk.transport.URLMAPPING;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * <p>Connection pool and timeout settings for an {@link HttpTransport}.</p>
+ * <p>Settings come from <tt>ctk.transport.*</tt> properties (all times in milliseconds):</p>
+ * <ul>
+ * <li><tt>ctk.transport.pool.max</tt>: most open connections, all servers together (default 200)</li>
+ * <li><tt>ctk.transport.pool.maxperroute</tt>: most open connections to one server (default 20)</li>
+ * <li><tt>ctk.transport.pool.idletimeout</tt>: close pooled connections idle this long (default 30000)</li>
+ * <li><tt>ctk.transport.timeout.connect</tt>: connect timeout (default 10000)</li>
+ * <li><tt>ctk.transport.timeout.read</tt>: longest wait for a response (default 60000)</li>
+ * <li><tt>ctk.transport.timeout.endpoints</tt>: per-endpoint read timeouts, as comma-separated
+ * <tt>name=millis</tt> pairs using the URLMAPPING endpoint names, e.g.
+ * <tt>getReferencesBases=300000,searchReads=120000</tt></li>
+ * </ul>
+ * <p>A timeout of 0 means wait forever.</p>
+ */
+public class TransportConfig {
+
+    private static final org.slf4j.Logger log = getLogger(TransportConfig.class);
+
+    /**
+     * The configuration from the system properties, for threads with no {@link RunContext}.
+     */
+    private static volatile TransportConfig system;
+
+    private final int maxConnections;
+
+    private final int maxConnectionsPerRoute;
+
+    private final int idleTimeout;
+
+    private final int connectTimeout;
+
+    private final int readTimeout;
+
+    /**
+     * Read timeout overrides, keyed by endpoint path (e.g., <tt>references/{id}/bases</tt>).
+     */
+    private final Map<String, Integer> endpointReadTimeouts;
+
+    /**
+     * Create a configuration.
+     *
+     * @param maxConnections         most open connections in total
+     * @param maxConnectionsPerRoute most open connections to one server
+     * @param idleTimeout            close pooled connections idle this long
+     * @param connectTimeout         connect timeout
+     * @param readTimeout            default read timeout
+     * @param endpointReadTimeouts   read timeouts keyed by endpoint path, may be null
+     */
+    public TransportConfig(int maxConnections, int maxConnectionsPerRoute, int idleTimeout,
+                           int connectTimeout, int readTimeout,
+                           Map<String, Integer> endpointReadTimeouts) {
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        this.idleTimeout = idleTimeout;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.endpointReadTimeouts = endpointReadTimeouts == null ? Collections.emptyMap()
+                : Collections.unmodifiableMap(new HashMap<>(endpointReadTimeouts));
+    }
+
+    /**
+     * Read the configuration from the Java system properties, resolving endpoint names
+     * with a default {@link URLMAPPING}.
+     *
+     * @return the configuration
+     */
+    public static TransportConfig fromSystemProperties() {
+        return fromProperties(System.getProperties(), URLMAPPING.getInstance());
+    }
+
+    /**
+     * Return the configuration for the current run: the {@link RunContext} bound to this
+     * thread, falling back to the Java system properties. It's read once per context (and
+     * once for the system properties alone), when first asked for.
+     *
+     * @return the configuration
+     */
+    public static TransportConfig current() {
+        final RunContext context = RunContext.current();
+        if (context == null) {
+            TransportConfig config = system;
+            if (config == null) {
+                system = config = fromSystemProperties();
+            }
+            return config;
+        }
+        return context.computeIfAbsent(TransportConfig.class,
+                                       () -> fromProperties(RunContext.properties(), URLMAPPING.getInstance()));
+    }
+
+    /**
+     * Read the configuration from properties.
+     *
+     * @param props the properties to read <tt>ctk.transport.*</tt> values from
+     * @param urls  used to turn endpoint names into paths
+     * @return the configuration
+     */
+    public static TransportConfig fromProperties(Properties props, URLMAPPING urls) {
+        final Map<String, Integer> endpoints = new HashMap<>();
+        final String overrides = props.getProperty("ctk.transport.timeout.endpoints", "");
+        for (String pair : overrides.split(",")) {
+            if (pair.trim().isEmpty()) {
+                continue;
+            }
+            final String[] nameAndTime = pair.split("=", 2);
+            final String name = nameAndTime[0].trim();
+            final String path = urls.getEndpoints().get("ctk.tgt." + name);
+            if (nameAndTime.length != 2 || path == null) {
+                log.warn("ignoring ctk.transport.timeout.endpoints entry " + pair
+                                 + "; expected endpointName=millis with a known endpoint name");
+                continue;
+            }
+            final int timeout = parse("ctk.transport.timeout.endpoints " + name, nameAndTime[1], -1);
+            if (timeout >= 0) {
+                endpoints.put(trimSlashes(path), timeout);
+            }
+        }
+        return new TransportConfig(
+                parse(props, "ctk.transport.pool.max", 200),
+                parse(props, "ctk.transport.pool.maxperroute", 20),
+                parse(props, "ctk.transport.pool.idletimeout", 30000),
+                parse(props, "ctk.transport.timeout.connect", 10000),
+                parse(props, "ctk.transport.timeout.read", 60000),
+                endpoints);
+    }
+
+    private static int parse(Properties props, String key, int dflt) {
+        return parse(key, props.getProperty(key), dflt);
+    }
+
+    private static int parse(String what, String value, int dflt) {
+        if (value == null || value.trim().isEmpty()) {
+            return dflt;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("ignoring non-numeric " + what + " value " + value);
+            return dflt;
+        }
+    }
+
+    private static String trimSlashes(String path) {
+        String p = path.trim();
+        while (p.startsWith("/")) {
+            p = p.substring(1);
+        }
+        while (p.endsWith("/")) {
+            p = p.substring(0, p.length() - 1);
+        }
+        return p;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * Return the read timeout for one endpoint.
+     *
+     * @param endpointPath the endpoint's path as given by URLMAPPING (e.g., <tt>reads/search</tt>)
+     * @return the endpoint's read timeout if it has one, else the default read timeout
+     */
+    public int getReadTimeout(String endpointPath) {
+        if (endpointPath == null) {
+            return readTimeout;
+        }
+        final Integer timeout = endpointReadTimeouts.get(trimSlashes(endpointPath));
+        return timeout != null ? timeout : readTimeout;
+    }
+
+    /**
+     * Return the longest read timeout, default or per-endpoint.
+     *
+     * @return the longest read timeout, 0 if any timeout is 0 (wait forever)
+     */
+    public int getLongestReadTimeout() {
+        int longest = readTimeout;
+        for (int timeout : endpointReadTimeouts.values()) {
+            if (longest == 0 || timeout == 0) {
+                return 0;
+            }
+            longest = Math.max(longest, timeout);
+        }
+        return longest;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TransportConfig)) {
+            return false;
+        }
+        final TransportConfig that = (TransportConfig) o;
+        return maxConnections == that.maxConnections
+                && maxConnectionsPerRoute == that.maxConnectionsPerRoute
+                && idleTimeout == that.idleTimeout
+                && connectTimeout == that.connectTimeout
+                && readTimeout == that.readTimeout
+                && endpointReadTimeouts.equals(that.endpointReadTimeouts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maxConnections, maxConnectionsPerRoute, idleTimeout, connectTimeout, readTimeout,
+                            endpointReadTimeouts);
+    }
+
+    @Override
+    public String toString() {
+        return "TransportConfig{maxConnections=" + maxConnections
+                + ", maxConnectionsPerRoute=" + maxConnectionsPerRoute
+                + ", idleTimeout=" + idleTimeout
+                + ", connectTimeout=" + connectTimeout
+                + ", readTimeout=" + readTimeout
+                + ", endpointReadTimeouts=" + endpointReadTimeouts + "}";
+    }
+}
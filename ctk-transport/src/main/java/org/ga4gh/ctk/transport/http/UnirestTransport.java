@@ -0,0 +1,156 @@
+package org.ga4gh.ctk.transport.http;
+
+import com.mashape.unirest.http.HttpResponse;
+import com.mashape.unirest.http.Unirest;
+import com.mashape.unirest.http.async.Callback;
+import com.mashape.unirest.http.exceptions.UnirestException;
+import com.mashape.unirest.request.BaseRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>{@link HttpTransport} using the static {@link Unirest} client, which is how the
+ * CTK has always talked to servers.  Selected by the name <tt>unirest</tt>.</p>
+ * <p>Creating this transport gives Unirest clients whose pools and timeouts follow the
+ * {@link TransportConfig}. Unirest can't set a timeout per request, so the clients wait
+ * as long as the slowest endpoint is allowed to take, and requests to faster endpoints
+ * are given a deadline instead.</p>
+ * <p>The clients leave compressed bodies alone; where Unirest itself un-gzips a body, the
+ * result says so and carries the compressed size from <tt>Content-Length</tt>.</p>
+ * <p>Unirest reads the whole body into memory before handing it over, as a stream over a
+ * byte array, so the body is copied once more, into a byte array of exactly its size,
+ * and a response must fit in memory (twice, briefly).</p>
+ * <p>Since Unirest is a JVM-wide singleton, closing this transport does nothing.</p>
+ */
+public class UnirestTransport implements HttpTransport {
+
+    private final TransportConfig config;
+
+    /**
+     * Create the transport, configuring Unirest for the current run (see {@link TransportConfig#current()}).
+     */
+    public UnirestTransport() {
+        this(TransportConfig.current());
+    }
+
+    /**
+     * Create the transport, configuring Unirest.
+     *
+     * @param config the pool and timeout settings
+     */
+    public UnirestTransport(TransportConfig config) {
+        this.config = config;
+        final int longest = config.getLongestReadTimeout();
+        Unirest.setHttpClient(ConnectionPools.blockingClient(config, longest));
+        Unirest.setAsyncHttpClient(ConnectionPools.start(ConnectionPools.asyncClient(config, longest)));
+    }
+
+    @Override
+    public String getName() {
+        return HttpTransports.UNIREST;
+    }
+
+    @Override
+    public TransportConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public HttpResult post(String url, Map<String, String> headers, byte[] body, int readTimeout)
+            throws IOException {
+        return execute(Unirest.post(url).headers(headers).body(body), url, readTimeout);
+    }
+
+    @Override
+    public HttpResult get(String url, Map<String, String> headers, int readTimeout) throws IOException {
+        return execute(Unirest.get(url).headers(headers), url, readTimeout);
+    }
+
+    @Override
+    public CompletableFuture<HttpResult> postAsync(String url, Map<String, String> headers,
+                                                   byte[] body, int readTimeout) {
+        return ConnectionPools.within(executeAsync(Unirest.post(url).headers(headers).body(body)),
+                                      readTimeout, url);
+    }
+
+    @Override
+    public CompletableFuture<HttpResult> getAsync(String url, Map<String, String> headers,
+                                                  int readTimeout) {
+        return ConnectionPools.within(executeAsync(Unirest.get(url).headers(headers)), readTimeout, url);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private HttpResult execute(BaseRequest request, String url, int readTimeout) throws IOException {
+        if (readTimeout != config.getLongestReadTimeout()) {
+            // the client's own timeout is too long for this endpoint
+            return ConnectionPools.await(ConnectionPools.within(executeAsync(request), readTimeout, url));
+        }
+        try {
+            return toResult(request.asBinary());
+        } catch (UnirestException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static CompletableFuture<HttpResult> executeAsync(BaseRequest request) {
+        final CompletableFuture<HttpResult> future = new CompletableFuture<>();
+        request.asBinaryAsync(new Callback<InputStream>() {
+            @Override
+            public void completed(HttpResponse<InputStream> response) {
+                try {
+                    future.complete(toResult(response));
+                } catch (IOException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void failed(UnirestException e) {
+                future.completeExceptionally(new IOException(e.getMessage(), e));
+            }
+
+            @Override
+            public void cancelled() {
+                future.cancel(false);
+            }
+        });
+        return future;
+    }
+
+    private static HttpResult toResult(HttpResponse<InputStream> response) throws IOException {
+        final InputStream in = response.getBody();
+        // Unirest's stream is over the byte array it read, so it knows how much is left
+        final byte[] body = in != null ? HttpResult.readBody(in, in.available()) : null;
+        final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.putAll(response.getHeaders());
+        final String encoding = HttpResult.firstValue(headers, "Content-Encoding");
+        if (encoding != null && encoding.trim().toLowerCase().endsWith("gzip") && !isGzip(body)) {
+            // Unirest has already un-gzipped the body; say so, and keep the wire size
+            headers.remove("Content-Encoding");
+            return new HttpResult(response.getStatus(), response.getStatusText(), headers, body,
+                                  contentLength(headers));
+        }
+        return new HttpResult(response.getStatus(), response.getStatusText(), headers, body);
+    }
+
+    private static int contentLength(Map<String, List<String>> headers) {
+        final String length = HttpResult.firstValue(headers, "Content-Length");
+        try {
+            return length != null ? Integer.parseInt(length.trim()) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean isGzip(byte[] body) {
+        return body != null && body.length >= 2 && (body[0] & 0xff) == 0x1f && (body[1] & 0xff) == 0x8b;
+    }
+}
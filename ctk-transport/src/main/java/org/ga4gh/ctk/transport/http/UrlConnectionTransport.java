@@ -0,0 +1,185 @@
+package org.ga4gh.ctk.transport.http;
+
+import org.ga4gh.ctk.transport.RunContext;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>{@link HttpTransport} using the JDK's {@link HttpURLConnection}.  Selected by the
+ * name <tt>urlconnection</tt>.</p>
+ * <p>The JDK keeps connections alive and reuses them (up to <tt>-Dhttp.maxConnections</tt>
+ * per host) as long as every response body is read to the end and closed, which this
+ * class always does, error responses included. Unless <tt>http.maxConnections</tt> is
+ * already set, the first instance sets it from
+ * {@link TransportConfig#getMaxConnectionsPerRoute()}; the JDK has no overall limit, and
+ * closes idle connections when the server's keep-alive time (default 5 seconds) passes,
+ * so the other pool settings don't apply. Timeouts are set on every connection.</p>
+ * <p>{@link HttpURLConnection} has no non-blocking mode, so the asynchronous methods
+ * run the blocking ones on a pool of daemon threads.</p>
+ * <p>The whole body, as it came over the wire (the JDK doesn't decompress it), is read into
+ * a byte array (of its <tt>Content-Length</tt>, if it has one) before the result is returned, so the connection goes back to the
+ * keep-alive cache at once whatever the caller does with the result; AvroJson then decodes
+ * it from that array in one pass, with no second copy. So a response must fit in
+ * memory.</p>
+ */
+public class UrlConnectionTransport implements HttpTransport, HttpTransports.Pooled {
+
+    private final TransportConfig config;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(threads());
+
+    /**
+     * Make the pool's threads; static, so the pool doesn't keep the transport reachable.
+     */
+    private static ThreadFactory threads() {
+        final AtomicInteger count = new AtomicInteger();
+        // pooled threads serve every run, so they don't keep the context of the one that started them
+        return r -> RunContext.unbound(() -> {
+            final Thread t = new Thread(r, "ctk-urlconnection-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Create the transport, configured for the current run (see {@link TransportConfig#current()}).
+     */
+    public UrlConnectionTransport() {
+        this(TransportConfig.current());
+    }
+
+    /**
+     * Create the transport.
+     *
+     * @param config the pool and timeout settings
+     */
+    public UrlConnectionTransport(TransportConfig config) {
+        this.config = config;
+        if (System.getProperty("http.maxConnections") == null) {
+            // only effective if no HttpURLConnection has been kept alive yet in this JVM
+            System.setProperty("http.maxConnections",
+                               Integer.toString(config.getMaxConnectionsPerRoute()));
+        }
+    }
+
+    @Override
+    public String getName() {
+        return HttpTransports.URL_CONNECTION;
+    }
+
+    @Override
+    public TransportConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public HttpResult post(String url, Map<String, String> headers, byte[] body, int readTimeout)
+            throws IOException {
+        final HttpURLConnection conn = open(url, "POST", headers, readTimeout);
+        conn.setDoOutput(true);
+        conn.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = conn.getOutputStream()) {
+            out.write(body);
+        }
+        return read(conn);
+    }
+
+    @Override
+    public HttpResult get(String url, Map<String, String> headers, int readTimeout) throws IOException {
+        return read(open(url, "GET", headers, readTimeout));
+    }
+
+    @Override
+    public CompletableFuture<HttpResult> postAsync(String url, Map<String, String> headers,
+                                                   byte[] body, int readTimeout) {
+        final CompletableFuture<HttpResult> future = new CompletableFuture<>();
+        execute(future, () -> {
+            try {
+                future.complete(post(url, headers, body, readTimeout));
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<HttpResult> getAsync(String url, Map<String, String> headers,
+                                                  int readTimeout) {
+        final CompletableFuture<HttpResult> future = new CompletableFuture<>();
+        execute(future, () -> {
+            try {
+                future.complete(get(url, headers, readTimeout));
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Run a request on the pool, or fail its future if the transport has been closed.
+     */
+    private void execute(CompletableFuture<HttpResult> future, Runnable request) {
+        try {
+            executor.execute(request);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new IOException("the " + getName() + " transport is closed", e));
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    @Override
+    public Closeable pool() {
+        final ExecutorService pool = executor;
+        return pool::shutdown;
+    }
+
+    private HttpURLConnection open(String url, String method, Map<String, String> headers,
+                                   int readTimeout) throws IOException {
+        final HttpURLConnection conn = (HttpURLConnection)new URL(url).openConnection();
+        conn.setRequestMethod(method);
+        conn.setConnectTimeout(config.getConnectTimeout());
+        conn.setReadTimeout(readTimeout);
+        conn.setUseCaches(false);
+        if (headers != null) {
+            headers.forEach(conn::setRequestProperty);
+        }
+        return conn;
+    }
+
+    /**
+     * Read the whole response, so the connection goes back to the keep-alive cache.
+     *
+     * @param conn the connection, with the request sent
+     * @return the response
+     * @throws IOException if there's a communication problem
+     */
+    private static HttpResult read(HttpURLConnection conn) throws IOException {
+        final int status = conn.getResponseCode();
+        final InputStream stream = status >= 400 ? conn.getErrorStream() : conn.getInputStream();
+        byte[] body = null;
+        if (stream != null) {
+            try (InputStream in = stream) {
+                body = HttpResult.readBody(in, conn.getContentLengthLong());
+            }
+        }
+        return new HttpResult(status, conn.getResponseMessage(), conn.getHeaderFields(), body);
+    }
+}
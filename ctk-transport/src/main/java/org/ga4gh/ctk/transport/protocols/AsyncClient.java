@@ -0,0 +1,350 @@
+package org.ga4gh.ctk.transport.protocols;
+
+import org.apache.avro.specific.SpecificRecordBase;
+import org.ga4gh.ctk.transport.URLMAPPING;
+import org.ga4gh.ctk.transport.avrojson.AvroJson;
+import org.ga4gh.ctk.transport.http.HttpTransport;
+import org.ga4gh.ctk.transport.http.HttpTransports;
+import org.ga4gh.methods.*;
+import org.ga4gh.models.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>Non-blocking counterpart of {@link Client}.</p>
+ * <p>Each method issues its request and returns immediately with a {@link CompletableFuture}
+ * for the response; the transport's threads complete the future when the response
+ * arrives.  With the <tt>unirest</tt> and <tt>httpasyncclient</tt> transports those are
+ * non-blocking I/O threads, so a single JVM can keep many requests in flight without a
+ * thread per request.
+ * Methods are grouped by functional area exactly as in {@link Client}:</p>
+ * <pre>
+ *     CompletableFuture&lt;SearchReadsResponse&gt; f = asyncClient.reads.searchReads(request);
+ * </pre>
+ * <p>A future completes with null if the server could not be reached (as the blocking
+ * {@link Client} methods return null), and completes exceptionally with a
+ * {@link org.ga4gh.ctk.transport.GAWrapperException} if the server returns a
+ * {@link GAException}.</p>
+ * <p>There is no shared WireTracker: with many requests in flight at once a single
+ * tracker could not say which interaction it describes.</p>
+ */
+public class AsyncClient {
+
+    private final URLMAPPING urls;
+
+    private final HttpTransport transport;
+
+    /**
+     * Provides access to variants-related methods.
+     */
+    public final Variants variants = new Variants();
+
+    /**
+     * Provides access to reads-related methods.
+     */
+    public final Reads reads = new Reads();
+
+    /**
+     * Provides access to references-related methods.
+     */
+    public final References references = new References();
+
+    /**
+     * Provides access to variantannotations-related methods.
+     */
+    public final VariantAnnotations variantAnnotations = new VariantAnnotations();
+
+    /**
+     * Provides access to metadata-related methods.
+     */
+    public final Metadata metadata = new Metadata();
+
+    /**
+     * Create a new asynchronous client that can make requests on a GA4GH server.
+     *
+     * @param urls an URLMAPPING object that gives us the paths to use
+     */
+    public AsyncClient(URLMAPPING urls) {
+        this.urls = urls;
+        this.transport = HttpTransports.forName(urls.getTransport());
+    }
+
+    /**
+     * POST the request to the path and return a future for the deserialized response.
+     *
+     * @param request  the request to send
+     * @param response an (empty) instance of the response type we expect
+     * @param path     the endpoint path, relative to the url root
+     * @return the future response
+     */
+    private <Q extends SpecificRecordBase, P extends SpecificRecordBase>
+    CompletableFuture<P> post(Q request, P response, String path) {
+        return new AvroJson<>(request, response, urls.getUrlRoot(), path, null, transport).doPostRespAsync();
+    }
+
+    /**
+     * GET the object with the given ID and return a future for the deserialized response.
+     *
+     * @param response    an (empty) instance of the response type we expect
+     * @param path        the endpoint path, relative to the url root
+     * @param id          the route param
+     * @param queryParams query parameters for the request, may be null
+     * @return the future response
+     */
+    private <P extends SpecificRecordBase>
+    CompletableFuture<P> get(P response, String path, String id, Map<String, Object> queryParams) {
+        return new AvroJson<SpecificRecordBase, P>(response, urls.getUrlRoot(), path, null, transport)
+                .doGetRespAsync(id, queryParams);
+    }
+
+    /**
+     * Asynchronous metadata-related methods.
+     */
+    public class Metadata {
+
+        /**
+         * <tt>POST /datasets/search</tt>, see {@link Client.Metadata#searchDatasets}.
+         *
+         * @param request the {@link SearchDatasetsRequest} request
+         * @return the future {@link SearchDatasetsResponse}
+         */
+        public CompletableFuture<SearchDatasetsResponse> searchDatasets(SearchDatasetsRequest request) {
+            return post(request, new SearchDatasetsResponse(), urls.getSearchDatasets());
+        }
+
+        /**
+         * <tt>GET /datasets/{id}</tt>, see {@link Client.Metadata#getDataset}.
+         *
+         * @param id the ID of the dataset
+         * @return the future {@link Dataset}
+         */
+        public CompletableFuture<Dataset> getDataset(String id) {
+            return get(new Dataset(), urls.getGetDataset(), id, null);
+        }
+    }
+
+    /**
+     * Asynchronous variants-related methods.
+     */
+    public class Variants {
+
+        /**
+         * <tt>POST /variantsets/search</tt>, see {@link Client.Variants#searchVariantSets}.
+         *
+         * @param request the {@link SearchVariantSetsRequest} we'll issue
+         * @return the future {@link SearchVariantSetsResponse}
+         */
+        public CompletableFuture<SearchVariantSetsResponse> searchVariantSets(SearchVariantSetsRequest request) {
+            return post(request, new SearchVariantSetsResponse(), urls.getSearchVariantSets());
+        }
+
+        /**
+         * <tt>GET /variantsets/{id}</tt>, see {@link Client.Variants#getVariantSet}.
+         *
+         * @param id the ID of the variant set
+         * @return the future {@link VariantSet}
+         */
+        public CompletableFuture<VariantSet> getVariantSet(String id) {
+            return get(new VariantSet(), urls.getGetVariantSet(), id, null);
+        }
+
+        /**
+         * <tt>POST /variants/search</tt>, see {@link Client.Variants#searchVariants}.
+         *
+         * @param request the {@link SearchVariantsRequest} we'll issue
+         * @return the future {@link SearchVariantsResponse}
+         */
+        public CompletableFuture<SearchVariantsResponse> searchVariants(SearchVariantsRequest request) {
+            return post(request, new SearchVariantsResponse(), urls.getSearchVariants());
+        }
+
+        /**
+         * <tt>GET /variants/{id}</tt>, see {@link Client.Variants#getVariant}.
+         *
+         * @param id the ID of the variant
+         * @return the future {@link Variant}
+         */
+        public CompletableFuture<Variant> getVariant(String id) {
+            return get(new Variant(), urls.getGetVariant(), id, null);
+        }
+
+        /**
+         * <tt>POST /callsets/search</tt>, see {@link Client.Variants#searchCallSets}.
+         *
+         * @param request the {@link SearchCallSetsRequest} we'll issue
+         * @return the future {@link SearchCallSetsResponse}
+         */
+        public CompletableFuture<SearchCallSetsResponse> searchCallSets(SearchCallSetsRequest request) {
+            return post(request, new SearchCallSetsResponse(), urls.getSearchCallsets());
+        }
+
+        /**
+         * <tt>GET /callsets/{id}</tt>, see {@link Client.Variants#getCallSet}.
+         *
+         * @param id the ID of the call set
+         * @return the future {@link CallSet}
+         */
+        public CompletableFuture<CallSet> getCallSet(String id) {
+            return get(new CallSet(), urls.getGetCallset(), id, null);
+        }
+    }
+
+    /**
+     * Asynchronous reads-related methods.
+     */
+    public class Reads {
+
+        /**
+         * <tt>POST /reads/search</tt>, see {@link Client.Reads#searchReads}.
+         *
+         * @param request filled-in Avro object to be serialized as JSON to the server
+         * @return the future {@link SearchReadsResponse}
+         */
+        public CompletableFuture<SearchReadsResponse> searchReads(SearchReadsRequest request) {
+            return post(request, new SearchReadsResponse(), urls.getSearchReads());
+        }
+
+        /**
+         * <tt>POST /readgroupsets/search</tt>, see {@link Client.Reads#searchReadGroupSets}.
+         *
+         * @param request filled-in Avro object to be serialized as JSON to the server
+         * @return the future {@link SearchReadGroupSetsResponse}
+         */
+        public CompletableFuture<SearchReadGroupSetsResponse> searchReadGroupSets(SearchReadGroupSetsRequest request) {
+            return post(request, new SearchReadGroupSetsResponse(), urls.getSearchReadGroupSets());
+        }
+
+        /**
+         * <tt>GET /readgroupsets/{id}</tt>, see {@link Client.Reads#getReadGroupSet}.
+         *
+         * @param id the ID of the read group set
+         * @return the future {@link ReadGroupSet}
+         */
+        public CompletableFuture<ReadGroupSet> getReadGroupSet(String id) {
+            return get(new ReadGroupSet(), urls.getGetReadGroupSet(), id, null);
+        }
+
+        /**
+         * <tt>GET /readgroups/{id}</tt>, see {@link Client.Reads#getReadGroup}.
+         *
+         * @param id the ID of the read group
+         * @return the future {@link ReadGroup}
+         */
+        public CompletableFuture<ReadGroup> getReadGroup(String id) {
+            return get(new ReadGroup(), urls.getGetReadGroup(), id, null);
+        }
+    }
+
+    /**
+     * Asynchronous references-related methods.
+     */
+    public class References {
+
+        /**
+         * <tt>POST /referencesets/search</tt>, see {@link Client.References#searchReferenceSets}.
+         *
+         * @param request Avro object to be serialized as JSON to the server
+         * @return the future {@link SearchReferenceSetsResponse}
+         */
+        public CompletableFuture<SearchReferenceSetsResponse> searchReferenceSets(SearchReferenceSetsRequest request) {
+            return post(request, new SearchReferenceSetsResponse(), urls.getSearchReferencesets());
+        }
+
+        /**
+         * <tt>GET /referencesets/{id}</tt>, see {@link Client.References#getReferenceSet}.
+         *
+         * @param id the reference set ID
+         * @return the future {@link ReferenceSet}
+         */
+        public CompletableFuture<ReferenceSet> getReferenceSet(String id) {
+            return get(new ReferenceSet(), urls.getReferenceSets(), id, null);
+        }
+
+        /**
+         * <tt>POST /references/search</tt>, see {@link Client.References#searchReferences}.
+         *
+         * @param request Avro object to be serialized as JSON to the server
+         * @return the future {@link SearchReferencesResponse}
+         */
+        public CompletableFuture<SearchReferencesResponse> searchReferences(SearchReferencesRequest request) {
+            return post(request, new SearchReferencesResponse(), urls.getSearchReferences());
+        }
+
+        /**
+         * <tt>GET /references/{id}</tt>, see {@link Client.References#getReference}.
+         *
+         * @param id the reference ID
+         * @return the future {@link Reference}
+         */
+        public CompletableFuture<Reference> getReference(String id) {
+            return get(new Reference(), urls.getReference(), id, null);
+        }
+
+        /**
+         * <tt>GET /references/{id}/bases</tt>, see {@link Client.References#getReferenceBases}.
+         *
+         * @param id      the reference ID
+         * @param request the range and page token to ask for
+         * @return the future {@link ListReferenceBasesResponse}
+         */
+        public CompletableFuture<ListReferenceBasesResponse> getReferenceBases(String id,
+                                                                              ListReferenceBasesRequest request) {
+            final Map<String, Object> params = new HashMap<>();
+            if (request.getStart() != null) {
+                params.put("start", request.getStart());
+            }
+            if (request.getEnd() != null) {
+                params.put("end", request.getEnd());
+            }
+            if (request.getPageToken() != null) {
+                params.put("pageToken", request.getPageToken());
+            }
+            return get(new ListReferenceBasesResponse(), urls.getSearchReferenceBases(), id, params);
+        }
+    }
+
+    /**
+     * Asynchronous variant annotation-related methods.
+     */
+    public class VariantAnnotations {
+
+        /**
+         * <tt>POST /variantannotationsets/search</tt>,
+         * see {@link Client.VariantAnnotations#searchVariantAnnotationSets}.
+         *
+         * @param request the {@link SearchVariantAnnotationSetsRequest} we'll issue
+         * @return the future {@link SearchVariantAnnotationSetsResponse}
+         */
+        public CompletableFuture<SearchVariantAnnotationSetsResponse>
+        searchVariantAnnotationSets(SearchVariantAnnotationSetsRequest request) {
+            return post(request, new SearchVariantAnnotationSetsResponse(),
+                        urls.getSearchVariantAnnotationSets());
+        }
+
+        /**
+         * <tt>GET /variantannotationsets/{id}</tt>,
+         * see {@link Client.VariantAnnotations#getVariantAnnotationSet}.
+         *
+         * @param id the ID of the variant annotation set
+         * @return the future {@link VariantAnnotationSet}
+         */
+        public CompletableFuture<VariantAnnotationSet> getVariantAnnotationSet(String id) {
+            return get(new VariantAnnotationSet(), urls.getGetVariantAnnotationSet(), id, null);
+        }
+
+        /**
+         * <tt>POST /variantannotations/search</tt>,
+         * see {@link Client.VariantAnnotations#searchVariantAnnotations}.
+         *
+         * @param request the {@link SearchVariantAnnotationsRequest} we'll issue
+         * @return the future {@link SearchVariantAnnotationsResponse}
+         */
+        public CompletableFuture<SearchVariantAnnotationsResponse>
+        searchVariantAnnotations(SearchVariantAnnotationsRequest request) {
+            return post(request, new SearchVariantAnnotationsResponse(),
+                        urls.getSearchVariantAnnotations());
+        }
+    }
+}
@@ -4,11 +4,18 @@ import org.apache.avro.AvroRemoteException;
 import org.ga4gh.ctk.transport.URLMAPPING;
 import org.ga4gh.ctk.transport.WireTracker;
 import org.ga4gh.ctk.transport.avrojson.AvroJson;
+import org.ga4gh.ctk.transport.http.HttpTransport;
+import org.ga4gh.ctk.transport.http.HttpTransports;
 import org.ga4gh.methods.*;
 import org.ga4gh.models.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class provides an interface to/facade for the GA4GH server we're testing.
@@ -20,6 +27,9 @@ import java.util.Map;
  * <li>{@link #references references}</li>
  * <li>{@link #variantAnnotations variantAnnotations}</li> 
 * </ul>
+ * <p>Each method blocks until the server responds; {@link #async()} gives the same
+ * methods in non-blocking form.  Every <tt>searchXxx</tt> method also has a
+ * <tt>streamXxx</tt> counterpart that walks all pages of the result.</p>
  *
  * @author Herb Jellinek
  */
@@ -27,6 +37,10 @@ public class Client {
 
     private final URLMAPPING urls;
 
+    private final HttpTransport transport;
+
+    private final AsyncClient asyncClient;
+
     public WireTracker wireTracker = null;
 
     /**
@@ -72,10 +86,14 @@ public class Client {
     /**
      * Create a new client that can make requests on a GA4GH server.
      *
-     * @param urls an URLMAPPING object that gives us the paths to use
+     * @param urls an URLMAPPING object that gives us the paths to use (and the
+     *             name of the HTTP transport, see {@link HttpTransports}, whose pool and
+     *             timeouts are those of the current {@link org.ga4gh.ctk.transport.RunContext})
      */
     public Client(URLMAPPING urls) {
         this.urls = urls;
+        this.transport = HttpTransports.forName(urls.getTransport());
+        this.asyncClient = new AsyncClient(urls);
     }
 
     /**
@@ -86,9 +104,55 @@ public class Client {
      */
     public Client(URLMAPPING urls, WireTracker wt) {
         this.urls = urls;
+        this.transport = HttpTransports.forName(urls.getTransport());
+        this.asyncClient = new AsyncClient(urls);
         wireTracker = wt;
     }
 
+    /**
+     * Provides the non-blocking versions of this client's methods, talking to the same
+     * server.  For example,
+     * <pre>
+     *     myClient.async().reads.searchReads(...).thenAccept(...);
+     * </pre>
+     *
+     * @return an {@link AsyncClient} using this client's URLMAPPING
+     */
+    public AsyncClient async() {
+        return asyncClient;
+    }
+
+    /**
+     * Return the HTTP transport this client's requests go through.
+     *
+     * @return the {@link HttpTransport} named by the URLMAPPING
+     */
+    public HttpTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Turn a paged search into a stream of its elements, prefetching one page ahead.
+     * <p>Closing the stream cancels any page request still in flight.  A page that can't be
+     * retrieved surfaces during traversal as an {@link java.io.UncheckedIOException}.</p>
+     *
+     * @param firstPageToken  the page token of the first request (normally null)
+     * @param fetchPage       issues the search request for a given page token
+     * @param itemsOf         extracts the elements from a page
+     * @param nextPageTokenOf extracts the next page token (null on the last page)
+     * @param <P>             the search response (page) type
+     * @param <T>             the type of element on each page
+     * @return a sequential stream of every element on every page
+     */
+    private <P, T> Stream<T> pagedStream(String firstPageToken,
+                                         Function<String, CompletableFuture<P>> fetchPage,
+                                         Function<P, List<T>> itemsOf,
+                                         Function<P, String> nextPageTokenOf) {
+        final PagingSpliterator<P, T> pages =
+                new PagingSpliterator<>(firstPageToken, fetchPage, itemsOf, nextPageTokenOf);
+        return StreamSupport.stream(pages, false).onClose(pages::cancel);
+    }
+
 
     /**
      * Inner class holding all metadata-related methods.  Gathering them in an inner class like this
@@ -110,7 +174,7 @@ public class Client {
             String path = urls.getSearchDatasets();
             SearchDatasetsResponse response = new SearchDatasetsResponse();
             final AvroJson aj =
-                    new AvroJson<>(request, response, urls.getUrlRoot(), path, wireTracker);
+                    new AvroJson<>(request, response, urls.getUrlRoot(), path, wireTracker, transport);
             response = (SearchDatasetsResponse) aj.doPostResp();
 
             return response;
@@ -128,10 +192,25 @@ public class Client {
             String path = urls.getGetDataset();
             Dataset response = new Dataset();
             final AvroJson aj =
-                    new AvroJson<>(response, urls.getUrlRoot(), path, wireTracker);
+                    new AvroJson<>(response, urls.getUrlRoot(), path, wireTracker, transport);
             response = (Dataset) aj.doGetResp(id);
             return response;
         }
+
+        /**
+         * Streams every {@link Dataset} matching the search criteria, across all pages of
+         * <tt>POST /datasets/search</tt>.  The next page is fetched while this one is consumed.
+         *
+         * @param request the {@link SearchDatasetsRequest} for the first page
+         * @return the matching {@link Dataset} objects, in server order
+         */
+        public Stream<Dataset> streamDatasets(SearchDatasetsRequest request) {
+            return pagedStream(request.getPageToken(),
+                               token -> asyncClient.metadata.searchDatasets(
+                                       SearchDatasetsRequest.newBuilder(request).setPageToken(token).build()),
+                               SearchDatasetsResponse::getDatasets,
+                               SearchDatasetsResponse::getNextPageToken);
+        }
     }
 
     /**
@@ -153,7 +232,7 @@ public class Client {
             String path = urls.getSearchVariantSets();
             SearchVariantSetsResponse response = new SearchVariantSetsResponse();
             final AvroJson aj =
-                    new AvroJson<>(request, response, urls.getUrlRoot(), path, wireTracker);
+                    new AvroJson<>(request, response, urls.getUrlRoot(), path, wireTracker, transport);
             response = (SearchVariantSetsResponse)aj.doPostResp();
             return response;
         }
@@ -168,7 +247,7 @@ public class Client {
         public VariantSet getVariantSet(String id) throws AvroRemoteException {
             String path = urls.getGetVariantSet();
             VariantSet response = new VariantSet();
-            final AvroJson aj = new AvroJson<>(response, urls.getUrlRoot(), path);
+            final AvroJson aj = new AvroJson<>(response, urls.getUrlRoot(), path, null, transport);
             response = (VariantSet)aj.doGetResp(id);
             return response;
         }
@@ -203,7 +282,7 @@ public class Client {
             String path = urls.getSearchVariants();
             SearchVariantsResponse response = new SearchVariantsResponse();
             final AvroJson aj =
-                    new AvroJson<>(request, response, urls.getUrlRoot(), path, wireTracker);
+                    new AvroJson<>(request, response, urls.getUrlRoot(), path, wireTracker, transport);
             response = (SearchVariantsResponse)aj.doPostResp();
             return response;
         }
@@ -218,7 +297,7 @@ public class Client {
         public Variant getVariant(String id) throws AvroRemoteException {
             String path = urls.getGetVariant();
             Variant response = new Variant();
-            final AvroJson aj = new AvroJson<>(response, urls.getUrlRoot(), path);
+            final AvroJson aj = new AvroJson<>(response, urls.getUrlRoot(), path, null, transport);
             response = (Variant)aj.doGetResp(id);
             return response;
         }
@@ -254,7 +333,7 @@ public class Client {
             String path = urls.getSearchCallsets();
             SearchCallSetsResponse response = new SearchCallSetsResponse();
             final AvroJson aj =
-                    new AvroJson<>(request, response, urls.getUrlRoot(), path, wireTracker);
+                    new AvroJson<>(request, response, urls.getUrlRoot(), path, wireTracker, transport);
             response = (SearchCallSetsResponse)aj.doPostResp();
             return response;
         }
@@ -269,7 +348,7 @@ public class Client {
         public CallSet getCallSet(String id) throws AvroRemoteException {
             String path = urls.getGetCallset();
             CallSet response = new CallSet();
-            final AvroJson aj = new AvroJson<>(response, urls.getUrlRoot(), path);
+            final AvroJson aj = new AvroJson<>(response, urls.getUrlRoot(), path, null, transport);
             response = (CallSet)aj.doGetResp(id);
             return response;
         }
@@ -289,6 +368,51 @@ public class Client {
             wireTracker = wt;
             return searchCallSets(request);
         }
+
+        /**
+         * Streams every {@link VariantSet} matching the search criteria, across all pages of
+         * <tt>POST /variantsets/search</tt>.  The next page is fetched while this one is consumed.
+         *
+         * @param request the {@link SearchVariantSetsRequest} for the first page
+         * @return the matching {@link VariantSet} objects, in server order
+         */
+        public Stream<VariantSet> streamVariantSets(SearchVariantSetsRequest request) {
+            return pagedStream(request.getPageToken(),
+                               token -> asyncClient.variants.searchVariantSets(
+                                       SearchVariantSetsRequest.newBuilder(request).setPageToken(token).build()),
+                               SearchVariantSetsResponse::getVariantSets,
+                               SearchVariantSetsResponse::getNextPageToken);
+        }
+
+        /**
+         * Streams every {@link Variant} matching the search criteria, across all pages of
+         * <tt>POST /variants/search</tt>.  The next page is fetched while this one is consumed.
+         *
+         * @param request the {@link SearchVariantsRequest} for the first page
+         * @return the matching {@link Variant} objects, in server order
+         */
+        public Stream<Variant> streamVariants(SearchVariantsRequest request) {
+            return pagedStream(request.getPageToken(),
+                               token -> asyncClient.variants.searchVariants(
+                                       SearchVariantsRequest.newBuilder(request).setPageToken(token).build()),
+                               SearchVariantsResponse::getVariants,
+                               SearchVariantsResponse::getNextPageToken);
+        }
+
+        /**
+         * Streams every {@link CallSet} matching the search criteria, across all pages of
+         * <tt>POST /callsets/search</tt>.  The next page is fetched while this one is consumed.
+         *
+         * @param request the {@link SearchCallSetsRequest} for the first page
+         * @return the matching {@link CallSet} objects, in server order
+         */
+        public Stream<CallSet> streamCallSets(SearchCallSetsRequest request) {
+            return pagedStream(request.getPageToken(),
+                               token -> asyncClient.variants.searchCallSets(
+                                       SearchCallSetsRequest.newBuilder(request).setPageToken(token).build()),
+                               SearchCallSetsResponse::getCallSets,
+                               SearchCallSetsResponse::getNextPageToken);
+        }
     }
 
     /**
@@ -313,7 +437,7 @@ public class Client {
             String path = urls.getSearchReads();
             SearchReadsResponse response = new SearchReadsResponse();
             final AvroJson aj =
-                    new AvroJson<>(request, response, urls.getUrlRoot(), path, wireTracker);
+                    new AvroJson<>(request, response, urls.getUrlRoot(), path, wireTracker, transport);
             response = (SearchReadsResponse)aj.doPostResp();
             return response;
         }
@@ -353,7 +477,7 @@ public class Client {
             // with the filled-in Response object constructed in AvroJson and passed back
             SearchReadGroupSetsResponse response = new SearchReadGroupSetsResponse();
             final AvroJson aj =
-                    new AvroJson<>(request, response, urls.getUrlRoot(), path, wireTracker);
+                    new AvroJson<>(request, response, urls.getUrlRoot(), path, wireTracker, transport);
             //aj.setDeserMode(AvroJson.DESER_MODE.AVRO_DIRECT);
             response = (SearchReadGroupSetsResponse)aj.doPostResp();
 
@@ -371,7 +495,7 @@ public class Client {
         public ReadGroupSet getReadGroupSet(String id) throws AvroRemoteException {
             String path = urls.getGetReadGroupSet();
             ReadGroupSet response = new ReadGroupSet();
-            final AvroJson aj = new AvroJson<>(response, urls.getUrlRoot(), path);
+            final AvroJson aj = new AvroJson<>(response, urls.getUrlRoot(), path, null, transport);
             response = (ReadGroupSet)aj.doGetResp(id);
             return response;
         }
@@ -387,7 +511,7 @@ public class Client {
         public ReadGroup getReadGroup(String id) throws AvroRemoteException {
             String path = urls.getGetReadGroup();
             ReadGroup response = new ReadGroup();
-            final AvroJson aj = new AvroJson<>(response, urls.getUrlRoot(), path);
+            final AvroJson aj = new AvroJson<>(response, urls.getUrlRoot(), path, null, transport);
             response = (ReadGroup)aj.doGetResp(id);
             return response;
         }
@@ -408,6 +532,36 @@ public class Client {
             wireTracker = wt;
             return searchReadGroupSets(request);
         }
+
+        /**
+         * Streams every {@link ReadAlignment} matching the search criteria, across all pages of
+         * <tt>POST /reads/search</tt>.  The next page is fetched while this one is consumed.
+         *
+         * @param request the {@link SearchReadsRequest} for the first page
+         * @return the matching {@link ReadAlignment} objects, in server order
+         */
+        public Stream<ReadAlignment> streamReads(SearchReadsRequest request) {
+            return pagedStream(request.getPageToken(),
+                               token -> asyncClient.reads.searchReads(
+                                       SearchReadsRequest.newBuilder(request).setPageToken(token).build()),
+                               SearchReadsResponse::getAlignments,
+                               SearchReadsResponse::getNextPageToken);
+        }
+
+        /**
+         * Streams every {@link ReadGroupSet} matching the search criteria, across all pages of
+         * <tt>POST /readgroupsets/search</tt>.  The next page is fetched while this one is consumed.
+         *
+         * @param request the {@link SearchReadGroupSetsRequest} for the first page
+         * @return the matching {@link ReadGroupSet} objects, in server order
+         */
+        public Stream<ReadGroupSet> streamReadGroupSets(SearchReadGroupSetsRequest request) {
+            return pagedStream(request.getPageToken(),
+                               token -> asyncClient.reads.searchReadGroupSets(
+                                       SearchReadGroupSetsRequest.newBuilder(request).setPageToken(token).build()),
+                               SearchReadGroupSetsResponse::getReadGroupSets,
+                               SearchReadGroupSetsResponse::getNextPageToken);
+        }
     }
 
     /**
@@ -436,7 +590,7 @@ public class Client {
             // with the filled-in Response object constructed in AvroJson and passed back
             SearchReferenceSetsResponse response = new SearchReferenceSetsResponse();
             final AvroJson aj =
-                    new AvroJson<>(request, response, urls.getUrlRoot(), path, wireTracker);
+                    new AvroJson<>(request, response, urls.getUrlRoot(), path, wireTracker, transport);
             response = (SearchReferenceSetsResponse)aj.doPostResp();
 
             return response;
@@ -453,7 +607,7 @@ public class Client {
         public ReferenceSet getReferenceSet(String id) throws AvroRemoteException {
             String path = urls.getReferenceSets();
             ReferenceSet response = new ReferenceSet();
-            final AvroJson aj = new AvroJson<>(response, urls.getUrlRoot(), path);
+            final AvroJson aj = new AvroJson<>(response, urls.getUrlRoot(), path, null, transport);
             response = (ReferenceSet)aj.doGetResp(id);
             return response;
         }
@@ -504,7 +658,7 @@ public class Client {
             String path = urls.getSearchReferences();
             SearchReferencesResponse response = new SearchReferencesResponse();
             final AvroJson aj =
-                    new AvroJson<>(request, response, urls.getUrlRoot(), path, wireTracker);
+                    new AvroJson<>(request, response, urls.getUrlRoot(), path, wireTracker, transport);
             response = (SearchReferencesResponse)aj.doPostResp();
 
             return response;
@@ -525,7 +679,7 @@ public class Client {
             // with the filled-in Response object constructed in AvroJson and passed back
             Reference response = new Reference();
             final AvroJson aj =
-                    new AvroJson<>(response, urls.getUrlRoot(), path, wireTracker);
+                    new AvroJson<>(response, urls.getUrlRoot(), path, wireTracker, transport);
             response = (Reference)aj.doGetResp(id);
 
             return response;
@@ -560,7 +714,7 @@ public class Client {
             String path = urls.getSearchReferenceBases();
             ListReferenceBasesResponse response = new ListReferenceBasesResponse();
             final AvroJson aj =
-                    new AvroJson<>(response, urls.getUrlRoot(), path, wireTracker);
+                    new AvroJson<>(response, urls.getUrlRoot(), path, wireTracker, transport);
             // collect query params from request
             final Map<String, Object> params = new HashMap<>();
             putInMapIfValueNotNull(params, "start", request.getStart());
@@ -570,6 +724,36 @@ public class Client {
 
             return response;
         }
+
+        /**
+         * Streams every {@link ReferenceSet} matching the search criteria, across all pages of
+         * <tt>POST /referencesets/search</tt>.  The next page is fetched while this one is consumed.
+         *
+         * @param request the {@link SearchReferenceSetsRequest} for the first page
+         * @return the matching {@link ReferenceSet} objects, in server order
+         */
+        public Stream<ReferenceSet> streamReferenceSets(SearchReferenceSetsRequest request) {
+            return pagedStream(request.getPageToken(),
+                               token -> asyncClient.references.searchReferenceSets(
+                                       SearchReferenceSetsRequest.newBuilder(request).setPageToken(token).build()),
+                               SearchReferenceSetsResponse::getReferenceSets,
+                               SearchReferenceSetsResponse::getNextPageToken);
+        }
+
+        /**
+         * Streams every {@link Reference} matching the search criteria, across all pages of
+         * <tt>POST /references/search</tt>.  The next page is fetched while this one is consumed.
+         *
+         * @param request the {@link SearchReferencesRequest} for the first page
+         * @return the matching {@link Reference} objects, in server order
+         */
+        public Stream<Reference> streamReferences(SearchReferencesRequest request) {
+            return pagedStream(request.getPageToken(),
+                               token -> asyncClient.references.searchReferences(
+                                       SearchReferencesRequest.newBuilder(request).setPageToken(token).build()),
+                               SearchReferencesResponse::getReferences,
+                               SearchReferencesResponse::getNextPageToken);
+        }
     }
 
     /**
@@ -591,7 +775,7 @@ public class Client {
             String path = urls.getSearchVariantAnnotationSets();
             SearchVariantAnnotationSetsResponse response = new SearchVariantAnnotationSetsResponse();
             final AvroJson aj =
-                    new AvroJson<>(request, response, urls.getUrlRoot(), path, wireTracker);
+                    new AvroJson<>(request, response, urls.getUrlRoot(), path, wireTracker, transport);
             response = (SearchVariantAnnotationSetsResponse)aj.doPostResp();
             return response;
         }
@@ -606,7 +790,7 @@ public class Client {
         public VariantAnnotationSet getVariantAnnotationSet(String id) throws AvroRemoteException {
             String path = urls.getGetVariantAnnotationSet();
             VariantAnnotationSet response = new VariantAnnotationSet();
-            final AvroJson aj = new AvroJson<>(response, urls.getUrlRoot(), path);
+            final AvroJson aj = new AvroJson<>(response, urls.getUrlRoot(), path, null, transport);
             response = (VariantAnnotationSet)aj.doGetResp(id);
             return response;
         }
@@ -641,7 +825,7 @@ public class Client {
             String path = urls.getSearchVariantAnnotations();
             SearchVariantAnnotationsResponse response = new SearchVariantAnnotationsResponse();
             final AvroJson aj =
-                    new AvroJson<>(request, response, urls.getUrlRoot(), path, wireTracker);
+                    new AvroJson<>(request, response, urls.getUrlRoot(), path, wireTracker, transport);
             response = (SearchVariantAnnotationsResponse)aj.doPostResp();
             return response;
         }
@@ -662,6 +846,36 @@ public class Client {
             wireTracker = wt;
             return searchVariantAnnotations(request);
         }
+
+        /**
+         * Streams every {@link VariantAnnotationSet} matching the search criteria, across all pages of
+         * <tt>POST /variantannotationsets/search</tt>.  The next page is fetched while this one is consumed.
+         *
+         * @param request the {@link SearchVariantAnnotationSetsRequest} for the first page
+         * @return the matching {@link VariantAnnotationSet} objects, in server order
+         */
+        public Stream<VariantAnnotationSet> streamVariantAnnotationSets(SearchVariantAnnotationSetsRequest request) {
+            return pagedStream(request.getPageToken(),
+                               token -> asyncClient.variantAnnotations.searchVariantAnnotationSets(
+                                       SearchVariantAnnotationSetsRequest.newBuilder(request).setPageToken(token).build()),
+                               SearchVariantAnnotationSetsResponse::getVariantAnnotationSets,
+                               SearchVariantAnnotationSetsResponse::getNextPageToken);
+        }
+
+        /**
+         * Streams every {@link VariantAnnotation} matching the search criteria, across all pages of
+         * <tt>POST /variantannotations/search</tt>.  The next page is fetched while this one is consumed.
+         *
+         * @param request the {@link SearchVariantAnnotationsRequest} for the first page
+         * @return the matching {@link VariantAnnotation} objects, in server order
+         */
+        public Stream<VariantAnnotation> streamVariantAnnotations(SearchVariantAnnotationsRequest request) {
+            return pagedStream(request.getPageToken(),
+                               token -> asyncClient.variantAnnotations.searchVariantAnnotations(
+                                       SearchVariantAnnotationsRequest.newBuilder(request).setPageToken(token).build()),
+                               SearchVariantAnnotationsResponse::getVariantAnnotations,
+                               SearchVariantAnnotationsResponse::getNextPageToken);
+        }
   }
 
 
@@ -0,0 +1,141 @@
+package org.ga4gh.ctk.transport.protocols;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * <p>Walks a paged GA4GH search result, one element at a time, following
+ * <tt>nextPageToken</tt> until the server stops returning one (or returns a blank one, as
+ * some servers do on the last page). Empty pages are skipped.</p>
+ * <p>As soon as page N arrives, its <tt>nextPageToken</tt> is used to request page N+1,
+ * before any element of page N is handed to the consumer. Page N+1 is therefore fetched
+ * (and deserialized, on the transport's thread) while the caller works through
+ * page N, and walking the whole result costs about one round trip per page.</p>
+ * <p>Errors surface as {@link UncheckedIOException}: a {@link org.ga4gh.methods.GAException}
+ * from the server is the cause, as is an {@link IOException} if a page could not be
+ * retrieved at all.</p>
+ *
+ * @param <P> the search response (page) type
+ * @param <T> the type of element on each page
+ */
+class PagingSpliterator<P, T> implements Spliterator<T> {
+
+    private final String firstPageToken;
+
+    private final Function<String, CompletableFuture<P>> fetchPage;
+
+    private final Function<P, List<T>> itemsOf;
+
+    private final Function<P, String> nextPageTokenOf;
+
+    private boolean started = false;
+
+    /**
+     * The request for the next page, already in flight; null when there are no more pages.
+     */
+    private CompletableFuture<P> pending;
+
+    private Iterator<T> current = Collections.emptyIterator();
+
+    /**
+     * Create a spliterator over a paged search.
+     *
+     * @param firstPageToken  the page token for the first request (normally null)
+     * @param fetchPage       issues the search request for a given page token
+     * @param itemsOf         extracts the elements from a page
+     * @param nextPageTokenOf extracts the next page token (null or blank on the last page)
+     */
+    PagingSpliterator(String firstPageToken,
+                      Function<String, CompletableFuture<P>> fetchPage,
+                      Function<P, List<T>> itemsOf,
+                      Function<P, String> nextPageTokenOf) {
+        this.firstPageToken = firstPageToken;
+        this.fetchPage = fetchPage;
+        this.itemsOf = itemsOf;
+        this.nextPageTokenOf = nextPageTokenOf;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (!started) {
+            started = true;
+            pending = fetchPage.apply(firstPageToken);
+        }
+        while (!current.hasNext()) {
+            if (pending == null) {
+                return false;
+            }
+            final P page = await(pending);
+            final String nextPageToken = nextPageTokenOf.apply(page);
+            // get the next page moving before we start handing out this one
+            pending = nextPageToken == null || nextPageToken.trim().isEmpty() ? null
+                    : fetchPage.apply(nextPageToken);
+            final List<T> items = itemsOf.apply(page);
+            current = items == null ? Collections.emptyIterator() : items.iterator();
+        }
+        action.accept(current.next());
+        return true;
+    }
+
+    /**
+     * Wait for a page to arrive.
+     *
+     * @param futurePage the page request
+     * @return the page, never null
+     */
+    private P await(CompletableFuture<P> futurePage) {
+        final P page;
+        try {
+            page = futurePage.join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException)cause);
+            }
+            throw e;
+        }
+        if (page == null) {
+            throw new UncheckedIOException(new IOException("no response from server for next page"));
+        }
+        return page;
+    }
+
+    /**
+     * Abandon the walk, cancelling any page request still in flight.
+     */
+    void cancel() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    /**
+     * Paged results can't be split; pages must be requested in order.
+     *
+     * @return null
+     */
+    @Override
+    public Spliterator<T> trySplit() {
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+}
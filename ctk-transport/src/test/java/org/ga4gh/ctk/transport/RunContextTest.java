@@ -0,0 +1,137 @@
+package org.ga4gh.ctk.transport;
+
+import org.ga4gh.ctk.transport.http.TransportConfig;
+import org.junit.Test;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for class {@link RunContext}.
+ */
+public class RunContextTest {
+
+    private static RunContext context(String urlRoot, String datasetId) {
+        final URLMAPPING urls = new URLMAPPINGImpl();
+        urls.setUrlRoot(urlRoot);
+        final Properties transport = new Properties();
+        transport.setProperty("ctk.transport.timeout.read", "1234");
+        return RunContext.of(urls, datasetId, transport);
+    }
+
+    /**
+     * A bound context overrides the system properties, and is unbound afterwards.
+     * @throws Exception if the Bad Thing happens
+     */
+    @Test
+    public void testBinding() throws Exception {
+        final RunContext context = context("http://one.example.org/ga4gh/", "dataset-one");
+        assertNull(RunContext.current());
+        context.run(() -> {
+            assertEquals(context, RunContext.current());
+            assertEquals("dataset-one", RunContext.property(RunContext.DATASET_ID));
+            assertEquals("1234", RunContext.properties().getProperty("ctk.transport.timeout.read"));
+            assertEquals(System.getProperty("java.version"), RunContext.property("java.version"));
+            assertEquals("http://one.example.org/ga4gh/", URLMAPPING.getInstance().getUrlRoot());
+        });
+        assertNull(RunContext.current());
+        assertEquals(System.getProperty(RunContext.DATASET_ID), RunContext.property(RunContext.DATASET_ID));
+    }
+
+    /**
+     * Runs on different threads see their own settings, and so do the threads they start.
+     * @throws Exception if the Bad Thing happens
+     */
+    @Test
+    public void testConcurrentRuns() throws Exception {
+        final CountDownLatch bothBound = new CountDownLatch(2);
+        final ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            final Future<String> one = pool.submit(() -> context("http://one.example.org/", "one").call(() -> {
+                bothBound.countDown();
+                bothBound.await();
+                return URLMAPPING.getInstance().getUrlRoot() + " " + TestThread.datasetId();
+            }));
+            final Future<String> two = pool.submit(() -> context("http://two.example.org/", "two").call(() -> {
+                bothBound.countDown();
+                bothBound.await();
+                return URLMAPPING.getInstance().getUrlRoot() + " " + TestThread.datasetId();
+            }));
+            assertEquals("http://one.example.org/ one", one.get());
+            assertEquals("http://two.example.org/ two", two.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Threads started with no context, and fork/join workers, don't keep the context of the
+     * thread that started them; a context bound on a worker is seen as usual.
+     * @throws Exception if the Bad Thing happens
+     */
+    @Test
+    public void testPoolThreadsDontInherit() throws Exception {
+        final RunContext context = context("http://one.example.org/", "one");
+        final ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            context.call(() -> {
+                final Thread[] started = new Thread[1];
+                final RunContext[] seen = {context};
+                RunContext.unbound(() -> started[0] = new Thread(() -> seen[0] = RunContext.current()));
+                started[0].start();
+                started[0].join();
+                assertNull(seen[0]);
+                assertEquals(context, RunContext.current());
+
+                // the pool's worker is started now, by this thread
+                assertNull(pool.submit(RunContext::current).get());
+                assertEquals("one", pool.submit(() -> context.call(() -> RunContext.property(RunContext.DATASET_ID)))
+                                        .get());
+                return null;
+            });
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * The transport configuration is read once per context.
+     * @throws Exception if the Bad Thing happens
+     */
+    @Test
+    public void testTransportConfigIsKept() throws Exception {
+        final RunContext context = context("http://one.example.org/", "one");
+        final TransportConfig config = context.call(TransportConfig::current);
+        assertEquals(1234, config.getReadTimeout());
+        assertSame(config, context.call(TransportConfig::current));
+        assertSame(config, context.computeIfAbsent(TransportConfig.class, () -> null));
+    }
+
+    /**
+     * Reads the dataset id on a thread of its own, as a test with a timeout would.
+     */
+    private static final class TestThread extends Thread {
+
+        private String datasetId;
+
+        @Override
+        public void run() {
+            datasetId = RunContext.property(RunContext.DATASET_ID);
+        }
+
+        static String datasetId() throws InterruptedException {
+            final TestThread thread = new TestThread();
+            thread.start();
+            thread.join();
+            return thread.datasetId;
+        }
+    }
+}
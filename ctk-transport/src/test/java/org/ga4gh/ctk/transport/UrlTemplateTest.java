@@ -0,0 +1,97 @@
+package org.ga4gh.ctk.transport;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for class {@link UrlTemplate}; its output must match
+ * {@link TransportUtils#makeUrl(String, String)} and
+ * {@link TransportUtils#expandUrl(String, String, Map)}.
+ */
+public class UrlTemplateTest {
+
+    /**
+     * Test a template without a route parameter builds the same URL as makeUrl.
+     * @throws Exception if the Bad Thing happens
+     */
+    @Test
+    public void testPlainPath() throws Exception {
+        final UrlTemplate template = UrlTemplate.of("http://localhost:8000/", "/reads/search");
+
+        assertEquals(TransportUtils.makeUrl("http://localhost:8000/", "reads/search"), template.getUrl());
+        assertFalse(template.hasRouteParam());
+        assertEquals(template.getUrl(), template.expand(null, null));
+    }
+
+    /**
+     * Test the route parameter and query parameters are encoded as expandUrl does.
+     * @throws Exception if the Bad Thing happens
+     */
+    @Test
+    public void testExpandMatchesExpandUrl() throws Exception {
+        final Map<String, Object> params = new LinkedHashMap<>();
+        params.put("start", 5L);
+        params.put("end", null);
+        params.put("pageToken", "a&b c+d/é");
+        final UrlTemplate template = UrlTemplate.of("http://localhost:8000", "references/{id}/bases");
+        assertTrue(template.hasRouteParam());
+
+        for (String id : new String[]{"ref 1", "a/b+c", "😀", null}) {
+            assertEquals(TransportUtils.expandUrl(template.getUrl(), id, params), template.expand(id, params));
+        }
+    }
+
+    /**
+     * Test a root that already carries a query string keeps it ahead of the added parameters.
+     * @throws Exception if the Bad Thing happens
+     */
+    @Test
+    public void testRootWithQueryParams() throws Exception {
+        final Map<String, Object> params = new LinkedHashMap<>();
+        params.put("start", 5L);
+        final UrlTemplate template =
+                UrlTemplate.of("https://www.googleapis.com/genomics/v1beta2?key=value", "references/{id}/bases");
+
+        assertEquals("https://www.googleapis.com/genomics/v1beta2/references/r1/bases?key=value&start=5",
+                     template.expand("r1", params));
+    }
+
+    /**
+     * Test {@link UrlTemplate#of(String, String)} hands out one shared instance per root and path.
+     * @throws Exception if the Bad Thing happens
+     */
+    @Test
+    public void testOfIsCached() throws Exception {
+        final UrlTemplate first = UrlTemplate.of("http://localhost:8000", "variants/{id}");
+
+        assertSame(first, UrlTemplate.of("http://localhost:8000", "variants/{id}"));
+        assertEquals("variants/{id}", first.getPath());
+    }
+
+    /**
+     * Test the cache keeps the templates used most recently, and drops the rest.
+     * @throws Exception if the Bad Thing happens
+     */
+    @Test
+    public void testCacheIsBounded() throws Exception {
+        final UrlTemplate kept = UrlTemplate.of("http://kept:8000", "reads/search");
+        final UrlTemplate dropped = UrlTemplate.of("http://dropped:8000", "reads/search");
+        for (int i = 0; i < UrlTemplate.MAX_TEMPLATES; i++) {
+            assertSame(kept, UrlTemplate.of("http://kept:8000", "reads/search"));
+            UrlTemplate.of("http://server" + i + ":8000", "reads/search");
+        }
+
+        assertSame(kept, UrlTemplate.of("http://kept:8000", "reads/search"));
+        final UrlTemplate again = UrlTemplate.of("http://dropped:8000", "reads/search");
+        assertNotSame(dropped, again);
+        assertEquals(dropped.getUrl(), again.getUrl());
+    }
+}
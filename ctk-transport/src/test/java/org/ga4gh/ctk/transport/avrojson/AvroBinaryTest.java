@@ -0,0 +1,227 @@
+package org.ga4gh.ctk.transport.avrojson;
+
+import org.ga4gh.ctk.transport.GAWrapperException;
+import org.ga4gh.ctk.transport.testcategories.AvroTests;
+import org.ga4gh.ctk.transport.testcategories.TransportTests;
+import org.ga4gh.ctk.transport.http.HttpResult;
+import org.ga4gh.ctk.transport.http.HttpTransport;
+import org.ga4gh.ctk.transport.http.TransportConfig;
+import org.ga4gh.methods.GAException;
+import org.ga4gh.methods.SearchReadsRequest;
+import org.ga4gh.methods.SearchReadsResponse;
+import org.ga4gh.models.ReadGroup;
+import org.apache.http.HttpStatus;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * AvroBinary Tester.
+ */
+@Category({TransportTests.class, AvroTests.class})
+public class AvroBinaryTest {
+
+    /**
+     * A request survives a trip through the binary encoding, and is smaller than its JSON.
+     * @throws Exception
+     */
+    @Test
+    public void testRequestRoundTrip() throws Exception {
+        final SearchReadsRequest req = SearchReadsRequest.newBuilder()
+                                                         .setReadGroupIds(Collections.singletonList("rg1"))
+                                                         .setReferenceId("ref1")
+                                                         .setStart(4321L)
+                                                         .setEnd(5432L)
+                                                         .setPageSize(33)
+                                                         .build();
+        final byte[] bytes = AvroBinary.toBytes(req);
+        assertTrue(bytes.length < JsonMaker.GsonToJsonBytes(req).length());
+        assertEquals(req, AvroBinary.fromBytes(new ByteArrayInputStream(bytes), new SearchReadsRequest()));
+    }
+
+    /**
+     * A response with an empty array and a page token survives a round trip.
+     * @throws Exception
+     */
+    @Test
+    public void testResponseRoundTrip() throws Exception {
+        final SearchReadsResponse resp = SearchReadsResponse.newBuilder()
+                                                            .setNextPageToken("I_am_a_test")
+                                                            .build();
+        final byte[] bytes = AvroBinary.toBytes(resp);
+        assertEquals(resp, AvroBinary.fromBytes(new ByteArrayInputStream(bytes), new SearchReadsResponse()));
+    }
+
+    private static GAException notFound() {
+        final GAException gae = new GAException();
+        gae.setMessage$("no such read group");
+        gae.setErrorCode(404);
+        return gae;
+    }
+
+    /**
+     * An error (an Avro error type, not a record) survives a round trip too.
+     * @throws Exception
+     */
+    @Test
+    public void testErrorRoundTrip() throws Exception {
+        final byte[] bytes = AvroBinary.toBytes(notFound());
+        final GAException gae = AvroBinary.fromBytes(new ByteArrayInputStream(bytes), new GAException());
+        assertEquals("no such read group", gae.getMessage$());
+        assertEquals(404, gae.getErrorCode().intValue());
+    }
+
+    /**
+     * Answers every request the same way, noting whether each asked for Avro binary or JSON.
+     */
+    private static class StubServer implements HttpTransport {
+
+        interface Answer {
+            HttpResult answer(Map<String, String> headers) throws IOException;
+        }
+
+        private final Answer answer;
+
+        final List<String> asked = new ArrayList<>();
+
+        StubServer(Answer answer) {
+            this.answer = answer;
+        }
+
+        @Override
+        public String getName() {
+            return "stub";
+        }
+
+        @Override
+        public TransportConfig getConfig() {
+            return new TransportConfig(1, 1, 0, 0, 1000, null);
+        }
+
+        @Override
+        public HttpResult post(String url, Map<String, String> headers, byte[] sent, int readTimeout)
+                throws IOException {
+            asked.add(headers.get("accept").startsWith(AvroBinary.MIME_TYPE) ? "avro" : "json");
+            return answer.answer(headers);
+        }
+
+        @Override
+        public HttpResult get(String url, Map<String, String> headers, int readTimeout) throws IOException {
+            return post(url, headers, null, readTimeout);
+        }
+
+        @Override
+        public CompletableFuture<HttpResult> postAsync(String url, Map<String, String> headers,
+                                                       byte[] sent, int readTimeout) {
+            final CompletableFuture<HttpResult> future = new CompletableFuture<>();
+            try {
+                future.complete(post(url, headers, sent, readTimeout));
+            } catch (IOException e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+
+        @Override
+        public CompletableFuture<HttpResult> getAsync(String url, Map<String, String> headers,
+                                                      int readTimeout) {
+            return postAsync(url, headers, null, readTimeout);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static HttpResult answer(int status, String contentType, byte[] body) {
+        return new HttpResult(status, "", Collections.<String, List<String>>singletonMap(
+                "Content-Type", Collections.singletonList(contentType)), body);
+    }
+
+    private static SearchReadsRequest request() {
+        return SearchReadsRequest.newBuilder()
+                                 .setReadGroupIds(Collections.singletonList("rg2"))
+                                 .build();
+    }
+
+    /**
+     * A server's Avro binary GAException is decoded and thrown, with its HTTP status.
+     * @throws Exception
+     */
+    @Test
+    public void testBinaryErrorResponse() throws Exception {
+        final byte[] body = AvroBinary.toBytes(notFound());
+        final StubServer server = new StubServer(headers -> answer(404, AvroBinary.MIME_TYPE, body));
+        try {
+            new AvroJson<>(request(), new SearchReadsResponse(), "http://localhost:8000/", "reads/search", null,
+                           server).doPostResp();
+            fail("expected a GAException");
+        } catch (GAWrapperException e) {
+            assertEquals(404, e.getHttpStatusCode());
+            assertEquals("no such read group", e.getMessage());
+            assertEquals(404, e.getErrorCode().intValue());
+        }
+    }
+
+    /**
+     * A request that fails in the transport isn't sent again as JSON.
+     * @throws Exception
+     */
+    @Test
+    public void testTransportFailureIsNotRetried() throws Exception {
+        final StubServer server = new StubServer(headers -> {
+            throw new SocketTimeoutException("Read timed out");
+        });
+        AvroJson.setAvroBinary(true);
+        try {
+            assertNull(new AvroJson<>(request(), new SearchReadsResponse(), "http://localhost:8001/",
+                                      "reads/search", null, server).doPostResp());
+            assertNull(new AvroJson<>(new ReadGroup(), "http://localhost:8001/", "readgroups/{id}", null, server)
+                               .doGetResp("rg2"));
+            // and the server isn't taken to have refused binary
+            assertNull(new AvroJson<>(request(), new SearchReadsResponse(), "http://localhost:8001/",
+                                      "reads/search", null, server).doPostResp());
+            assertEquals(Arrays.asList("avro", "avro", "avro"), server.asked);
+        } finally {
+            AvroJson.setAvroBinary(false);
+        }
+    }
+
+    /**
+     * A request the server refuses as binary is sent again as JSON, and so is every one after.
+     * @throws Exception
+     */
+    @Test
+    public void testRefusalFallsBackToJson() throws Exception {
+        final byte[] json = "{\"alignments\": [], \"nextPageToken\": null}".getBytes(StandardCharsets.UTF_8);
+        final StubServer server = new StubServer(headers -> headers.get("accept").startsWith(AvroBinary.MIME_TYPE)
+                ? answer(HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE, "text/plain", new byte[0])
+                : answer(HttpStatus.SC_OK, "application/json", json));
+        AvroJson.setAvroBinary(true);
+        try {
+            for (int i = 0; i < 2; i++) {
+                assertNotNull(new AvroJson<>(request(), new SearchReadsResponse(), "http://localhost:8002/",
+                                             "reads/search", null, server).doPostResp());
+            }
+            assertEquals(Arrays.asList("avro", "json", "json"), server.asked);
+        } finally {
+            AvroJson.setAvroBinary(false);
+        }
+    }
+}
@@ -13,6 +13,9 @@ import org.junit.experimental.categories.Category;
 import org.junit.runner.RunWith;
 
 import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 /**
  * AvroMaker Tester.
@@ -69,5 +72,20 @@ public class AvroMakerTest {
                 .hasNextPageToken(TOKEN);
     }
 
+    /**
+     * The streaming decoder must produce the same object as the String-based one.
+     * @throws Exception
+     */
+    @Test
+    public void testMakeAvroFromJsonReader() throws Exception {
+        AvroMaker<SearchReadsResponse> av = new AvroMaker<>(new SearchReadsResponse());
+
+        SearchReadsResponse streamed =
+                av.makeAvroFromJson(new StringReader(localJson), "test streaming ");
+        SearchReadsResponseAssert.assertThat(streamed)
+                .isNotNull()
+                .hasNextPageToken(TOKEN);
+        assertThat(streamed).isEqualTo(av.makeAvroFromJson(localJson, "test deserializing "));
+    }
 
 } 
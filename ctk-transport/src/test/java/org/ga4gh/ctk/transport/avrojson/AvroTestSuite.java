@@ -13,6 +13,6 @@ import org.junit.runners.Suite;
  */
 @RunWith(Categories.class)
 @Categories.IncludeCategory(AvroTests.class)
-@Suite.SuiteClasses({AvroMakerTest.class, JsonMakerTest.class})
+@Suite.SuiteClasses({AvroMakerTest.class, JsonMakerTest.class, AvroBinaryTest.class})
 public class AvroTestSuite {
 }
@@ -0,0 +1,56 @@
+package org.ga4gh.ctk.transport.avrojson;
+
+import org.ga4gh.ctk.transport.RunContext;
+import org.ga4gh.ctk.transport.http.LoopbackTransportTest;
+import org.ga4gh.ctk.transport.testcategories.TransportTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.StringWriter;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * EndpointLatencies Tester.
+ */
+@Category(TransportTests.class)
+public class EndpointLatenciesTest {
+
+    private static final String BASES = "references/{id}/bases";
+
+    /**
+     * Each phase gets its own histogram, and the total adds them up.
+     * @throws Exception
+     */
+    @Test
+    public void testRecordsPhases() throws Exception {
+        final EndpointLatencies latencies = new EndpointLatencies();
+        latencies.record("reads/search", 1000000L, 5000000L, 2000000L);
+        latencies.record(BASES, -1L, 3000000L, -1L);
+
+        assertEquals(1, latencies.get("reads/search", EndpointLatencies.Phase.TOTAL).getCount());
+        assertEquals(0, latencies.get(BASES, EndpointLatencies.Phase.SERIALIZE).getCount());
+        assertEquals(1, latencies.get(BASES, EndpointLatencies.Phase.NETWORK).getCount());
+
+        final StringWriter csv = new StringWriter();
+        latencies.writeCsv(csv, null);
+        assertTrue(csv.toString().contains("reads/search"));
+    }
+
+    /**
+     * Each run context's interactions are timed in latencies of its own.
+     * @throws Exception
+     */
+    @Test
+    public void testLatenciesArePerRun() throws Exception {
+        final RunContext one = new RunContext(new Properties());
+        final RunContext two = new RunContext(new Properties());
+        LoopbackTransportTest.getBases(one, 1);
+
+        assertEquals(1, one.call(AvroJson::getLatencies).get(BASES, EndpointLatencies.Phase.NETWORK).getCount());
+        assertNull(two.call(AvroJson::getLatencies).get(BASES, EndpointLatencies.Phase.NETWORK));
+    }
+}
@@ -0,0 +1,43 @@
+package org.ga4gh.ctk.transport.avrojson;
+
+import org.ga4gh.ctk.transport.testcategories.TransportTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.StringWriter;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * EndpointWireSizes Tester.
+ */
+@Category(TransportTests.class)
+public class EndpointWireSizesTest {
+
+    /**
+     * Sizes are added up per endpoint; a size that couldn't be learned counts as nothing.
+     */
+    @Test
+    public void testTotalsPerEndpoint() throws Exception {
+        final EndpointWireSizes sizes = new EndpointWireSizes();
+        sizes.record("reads/search", 40, 100, 300, 2000);
+        sizes.record("reads/search", 100, 100, 500, -1);
+        sizes.record("/references/{id}/", 0, 0, 60, 60);
+
+        final EndpointWireSizes.Totals reads = sizes.get("reads/search");
+        assertEquals(2, reads.getCount());
+        assertEquals(140, reads.getBytesSent());
+        assertEquals(200, reads.getBytesSentUncompressed());
+        assertEquals(800, reads.getBytesReceived());
+        assertEquals(2000, reads.getBytesReceivedUncompressed());
+        assertNull(sizes.get("variants/search"));
+
+        final StringWriter csv = new StringWriter();
+        sizes.writeCsv(csv, Collections.singletonMap("ctk.tgt.getReference", "references/{id}"));
+        assertEquals("endpoint,path,count,sent,sentUncompressed,received,receivedUncompressed\n"
+                             + "getReference,/references/{id}/,1,0,0,60,60\n"
+                             + ",reads/search,2,140,200,800,2000\n", csv.toString());
+    }
+}
@@ -0,0 +1,52 @@
+package org.ga4gh.ctk.transport.avrojson;
+
+import org.ga4gh.ctk.transport.testcategories.TransportTests;
+import org.ga4gh.methods.GAException;
+import org.ga4gh.methods.SearchReadsRequest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * GsonCodecs Tester.
+ */
+@Category(TransportTests.class)
+public class GsonCodecsTest {
+
+    /**
+     * Every caller gets the same codec.
+     */
+    @Test
+    public void testGsonIsShared() {
+        assertSame(GsonCodecs.gson(), GsonCodecs.gson());
+    }
+
+    /**
+     * A request survives a trip through the shared codec.
+     */
+    @Test
+    public void testRoundTrip() {
+        final SearchReadsRequest req = SearchReadsRequest.newBuilder()
+                                                         .setReadGroupIds(Collections.singletonList("rg1"))
+                                                         .setPageSize(33)
+                                                         .build();
+        final String json = JsonMaker.GsonToJsonBytes(req);
+        assertEquals(req, GsonCodecs.gson().fromJson(json, SearchReadsRequest.class));
+    }
+
+    /**
+     * The GAException <tt>message$</tt> field is read from the JSON <tt>message</tt> field.
+     */
+    @Test
+    public void testGAExceptionMessage() {
+        final GAException gae =
+                GsonCodecs.gson().fromJson("{\"message\":\"no such thing\",\"errorCode\":404}",
+                                           GAException.class);
+        assertEquals("no such thing", gae.getMessage$());
+        assertEquals(Integer.valueOf(404), gae.getErrorCode());
+    }
+}
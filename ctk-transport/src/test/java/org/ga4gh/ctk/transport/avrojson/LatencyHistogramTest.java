@@ -0,0 +1,65 @@
+package org.ga4gh.ctk.transport.avrojson;
+
+import org.ga4gh.ctk.transport.testcategories.TransportTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * LatencyHistogram and EndpointLatencies Tester.
+ */
+@Category(TransportTests.class)
+public class LatencyHistogramTest {
+
+    /**
+     * Percentiles are within the histogram's 3% precision.
+     */
+    @Test
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500000, histogram.getPercentile(50), 500000 * 0.03);
+        assertEquals(990000, histogram.getPercentile(99), 990000 * 0.03);
+        assertEquals(1000000, histogram.getPercentile(100));
+    }
+
+    /**
+     * Every bucket's highest value falls in that bucket, and the next value in the next one.
+     */
+    @Test
+    public void testBucketBoundaries() {
+        for (int bucket = 0; bucket < 1000; bucket++) {
+            final long highest = LatencyHistogram.highestValueIn(bucket);
+            assertEquals(bucket, LatencyHistogram.bucketOf(highest));
+            assertEquals(bucket + 1, LatencyHistogram.bucketOf(highest + 1));
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueIn(LatencyHistogram.bucketOf(Long.MAX_VALUE)));
+    }
+
+    /**
+     * Phases that didn't happen aren't recorded, and endpoints are named in the report.
+     */
+    @Test
+    public void testEndpointLatencies() throws IOException {
+        final EndpointLatencies latencies = new EndpointLatencies();
+        latencies.record("references/{id}", -1, 2000000, 30000);
+        assertEquals(0, latencies.get("references/{id}", EndpointLatencies.Phase.SERIALIZE).getCount());
+        assertEquals(2030000, latencies.get("references/{id}", EndpointLatencies.Phase.TOTAL).getMax());
+
+        final StringWriter csv = new StringWriter();
+        latencies.writeCsv(csv, Collections.singletonMap("ctk.tgt.getReferences", "references/{id}"));
+        assertTrue(csv.toString().startsWith("endpoint,path,phase,count,p50,p90,p99,p99.9,max\n"));
+        assertTrue(csv.toString().contains("getReferences,references/{id},NETWORK,1,2.000,"));
+        assertTrue(!csv.toString().contains("SERIALIZE"));
+    }
+}
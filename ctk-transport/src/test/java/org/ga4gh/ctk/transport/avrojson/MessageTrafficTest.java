@@ -0,0 +1,104 @@
+package org.ga4gh.ctk.transport.avrojson;
+
+import org.ga4gh.ctk.transport.RunContext;
+import org.ga4gh.ctk.transport.http.LoopbackTransportTest;
+import org.ga4gh.ctk.transport.testcategories.TransportTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * MessageTraffic Tester.
+ */
+@Category(TransportTests.class)
+public class MessageTrafficTest {
+
+    /**
+     * Interactions are aggregated by endpoint, method and response class, not by request body.
+     */
+    @Test
+    public void testAggregatesByEndpoint() {
+        final MessageTraffic traffic = new MessageTraffic(2, 14);
+        traffic.record("reads/search", "POST", "SearchReadsResponse", 200, "{\"pageSize\": 1}");
+        traffic.record("reads/search", "POST", "SearchReadsResponse", 200, "{\"pageSize\": 2}");
+        traffic.record("reads/search", "POST", "SearchReadsResponse", 200, "{\"pageSize\": 3}");
+        traffic.record("reads/search", "POST", "null", 404, "{}");
+        traffic.record("references/{id}", "GET", "Reference", 200, "ref1");
+
+        final List<MessageTraffic.Entry> entries = traffic.getEntries();
+        assertEquals(3, entries.size());
+        final MessageTraffic.Entry reads = entries.get(0);
+        assertEquals("reads/search", reads.getEndpoint());
+        assertEquals("SearchReadsResponse", reads.getResponseClass());
+        assertEquals(3, reads.getCount());
+        assertEquals(Long.valueOf(3), reads.getStatusCounts().get(200));
+        assertEquals("samples are capped and truncated",
+                     Arrays.asList("{\"pageSize\": 1...", "{\"pageSize\": 2..."), reads.getSamples());
+        assertEquals(Long.valueOf(1), entries.get(1).getStatusCounts().get(404));
+
+        traffic.clear();
+        assertTrue(traffic.getEntries().isEmpty());
+    }
+
+    /**
+     * Concurrent recording loses no counts.
+     */
+    @Test
+    public void testConcurrentRecording() {
+        final MessageTraffic traffic = new MessageTraffic();
+        IntStream.range(0, 10000).parallel()
+                 .forEach(i -> traffic.record("variants/search", "POST", "SearchVariantsResponse",
+                                              i % 2 == 0 ? 200 : 500, "{\"start\": " + i + "}"));
+        final MessageTraffic.Entry entry = traffic.getEntries().get(0);
+        assertEquals(10000, entry.getCount());
+        assertEquals(Long.valueOf(5000), entry.getStatusCounts().get(500));
+        assertEquals(MessageTraffic.DEFAULT_MAX_SAMPLES, entry.getSamples().size());
+    }
+
+    /**
+     * A request that's costly to render is rendered only while its entry is collecting samples.
+     */
+    @Test
+    public void testRenderingStopsWhenSamplesAreFull() {
+        final MessageTraffic traffic = new MessageTraffic(2, 100);
+        final AtomicInteger rendered = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            final int start = i;
+            traffic.record("variants/search", "POST", "SearchVariantsResponse", 200,
+                           () -> {
+                               rendered.incrementAndGet();
+                               return "{\"start\": " + start + "}";
+                           });
+        }
+        assertEquals(2, rendered.get());
+        assertEquals(5, traffic.getEntries().get(0).getCount());
+        assertEquals(2, traffic.getEntries().get(0).getSamples().size());
+    }
+
+    /**
+     * Each run context has a traffic summary of its own.
+     * @throws Exception
+     */
+    @Test
+    public void testTrafficIsPerRun() throws Exception {
+        final RunContext one = new RunContext(new Properties());
+        final RunContext two = new RunContext(new Properties());
+        LoopbackTransportTest.getBases(one, 1);
+        LoopbackTransportTest.getBases(two, 2);
+
+        final MessageTraffic trafficOne = one.call(AvroJson::getTraffic);
+        final MessageTraffic trafficTwo = two.call(AvroJson::getTraffic);
+        assertNotSame(trafficOne, trafficTwo);
+        assertEquals(1, trafficOne.getEntries().get(0).getCount());
+        assertEquals(2, trafficTwo.getEntries().get(0).getCount());
+    }
+}
@@ -10,6 +10,8 @@ import org.junit.runners.Suite;
  */
 @RunWith(Categories.class)
 @Categories.IncludeCategory(TransportTests.class)
-@Suite.SuiteClasses({AvroMakerTest.class, JsonMakerTest.class})
+@Suite.SuiteClasses({AvroMakerTest.class, JsonMakerTest.class, GsonCodecsTest.class,
+        AvroBinaryTest.class, MessageTrafficTest.class, LatencyHistogramTest.class, EndpointLatenciesTest.class,
+        EndpointWireSizesTest.class})
 public class TransportTestSuite {
 }
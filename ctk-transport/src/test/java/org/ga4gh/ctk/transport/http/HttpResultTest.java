@@ -0,0 +1,116 @@
+package org.ga4gh.ctk.transport.http;
+
+import org.ga4gh.ctk.transport.testcategories.TransportTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * HttpResult Tester.
+ */
+@Category(TransportTests.class)
+public class HttpResultTest {
+
+    private static final String JSON = "{\"nextPageToken\": null, \"alignments\": []}";
+
+    /**
+     * An unencoded body is returned as is.
+     */
+    @Test
+    public void testIdentityBody() {
+        final byte[] body = JSON.getBytes(StandardCharsets.UTF_8);
+        final HttpResult result = new HttpResult(200, "OK", null, body);
+        assertNull(result.getContentEncoding());
+        assertEquals(JSON, result.getBodyText());
+        assertEquals(body.length, result.getWireLength());
+    }
+
+    /**
+     * A gzip body is decompressed on reading, and its wire length is the compressed size.
+     */
+    @Test
+    public void testGzipBody() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        write(new GZIPOutputStream(bytes));
+        final HttpResult result = new HttpResult(200, "OK", encoding("GZIP"), bytes.toByteArray());
+        assertEquals("gzip", result.getContentEncoding());
+        assertEquals(JSON, result.getBodyText());
+        assertEquals(bytes.size(), result.getWireLength());
+        assertEquals(JSON.length(), result.getDecodedBody().length);
+    }
+
+    /**
+     * The uncompressed size of a compressed body is counted as it's read, and known at the end.
+     */
+    @Test
+    public void testDecodedLength() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        write(new GZIPOutputStream(bytes));
+        final HttpResult result = new HttpResult(200, "OK", encoding("gzip"), bytes.toByteArray());
+        assertEquals(-1, result.getDecodedLength());
+        try (InputStream in = result.getBodyStream()) {
+            assertEquals('{', in.read());
+            assertEquals(-1, result.getDecodedLength());
+            ByteStreams.exhaust(in);
+        }
+        assertEquals(JSON.length(), result.getDecodedLength());
+
+        assertEquals(JSON.length(), new HttpResult(200, "OK", null, JSON.getBytes(StandardCharsets.UTF_8))
+                .getDecodedLength());
+    }
+
+    /**
+     * "deflate" bodies are understood with or without the zlib wrapper.
+     */
+    @Test
+    public void testDeflateBody() throws IOException {
+        final ByteArrayOutputStream zlib = new ByteArrayOutputStream();
+        write(new DeflaterOutputStream(zlib));
+        assertEquals(JSON, new HttpResult(200, "OK", encoding("deflate"), zlib.toByteArray()).getBodyText());
+
+        final ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        write(new DeflaterOutputStream(raw, new Deflater(Deflater.DEFAULT_COMPRESSION, true)));
+        assertEquals(JSON, new HttpResult(200, "OK", encoding("deflate"), raw.toByteArray()).getBodyText());
+    }
+
+    private static void write(OutputStream out) throws IOException {
+        try (OutputStream o = out) {
+            o.write(JSON.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static Map<String, List<String>> encoding(String encoding) {
+        return Collections.singletonMap("content-encoding", Collections.singletonList(encoding));
+    }
+
+    /**
+     * A body is read whole whatever its stated length says: exact, short, long or unknown.
+     */
+    @Test
+    public void testReadBody() throws IOException {
+        final byte[] body = JSON.getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(body, HttpResult.readBody(new ByteArrayInputStream(body), body.length));
+        assertArrayEquals(body, HttpResult.readBody(new ByteArrayInputStream(body), body.length + 10));
+        assertArrayEquals(body, HttpResult.readBody(new ByteArrayInputStream(body), 5));
+        assertArrayEquals(body, HttpResult.readBody(new ByteArrayInputStream(body), -1));
+        assertEquals(0, HttpResult.readBody(new ByteArrayInputStream(new byte[0]), 0).length);
+    }
+}
@@ -0,0 +1,124 @@
+package org.ga4gh.ctk.transport.http;
+
+import org.ga4gh.ctk.transport.testcategories.TransportTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * HttpTransports Tester.
+ */
+@Category(TransportTests.class)
+public class HttpTransportsTest {
+
+    /**
+     * No name means the default transport.
+     */
+    @Test
+    public void testDefaultTransport() {
+        assertEquals(HttpTransports.DEFAULT, HttpTransports.forName(null).getName());
+        assertEquals(HttpTransports.DEFAULT, HttpTransports.forName(" ").getName());
+    }
+
+    /**
+     * Transports are shared, and names are not case-sensitive.
+     */
+    @Test
+    public void testTransportsAreShared() {
+        final HttpTransport transport = HttpTransports.forName(HttpTransports.URL_CONNECTION);
+        assertEquals(HttpTransports.URL_CONNECTION, transport.getName());
+        assertSame(transport, HttpTransports.forName("URLConnection"));
+    }
+
+    /**
+     * Runs with different pool or timeout settings get transports of their own.
+     */
+    @Test
+    public void testTransportsPerConfig() {
+        final TransportConfig fast = new TransportConfig(10, 5, 1000, 1000, 1000, null);
+        final TransportConfig slow = new TransportConfig(10, 5, 1000, 1000, 5000, null);
+        final HttpTransport transport = HttpTransports.forName(HttpTransports.URL_CONNECTION, fast);
+        assertSame(fast, transport.getConfig());
+        assertSame(transport, HttpTransports.forName(HttpTransports.URL_CONNECTION,
+                                                     new TransportConfig(10, 5, 1000, 1000, 1000,
+                                                                         Collections.emptyMap())));
+        assertNotSame(transport, HttpTransports.forName(HttpTransports.URL_CONNECTION, slow));
+    }
+
+    /**
+     * Only so many transports are kept; the one used longest ago is replaced, but not
+     * closed while it's still held.
+     */
+    @Test
+    public void testTransportsAreEvicted() throws Exception {
+        final TransportConfig first = new TransportConfig(10, 5, 1000, 1000, 101, null);
+        final HttpTransport transport = HttpTransports.forName(HttpTransports.URL_CONNECTION, first);
+        for (int i = 0; i < HttpTransports.MAX_TRANSPORTS; i++) {
+            HttpTransports.forName(HttpTransports.URL_CONNECTION, new TransportConfig(10, 5, 1000, 1000, 200 + i,
+                                                                                      null));
+        }
+        assertNotSame(transport, HttpTransports.forName(HttpTransports.URL_CONNECTION, first));
+        try {
+            transport.getAsync("http://127.0.0.1:1/", Collections.<String, String>emptyMap(), 1000).get();
+            fail("nothing listens on port 1");
+        } catch (ExecutionException e) {
+            assertFalse(e.getCause().getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    /**
+     * A closed transport fails requests through their futures, not by throwing.
+     */
+    @Test
+    public void testClosedTransportFailsTheFuture() throws Exception {
+        final UrlConnectionTransport transport =
+                new UrlConnectionTransport(new TransportConfig(10, 5, 1000, 1000, 1000, null));
+        transport.close();
+        final CompletableFuture<HttpResult> future =
+                transport.getAsync("http://127.0.0.1:1/", Collections.<String, String>emptyMap(), 1000);
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get();
+            fail("the transport is closed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+            assertTrue(e.getCause().getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    /**
+     * Unirest can only have one configuration, so asking for another gets the one it has.
+     */
+    @Test
+    public void testUnirestConfigMismatch() {
+        final HttpTransport unirest = HttpTransports.forName(HttpTransports.UNIREST);
+        final TransportConfig config = unirest.getConfig();
+        assertSame(unirest, HttpTransports.forName(HttpTransports.UNIREST,
+                                                   new TransportConfig(config.getMaxConnections() + 1,
+                                                                       config.getMaxConnectionsPerRoute(),
+                                                                       config.getIdleTimeout(),
+                                                                       config.getConnectTimeout(),
+                                                                       config.getReadTimeout(), null)));
+        assertSame(config, unirest.getConfig());
+    }
+
+    /**
+     * An unknown name is an error, not a silent fallback.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownTransport() {
+        HttpTransports.forName("carrier-pigeon");
+    }
+}
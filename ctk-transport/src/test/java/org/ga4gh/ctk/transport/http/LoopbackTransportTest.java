@@ -0,0 +1,244 @@
+package org.ga4gh.ctk.transport.http;
+
+import org.apache.avro.specific.SpecificRecordBase;
+import org.ga4gh.ctk.transport.GAWrapperException;
+import org.ga4gh.ctk.transport.RespCode;
+import org.ga4gh.ctk.transport.RunContext;
+import org.ga4gh.ctk.transport.WireTracker;
+import org.ga4gh.ctk.transport.avrojson.AvroBinary;
+import org.ga4gh.ctk.transport.avrojson.AvroJson;
+import org.ga4gh.ctk.transport.avrojson.EndpointWireSizes;
+import org.ga4gh.ctk.transport.avrojson.MessageTraffic;
+import org.ga4gh.ctk.transport.testcategories.TransportTests;
+import org.ga4gh.methods.GAException;
+import org.ga4gh.methods.ListReferenceBasesResponse;
+import org.ga4gh.methods.SearchReadsRequest;
+import org.ga4gh.methods.SearchReadsResponse;
+import org.ga4gh.models.ReadAlignment;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * LoopbackTransport Tester.
+ */
+@Category(TransportTests.class)
+public class LoopbackTransportTest {
+
+    private static final String ROOT = "http://loopback/";
+
+    /**
+     * A server with one read group, <tt>rg1</tt>, and one reference, <tt>ref1</tt>; the other
+     * transport tests use it too.
+     */
+    public static class StubHandler implements LoopbackHandler {
+
+        SpecificRecordBase lastRequest;
+
+        @Override
+        public SpecificRecordBase post(String path, SpecificRecordBase request) throws GAException {
+            lastRequest = request;
+            if (!((SearchReadsRequest) request).getReadGroupIds().contains("rg1")) {
+                final GAException notFound = new GAException();
+                notFound.setMessage$("no such read group");
+                notFound.setErrorCode(404);
+                throw new GAWrapperException(notFound, 404);
+            }
+            return SearchReadsResponse.newBuilder()
+                                      .setAlignments(Collections.<ReadAlignment>emptyList())
+                                      .build();
+        }
+
+        @Override
+        public SpecificRecordBase get(String path, String id, Map<String, Object> queryParams)
+                throws GAException {
+            if (!id.equals("ref1")) {
+                throw new GAException();
+            }
+            return ListReferenceBasesResponse.newBuilder().setSequence(path + " " + id).build();
+        }
+    }
+
+    /**
+     * GET <tt>ref1</tt>'s bases from a {@link StubHandler} some number of times, in a run context.
+     *
+     * @param context the run context to record the interactions in
+     * @param times   how many GETs
+     * @throws Exception if a GET fails
+     */
+    public static void getBases(RunContext context, int times) throws Exception {
+        final LoopbackTransport server = new LoopbackTransport(new StubHandler());
+        for (int i = 0; i < times; i++) {
+            context.call(() -> new AvroJson<>(new ListReferenceBasesResponse(), ROOT, "references/{id}/bases",
+                                              null, server).doGetResp("ref1"));
+        }
+    }
+
+    private static SearchReadsRequest searchReads(String readGroupId) {
+        return SearchReadsRequest.newBuilder()
+                                 .setReadGroupIds(Collections.singletonList(readGroupId))
+                                 .build();
+    }
+
+    /**
+     * The request object reaches the handler as is, and its response comes back.
+     */
+    @Test
+    public void testPost() throws Exception {
+        final StubHandler handler = new StubHandler();
+        final WireTracker wt = new WireTracker();
+        final SearchReadsRequest request = searchReads("rg1");
+        final SearchReadsResponse response =
+                new AvroJson<>(request, new SearchReadsResponse(), ROOT, "reads/search", wt,
+                               new LoopbackTransport(handler)).doPostResp();
+
+        assertSame(request, handler.lastRequest);
+        assertNotNull(response);
+        assertEquals(0, response.getAlignments().size());
+        assertEquals(RespCode.OK, wt.getResponseStatus());
+    }
+
+    /**
+     * The WireTracker and the run's wire sizes get the JSON that would have crossed the wire.
+     */
+    @Test
+    public void testWireIsTracked() throws Exception {
+        final WireTracker wt = new WireTracker();
+        final EndpointWireSizes sizes = new RunContext(new Properties()).call(() -> {
+            new AvroJson<>(searchReads("rg1"), new SearchReadsResponse(), ROOT, "reads/search", wt,
+                           new LoopbackTransport(new StubHandler())).doPostResp();
+            return AvroJson.getWireSizes();
+        });
+
+        assertTrue(wt.bodySent.contains("rg1"));
+        assertTrue(wt.bodyReceived.contains("alignments"));
+        assertEquals(wt.bodyReceived.length(), wt.bytesReceived);
+        final EndpointWireSizes.Totals totals = sizes.get("reads/search");
+        assertEquals(1, totals.getCount());
+        assertEquals(wt.bytesSent, totals.getBytesSent());
+        assertEquals(wt.bytesReceived, totals.getBytesReceived());
+    }
+
+    /**
+     * Without a WireTracker nothing is rendered as JSON for the sizes: the run's wire sizes get
+     * the Avro binary encodings', and the traffic still gets a sample of the request.
+     */
+    @Test
+    public void testUntrackedSizesAreBinary() throws Exception {
+        final SearchReadsRequest request = searchReads("rg1");
+        final SearchReadsResponse[] response = new SearchReadsResponse[1];
+        final RunContext context = new RunContext(new Properties());
+        final EndpointWireSizes sizes = context.call(() -> {
+            response[0] = new AvroJson<>(request, new SearchReadsResponse(), ROOT, "reads/search", null,
+                                         new LoopbackTransport(new StubHandler())).doPostResp();
+            return AvroJson.getWireSizes();
+        });
+        final MessageTraffic traffic = context.call(AvroJson::getTraffic);
+
+        final EndpointWireSizes.Totals totals = sizes.get("reads/search");
+        assertEquals(AvroBinary.toBytes(request).length, totals.getBytesSent());
+        assertEquals(AvroBinary.toBytes(response[0]).length, totals.getBytesReceived());
+        assertTrue(traffic.getEntries().get(0).getSamples().get(0).contains("rg1"));
+    }
+
+    /**
+     * The response is a copy, so changing it doesn't change the server's data.
+     */
+    @Test
+    public void testResponseIsACopy() throws Exception {
+        final ListReferenceBasesResponse stored = ListReferenceBasesResponse.newBuilder().setSequence("ACGT").build();
+        final LoopbackTransport transport = new LoopbackTransport(new StubHandler() {
+            @Override
+            public SpecificRecordBase get(String path, String id, Map<String, Object> queryParams) {
+                return stored;
+            }
+        });
+        final ListReferenceBasesResponse response =
+                new AvroJson<>(new ListReferenceBasesResponse(), ROOT, "references/{id}/bases", null, transport)
+                        .doGetResp("ref1");
+
+        assertNotSame(stored, response);
+        assertEquals("ACGT", response.getSequence());
+        response.setSequence("TTTT");
+        assertEquals("ACGT", stored.getSequence());
+    }
+
+    /**
+     * The handler set for all goes to every transport without one of its own, however it was configured.
+     */
+    @Test
+    public void testSharedHandler() {
+        final LoopbackHandler handler = new StubHandler();
+        LoopbackTransport.setHandler(handler);
+        try {
+            assertSame(handler, new LoopbackTransport().getHandler());
+            final LoopbackTransport shared = (LoopbackTransport) HttpTransports.forName(
+                    HttpTransports.LOOPBACK, new TransportConfig(10, 5, 1000, 1000, 1234, null));
+            assertSame(handler, shared.getHandler());
+            final StubHandler own = new StubHandler();
+            assertSame(own, new LoopbackTransport(own).getHandler());
+        } finally {
+            LoopbackTransport.setHandler(null);
+        }
+    }
+
+    /**
+     * GETs get the unexpanded path and the route parameter.
+     */
+    @Test
+    public void testGet() throws Exception {
+        final ListReferenceBasesResponse response =
+                new AvroJson<>(new ListReferenceBasesResponse(), ROOT, "references/{id}/bases", null,
+                               new LoopbackTransport(new StubHandler())).doGetResp("ref1");
+
+        assertEquals("references/{id}/bases ref1", response.getSequence());
+    }
+
+    /**
+     * A handler's GAWrapperException keeps its status, and the WireTracker sees the error body.
+     */
+    @Test
+    public void testError() {
+        final WireTracker wt = new WireTracker();
+        try {
+            new AvroJson<>(searchReads("rg2"), new SearchReadsResponse(), ROOT, "reads/search", wt,
+                           new LoopbackTransport(new StubHandler())).doPostResp();
+            fail("expected a GAException");
+        } catch (GAException e) {
+            assertEquals(404, ((GAWrapperException) e).getHttpStatusCode());
+        }
+        assertEquals(RespCode.NOT_FOUND, wt.getResponseStatus());
+        assertTrue(wt.gotParseableGAE());
+        assertEquals("no such read group", wt.getGae().getMessage$());
+        assertEquals(404, wt.getErrorCode());
+    }
+
+    /**
+     * Any other GAException is reported as 400, through the async path too.
+     */
+    @Test
+    public void testAsyncError() throws InterruptedException {
+        try {
+            new AvroJson<>(new ListReferenceBasesResponse(), ROOT, "references/{id}/bases", null,
+                           new LoopbackTransport(new StubHandler())).doGetRespAsync("ref2", null).get();
+            fail("expected a GAException");
+        } catch (ExecutionException e) {
+            assertEquals(400, ((GAWrapperException) e.getCause()).getHttpStatusCode());
+        }
+    }
+
+    /**
+     * There are no bytes to send.
+     */
+    @Test(expected = IOException.class)
+    public void testBytesNotSupported() throws IOException {
+        new LoopbackTransport(new StubHandler()).get(ROOT, Collections.<String, String>emptyMap(), 1000);
+    }
+}
@@ -0,0 +1,51 @@
+package org.ga4gh.ctk.transport.http;
+
+import org.ga4gh.ctk.transport.URLMAPPINGImpl;
+import org.ga4gh.ctk.transport.testcategories.TransportTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * TransportConfig Tester.
+ */
+@Category(TransportTests.class)
+public class TransportConfigTest {
+
+    /**
+     * With no properties set, every setting has its default.
+     */
+    @Test
+    public void testDefaults() {
+        final TransportConfig config = TransportConfig.fromProperties(new Properties(), new URLMAPPINGImpl());
+        assertEquals(200, config.getMaxConnections());
+        assertEquals(20, config.getMaxConnectionsPerRoute());
+        assertEquals(30000, config.getIdleTimeout());
+        assertEquals(10000, config.getConnectTimeout());
+        assertEquals(60000, config.getReadTimeout());
+        assertEquals(60000, config.getReadTimeout("references/{id}/bases"));
+        assertEquals(60000, config.getLongestReadTimeout());
+    }
+
+    /**
+     * Per-endpoint read timeouts are named like URLMAPPING endpoints and looked up by path;
+     * bad entries are skipped.
+     */
+    @Test
+    public void testEndpointReadTimeouts() {
+        final Properties props = new Properties();
+        props.setProperty("ctk.transport.timeout.read", "5000");
+        props.setProperty("ctk.transport.timeout.endpoints",
+                          "getReferencesBases=300000, searchReads = 1000,noSuchEndpoint=7,searchVariants=x");
+        final TransportConfig config = TransportConfig.fromProperties(props, new URLMAPPINGImpl());
+        assertEquals(300000, config.getReadTimeout("references/{id}/bases"));
+        assertEquals(300000, config.getReadTimeout("/references/{id}/bases/"));
+        assertEquals(1000, config.getReadTimeout("reads/search"));
+        assertEquals(5000, config.getReadTimeout("variants/search"));
+        assertEquals(5000, config.getReadTimeout("variantsets/search"));
+        assertEquals(300000, config.getLongestReadTimeout());
+    }
+}
@@ -0,0 +1,126 @@
+package org.ga4gh.ctk.transport.protocols;
+
+import org.ga4gh.ctk.transport.testcategories.TransportTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.*;
+
+/**
+ * PagingSpliterator Tester.
+ */
+@Category(TransportTests.class)
+public class PagingSpliteratorTest {
+
+    /**
+     * A page of a search result.
+     */
+    private static class Page {
+        final List<String> items;
+        final String nextPageToken;
+
+        Page(String nextPageToken, String... items) {
+            this.items = Arrays.asList(items);
+            this.nextPageToken = nextPageToken;
+        }
+    }
+
+    /**
+     * A server with the given pages, by page token, which remembers what it was asked for.
+     */
+    private static class Server {
+        final Map<String, CompletableFuture<Page>> pages = new HashMap<>();
+        final List<String> requested = new ArrayList<>();
+
+        Server page(String token, Page page) {
+            pages.put(token, CompletableFuture.completedFuture(page));
+            return this;
+        }
+
+        CompletableFuture<Page> fetch(String token) {
+            requested.add(token);
+            final CompletableFuture<Page> page = pages.get(token);
+            assertNotNull("no page " + token, page);
+            return page;
+        }
+
+        PagingSpliterator<Page, String> walk() {
+            return new PagingSpliterator<>(null, this::fetch, page -> page.items, page -> page.nextPageToken);
+        }
+
+        List<String> all() {
+            return StreamSupport.stream(walk(), false).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Empty pages, wherever they come, are skipped.
+     */
+    @Test
+    public void testEmptyPages() {
+        final Server server = new Server().page(null, new Page("2"))
+                                          .page("2", new Page("3", "a"))
+                                          .page("3", new Page("4"))
+                                          .page("4", new Page(null, "b", "c"));
+        assertEquals(Arrays.asList("a", "b", "c"), server.all());
+        assertEquals(Arrays.asList(null, "2", "3", "4"), server.requested);
+
+        assertEquals(Collections.emptyList(), new Server().page(null, new Page(null)).all());
+    }
+
+    /**
+     * A missing or blank nextPageToken ends the walk.
+     */
+    @Test
+    public void testLastPage() {
+        for (String last : Arrays.asList(null, "", "  ")) {
+            final Server server = new Server().page(null, new Page("2", "a"))
+                                              .page("2", new Page(last, "b"));
+            assertEquals(Arrays.asList("a", "b"), server.all());
+            assertEquals(Arrays.asList(null, "2"), server.requested);
+        }
+    }
+
+    /**
+     * Stopping early asks for no more than the page after the one being read, and
+     * {@link PagingSpliterator#cancel()} cancels that.
+     */
+    @Test
+    public void testEarlyTermination() {
+        final CompletableFuture<Page> second = new CompletableFuture<>();
+        final Server server = new Server().page(null, new Page("2", "a", "b"))
+                                          .page("3", new Page(null, "c"));
+        server.pages.put("2", second);
+        final PagingSpliterator<Page, String> walk = server.walk();
+        final List<String> seen = new ArrayList<>();
+
+        assertTrue(walk.tryAdvance(seen::add));
+        assertTrue(walk.tryAdvance(seen::add));
+        assertEquals(Arrays.asList("a", "b"), seen);
+        assertEquals(Arrays.asList(null, "2"), server.requested);
+
+        walk.cancel();
+        assertTrue(second.isCancelled());
+        assertFalse(walk.tryAdvance(seen::add));
+        assertEquals(Arrays.asList(null, "2"), server.requested);
+    }
+
+    /**
+     * A page that doesn't arrive is an error, not the end.
+     */
+    @Test(expected = UncheckedIOException.class)
+    public void testMissingPage() {
+        new Server().page(null, new Page("2", "a")).page("2", null).all();
+    }
+}
@@ -3,6 +3,7 @@ package org.ga4gh.cts.api;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.SetMultimap;
+import org.ga4gh.ctk.transport.RunContext;
 import org.ga4gh.models.ReferenceSet;
 
 import java.util.ArrayList;
@@ -150,10 +151,11 @@ public class TestData {
     /**
      * Return the ID of the compliance dataset on the server being tested.
      * By default this is the value of {@link #DEFAULT_DATASET_ID}, but
-     * you can override it by setting the Java property <tt>-Dctk.tgt.dataset_id</tt>.
+     * you can override it by setting the Java property <tt>-Dctk.tgt.dataset_id</tt>, or
+     * with the {@link RunContext} the tests are run in.
      */
     public static String getDatasetId() {
-        final String propValue = System.getProperty(DATASET_PROP_NAME);
+        final String propValue = RunContext.property(DATASET_PROP_NAME);
         if (propValue != null) {
             return propValue;
         } else {
@@ -7,9 +7,12 @@ import org.ga4gh.ctk.transport.protocols.Client;
 import org.ga4gh.methods.*;
 import org.ga4gh.models.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.StrictAssertions.catchThrowable;
@@ -300,25 +303,14 @@ public class Utils {
     public static List<Variant> getAllVariantsInRange(Client client,
                                                       String variantSetId,
                                                       long start, long end) throws AvroRemoteException {
-        // get all variants in the range
-        final List<Variant> result = new LinkedList<>();
-        String pageToken = null;
-
-        do {
-            final SearchVariantsRequest vReq =
-                    SearchVariantsRequest.newBuilder()
-                                         .setVariantSetId(variantSetId)
-                                         .setReferenceName(TestData.REFERENCE_NAME)
-                                         .setStart(start).setEnd(end)
-                                         .setPageSize(100)
-                                         .setPageToken(pageToken)
-                                         .build();
-            final SearchVariantsResponse vResp = client.variants.searchVariants(vReq);
-            pageToken = vResp.getNextPageToken();
-            result.addAll(vResp.getVariants());
-        } while (pageToken != null);
-
-        return result;
+        final SearchVariantsRequest vReq =
+                SearchVariantsRequest.newBuilder()
+                                     .setVariantSetId(variantSetId)
+                                     .setReferenceName(TestData.REFERENCE_NAME)
+                                     .setStart(start).setEnd(end)
+                                     .setPageSize(100)
+                                     .build();
+        return collectAll(client.variants.streamVariants(vReq));
     }
 
     /**
@@ -330,21 +322,12 @@ public class Utils {
      */
     public static List<VariantSet> getAllVariantSets(Client client) throws AvroRemoteException {
 
-        final List<VariantSet> result = new LinkedList<>();
-        String pageToken = null;
-        do {
-            final SearchVariantSetsRequest req =
-                    SearchVariantSetsRequest.newBuilder()
-                                            .setDatasetId(TestData.getDatasetId())
-                                            .setPageSize(100)
-                                            .setPageToken(pageToken)
-                                            .build();
-            final SearchVariantSetsResponse resp = client.variants.searchVariantSets(req);
-            pageToken = resp.getNextPageToken();
-            result.addAll(resp.getVariantSets());
-        } while (pageToken != null);
-
-        return result;
+        final SearchVariantSetsRequest req =
+                SearchVariantSetsRequest.newBuilder()
+                                        .setDatasetId(TestData.getDatasetId())
+                                        .setPageSize(100)
+                                        .build();
+        return collectAll(client.variants.streamVariantSets(req));
     }
 
     /**
@@ -357,21 +340,12 @@ public class Utils {
      */
     public static List<CallSet> getAllCallSets(Client client,
                                                String variantSetId) throws AvroRemoteException {
-        final List<CallSet> result = new LinkedList<>();
-        String pageToken = null;
-        do {
-            final SearchCallSetsRequest callSetsSearchRequest =
-                    SearchCallSetsRequest.newBuilder()
-                                         .setPageSize(100)
-                                         .setPageToken(pageToken)
-                                         .setVariantSetId(variantSetId)
-                                         .build();
-            final SearchCallSetsResponse csResp = client.variants.searchCallSets(callSetsSearchRequest);
-            pageToken = csResp.getNextPageToken();
-            result.addAll(csResp.getCallSets());
-        } while (pageToken != null);
-
-        return result;
+        final SearchCallSetsRequest callSetsSearchRequest =
+                SearchCallSetsRequest.newBuilder()
+                                     .setPageSize(100)
+                                     .setVariantSetId(variantSetId)
+                                     .build();
+        return collectAll(client.variants.streamCallSets(callSetsSearchRequest));
     }
 
     /**
@@ -380,21 +354,11 @@ public class Utils {
      * @return a {@link List} of all {@link Reference}s in the first {@link ReferenceSet}
      */
     public static List<ReferenceSet> getAllReferenceSets(Client client) throws AvroRemoteException {
-        final List<ReferenceSet> result = new LinkedList<>();
-        String pageToken = null;
-        do {
-            final SearchReferenceSetsRequest refSetsReq =
-                    SearchReferenceSetsRequest.newBuilder()
-                                              .setPageSize(100)
-                                              .setPageToken(pageToken)
-                                              .build();
-            final SearchReferenceSetsResponse refSetsResp =
-                    client.references.searchReferenceSets(refSetsReq);
-            pageToken = refSetsResp.getNextPageToken();
-            result.addAll(refSetsResp.getReferenceSets());
-        } while (pageToken != null);
-
-        return result;
+        final SearchReferenceSetsRequest refSetsReq =
+                SearchReferenceSetsRequest.newBuilder()
+                                          .setPageSize(100)
+                                          .build();
+        return collectAll(client.references.streamReferenceSets(refSetsReq));
     }
 
     /**
@@ -406,21 +370,12 @@ public class Utils {
      */
     public static List<Reference> getAllReferences(Client client,
                                                    String refSetId) throws AvroRemoteException {
-        final List<Reference> result = new LinkedList<>();
-        String pageToken = null;
-        do {
-            final SearchReferencesRequest refsReq =
-                    SearchReferencesRequest.newBuilder()
-                                           .setReferenceSetId(refSetId)
-                                           .setPageSize(100)
-                                           .setPageToken(pageToken)
-                                           .build();
-            final SearchReferencesResponse refsResp = client.references.searchReferences(refsReq);
-            pageToken = refsResp.getNextPageToken();
-            result.addAll(refsResp.getReferences());
-        } while (pageToken != null);
-
-        return result;
+        final SearchReferencesRequest refsReq =
+                SearchReferencesRequest.newBuilder()
+                                       .setReferenceSetId(refSetId)
+                                       .setPageSize(100)
+                                       .build();
+        return collectAll(client.references.streamReferences(refsReq));
     }
 
     /**
@@ -433,21 +388,12 @@ public class Utils {
     public static List<ReadAlignment> getAllReads(Client client, String referenceId,
                                                   String readGroupId) throws AvroRemoteException {
 
-        final List<ReadAlignment> result = new LinkedList<>();
-        String pageToken = null;
-        do {
-            final SearchReadsRequest req = SearchReadsRequest.newBuilder()
-                                                             .setReferenceId(referenceId)
-                                                             .setReadGroupIds(aSingle(readGroupId))
-                                                             .setPageToken(pageToken)
-                                                             .setPageSize(100)
-                                                             .build();
-            final SearchReadsResponse resp = client.reads.searchReads(req);
-            result.addAll(resp.getAlignments());
-            pageToken = resp.getNextPageToken();
-        } while (pageToken != null);
-
-        return result;
+        final SearchReadsRequest req = SearchReadsRequest.newBuilder()
+                                                         .setReferenceId(referenceId)
+                                                         .setReadGroupIds(aSingle(readGroupId))
+                                                         .setPageSize(100)
+                                                         .build();
+        return collectAll(client.reads.streamReads(req));
     }
 
     /**
@@ -456,19 +402,32 @@ public class Utils {
      * @return all the {@link Dataset}s
      */
     public static List<Dataset> getAllDatasets(Client client) throws AvroRemoteException {
-        final List<Dataset> result = new LinkedList<>();
-        String pageToken = null;
-        do {
-            final SearchDatasetsRequest req =
-                    SearchDatasetsRequest.newBuilder()
-                                         .setPageSize(100)
-                                         .setPageToken(pageToken)
-                                         .build();
-            final SearchDatasetsResponse resp = client.metadata.searchDatasets(req);
-            pageToken = resp.getNextPageToken();
-            result.addAll(resp.getDatasets());
-        } while (pageToken != null);
-        return result;
+        final SearchDatasetsRequest req =
+                SearchDatasetsRequest.newBuilder()
+                                     .setPageSize(100)
+                                     .build();
+        return collectAll(client.metadata.streamDatasets(req));
+    }
+
+    /**
+     * Drain a paged search stream from {@link Client} into a {@link List}, turning a failed
+     * page back into the checked exception the search methods throw.
+     *
+     * @param results the stream of search results
+     * @param <T>     the type of result
+     * @return all the results, in order
+     * @throws AvroRemoteException if the server throws an exception or there's an I/O error
+     */
+    private static <T> List<T> collectAll(Stream<T> results) throws AvroRemoteException {
+        try (Stream<T> all = results) {
+            return all.collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            final IOException cause = e.getCause();
+            if (cause instanceof AvroRemoteException) {
+                throw (AvroRemoteException)cause;
+            }
+            throw new AvroRemoteException(cause);
+        }
     }
 
     /**
@@ -504,25 +463,14 @@ public class Utils {
      public static List<VariantAnnotation> getAllVariantAnnotationsInRange(Client client,
                                                                           String variantAnnotationSetId,
                                                                           long start, long end) throws AvroRemoteException {
-        // get all variantAnnotations in the range
-        final List<VariantAnnotation> result = new LinkedList<>();
-        String pageToken = null;
-
-        do {
-            final SearchVariantAnnotationsRequest vReq =
-                    SearchVariantAnnotationsRequest.newBuilder()
-                                                   .setVariantAnnotationSetId(variantAnnotationSetId)
-                                                   .setReferenceName(TestData.VARIANT_ANNOTATION_REFERENCE_NAME)
-                                                   .setStart(start).setEnd(end)
-                                                   .setPageSize(100)
-                                                    .setPageToken(pageToken)
-                                                   .build();
-            final SearchVariantAnnotationsResponse vResp = client.variantAnnotations.searchVariantAnnotations(vReq);
-            pageToken = vResp.getNextPageToken();
-            result.addAll(vResp.getVariantAnnotations());
-        } while (pageToken != null);
-
-        return result;
+        final SearchVariantAnnotationsRequest vReq =
+                SearchVariantAnnotationsRequest.newBuilder()
+                                               .setVariantAnnotationSetId(variantAnnotationSetId)
+                                               .setReferenceName(TestData.VARIANT_ANNOTATION_REFERENCE_NAME)
+                                               .setStart(start).setEnd(end)
+                                               .setPageSize(100)
+                                               .build();
+        return collectAll(client.variantAnnotations.streamVariantAnnotations(vReq));
     }
 
     /**
@@ -1,12 +1,16 @@
 package org.ga4gh.cts.core;
 
 import org.ga4gh.ctk.testcategories.CoreTests;
+import org.ga4gh.ctk.transport.RunContext;
 import org.ga4gh.cts.api.TestData;
 import org.ga4gh.cts.api.Utils;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.Properties;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
 
 /**
  * Unit tests to make sure we can override the ID of the compliance test dataset.
@@ -18,45 +22,58 @@ public class DatasetIdPropertyIT {
 
     private static final String PROP_NAME = "ctk.tgt.dataset_id";
 
+    /**
+     * A run context that doesn't set the dataset ID, in place of the one these tests are run in.
+     */
+    private static final RunContext NO_DATASET = new RunContext(new Properties());
+
+    private static RunContext withDataset(String datasetId) {
+        final Properties props = new Properties();
+        props.setProperty(PROP_NAME, datasetId);
+        return new RunContext(props);
+    }
+
     /**
      * Check that {@link TestData#getDatasetId()} returns the default dataset ID when
-     * there's no overriding value in the Java {@link System} properties.
+     * neither the {@link RunContext} nor the Java {@link System} properties override it.
      */
     @Test
-    public void checkDefaultValue() {
-        final String originalValue = System.getProperty(PROP_NAME);
-        try {
-            System.clearProperty(PROP_NAME);
-            assertThat(System.getProperty(PROP_NAME)).isNull();
+    public void checkDefaultValue() throws Exception {
+        // the system properties are the fallback; this JVM may have been told a dataset there
+        assumeTrue(System.getProperty(PROP_NAME) == null);
 
-            // the real test:
-            assertThat(TestData.getDatasetId()).isEqualTo(TestData.DEFAULT_DATASET_ID);
+        assertThat(NO_DATASET.call(TestData::getDatasetId)).isEqualTo(TestData.DEFAULT_DATASET_ID);
+    }
 
-        } finally {
-            // the system properties are a global resource, so clean up
-            if (originalValue == null) {
-                System.clearProperty(PROP_NAME);
-            } else {
-                System.setProperty(PROP_NAME, originalValue);
-            }
-        }
+    /**
+     * Check that {@link TestData#getDatasetId()} returns the override dataset ID when
+     * the {@link RunContext} it's called in sets one.
+     */
+    @Test
+    public void checkOverrideValue() throws Exception {
+        final String madeUpId = Utils.randomId();
+
+        assertThat(withDataset(madeUpId).call(TestData::getDatasetId)).isEqualTo(madeUpId);
     }
 
     /**
      * Check that {@link TestData#getDatasetId()} returns the override dataset ID when
-     * there's an overriding value in the Java {@link System} properties.
+     * there's one in the Java {@link System} properties and the {@link RunContext} doesn't
+     * set one, and that a context which does set one wins.
      */
     @Test
-    public void checkOverrideValue() {
+    public void checkSystemPropertyValue() throws Exception {
         final String originalValue = System.getProperty(PROP_NAME);
         try {
             final String madeUpId = Utils.randomId();
+            final String contextId = Utils.randomId();
 
             System.setProperty(PROP_NAME, madeUpId);
             assertThat(System.getProperty(PROP_NAME)).isEqualTo(madeUpId);
 
             // the real test:
-            assertThat(TestData.getDatasetId()).isEqualTo(madeUpId);
+            assertThat(NO_DATASET.call(TestData::getDatasetId)).isEqualTo(madeUpId);
+            assertThat(withDataset(contextId).call(TestData::getDatasetId)).isEqualTo(contextId);
 
         } finally {
             // the system properties are a global resource, so clean up
@@ -68,4 +85,19 @@ public class DatasetIdPropertyIT {
         }
     }
 
+    /**
+     * Check that {@link TestData#getDatasetId()} returns the dataset ID of the innermost
+     * {@link RunContext} it's called in, and the outer one's again once that's done.
+     */
+    @Test
+    public void checkRunContextValue() throws Exception {
+        final String outerId = Utils.randomId();
+        final String innerId = Utils.randomId();
+
+        assertThat(withDataset(outerId).call(() -> {
+            assertThat(withDataset(innerId).call(TestData::getDatasetId)).isEqualTo(innerId);
+            return TestData.getDatasetId();
+        })).isEqualTo(outerId);
+    }
+
 }